@@ -1,21 +1,64 @@
 package ntt.ntt_ms_accounts.client;
 
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
 import ntt.ntt_ms_accounts.models.CustomerSubType;
 import ntt.ntt_ms_accounts.models.CustomerType;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeoutException;
 
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class CustomerClient {
 
 
     private final WebClient customersWebClient;
 
+    // Caché acotada con TTL; las búsquedas concurrentes del mismo id comparten el mismo future
+    private final AsyncCache<String, CustomerDTO> cache;
+
+    private final CircuitBreaker circuitBreaker;
+    private final int maxRetries;
+    private final Duration retryBackoff;
+    // 0 = sin hedging; si no, lanza una segunda petición si la primera tarda más que esto
+    private final Duration hedgeDelay;
+
+    public CustomerClient(WebClient customersWebClient,
+                          MeterRegistry registry,
+                          CircuitBreaker customersCircuitBreaker,
+                          @Value("${customers.cache.max-size:10000}") long maxSize,
+                          @Value("${customers.cache.ttl:10m}") Duration ttl,
+                          @Value("${customers.resilience.max-retries:2}") int maxRetries,
+                          @Value("${customers.resilience.retry-backoff:100ms}") Duration retryBackoff,
+                          @Value("${customers.resilience.hedge-delay:0ms}") Duration hedgeDelay) {
+        this.customersWebClient = customersWebClient;
+        this.circuitBreaker = customersCircuitBreaker;
+        this.maxRetries = maxRetries;
+        this.retryBackoff = retryBackoff;
+        this.hedgeDelay = hedgeDelay;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(registry, cache, "customers");
+    }
+
     public record CustomerDTO(
             String id,
             CustomerType type,        // PERSONAL | BUSINESS
@@ -25,6 +68,48 @@ public class CustomerClient {
             String address) {}
 
     public Mono<CustomerDTO> getCustomer(String customerId) {
+        // suppressCancel: cancelar un suscriptor no cancela la llamada compartida
+        return Mono.fromFuture(() -> cache.get(customerId, (id, executor) -> fetch(id).toFuture()), true);
+    }
+
+    public void evict(String customerId) {
+        log.debug("Evicting customer {} from cache", customerId);
+        cache.synchronous().invalidate(customerId);
+    }
+
+    public void evictAll() {
+        log.debug("Evicting all customers from cache");
+        cache.synchronous().invalidateAll();
+    }
+
+    // Errores que vale la pena reintentar y que cuentan para el circuit breaker:
+    // 5xx, fallos de conexión/timeouts, o un hedge donde todos los intentos fallaron así.
+    public static boolean isTransientFailure(Throwable t) {
+        if (t instanceof WebClientResponseException wre) {
+            return wre.getStatusCode().is5xxServerError();
+        }
+        if (t instanceof WebClientRequestException || t instanceof TimeoutException) {
+            return true;
+        }
+        return t instanceof NoSuchElementException
+                && t.getSuppressed().length > 0
+                && Arrays.stream(t.getSuppressed()).allMatch(CustomerClient::isTransientFailure);
+    }
+
+    private Mono<CustomerDTO> fetch(String customerId) {
+        final Mono<CustomerDTO> call = Mono.defer(() -> request(customerId));
+        final Mono<CustomerDTO> attempt = hedgeDelay.isZero()
+                ? call
+                : Mono.firstWithValue(call, call.delaySubscription(hedgeDelay));
+        return attempt
+                .retryWhen(Retry.backoff(maxRetries, retryBackoff)
+                        .jitter(0.5)
+                        .filter(CustomerClient::isTransientFailure)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    private Mono<CustomerDTO> request(String customerId) {
         return customersWebClient.get()
                 .uri("/api/customers/{id}", customerId)
                 .retrieve()
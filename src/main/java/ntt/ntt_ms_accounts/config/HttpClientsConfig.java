@@ -1,18 +1,75 @@
 package ntt.ntt_ms_accounts.config;
 
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import ntt.ntt_ms_accounts.client.CustomerClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 
 @Configuration
 public class HttpClientsConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider customersConnectionProvider(
+            @Value("${customers.http.max-connections:50}") int maxConnections,
+            @Value("${customers.http.pending-acquire-timeout:2s}") Duration pendingAcquireTimeout,
+            @Value("${customers.http.max-idle-time:30s}") Duration maxIdleTime,
+            @Value("${customers.http.max-life-time:5m}") Duration maxLifeTime,
+            @Value("${customers.http.evict-interval:30s}") Duration evictInterval) {
+        return ConnectionProvider.builder("customers")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(evictInterval)
+                .build();
+    }
+
     @Bean
     public WebClient customersWebClient(
-            @Value("${customers.api.base-url}") String baseUrl) {
+            @Value("${customers.api.base-url}") String baseUrl,
+            ConnectionProvider customersConnectionProvider,
+            @Value("${customers.http.connect-timeout:1s}") Duration connectTimeout,
+            @Value("${customers.http.response-timeout:2s}") Duration responseTimeout) {
+        final HttpClient httpClient = HttpClient.create(customersConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                .responseTimeout(responseTimeout);
         return WebClient.builder()
                 .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+    @Bean
+    public CircuitBreaker customersCircuitBreaker(
+            MeterRegistry meterRegistry,
+            @Value("${customers.resilience.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+            @Value("${customers.resilience.circuit-breaker.sliding-window-size:20}") int slidingWindowSize,
+            @Value("${customers.resilience.circuit-breaker.minimum-calls:10}") int minimumCalls,
+            @Value("${customers.resilience.circuit-breaker.wait-in-open-state:10s}") Duration waitInOpenState) {
+        final CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumCalls)
+                .waitDurationInOpenState(waitInOpenState)
+                .recordException(CustomerClient::isTransientFailure)
                 .build();
+        final CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(config);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry.circuitBreaker("customers");
     }
 }
@@ -0,0 +1,245 @@
+package ntt.ntt_ms_accounts.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ntt.ntt_ms_accounts.models.AccountMovement;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Al arrancar: crea/verifica los índices declarados en los @Document (@Indexed, @CompoundIndex)
+ * y, si {@code accounts.indexes.plan-check} es WARN o FAIL, ejecuta explain sobre la forma de
+ * cada consulta de los repositorios y avisa (o aborta) si alguna cae en COLLSCAN.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MongoIndexReconciler implements ApplicationRunner {
+
+    public enum PlanCheckMode { OFF, WARN, FAIL }
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final ReactiveMongoTemplate template;
+    private final MongoMappingContext mappingContext;
+
+    @Value("${accounts.indexes.reconcile:true}")
+    private boolean reconcile;
+
+    @Value("${accounts.indexes.plan-check:OFF}")
+    private PlanCheckMode planCheck;
+
+    // Forma de cada método de consulta de los repositorios (valores de ejemplo)
+    record PlanProbe(String name, String collection, Document filter, Document sort) {}
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (reconcile) {
+            try {
+                reconcileIndexes().block(TIMEOUT);
+            } catch (RuntimeException e) {
+                log.error("Index reconciliation failed: {}", e.getMessage(), e);
+            }
+        }
+        if (planCheck != PlanCheckMode.OFF) {
+            final List<String> scans;
+            try {
+                scans = checkPlans().collectList().block(TIMEOUT);
+            } catch (RuntimeException e) {
+                // Mongo lento o caído, o explain no soportado: solo FAIL detiene el arranque
+                if (planCheck == PlanCheckMode.FAIL) {
+                    throw e;
+                }
+                log.warn("Query plan check failed: {}", e.getMessage(), e);
+                return;
+            }
+            if (scans != null && !scans.isEmpty()) {
+                final String msg = "Queries without index (COLLSCAN): " + scans;
+                if (planCheck == PlanCheckMode.FAIL) {
+                    throw new IllegalStateException(msg);
+                }
+                log.warn(msg);
+            }
+        }
+    }
+
+    public Mono<Void> reconcileIndexes() {
+        final IndexResolver resolver = IndexResolver.create(mappingContext);
+        return Flux.fromIterable(new ArrayList<>(mappingContext.getPersistentEntities()))
+                .filter(e -> e.isAnnotationPresent(org.springframework.data.mongodb.core.mapping.Document.class))
+                .concatMap(entity -> reconcile(entity, resolver.resolveIndexFor(entity.getTypeInformation())))
+                .then();
+    }
+
+    private Mono<Void> reconcile(MongoPersistentEntity<?> entity, Iterable<? extends IndexDefinition> declared) {
+        final String collection = entity.getCollection();
+        final List<IndexDefinition> definitions = new ArrayList<>();
+        declared.forEach(definitions::add);
+        final Set<Document> declaredKeys = definitions.stream()
+                .map(IndexDefinition::getIndexKeys)
+                .collect(Collectors.toSet());
+
+        final Mono<Void> ensure = Flux.fromIterable(definitions)
+                .concatMap(def -> template.indexOps(collection).createIndex(def)
+                        .doOnNext(name -> log.info("Index {}.{} verified", collection, name))
+                        .onErrorResume(e -> {
+                            log.error("Index {}.{} could not be created: {}",
+                                    collection, def.getIndexKeys().toJson(), e.getMessage());
+                            return Mono.empty();
+                        }))
+                .then();
+
+        // índices existentes que ya no están declarados: solo se informan, nunca se borran
+        final Mono<Void> report = template.indexOps(collection).getIndexInfo()
+                .filter(info -> !"_id_".equals(info.getName()))
+                .filter(info -> !declaredKeys.contains(keysOf(info)))
+                .doOnNext(info -> log.warn("Index {}.{} exists but is not declared", collection, info.getName()))
+                .then();
+
+        return ensure.then(report);
+    }
+
+    private static Document keysOf(IndexInfo info) {
+        final Document keys = new Document();
+        info.getIndexFields().forEach(f -> keys.append(f.getKey(),
+                f.getDirection() == null ? 1 : (f.getDirection().isAscending() ? 1 : -1)));
+        return keys;
+    }
+
+    public Flux<String> checkPlans() {
+        return Flux.fromIterable(probes())
+                .concatMap(probe -> template.getCollection(probe.collection())
+                        .flatMap(coll -> Mono.from(coll.find(probe.filter()).sort(probe.sort())
+                                .explain(Document.class)))
+                        .flatMap(explain -> {
+                            final Document winning = explain.get("queryPlanner", Document.class)
+                                    .get("winningPlan", Document.class);
+                            final boolean scan = hasStage(winning, "COLLSCAN");
+                            log.info("Query plan {}: {}", probe.name(), scan ? "COLLSCAN" : "indexed");
+                            return scan ? Mono.just(probe.name()) : Mono.<String>empty();
+                        }));
+    }
+
+    private static boolean hasStage(Object node, String stage) {
+        if (node instanceof Document doc) {
+            if (stage.equals(doc.get("stage"))) {
+                return true;
+            }
+            return doc.values().stream().anyMatch(v -> hasStage(v, stage));
+        }
+        if (node instanceof List<?> list) {
+            return list.stream().anyMatch(v -> hasStage(v, stage));
+        }
+        return false;
+    }
+
+    List<PlanProbe> probes() {
+        final Date from = Date.from(Instant.parse("2025-01-01T00:00:00Z"));
+        final Date to = Date.from(Instant.parse("2025-01-31T23:59:59Z"));
+        final Document range = new Document("$gte", from).append("$lte", to);
+        final Document none = new Document();
+        // colección activa según accounts.movements.storage
+        final String movements = template.getCollectionName(AccountMovement.class);
+        return List.of(
+                new PlanProbe("AccountRepository.findByAccountNumber", "accounts",
+                        new Document("accountNumber", "x"), none),
+                new PlanProbe("AccountRepository.findByCustomerId", "accounts",
+                        new Document("customerId", "x"), none),
+                new PlanProbe("AccountRepository.findByCustomerIdIn", "accounts",
+                        new Document("customerId", new Document("$in", List.of("x", "y"))), none),
+                new PlanProbe("AccountRepository.findFeeBearing", "accounts",
+                        new Document("maintenanceFee", new Document("$gt", 0))
+                                .append("_id", new Document("$gt", "x")),
+                        new Document("_id", 1)),
+                new PlanProbe("AccountMovementRepository.findByAccountIdOrderByDateDesc", movements,
+                        new Document("accountId", "x"), new Document("date", -1)),
+                new PlanProbe("AccountMovementRepository.findByAccountIdAndDateBetweenOrderByDateDesc",
+                        movements,
+                        new Document("accountId", "x").append("date", range), new Document("date", -1)),
+                new PlanProbe("AccountMovementRepository.countByAccountIdAndDateBetween", movements,
+                        new Document("accountId", "x").append("date", range), none),
+                new PlanProbe("AccountMovementRepository.findByDateBetween", movements,
+                        new Document("date", range), none),
+                new PlanProbe("AccountMovementRepository.commissionTotals", movements,
+                        new Document("date", new Document("$gt", from).append("$lt", to))
+                                .append("commissionType", new Document("$exists", true)), none),
+                new PlanProbe("AccountMovementRepository.findPage", movements,
+                        new Document("accountId", "x").append("$or", List.of(
+                                new Document("date", new Document("$lt", to)),
+                                new Document("date", to).append("_id", new Document("$lt", new ObjectId())))),
+                        new Document("date", -1).append("_id", -1)),
+                new PlanProbe("AccountMovementRepository.findArchived", MovementStorage.ARCHIVE_COLLECTION,
+                        new Document("accountId", "x").append("date", range),
+                        new Document("date", -1).append("_id", -1)),
+                new PlanProbe("AccountMovementRepository.commissionTotals (archive)",
+                        MovementStorage.ARCHIVE_COLLECTION,
+                        new Document("date", new Document("$gt", from).append("$lt", to))
+                                .append("commissionType", new Document("$exists", true)), none),
+                new PlanProbe("CreditCardRepository.findByCardNumber", "credit_cards",
+                        new Document("cardNumber", "x"), none),
+                new PlanProbe("CreditCardRepository.findClosingOn", "credit_cards",
+                        new Document("closingDay", new Document("$in", List.of(30, 31)))
+                                .append("_id", new Document("$gt", "x")),
+                        new Document("_id", 1)),
+                new PlanProbe("CreditCardRepository.findIdsWithExpiredHolds", "credit_cards",
+                        new Document("holds.expiresAt", new Document("$lte", to)),
+                        new Document("holds.expiresAt", 1)),
+                new PlanProbe("CreditCardRepository.findByCustomerId", "credit_cards",
+                        new Document("customerId", "x"), none),
+                new PlanProbe("LoanRepository.findByCustomerId", "loans",
+                        new Document("customerId", "x"), none),
+                new PlanProbe("LoanRepository.findByCustomerIdIn", "loans",
+                        new Document("customerId", new Document("$in", List.of("x", "y"))), none),
+                new PlanProbe("CreditCardRepository.findByCustomerIdIn", "credit_cards",
+                        new Document("customerId", new Document("$in", List.of("x", "y"))), none),
+                new PlanProbe("AccountDailyBalanceRepository.findByAccountIdInAndDayBetween", "account_daily_balances",
+                        new Document("accountId", new Document("$in", List.of("x", "y"))).append("day",
+                                new Document("$gte", "2025-01-01").append("$lte", "2025-01-31")), none),
+                new PlanProbe("LoanRepository.findDueBefore", "loans",
+                        new Document("status", new Document("$in", List.of("ACTIVE", "IN_ARREARS")))
+                                .append("nextDueDate", new Document("$lt", to))
+                                .append("$or", List.of(
+                                        new Document("installmentAmount", new Document("$ne", null)),
+                                        new Document("termMonths", new Document("$ne", null))
+                                                .append("disbursementDate", new Document("$ne", null)))), none),
+                new PlanProbe("LoanRepository.countByCustomerIdAndType", "loans",
+                        new Document("customerId", "x").append("type", "PERSONAL"), none),
+                new PlanProbe("CardStatementRepository.findByCardIdOrderByClosingDateDesc", "card_statements",
+                        new Document("cardId", "x"), new Document("closingDate", -1)),
+                new PlanProbe("ProductLedgerRepository.findByProductIdAndDayBetween", "product_ledger",
+                        new Document("productId", "x").append("day",
+                                new Document("$gte", "2025-01-01").append("$lte", "2025-01-31")), none),
+                new PlanProbe("ProductLedgerRepository.findByProductIdInAndDayBetween", "product_ledger",
+                        new Document("productId", new Document("$in", List.of("x", "y"))).append("day",
+                                new Document("$gte", "2025-01-01").append("$lte", "2025-01-31")), none),
+                new PlanProbe("ProductLedgerRepository.findLastDays", "product_ledger",
+                        new Document("productId", new Document("$in", List.of("x", "y")))
+                                .append("day", new Document("$lte", "2025-01-31")),
+                        new Document("productId", -1).append("day", -1)),
+                new PlanProbe("AccountDailyBalanceRepository.findByAccountIdAndDayBetweenOrderByDayAsc",
+                        "account_daily_balances",
+                        new Document("accountId", "x").append("day",
+                                new Document("$gte", "2025-01-01").append("$lte", "2025-01-31")),
+                        new Document("day", 1)));
+    }
+}
@@ -0,0 +1,52 @@
+package ntt.ntt_ms_accounts.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.timeseries.Granularity;
+import org.springframework.stereotype.Component;
+
+/**
+ * Modo de almacenamiento de AccountMovement ({@code accounts.movements.storage}):
+ * DOCUMENTS usa la colección clásica account_movements; TIME_SERIES usa account_movements_ts,
+ * una colección time-series con accountId como metaField y date como timeField, que agrupa
+ * los movimientos de cada cuenta en buckets comprimidos. El @Document de AccountMovement
+ * resuelve su colección con este bean, así que los repositorios no cambian.
+ * En time-series Mongo no garantiza unicidad de _id y las actualizaciones de campos que no son
+ * metaField (p.ej. la clasificación de comisiones) requieren MongoDB 7.0 o superior.
+ */
+@Component("movementStorage")
+public class MovementStorage {
+
+    public enum Mode { DOCUMENTS, TIME_SERIES }
+
+    public static final String DOCUMENTS_COLLECTION = "account_movements";
+    public static final String TIME_SERIES_COLLECTION = "account_movements_ts";
+    // movimientos fríos (MovementArchiveService), siempre como documentos
+    public static final String ARCHIVE_COLLECTION = "account_movements_archive";
+    public static final String TIME_FIELD = "date";
+    public static final String META_FIELD = "accountId";
+
+    private final Mode mode;
+    private final Granularity granularity;
+
+    public MovementStorage(@Value("${accounts.movements.storage:DOCUMENTS}") Mode mode,
+                           @Value("${accounts.movements.timeseries.granularity:HOURS}") Granularity granularity) {
+        this.mode = mode;
+        this.granularity = granularity;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public Granularity getGranularity() {
+        return granularity;
+    }
+
+    public String getCollection() {
+        return collectionOf(mode);
+    }
+
+    public static String collectionOf(Mode mode) {
+        return mode == Mode.TIME_SERIES ? TIME_SERIES_COLLECTION : DOCUMENTS_COLLECTION;
+    }
+}
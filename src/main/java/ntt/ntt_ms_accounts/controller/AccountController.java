@@ -7,10 +7,16 @@ import ntt.ntt_ms_accounts.dto.AccountResponse;
 import ntt.ntt_ms_accounts.dto.OpenAccountRequest;
 import ntt.ntt_ms_accounts.dto.DepositRequest;
 import ntt.ntt_ms_accounts.dto.MovementResponse;
+import ntt.ntt_ms_accounts.dto.MovementPage;
 import ntt.ntt_ms_accounts.dto.BalanceResponse;
+import ntt.ntt_ms_accounts.dto.BatchMovementRequest;
+import ntt.ntt_ms_accounts.dto.BatchMovementResult;
 import ntt.ntt_ms_accounts.service.AccountService;
+import ntt.ntt_ms_accounts.service.BatchMovementService;
+import ntt.ntt_ms_accounts.service.IdempotencyService;
 import ntt.ntt_ms_accounts.mapper.AccountMapper;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -20,9 +26,11 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestHeader;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import java.time.Instant;
+import java.time.YearMonth;
 
 @RestController
 @RequestMapping("/accounts")
@@ -30,6 +38,8 @@ import java.time.Instant;
 public class AccountController {
 
     private final AccountService accountService;
+    private final BatchMovementService batchMovementService;
+    private final IdempotencyService idempotency;
     private final AccountMapper mapper;
 
     @Operation(summary = "Open new account")
@@ -68,16 +78,33 @@ public class AccountController {
     @PostMapping("/{id}/deposit")
     public Mono<MovementResponse> deposit(
             @PathVariable("id") String accountId,
-            @RequestBody @Valid DepositRequest req
+            @RequestBody @Valid DepositRequest req,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey
     ) {
-        return accountService.deposit(
-                accountId,
-                req.amount(),
-                req.reference(),
-                java.time.Clock.systemDefaultZone()).map(mapper::toResponse);
+        return idempotency.execute(idempotencyKey, "account-deposit",
+                IdempotencyService.fingerprint(accountId, req.amount(), req.reference()), MovementResponse.class,
+                () -> accountService.deposit(
+                        accountId,
+                        req.amount(),
+                        req.reference(),
+                        java.time.Clock.systemDefaultZone()).map(mapper::toResponse));
 
     }
 
+    @Operation(summary = "Apply a stream of deposits/withdrawals (NDJSON in, NDJSON results out)")
+    @PostMapping(value = "/movements/batch",
+            consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchMovementResult> batch(@RequestBody Flux<BatchMovementRequest> operations) {
+        return batchMovementService.apply(operations, java.time.Clock.systemDefaultZone())
+                .map(o -> new BatchMovementResult(
+                        o.index(),
+                        o.accountId(),
+                        o.error() == null ? "OK" : "REJECTED",
+                        o.movement() == null ? null : mapper.toResponse(o.movement()),
+                        o.error()));
+    }
+
     @Operation(summary = "Get account balance")
     @GetMapping("/{id}/balance")
     public Mono<BalanceResponse> balance(@PathVariable String id) {
@@ -88,13 +115,23 @@ public class AccountController {
     @PostMapping("/{id}/withdraw")
     public Mono<MovementResponse> withdraw(
             @PathVariable("id") String accountId,
-            @RequestBody @Valid DepositRequest req
+            @RequestBody @Valid DepositRequest req,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey
     ) {
-        return accountService.withdraw(
-                accountId,
-                req.amount(),
-                req.reference(),
-                java.time.Clock.systemDefaultZone()).map(mapper::toResponse);
+        return idempotency.execute(idempotencyKey, "account-withdraw",
+                IdempotencyService.fingerprint(accountId, req.amount(), req.reference()), MovementResponse.class,
+                () -> accountService.withdraw(
+                        accountId,
+                        req.amount(),
+                        req.reference(),
+                        java.time.Clock.systemDefaultZone()).map(mapper::toResponse));
+    }
+
+    @Operation(summary = "Rebuild the monthly movement counter of an account")
+    @PostMapping("/{id}/movement-counters/{month}/rebuild")
+    public Mono<AccountResponse> rebuildMovementCounter(@PathVariable String id,
+                                                        @PathVariable YearMonth month) {
+        return accountService.rebuildMonthlyMovementCount(id, month).map(mapper::toResponse);
     }
 
     @Operation(summary = "Movements from an account")
@@ -108,4 +145,30 @@ public class AccountController {
                 .map(mapper::toResponse);
     }
 
+    @Operation(summary = "Movements from an account, keyset-paginated")
+    @GetMapping("/{id}/movements/page")
+    public Mono<MovementPage> movementsPage(
+            @PathVariable String id,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size
+    ) {
+        return accountService.movementsPage(id, from, to, cursor, size)
+                .map(slice -> new MovementPage(
+                        slice.items().stream().map(mapper::toResponse).toList(),
+                        slice.nextCursor()));
+    }
+
+    @Operation(summary = "Movements from an account as an NDJSON stream")
+    @GetMapping(value = "/{id}/movements/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MovementResponse> movementsStream(
+            @PathVariable String id,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to
+    ) {
+        return accountService.movements(id, from, to)
+                .map(mapper::toResponse);
+    }
+
 }
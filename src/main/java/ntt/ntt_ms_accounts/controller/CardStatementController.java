@@ -0,0 +1,37 @@
+package ntt.ntt_ms_accounts.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.RequiredArgsConstructor;
+import ntt.ntt_ms_accounts.models.CardStatement;
+import ntt.ntt_ms_accounts.models.JobCheckpoint;
+import ntt.ntt_ms_accounts.service.CardStatementService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/card-statements")
+@RequiredArgsConstructor
+public class CardStatementController {
+
+    private final CardStatementService statements;
+
+    @Operation(summary = "Run (or resume) the statement cycle for a closing date; returns its checkpoint")
+    @PostMapping("/runs")
+    public Mono<JobCheckpoint> run(@RequestParam LocalDate closingDate) {
+        return statements.runFor(closingDate);
+    }
+
+    @Operation(summary = "List a credit card's statements, newest first")
+    @GetMapping("/cards/{cardId}")
+    public Flux<CardStatement> byCard(@PathVariable String cardId) {
+        return statements.statements(cardId);
+    }
+}
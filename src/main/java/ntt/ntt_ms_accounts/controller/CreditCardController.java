@@ -3,11 +3,16 @@ package ntt.ntt_ms_accounts.controller;
 import io.swagger.v3.oas.annotations.Operation;
 import ntt.ntt_ms_accounts.mapper.CreditCardMapper;
 import ntt.ntt_ms_accounts.service.CreditCardService;
+import ntt.ntt_ms_accounts.service.IdempotencyService;
 import ntt.ntt_ms_accounts.dto.CreateCreditCard;
 import ntt.ntt_ms_accounts.dto.CreditCardResponse;
 import ntt.ntt_ms_accounts.dto.AmountRequest;
+import ntt.ntt_ms_accounts.dto.CaptureRequest;
+import ntt.ntt_ms_accounts.dto.CardHoldResponse;
 import ntt.ntt_ms_accounts.models.CreditCard;
 
+import java.math.BigDecimal;
+
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -18,6 +23,8 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -28,6 +35,7 @@ public class CreditCardController {
 
     private final CreditCardService cardService;
     private final CreditCardMapper mapper;
+    private final IdempotencyService idempotency;
 
     @Operation(summary = "Create Credit Card")
     @ResponseStatus(HttpStatus.CREATED)
@@ -54,16 +62,60 @@ public class CreditCardController {
     @Operation(summary = "Charge a credit card")
     @PostMapping("/{id}/charge")
     public Mono<CreditCardResponse> charge(@PathVariable("id") String cardId,
-                                           @RequestBody @Valid AmountRequest body) {
-        return cardService.charge(cardId, body.amount(), body.reference())
-                .map(mapper::toResponse);
+                                           @RequestBody @Valid AmountRequest body,
+                                           @RequestHeader(value = IdempotencyService.HEADER, required = false)
+                                           String idempotencyKey) {
+        return idempotency.execute(idempotencyKey, "card-charge",
+                IdempotencyService.fingerprint(cardId, body.amount(), body.reference()), CreditCardResponse.class,
+                () -> cardService.charge(cardId, body.amount(), body.reference())
+                        .map(mapper::toResponse));
     }
 
     @Operation(summary = "Register a payment to a credit card")
     @PostMapping("/{id}/payment")
     public Mono<CreditCardResponse> payment(@PathVariable("id") String cardId,
-                                            @RequestBody @Valid AmountRequest body) {
-        return cardService.payment(cardId, body.amount())
+                                            @RequestBody @Valid AmountRequest body,
+                                            @RequestHeader(value = IdempotencyService.HEADER, required = false)
+                                            String idempotencyKey) {
+        return idempotency.execute(idempotencyKey, "card-payment",
+                IdempotencyService.fingerprint(cardId, body.amount()), CreditCardResponse.class,
+                () -> cardService.payment(cardId, body.amount())
+                        .map(mapper::toResponse));
+    }
+
+    @Operation(summary = "Authorize (hold) an amount on a credit card")
+    @ResponseStatus(HttpStatus.CREATED)
+    @PostMapping("/{id}/authorizations")
+    public Mono<CardHoldResponse> authorize(@PathVariable("id") String cardId,
+                                            @RequestBody @Valid AmountRequest body,
+                                            @RequestHeader(value = IdempotencyService.HEADER, required = false)
+                                            String idempotencyKey) {
+        return idempotency.execute(idempotencyKey, "card-authorize",
+                IdempotencyService.fingerprint(cardId, body.amount(), body.reference()), CardHoldResponse.class,
+                () -> cardService.authorize(cardId, body.amount(), body.reference())
+                        .map(h -> new CardHoldResponse(h.getId(), cardId, h.getAmount(), h.getReference(),
+                                h.getExpiresAt())));
+    }
+
+    @Operation(summary = "Capture an authorization (all of it, or a smaller amount)")
+    @PostMapping("/{id}/authorizations/{holdId}/capture")
+    public Mono<CreditCardResponse> capture(@PathVariable("id") String cardId,
+                                            @PathVariable String holdId,
+                                            @RequestBody(required = false) @Valid CaptureRequest body,
+                                            @RequestHeader(value = IdempotencyService.HEADER, required = false)
+                                            String idempotencyKey) {
+        final BigDecimal amount = body == null ? null : body.amount();
+        return idempotency.execute(idempotencyKey, "card-capture",
+                IdempotencyService.fingerprint(cardId, holdId, amount), CreditCardResponse.class,
+                () -> cardService.capture(cardId, holdId, amount)
+                        .map(mapper::toResponse));
+    }
+
+    @Operation(summary = "Release an authorization without capturing it")
+    @DeleteMapping("/{id}/authorizations/{holdId}")
+    public Mono<CreditCardResponse> release(@PathVariable("id") String cardId,
+                                            @PathVariable String holdId) {
+        return cardService.release(cardId, holdId)
                 .map(mapper::toResponse);
     }
 }
@@ -0,0 +1,33 @@
+package ntt.ntt_ms_accounts.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.RequiredArgsConstructor;
+import ntt.ntt_ms_accounts.client.CustomerClient;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/customers-cache")
+@RequiredArgsConstructor
+public class CustomerCacheController {
+
+    private final CustomerClient customerClient;
+
+    @Operation(summary = "Invalidate a cached customer")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @DeleteMapping("/{customerId}")
+    public void evict(@PathVariable String customerId) {
+        customerClient.evict(customerId);
+    }
+
+    @Operation(summary = "Invalidate all cached customers")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @DeleteMapping
+    public void evictAll() {
+        customerClient.evictAll();
+    }
+}
@@ -0,0 +1,38 @@
+package ntt.ntt_ms_accounts.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.RequiredArgsConstructor;
+import ntt.ntt_ms_accounts.models.CustomerHoldings;
+import ntt.ntt_ms_accounts.service.CustomerHoldingsService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/customer-holdings")
+@RequiredArgsConstructor
+public class CustomerHoldingsController {
+
+    private final CustomerHoldingsService holdings;
+
+    @Operation(summary = "Get the product holdings of a customer")
+    @GetMapping("/{customerId}")
+    public Mono<CustomerHoldings> get(@PathVariable String customerId) {
+        return holdings.get(customerId);
+    }
+
+    @Operation(summary = "Rebuild the holdings of a customer from accounts, loans and cards")
+    @PostMapping("/{customerId}/rebuild")
+    public Mono<CustomerHoldings> rebuild(@PathVariable String customerId) {
+        return holdings.rebuild(customerId);
+    }
+
+    @Operation(summary = "Rebuild the holdings of every customer; returns how many were rebuilt")
+    @PostMapping("/rebuild")
+    public Mono<Long> rebuildAll() {
+        return holdings.rebuildAll();
+    }
+}
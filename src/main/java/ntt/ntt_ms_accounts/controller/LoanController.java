@@ -4,6 +4,9 @@ import jakarta.validation.Valid;
 import ntt.ntt_ms_accounts.dto.LoanResponse;
 import ntt.ntt_ms_accounts.dto.CreateLoanRequest;
 import ntt.ntt_ms_accounts.dto.AmountRequest;
+import ntt.ntt_ms_accounts.dto.LoanInstallment;
+import ntt.ntt_ms_accounts.service.IdempotencyService;
+import ntt.ntt_ms_accounts.service.LoanDueDateProcessor;
 import ntt.ntt_ms_accounts.service.LoanService;
 import ntt.ntt_ms_accounts.mapper.LoanMapper;
 import lombok.RequiredArgsConstructor;
@@ -13,12 +16,16 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import io.swagger.v3.oas.annotations.Operation;
 import org.springframework.http.HttpStatus;
 
+import java.time.LocalDate;
+
 @RestController
 @RequestMapping("/loans")
 @RequiredArgsConstructor
@@ -26,6 +33,8 @@ public class LoanController {
 
     private final LoanService loanService;
     private final LoanMapper mapper;
+    private final IdempotencyService idempotency;
+    private final LoanDueDateProcessor dueDates;
 
     @Operation(summary = "Create Loan")
     @ResponseStatus(HttpStatus.CREATED)
@@ -50,8 +59,24 @@ public class LoanController {
     @Operation(summary = "Register a Payment to a Loan")
     @PostMapping("/{id}/payment")
     public Mono<LoanResponse> payment(@PathVariable String id,
-                                      @RequestBody @Valid AmountRequest body) {
-        return loanService.payment(id, body.amount())
-                .map(mapper::toResponse);
+                                      @RequestBody @Valid AmountRequest body,
+                                      @RequestHeader(value = IdempotencyService.HEADER, required = false)
+                                      String idempotencyKey) {
+        return idempotency.execute(idempotencyKey, "loan-payment",
+                IdempotencyService.fingerprint(id, body.amount()), LoanResponse.class,
+                () -> loanService.payment(id, body.amount())
+                        .map(mapper::toResponse));
+    }
+
+    @Operation(summary = "Get the Loan's installment schedule")
+    @GetMapping("/{id}/schedule")
+    public Flux<LoanInstallment> schedule(@PathVariable String id) {
+        return loanService.schedule(id);
+    }
+
+    @Operation(summary = "Run the due-date/arrears processor for a date; returns loans updated")
+    @PostMapping("/due-date-runs")
+    public Mono<Long> runDueDates(@RequestParam LocalDate date) {
+        return dueDates.processDue(date);
     }
 }
@@ -0,0 +1,27 @@
+package ntt.ntt_ms_accounts.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.RequiredArgsConstructor;
+import ntt.ntt_ms_accounts.models.JobCheckpoint;
+import ntt.ntt_ms_accounts.service.MaintenanceFeeService;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.time.YearMonth;
+
+@RestController
+@RequestMapping("/maintenance-fees")
+@RequiredArgsConstructor
+public class MaintenanceFeeController {
+
+    private final MaintenanceFeeService fees;
+
+    @Operation(summary = "Charge (or resume charging) the monthly maintenance fee; returns the run checkpoint")
+    @PostMapping("/runs")
+    public Mono<JobCheckpoint> run(@RequestParam YearMonth month) {
+        return fees.runFor(month);
+    }
+}
@@ -0,0 +1,40 @@
+package ntt.ntt_ms_accounts.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.RequiredArgsConstructor;
+import ntt.ntt_ms_accounts.dto.MovementStorageStats;
+import ntt.ntt_ms_accounts.service.MovementStorageService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+
+@RestController
+@RequestMapping("/movement-storage")
+@RequiredArgsConstructor
+public class MovementStorageController {
+
+    private final MovementStorageService storage;
+
+    @Operation(summary = "Copy account_movements into the time-series collection; run before switching "
+            + "to TIME_SERIES and again after (catch-up); returns movements copied")
+    @PostMapping("/migrate")
+    public Mono<Long> migrate() {
+        return storage.migrateToTimeSeries();
+    }
+
+    @Operation(summary = "Compare index size and range-scan latency of both movement collections")
+    @GetMapping("/benchmark")
+    public Flux<MovementStorageStats> benchmark(@RequestParam List<String> accountId,
+                                                @RequestParam Instant from,
+                                                @RequestParam Instant to,
+                                                @RequestParam(defaultValue = "5") int runs) {
+        return storage.benchmark(accountId, from, to, runs);
+    }
+}
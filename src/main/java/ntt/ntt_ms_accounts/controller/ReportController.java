@@ -4,10 +4,20 @@ import io.swagger.v3.oas.annotations.Operation;
 import lombok.RequiredArgsConstructor;
 import ntt.ntt_ms_accounts.dto.CommissionReport;
 import ntt.ntt_ms_accounts.dto.CustomerDailyAverageReport;
+import ntt.ntt_ms_accounts.dto.PortfolioReportRequest;
+import ntt.ntt_ms_accounts.service.DailyBalanceService;
+import ntt.ntt_ms_accounts.service.PortfolioReportService;
+import ntt.ntt_ms_accounts.service.ReportCache;
+import ntt.ntt_ms_accounts.service.ReportCache.ReportKey;
 import ntt.ntt_ms_accounts.service.ReportService;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import java.time.Clock;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.ZoneId;
 
 @RestController
@@ -16,17 +26,43 @@ import java.time.ZoneId;
 public class ReportController {
 
     private final ReportService reports;
+    private final DailyBalanceService dailyBalances;
+    private final ReportCache reportCache;
+    private final PortfolioReportService portfolioReports;
     private static final ZoneId ZONE = ZoneId.systemDefault();
 
     @Operation(summary="Daily average balances (current month) for all products of a customer")
     @GetMapping("/customers/{customerId}/daily-averages/current-month")
     public Mono<CustomerDailyAverageReport> customerDailyAverages(@PathVariable String customerId) {
-        return reports.dailyAveragesForCustomerCurrentMonth(customerId, ZONE);
+        return reportCache.get(ReportKey.dailyAverages(customerId, LocalDate.now(ZONE), ZONE),
+                () -> reports.dailyAveragesForCustomerCurrentMonth(customerId, ZONE));
+    }
+
+    @Operation(summary="Daily average balances (current month) for a list of customers or a segment, as NDJSON")
+    @PostMapping(value = "/daily-averages/portfolio", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CustomerDailyAverageReport> portfolioDailyAverages(@RequestBody PortfolioReportRequest request) {
+        return portfolioReports.dailyAverages(request, ZONE);
     }
 
     @Operation(summary="Commission totals by product within a period")
     @GetMapping("/commissions")
     public Mono<CommissionReport> commissions(@RequestParam Instant from, @RequestParam Instant to) {
-        return reports.commissionsByProduct(from, to);
+        return reportCache.get(ReportKey.commissions(from, to), () -> reports.commissionsByProduct(from, to));
+    }
+
+    @Operation(summary="Classify commission movements written before write-time classification")
+    @PostMapping("/commissions/classify")
+    public Mono<Long> classifyCommissions() {
+        return reports.classifyExistingCommissions();
+    }
+
+    @Operation(summary="Backfill daily balance snapshots of a month (one account or all); returns snapshots written")
+    @PostMapping("/daily-balances/backfill")
+    public Mono<Long> backfillDailyBalances(@RequestParam YearMonth month,
+                                            @RequestParam(required = false) String accountId) {
+        final Clock clock = Clock.system(ZONE);
+        return accountId != null
+                ? dailyBalances.backfill(accountId, month, clock)
+                : dailyBalances.backfillAll(month, clock);
     }
 }
@@ -0,0 +1,47 @@
+package ntt.ntt_ms_accounts.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.RequiredArgsConstructor;
+import ntt.ntt_ms_accounts.models.ReportJob;
+import ntt.ntt_ms_accounts.service.ReportJobService;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.ZoneId;
+
+@RestController
+@RequestMapping("/reports/jobs")
+@RequiredArgsConstructor
+public class ReportJobController {
+
+    private final ReportJobService jobs;
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    @Operation(summary = "Submit a commission report job for a period")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @PostMapping("/commissions")
+    public Mono<ReportJob> submitCommissions(@RequestParam Instant from, @RequestParam Instant to) {
+        return jobs.submitCommissions(from, to);
+    }
+
+    @Operation(summary = "Submit a current-month daily average report job for a customer")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @PostMapping("/customers/{customerId}/daily-averages/current-month")
+    public Mono<ReportJob> submitDailyAverages(@PathVariable String customerId) {
+        return jobs.submitDailyAverages(customerId, ZONE);
+    }
+
+    @Operation(summary = "Get a report job and, once DONE, its result")
+    @GetMapping("/{id}")
+    public Mono<ReportJob> get(@PathVariable String id) {
+        return jobs.get(id);
+    }
+}
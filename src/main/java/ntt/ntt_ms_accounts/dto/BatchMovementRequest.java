@@ -0,0 +1,10 @@
+package ntt.ntt_ms_accounts.dto;
+
+import java.math.BigDecimal;
+
+public record BatchMovementRequest(
+        String accountId,
+        String type,          // "DEPOSIT" | "WITHDRAWAL"
+        BigDecimal amount,    // siempre positivo
+        String reference
+) {}
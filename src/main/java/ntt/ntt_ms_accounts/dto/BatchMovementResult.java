@@ -0,0 +1,9 @@
+package ntt.ntt_ms_accounts.dto;
+
+public record BatchMovementResult(
+        long index,           // posición de la operación en el stream de entrada
+        String accountId,
+        String status,        // OK | REJECTED
+        MovementResponse movement,
+        String error
+) {}
@@ -0,0 +1,8 @@
+package ntt.ntt_ms_accounts.dto;
+
+import jakarta.validation.constraints.Positive;
+import java.math.BigDecimal;
+
+public record CaptureRequest(
+        @Positive BigDecimal amount   // opcional: nulo captura el monto autorizado completo
+) {}
@@ -0,0 +1,12 @@
+package ntt.ntt_ms_accounts.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+public record CardHoldResponse(
+        String holdId,
+        String cardId,
+        BigDecimal amount,
+        String reference,
+        Instant expiresAt
+) {}
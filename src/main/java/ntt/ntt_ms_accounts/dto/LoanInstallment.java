@@ -0,0 +1,14 @@
+package ntt.ntt_ms_accounts.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Una cuota del cronograma: payment = interest + principal
+public record LoanInstallment(
+        int number,
+        LocalDate dueDate,
+        BigDecimal payment,
+        BigDecimal interest,
+        BigDecimal principal,
+        BigDecimal balanceAfter) {
+}
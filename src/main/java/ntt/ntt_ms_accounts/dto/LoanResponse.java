@@ -13,5 +13,8 @@ public record LoanResponse(
         BigDecimal interestRateAnnual,
         Integer termMonths,
         Instant disbursementDate,
-        Instant nextDueDate) {
+        Instant nextDueDate,
+        BigDecimal installmentAmount,
+        BigDecimal interestDue,
+        BigDecimal pastDue) {
 }
@@ -0,0 +1,7 @@
+package ntt.ntt_ms_accounts.dto;
+import java.util.List;
+
+public record MovementPage(
+        List<MovementResponse> items,
+        String nextCursor       // null cuando no hay más páginas
+) {}
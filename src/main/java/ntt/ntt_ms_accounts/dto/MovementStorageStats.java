@@ -0,0 +1,13 @@
+package ntt.ntt_ms_accounts.dto;
+
+public record MovementStorageStats(
+        String collection,
+        boolean active,         // colección usada por los repositorios
+        long documents,
+        long storageBytes,
+        long indexBytes,        // totalIndexSize de collStats
+        int scans,              // lecturas por rango medidas (cuentas * rondas)
+        long p50Micros,
+        long p95Micros,
+        long maxMicros
+) {}
@@ -0,0 +1,11 @@
+package ntt.ntt_ms_accounts.dto;
+
+import ntt.ntt_ms_accounts.models.CustomerSubType;
+
+import java.util.List;
+
+// Clientes explícitos o un segmento (subtipo de cliente); si vienen ambos se usa la lista
+public record PortfolioReportRequest(
+        List<String> customerIds,
+        CustomerSubType segment) {
+}
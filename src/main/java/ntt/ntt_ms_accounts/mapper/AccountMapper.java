@@ -28,6 +28,10 @@ public interface AccountMapper {
     @Mapping(target = "maintenanceFee", ignore = true)
     @Mapping(target = "monthlyMovementLimit", ignore = true)
     @Mapping(target = "fixedDayAllowed", ignore = true)
+    @Mapping(target = "monthlyMovementCounts", ignore = true)
+    @Mapping(target = "movementSeq", ignore = true)
+    @Mapping(target = "feeMonth", ignore = true)
+    @Mapping(target = "feeCharge", ignore = true)
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
     Account toModel(OpenAccountRequest dto);
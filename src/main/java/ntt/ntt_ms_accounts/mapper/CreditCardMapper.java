@@ -17,6 +17,8 @@ public interface CreditCardMapper {
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
+    @Mapping(target = "holds", ignore = true)
+    @Mapping(target = "ledgerSeq", ignore = true)
     @Mapping(target = "status", constant = "ACTIVE")                // CardStatus.ACTIVE
     @Mapping(target = "available", source = "creditLimit")          // saldo inicial = límite
     @Mapping(target = "type", source = "type", qualifiedByName = "toCardType")
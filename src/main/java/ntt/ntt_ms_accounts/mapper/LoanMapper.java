@@ -15,6 +15,11 @@ public interface LoanMapper {
     @Mapping(target = "remaining", ignore = true)           // se inicializa = principal
     @Mapping(target = "disbursementDate", ignore = true)    // lo setea el service
     @Mapping(target = "nextDueDate", ignore = true)         // lo setea el service
+    @Mapping(target = "installmentAmount", ignore = true)   // AmortizationEngine
+    @Mapping(target = "interestDue", ignore = true)
+    @Mapping(target = "periodPaid", ignore = true)
+    @Mapping(target = "pastDue", ignore = true)
+    @Mapping(target = "ledgerSeq", ignore = true)
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
     @Mapping(target = "type", source = "type", qualifiedByName = "toLoanType")
@@ -15,7 +15,9 @@ import org.springframework.data.mongodb.core.mapping.FieldType;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Data @Builder @NoArgsConstructor @AllArgsConstructor
 @Document(collection = "accounts")
@@ -27,6 +29,7 @@ public class Account {
     @Indexed(unique = true)
     private String accountNumber;
 
+    @Indexed
     private String customerId;
 
     @Builder.Default
@@ -45,6 +48,16 @@ public class Account {
     private BigDecimal maintenanceFee;
     private Integer monthlyMovementLimit;
     private Integer fixedDayAllowed;
+    // movimientos por mes ("yyyy-MM" -> cantidad), se incrementa junto con el saldo; los meses
+    // anteriores se borran con el primer movimiento de un mes nuevo
+    @Builder.Default
+    private Map<String, Integer> monthlyMovementCounts = new HashMap<>();
+    // secuencia de movimientos aplicados; ordena las escrituras de account_daily_balances
+    private Long movementSeq;
+    // último mes ("yyyy-MM") con la comisión de mantenimiento cobrada (MaintenanceFeeService)
+    private String feeMonth;
+    // token del bulk que cobró feeMonth: cada tramo cuenta solo sus propios débitos
+    private String feeCharge;
     @Field(targetType = FieldType.DECIMAL128)
     private BigDecimal requiredAvgDailyBalance;
     @CreatedDate
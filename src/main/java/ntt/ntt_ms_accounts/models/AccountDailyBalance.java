@@ -0,0 +1,55 @@
+package ntt.ntt_ms_accounts.models;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+// Saldo de cierre y totales del día por cuenta; solo existen días con movimientos
+@Data @Builder @NoArgsConstructor @AllArgsConstructor
+@Document(collection = "account_daily_balances")
+@CompoundIndex(name = "account_day", def = "{'accountId': 1, 'day': 1}")
+public class AccountDailyBalance {
+
+    @Id
+    private String id;              // "<accountId>:<yyyy-MM-dd>"
+
+    private String accountId;
+    private String day;             // yyyy-MM-dd (zona del servicio), ordenable como texto
+
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal closingBalance;
+
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal deposits;
+
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal withdrawals;
+
+    private int movements;
+
+    // movementSeq de la cuenta que dejó el closingBalance; una escritura más vieja no lo pisa
+    private Long closingSeq;
+
+    private Instant updatedAt;
+
+    public static String idOf(String accountId, String day) {
+        return accountId + ":" + day;
+    }
+
+    public BigDecimal net() {
+        return nz(deposits).subtract(nz(withdrawals));
+    }
+
+    private static BigDecimal nz(BigDecimal v) {
+        return v == null ? BigDecimal.ZERO : v;
+    }
+}
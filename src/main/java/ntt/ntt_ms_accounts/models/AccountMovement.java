@@ -6,6 +6,7 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
@@ -15,13 +16,19 @@ import java.math.BigDecimal;
 import java.time.Instant;
 
 @Data @Builder @NoArgsConstructor @AllArgsConstructor
-@Document(collection = "account_movements")
+// account_movements o account_movements_ts según accounts.movements.storage (MovementStorage)
+@Document(collection = "#{@movementStorage.collection}")
+// historial por cuenta y paginación keyset (date desc, _id desc)
+@CompoundIndex(name = "account_date_id", def = "{'accountId': 1, 'date': -1, '_id': -1}")
+// reporte de comisiones: solo indexa los movimientos clasificados como comisión
+@CompoundIndex(name = "commission_date", def = "{'date': 1, 'commissionType': 1}",
+        partialFilter = "{'commissionType': {'$exists': true}}")
 
 public class AccountMovement {
     @Id
     private String id;
 
-    @Indexed
+    // cubierto por el prefijo del índice compuesto account_date_id
     private String accountId;
 
     @Indexed
@@ -34,6 +41,9 @@ public class AccountMovement {
 
     private String reference;
 
+    // categoría de comisión (CommissionClassifier); ausente si no es comisión
+    private String commissionType;
+
     @CreatedDate
     private Instant createdAt;
 }
@@ -0,0 +1,25 @@
+package ntt.ntt_ms_accounts.models;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+// Autorización pendiente embebida en la tarjeta: su monto ya está descontado de available
+@Data @Builder @NoArgsConstructor @AllArgsConstructor
+public class CardHold {
+
+    private String id;
+
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal amount;
+
+    private String reference;
+    private Instant createdAt;
+    private Instant expiresAt;
+}
@@ -0,0 +1,64 @@
+package ntt.ntt_ms_accounts.models;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Estado de cuenta de una tarjeta al cierre de un ciclo. El id deriva de tarjeta + fecha de
+ * cierre, así que regenerar un ciclo reemplaza el mismo documento.
+ */
+@Data @Builder @NoArgsConstructor @AllArgsConstructor
+@Document(collection = "card_statements")
+@CompoundIndex(name = "card_closing", def = "{'cardId': 1, 'closingDate': -1}")
+public class CardStatement {
+
+    @Id
+    private String id;              // "<cardId>:<yyyy-MM-dd>"
+
+    private String cardId;
+    private String customerId;
+
+    private String periodStart;     // yyyy-MM-dd, día siguiente al cierre anterior
+    private String closingDate;     // yyyy-MM-dd
+    private String dueDate;         // yyyy-MM-dd
+
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal creditLimit;
+
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal available;
+
+    // autorizaciones aún no capturadas: no entran en el saldo facturado
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal held;
+
+    // consumos (CHARGE + CAPTURE) y pagos registrados en el libro durante el ciclo
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal purchases;
+
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal payments;
+
+    // deuda al cierre: creditLimit - available - held
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal statementBalance;
+
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal minimumPayment;
+
+    private Instant generatedAt;
+
+    public static String idOf(String cardId, String closingDate) {
+        return cardId + ":" + closingDate;
+    }
+}
@@ -0,0 +1,30 @@
+package ntt.ntt_ms_accounts.models;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Categoría de comisión de un movimiento, resuelta una sola vez al escribirlo.
+ * Un movimiento es comisión si es de tipo COMMISSION o si su reference menciona
+ * FEE/COMMISSION/COMISION; la categoría es la reference (o "FEE" si no tiene).
+ */
+public final class CommissionClassifier {
+
+    public static final String DEFAULT_TYPE = "FEE";
+    public static final String REFERENCE_REGEX = "FEE|COMMISSION|COMISION";
+
+    private static final Pattern REFERENCE = Pattern.compile(REFERENCE_REGEX);
+
+    private CommissionClassifier() {
+    }
+
+    // null si el movimiento no es una comisión
+    public static String classify(MovementType type, String reference) {
+        final boolean byReference = reference != null
+                && REFERENCE.matcher(reference.toUpperCase(Locale.ROOT)).find();
+        if (type != MovementType.COMMISSION && !byReference) {
+            return null;
+        }
+        return reference != null ? reference : DEFAULT_TYPE;
+    }
+}
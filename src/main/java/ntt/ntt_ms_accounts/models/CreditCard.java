@@ -6,6 +6,7 @@ import lombok.AllArgsConstructor;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
@@ -13,9 +14,15 @@ import org.springframework.data.mongodb.core.mapping.FieldType;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
-@Data @Builder @NoArgsConstructor @AllArgsConstructor
+@Data @Builder(toBuilder = true) @NoArgsConstructor @AllArgsConstructor
 @Document("credit_cards")
+// barrido de autorizaciones vencidas; solo tarjetas con holds
+@CompoundIndex(name = "holds_expires_at", def = "{'holds.expiresAt': 1}", sparse = true)
+// cierre de ciclo: tarjetas del día recorridas por _id (retoma desde el checkpoint)
+@CompoundIndex(name = "closing_day_id", def = "{'closingDay': 1, '_id': 1}")
 public class CreditCard {
     @Id
     private String id;
@@ -23,6 +30,7 @@ public class CreditCard {
     @Indexed(unique = true)
     private String cardNumber;
 
+    @Indexed
     private String customerId;
     private CardType type;        // PERSONAL | BUSINESS
     private CardStatus status;    // ACTIVE | BLOCKED | CANCELED
@@ -33,9 +41,16 @@ public class CreditCard {
     @Field(targetType = FieldType.DECIMAL128)
     private BigDecimal available;
 
+    // autorizaciones pendientes (authorize → capture/release); vencidas las libera CardHoldSweeper
+    @Builder.Default
+    private List<CardHold> holds = new ArrayList<>();
+
     private Integer closingDay;
     private Integer dueDay;
 
+    // +1 en cada update atómico de available; ordena las entradas del libro diario (product_ledger)
+    private Long ledgerSeq;
+
     @CreatedDate private Instant createdAt;
     @LastModifiedDate private Instant updatedAt;
 }
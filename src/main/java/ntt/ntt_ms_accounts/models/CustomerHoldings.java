@@ -0,0 +1,41 @@
+package ntt.ntt_ms_accounts.models;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+// Proyección por cliente de los productos vigentes, para validar reglas con una sola lectura
+@Data @Builder @NoArgsConstructor @AllArgsConstructor
+@Document("customer_holdings")
+public class CustomerHoldings {
+
+    @Id
+    private String customerId;
+
+    @Builder.Default
+    private Map<String, Integer> accountsByType = new HashMap<>();   // AccountType -> cuentas no cerradas
+
+    @Builder.Default
+    private Map<String, Integer> loansByType = new HashMap<>();      // LoanType -> préstamos vigentes
+
+    private int activeCards;
+
+    private Instant rebuiltAt;
+    private Instant updatedAt;
+    private Long revision;   // lo incrementan cada $inc y cada reconstrucción (guard del reemplazo)
+
+    public int accounts(AccountType type) {
+        return accountsByType == null ? 0 : accountsByType.getOrDefault(type.name(), 0);
+    }
+
+    public int loans(LoanType type) {
+        return loansByType == null ? 0 : loansByType.getOrDefault(type.name(), 0);
+    }
+}
@@ -0,0 +1,35 @@
+package ntt.ntt_ms_accounts.models;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// Resultado de una operación de dinero por Idempotency-Key; id = "<operación>:<clave>"
+@Data @Builder(toBuilder = true) @NoArgsConstructor @AllArgsConstructor
+@Document(collection = "idempotency_keys")
+public class IdempotencyRecord {
+
+    @Id
+    private String id;
+
+    private String operation;            // account-deposit | account-withdraw | card-charge | loan-payment
+    private String fingerprint;          // recurso + parámetros de la petición original
+    private IdempotencyStatus status;
+
+    private Object response;             // MovementResponse | CreditCardResponse | LoanResponse
+    private String errorType;            // rechazo de negocio: IllegalArgumentException | IllegalStateException
+    private String error;
+
+    private Instant createdAt;
+    private Instant updatedAt;
+
+    // índice TTL: corto mientras está IN_PROGRESS, la retención completa al terminar
+    @Indexed(name = "expires_at_ttl", expireAfter = "0s")
+    private Instant expiresAt;
+}
@@ -0,0 +1,5 @@
+package ntt.ntt_ms_accounts.models;
+
+public enum IdempotencyStatus {
+    IN_PROGRESS, COMPLETED
+}
@@ -0,0 +1,41 @@
+package ntt.ntt_ms_accounts.models;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Avance de un proceso batch por corrida: último _id procesado en orden ascendente y total.
+ * Una corrida interrumpida retoma después de lastKey; una COMPLETED no se repite. Solo la
+ * procesa la instancia dueña (owner) mientras leaseUntil no venza; cada tramo renueva el lease.
+ */
+@Data @Builder(toBuilder = true) @NoArgsConstructor @AllArgsConstructor
+@Document(collection = "job_checkpoints")
+public class JobCheckpoint {
+
+    @Id
+    private String id;              // "<job>:<runKey>"
+
+    private String job;             // p. ej. card-statements
+    private String runKey;          // p. ej. fecha de cierre yyyy-MM-dd
+    private JobCheckpointStatus status;
+
+    private String lastKey;
+    private long processed;
+
+    private String owner;           // instancia que procesa la corrida
+    private Instant leaseUntil;
+
+    private Instant startedAt;
+    private Instant updatedAt;
+    private Instant completedAt;
+
+    public static String idOf(String job, String runKey) {
+        return job + ":" + runKey;
+    }
+}
@@ -8,6 +8,7 @@ import lombok.AllArgsConstructor;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 import org.springframework.data.mongodb.core.mapping.FieldType;
@@ -15,8 +16,12 @@ import org.springframework.data.mongodb.core.mapping.FieldType;
 import java.math.BigDecimal;
 import java.time.Instant;
 
-@Data @Builder @NoArgsConstructor @AllArgsConstructor
+@Data @Builder(toBuilder = true) @NoArgsConstructor @AllArgsConstructor
 @Document("loans")
+// findByCustomerId y countByCustomerIdAndType
+@CompoundIndex(name = "customer_type", def = "{'customerId': 1, 'type': 1}")
+// proceso nocturno de vencimientos: solo préstamos vigentes con cuota vencida
+@CompoundIndex(name = "status_next_due", def = "{'status': 1, 'nextDueDate': 1}")
 public class Loan {
 
     @Id
@@ -39,6 +44,22 @@ public class Loan {
     private Instant disbursementDate;
     private Instant nextDueDate;    // próxima cuota
 
+    // amortización francesa (ver AmortizationEngine)
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal installmentAmount; // cuota fija
+
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal interestDue;       // interés devengado y no pagado
+
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal periodPaid;        // pagado a cuenta de la cuota en curso
+
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal pastDue;           // cuotas vencidas impagas (mora)
+
+    // +1 en cada update atómico; ordena las entradas del libro diario (product_ledger)
+    private Long ledgerSeq;
+
     @CreatedDate private Instant createdAt;
     @LastModifiedDate private Instant updatedAt;
 }
@@ -0,0 +1,70 @@
+package ntt.ntt_ms_accounts.models;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Libro diario append-only de tarjetas y préstamos: un documento por producto y día con sus
+ * operaciones embebidas. El saldo seguido es el que muestra el reporte de promedios:
+ * available en tarjetas, remaining en préstamos.
+ */
+@Data @Builder @NoArgsConstructor @AllArgsConstructor
+@Document(collection = "product_ledger")
+@CompoundIndex(name = "product_day", def = "{'productId': 1, 'day': 1}")
+public class ProductLedgerDay {
+
+    public static final String CARD = "CARD";
+    public static final String LOAN = "LOAN";
+
+    @Id
+    private String id;              // "<productType>:<productId>:<yyyy-MM-dd>"
+
+    private String productType;     // CARD | LOAN
+    private String productId;
+    private String customerId;
+    private String day;             // yyyy-MM-dd (zona del servicio)
+
+    @Builder.Default
+    private List<Entry> entries = new ArrayList<>();
+
+    @Data @Builder(toBuilder = true) @NoArgsConstructor @AllArgsConstructor
+    public static class Entry {
+        private Instant at;
+        private String type;        // OPEN | CHARGE | PAYMENT | DISBURSEMENT
+
+        @Field(targetType = FieldType.DECIMAL128)
+        private BigDecimal amount;
+
+        // efecto firmado sobre el saldo seguido y saldo resultante
+        @Field(targetType = FieldType.DECIMAL128)
+        private BigDecimal delta;
+
+        @Field(targetType = FieldType.DECIMAL128)
+        private BigDecimal balanceAfter;
+
+        // tarjetas: total retenido en holds tras la operación (el estado de cuenta lo descuenta)
+        @Field(targetType = FieldType.DECIMAL128)
+        private BigDecimal heldAfter;
+
+        // ledgerSeq del producto tras la operación: el cierre del día es la entrada con el mayor
+        private Long seq;
+
+        private String reference;
+    }
+
+    public static String idOf(String productType, String productId, String day) {
+        return productType + ":" + productId + ":" + day;
+    }
+}
@@ -0,0 +1,37 @@
+package ntt.ntt_ms_accounts.models;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.Map;
+
+// Reporte calculado en segundo plano; el id deriva de tipo + parámetros para deduplicar
+@Data @Builder(toBuilder = true) @NoArgsConstructor @AllArgsConstructor
+@Document(collection = "report_jobs")
+public class ReportJob {
+
+    @Id
+    private String id;
+
+    private String type;                 // COMMISSIONS | DAILY_AVERAGES
+    private Map<String, String> params;
+    private ReportJobStatus status;
+
+    private Object result;               // CommissionReport | CustomerDailyAverageReport
+    private String error;
+
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private Instant updatedAt;
+
+    // índice TTL: Mongo borra el job (y su resultado) al pasar esta fecha
+    @Indexed(name = "expires_at_ttl", expireAfter = "0s")
+    private Instant expiresAt;
+}
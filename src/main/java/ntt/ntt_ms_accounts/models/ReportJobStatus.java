@@ -0,0 +1,5 @@
+package ntt.ntt_ms_accounts.models;
+
+public enum ReportJobStatus {
+    PENDING, RUNNING, DONE, FAILED
+}
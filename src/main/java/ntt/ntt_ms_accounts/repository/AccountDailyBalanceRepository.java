@@ -0,0 +1,14 @@
+package ntt.ntt_ms_accounts.repository;
+
+import ntt.ntt_ms_accounts.models.AccountDailyBalance;
+import org.springframework.data.domain.Range;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+import java.util.Collection;
+
+public interface AccountDailyBalanceRepository extends ReactiveMongoRepository<AccountDailyBalance, String>,
+        AccountDailyBalanceRepositoryCustom {
+
+    Flux<AccountDailyBalance> findByAccountIdAndDayBetweenOrderByDayAsc(String accountId, Range<String> days);
+    Flux<AccountDailyBalance> findByAccountIdInAndDayBetween(Collection<String> accountIds, Range<String> days);
+}
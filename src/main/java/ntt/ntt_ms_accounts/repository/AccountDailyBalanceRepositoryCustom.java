@@ -0,0 +1,19 @@
+package ntt.ntt_ms_accounts.repository;
+
+import ntt.ntt_ms_accounts.models.AccountDailyBalance;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+
+public interface AccountDailyBalanceRepositoryCustom {
+
+    /**
+     * Upsert del día: acumula depósitos/retiros y fija el saldo de cierre solo si {@code seq}
+     * es posterior al último registrado, así escrituras concurrentes fuera de orden no lo retroceden.
+     */
+    Mono<Void> recordMovement(String accountId, String day, BigDecimal signedAmount,
+                              BigDecimal balanceAfter, long seq);
+
+    // Reemplaza el documento completo (backfill)
+    Mono<Void> replace(AccountDailyBalance snapshot);
+}
@@ -0,0 +1,66 @@
+package ntt.ntt_ms_accounts.repository;
+
+import lombok.RequiredArgsConstructor;
+import ntt.ntt_ms_accounts.models.AccountDailyBalance;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.SetOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class AccountDailyBalanceRepositoryCustomImpl implements AccountDailyBalanceRepositoryCustom {
+
+    private static final Decimal128 ZERO = new Decimal128(BigDecimal.ZERO);
+
+    private final ReactiveMongoTemplate template;
+
+    @Override
+    public Mono<Void> recordMovement(String accountId, String day, BigDecimal signedAmount,
+                                     BigDecimal balanceAfter, long seq) {
+        final Decimal128 deposit = signedAmount.signum() > 0 ? new Decimal128(signedAmount) : ZERO;
+        final Decimal128 withdrawal = signedAmount.signum() < 0 ? new Decimal128(signedAmount.negate()) : ZERO;
+        final Document newer = new Document("$lt", List.of(new Document("$ifNull", List.of("$closingSeq", -1L)), seq));
+
+        // pipeline update en una sola etapa $set: todas las expresiones ven el documento previo
+        final SetOperation set = SetOperation.builder()
+                .set("accountId").toValue(accountId).and()
+                .set("day").toValue(day).and()
+                .set("deposits").toValue(expr(new Document("$add",
+                        List.of(new Document("$ifNull", List.of("$deposits", ZERO)), deposit)))).and()
+                .set("withdrawals").toValue(expr(new Document("$add",
+                        List.of(new Document("$ifNull", List.of("$withdrawals", ZERO)), withdrawal)))).and()
+                .set("movements").toValue(expr(new Document("$add",
+                        List.of(new Document("$ifNull", List.of("$movements", 0)), 1)))).and()
+                .set("closingBalance").toValue(expr(new Document("$cond",
+                        List.of(newer, new Decimal128(balanceAfter), "$closingBalance")))).and()
+                .set("closingSeq").toValue(expr(new Document("$cond",
+                        List.of(newer, seq, "$closingSeq")))).and()
+                .set("updatedAt").toValue(expr(new Document("$toDate", "$$NOW")));
+
+        return template.upsert(
+                        Query.query(Criteria.where("_id").is(AccountDailyBalance.idOf(accountId, day))),
+                        AggregationUpdate.update().set(set), AccountDailyBalance.class)
+                .then();
+    }
+
+    private static AggregationExpression expr(Document expression) {
+        return ctx -> expression;
+    }
+
+    @Override
+    public Mono<Void> replace(AccountDailyBalance snapshot) {
+        return template.findAndReplace(
+                        Query.query(Criteria.where("_id").is(snapshot.getId())),
+                        snapshot, FindAndReplaceOptions.options().upsert())
+                .then();
+    }
+}
@@ -3,13 +3,16 @@ package ntt.ntt_ms_accounts.repository;
 
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.time.Instant;
 
 import ntt.ntt_ms_accounts.models.AccountMovement;
 
-public interface AccountMovementRepository extends ReactiveMongoRepository<AccountMovement, String> {
+public interface AccountMovementRepository extends ReactiveMongoRepository<AccountMovement, String>,
+        AccountMovementRepositoryCustom {
     Flux<AccountMovement> findByAccountIdOrderByDateDesc(String accountId);
     Flux<AccountMovement> findByAccountIdAndDateBetweenOrderByDateDesc(String accountId, Instant from, Instant to);
     Flux<AccountMovement> findByDateBetween(Instant from, Instant to);
+    Mono<Long> countByAccountIdAndDateBetween(String accountId, Instant from, Instant to);
 }
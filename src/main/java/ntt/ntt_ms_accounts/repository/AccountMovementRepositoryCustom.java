@@ -0,0 +1,58 @@
+package ntt.ntt_ms_accounts.repository;
+
+import ntt.ntt_ms_accounts.dto.CommissionItem;
+import ntt.ntt_ms_accounts.models.AccountMovement;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+public interface AccountMovementRepositoryCustom {
+
+    /**
+     * Página keyset sobre (date desc, _id desc). Con {@code afterDate}/{@code afterId} nulos
+     * devuelve la primera página; si no, los movimientos estrictamente posteriores a ese punto.
+     * {@code from}/{@code to} son opcionales. Resuelto por el índice (accountId, date, _id).
+     */
+    Flux<AccountMovement> findPage(String accountId, Instant from, Instant to,
+                                   Instant afterDate, String afterId, int limit);
+
+    // Misma página keyset sobre account_movements_archive (movimientos fríos)
+    Flux<AccountMovement> findArchivedPage(String accountId, Instant from, Instant to,
+                                           Instant afterDate, String afterId, int limit);
+
+    // Movimientos archivados de una cuenta (date desc, _id desc); sin rango devuelve todos
+    Flux<AccountMovement> findArchived(String accountId, Instant from, Instant to);
+
+    /**
+     * Mueve al archivo hasta {@code limit} movimientos con date anterior a {@code cutoff}, los más
+     * antiguos primero: copia (upsert por _id) y luego borra de la colección activa. Un lote
+     * interrumpido se puede repetir. Devuelve la cantidad movida; 0 cuando no queda nada.
+     */
+    Mono<Long> archiveBatch(Instant cutoff, int limit);
+
+    // Índices (accountId, date, _id) y commission_date de la colección de archivo
+    Mono<Void> ensureArchiveIndexes();
+
+    /**
+     * Totales de comisiones por (cuenta, commissionType) en (from, to), agrupados y unidos con
+     * accounts.accountNumber en el servidor; solo viajan las filas agrupadas.
+     * Recorre el índice parcial commission_date; con {@code includeArchive} suma también
+     * account_movements_archive ($unionWith) sin contar dos veces un movimiento en tránsito.
+     */
+    Flux<CommissionItem> commissionTotals(Instant from, Instant to, boolean includeArchive);
+
+    /**
+     * Migración: asigna commissionType a los movimientos previos a la clasificación en escritura.
+     * Idempotente; devuelve la cantidad de documentos actualizados.
+     */
+    Mono<Long> classifyCommissions();
+
+    /**
+     * Inserta en un bulk no ordenado los movimientos cuyo _id (determinístico) aún no existe en
+     * la colección activa; repetir la llamada no duplica. Devuelve los _id insertados.
+     */
+    Mono<Set<String>> insertMissing(List<AccountMovement> movements);
+}
@@ -0,0 +1,271 @@
+package ntt.ntt_ms_accounts.repository;
+
+import lombok.RequiredArgsConstructor;
+import ntt.ntt_ms_accounts.config.MovementStorage;
+import ntt.ntt_ms_accounts.dto.CommissionItem;
+import ntt.ntt_ms_accounts.models.AccountMovement;
+import ntt.ntt_ms_accounts.models.MovementType;
+import ntt.ntt_ms_accounts.models.CommissionClassifier;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.dao.DuplicateKeyException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@RequiredArgsConstructor
+public class AccountMovementRepositoryCustomImpl implements AccountMovementRepositoryCustom {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final ReactiveMongoTemplate template;
+
+    @Override
+    public Flux<AccountMovement> findPage(String accountId, Instant from, Instant to,
+                                          Instant afterDate, String afterId, int limit) {
+        return template.find(pageQuery(accountId, from, to, afterDate, afterId, limit), AccountMovement.class);
+    }
+
+    @Override
+    public Flux<AccountMovement> findArchivedPage(String accountId, Instant from, Instant to,
+                                                  Instant afterDate, String afterId, int limit) {
+        return template.find(pageQuery(accountId, from, to, afterDate, afterId, limit), AccountMovement.class,
+                MovementStorage.ARCHIVE_COLLECTION);
+    }
+
+    @Override
+    public Flux<AccountMovement> findArchived(String accountId, Instant from, Instant to) {
+        final Criteria criteria = Criteria.where("accountId").is(accountId);
+        if (from != null && to != null) {
+            criteria.and("date").gte(from).lte(to);
+        }
+        final Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Order.desc("date"), Sort.Order.desc("_id")));
+        return template.find(query, AccountMovement.class, MovementStorage.ARCHIVE_COLLECTION);
+    }
+
+    @Override
+    public Mono<Long> archiveBatch(Instant cutoff, int limit) {
+        final String hot = template.getCollectionName(AccountMovement.class);
+        final Query oldest = Query.query(Criteria.where("date").lt(cutoff))
+                .with(Sort.by(Sort.Order.asc("date"), Sort.Order.asc("_id")))
+                .limit(limit);
+        return template.find(oldest, Document.class, hot)
+                .collectList()
+                .flatMap(docs -> {
+                    if (docs.isEmpty()) {
+                        return Mono.just(0L);
+                    }
+                    // replace+upsert por _id: repetir un lote interrumpido no duplica
+                    final ReactiveBulkOperations copy = template.bulkOps(BulkOperations.BulkMode.UNORDERED,
+                            MovementStorage.ARCHIVE_COLLECTION);
+                    docs.forEach(d -> copy.replaceOne(Query.query(Criteria.where("_id").is(d.get("_id"))), d,
+                            FindAndReplaceOptions.options().upsert()));
+                    final List<Object> ids = docs.stream().map(d -> d.get("_id")).toList();
+                    return copy.execute()
+                            .then(template.remove(Query.query(Criteria.where("_id").in(ids)), hot))
+                            .thenReturn((long) docs.size());
+                });
+    }
+
+    @Override
+    public Mono<Void> ensureArchiveIndexes() {
+        return template.indexOps(MovementStorage.ARCHIVE_COLLECTION)
+                .createIndex(new Index().named("account_date_id")
+                        .on("accountId", Sort.Direction.ASC)
+                        .on("date", Sort.Direction.DESC)
+                        .on("_id", Sort.Direction.DESC))
+                .then(template.indexOps(MovementStorage.ARCHIVE_COLLECTION)
+                        .createIndex(new Index().named("commission_date")
+                                .on("date", Sort.Direction.ASC)
+                                .on("commissionType", Sort.Direction.ASC)
+                                .partial(PartialIndexFilter.of(Criteria.where("commissionType").exists(true)))))
+                .then();
+    }
+
+    private static Query pageQuery(String accountId, Instant from, Instant to,
+                                   Instant afterDate, String afterId, int limit) {
+        final Criteria criteria = Criteria.where("accountId").is(accountId);
+        if (from != null || to != null) {
+            final Criteria date = criteria.and("date");
+            if (from != null) {
+                date.gte(from);
+            }
+            if (to != null) {
+                date.lte(to);
+            }
+        }
+        if (afterDate != null && afterId != null) {
+            criteria.orOperator(
+                    Criteria.where("date").lt(afterDate),
+                    Criteria.where("date").is(afterDate).and("_id").lt(afterId));
+        }
+
+        return Query.query(criteria)
+                .with(Sort.by(Sort.Order.desc("date"), Sort.Order.desc("_id")))
+                .limit(limit);
+    }
+
+    @Override
+    public Flux<CommissionItem> commissionTotals(Instant from, Instant to, boolean includeArchive) {
+        // commissionType se resuelve al escribir el movimiento (CommissionClassifier)
+        final Document filter = new Document("date",
+                new Document("$gt", Date.from(from)).append("$lt", Date.from(to)))
+                .append("commissionType", new Document("$exists", true));
+        final List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(stage("$match", filter));
+        if (includeArchive) {
+            stages.add(stage("$unionWith", new Document("coll", MovementStorage.ARCHIVE_COLLECTION)
+                    .append("pipeline", List.of(new Document("$match", filter)))));
+            // un movimiento a mitad de archivado puede estar en ambas colecciones
+            stages.add(stage("$group", new Document("_id", "$_id")
+                    .append("accountId", new Document("$first", "$accountId"))
+                    .append("commissionType", new Document("$first", "$commissionType"))
+                    .append("amount", new Document("$first", "$amount"))));
+        }
+
+        final AggregationOperation group = stage("$group", new Document("_id",
+                new Document("accountId", "$accountId").append("commissionType", "$commissionType"))
+                .append("total", new Document("$sum", "$amount")));
+
+        // accountId se guarda como texto y accounts._id como ObjectId cuando el id es hexadecimal
+        final AggregationOperation lookup = stage("$lookup", new Document("from", "accounts")
+                .append("let", new Document("aid", new Document("$convert", new Document("input", "$_id.accountId")
+                        .append("to", "objectId")
+                        .append("onError", "$_id.accountId"))))
+                .append("pipeline", List.of(
+                        new Document("$match", new Document("$expr", new Document("$eq", List.of("$_id", "$$aid")))),
+                        new Document("$project", new Document("accountNumber", 1))))
+                .append("as", "account"));
+
+        final AggregationOperation project = stage("$project", new Document("_id", 0)
+                .append("accountId", "$_id.accountId")
+                .append("commissionType", "$_id.commissionType")
+                .append("total", 1)
+                .append("accountNumber", new Document("$arrayElemAt", List.of("$account.accountNumber", 0))));
+
+        final AggregationOperation sort = stage("$sort", new Document("accountId", 1).append("commissionType", 1));
+
+        stages.addAll(List.of(group, lookup, project, sort));
+        final Aggregation aggregation = Aggregation.newAggregation(stages)
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+
+        return template.aggregate(aggregation, template.getCollectionName(AccountMovement.class), Document.class)
+                .map(d -> new CommissionItem(
+                        "ACCOUNT",
+                        d.getString("accountId"),
+                        d.getString("accountNumber"),
+                        d.getString("commissionType"),
+                        toBigDecimal(d.get("total"))));
+    }
+
+    @Override
+    public Mono<Long> classifyCommissions() {
+        // mismo criterio que CommissionClassifier, evaluado una única vez por documento
+        final Query pending = Query.query(new Criteria().andOperator(
+                Criteria.where("commissionType").exists(false),
+                new Criteria().orOperator(
+                        Criteria.where("type").is(MovementType.COMMISSION.name()),
+                        Criteria.where("reference").regex(CommissionClassifier.REFERENCE_REGEX, "i"))));
+
+        final AggregationUpdate update = AggregationUpdate.update()
+                .set("commissionType").toValue(ConditionalOperators.ifNull("reference")
+                        .then(CommissionClassifier.DEFAULT_TYPE));
+
+        return template.updateMulti(pending, update, AccountMovement.class)
+                .map(UpdateResult::getModifiedCount);
+    }
+
+    private static AggregationOperation stage(String name, Document body) {
+        return ctx -> new Document(name, body);
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value instanceof Decimal128 d) {
+            return d.bigDecimalValue();
+        }
+        return value == null ? BigDecimal.ZERO : new BigDecimal(value.toString());
+    }
+
+    @Override
+    public Mono<Set<String>> insertMissing(List<AccountMovement> movements) {
+        if (movements.isEmpty()) {
+            return Mono.just(Set.of());
+        }
+        final List<String> ids = movements.stream().map(AccountMovement::getId).toList();
+        final Query existing = Query.query(Criteria.where("_id").in(ids));
+        existing.fields().include("_id");
+        return template.find(existing, AccountMovement.class)
+                .map(AccountMovement::getId)
+                .collect(HashSet<String>::new, Set::add)
+                .flatMap(present -> {
+                    final List<AccountMovement> missing = movements.stream()
+                            .filter(m -> !present.contains(m.getId()))
+                            .toList();
+                    if (missing.isEmpty()) {
+                        return Mono.just(Set.<String>of());
+                    }
+                    final ReactiveBulkOperations bulk = template.bulkOps(BulkOperations.BulkMode.UNORDERED,
+                            AccountMovement.class);
+                    bulk.insert(missing);
+                    return bulk.execute()
+                            .thenReturn(landed(missing, Set.of()))
+                            // otra corrida insertó algunos entre la lectura y el bulk (el lease del job lo
+                            // evita): el bulk es desordenado, así que el resto sí quedó insertado
+                            .onErrorResume(e -> duplicateIndexes(e) != null,
+                                    e -> Mono.just(landed(missing, duplicateIndexes(e))));
+                });
+    }
+
+    private static Set<String> landed(List<AccountMovement> batch, Set<Integer> failed) {
+        final Set<String> ids = new HashSet<>();
+        for (int i = 0; i < batch.size(); i++) {
+            if (!failed.contains(i)) {
+                ids.add(batch.get(i).getId());
+            }
+        }
+        return ids;
+    }
+
+    // Posiciones del bulk rechazadas por _id duplicado; null si hubo otro tipo de error
+    private static Set<Integer> duplicateIndexes(Throwable e) {
+        final List<BulkWriteError> errors;
+        if (e instanceof BulkOperationException bulk) {
+            errors = bulk.getErrors();
+        } else if (e instanceof DuplicateKeyException && e.getCause() instanceof MongoBulkWriteException bulk) {
+            errors = bulk.getWriteErrors();
+        } else {
+            return null;
+        }
+        if (errors.isEmpty() || errors.stream().anyMatch(err -> err.getCode() != DUPLICATE_KEY)) {
+            return null;
+        }
+        return errors.stream().map(BulkWriteError::getIndex).collect(Collectors.toSet());
+    }
+}
@@ -5,11 +5,15 @@ import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-public interface AccountRepository extends ReactiveMongoRepository<Account, String>
+import java.util.Collection;
+
+public interface AccountRepository extends ReactiveMongoRepository<Account, String>, AccountRepositoryCustom
 {
     Mono<Account> findByAccountNumber(String accountNumber);
     Flux<Account> findByCustomerId(String customerId);
+    Flux<Account> findByCustomerIdIn(Collection<String> customerIds);
+    Flux<Account> findByIdInAndFeeCharge(Collection<String> ids, String feeCharge);
 
     @Override
     Flux<Account> findAll();
-}
\ No newline at end of file
+}
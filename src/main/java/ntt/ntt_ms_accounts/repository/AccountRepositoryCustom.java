@@ -0,0 +1,38 @@
+package ntt.ntt_ms_accounts.repository;
+
+import ntt.ntt_ms_accounts.models.Account;
+import org.springframework.data.mongodb.core.query.Criteria;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface AccountRepositoryCustom {
+
+    /**
+     * Aplica {@code delta} sobre el saldo e incrementa el contador del mes {@code monthKey}
+     * en un solo findAndModify. Si el delta es negativo, el servidor exige saldo suficiente;
+     * las {@code guards} adicionales se evalúan en la misma consulta. Devuelve la cuenta ya
+     * actualizada, o vacío si la cuenta no existe o alguna condición no se cumple. Los contadores
+     * de meses anteriores a {@code monthKey} se borran (también al fijar o sembrar un contador).
+     */
+    Mono<Account> applyMovement(String accountId, BigDecimal delta, String monthKey, Criteria... guards);
+
+    // Fija el contador de un mes (p.ej. reconstruido desde account_movements)
+    Mono<Account> setMonthlyMovementCount(String accountId, String monthKey, int count);
+
+    // Fija el contador solo si el mes todavía no tiene uno; vacío si ya existía
+    Mono<Account> seedMonthlyMovementCount(String accountId, String monthKey, int count);
+
+    // Cuentas con maintenanceFee > 0 no cerradas, por _id ascendente después de afterId (nulo = desde el inicio)
+    Flux<Account> findFeeBearing(String afterId, int limit);
+
+    /**
+     * Cobra la comisión del mes en un bulk no ordenado: cada update exige feeMonth distinto,
+     * saldo suficiente y el mismo movementSeq leído, así un movimiento concurrente no se pisa
+     * y repetir el lote no cobra dos veces. Las cuentas cobradas quedan con feeCharge =
+     * {@code token}. Devuelve la cantidad de cuentas cobradas.
+     */
+    Mono<Long> chargeMaintenanceFees(String feeMonth, String token, List<Account> accounts);
+}
@@ -0,0 +1,126 @@
+package ntt.ntt_ms_accounts.repository;
+
+import lombok.RequiredArgsConstructor;
+import ntt.ntt_ms_accounts.models.Account;
+import ntt.ntt_ms_accounts.models.AccountStatus;
+import org.bson.types.Decimal128;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class AccountRepositoryCustomImpl implements AccountRepositoryCustom {
+
+    private static final Decimal128 ZERO = new Decimal128(BigDecimal.ZERO);
+
+    private final ReactiveMongoTemplate template;
+
+    @Override
+    public Mono<Account> applyMovement(String accountId, BigDecimal delta, String monthKey, Criteria... guards) {
+        final List<Criteria> conditions = new ArrayList<>();
+        conditions.add(Criteria.where("_id").is(accountId));
+        if (delta.signum() < 0) {
+            // saldo no negativo validado en el servidor
+            conditions.add(Criteria.where("balance").gte(new Decimal128(delta.negate())));
+        }
+        conditions.addAll(Arrays.asList(guards));
+
+        final Query query = new Query(new Criteria().andOperator(conditions));
+        final Update update = new Update()
+                .inc("balance", new Decimal128(delta))
+                .inc("monthlyMovementCounts." + monthKey, 1)
+                .inc("movementSeq", 1)
+                .currentDate("updatedAt");
+
+        return template.findAndModify(query, update,
+                        FindAndModifyOptions.options().returnNew(true), Account.class)
+                .flatMap(acc -> pruneOlderMonths(acc, monthKey));
+    }
+
+    @Override
+    public Mono<Account> setMonthlyMovementCount(String accountId, String monthKey, int count) {
+        return template.findAndModify(
+                        Query.query(Criteria.where("_id").is(accountId)),
+                        new Update().set("monthlyMovementCounts." + monthKey, count),
+                        FindAndModifyOptions.options().returnNew(true), Account.class)
+                .flatMap(acc -> pruneOlderMonths(acc, monthKey));
+    }
+
+    @Override
+    public Mono<Account> seedMonthlyMovementCount(String accountId, String monthKey, int count) {
+        return template.findAndModify(
+                        Query.query(Criteria.where("_id").is(accountId)
+                                .and("monthlyMovementCounts." + monthKey).exists(false)),
+                        new Update().set("monthlyMovementCounts." + monthKey, count),
+                        FindAndModifyOptions.options().returnNew(true), Account.class)
+                .flatMap(acc -> pruneOlderMonths(acc, monthKey));
+    }
+
+    // Borra los contadores de meses anteriores a monthKey ("yyyy-MM" ordena como texto): solo hay
+    // algo que borrar con el primer movimiento de un mes nuevo. Nunca toca el mes en curso, así que
+    // no compite con los $inc; si falla, el próximo movimiento lo vuelve a intentar.
+    private Mono<Account> pruneOlderMonths(Account acc, String monthKey) {
+        if (acc.getMonthlyMovementCounts() == null) {
+            return Mono.just(acc);
+        }
+        final List<String> older = acc.getMonthlyMovementCounts().keySet().stream()
+                .filter(k -> k.compareTo(monthKey) < 0)
+                .toList();
+        if (older.isEmpty()) {
+            return Mono.just(acc);
+        }
+        final Update unset = new Update();
+        older.forEach(k -> unset.unset("monthlyMovementCounts." + k));
+        final Map<String, Integer> kept = new HashMap<>(acc.getMonthlyMovementCounts());
+        kept.keySet().removeAll(older);
+        acc.setMonthlyMovementCounts(kept);
+        return template.updateFirst(Query.query(Criteria.where("_id").is(acc.getId())), unset, Account.class)
+                .onErrorResume(e -> Mono.empty())
+                .thenReturn(acc);
+    }
+
+    @Override
+    public Flux<Account> findFeeBearing(String afterId, int limit) {
+        final Criteria criteria = Criteria.where("maintenanceFee").gt(ZERO).and("status").ne(AccountStatus.CLOSED);
+        if (afterId != null) {
+            criteria.and("_id").gt(afterId);
+        }
+        final Query query = Query.query(criteria).with(Sort.by(Sort.Direction.ASC, "_id")).limit(limit);
+        query.fields().include("customerId", "balance", "maintenanceFee", "movementSeq", "feeMonth");
+        return template.find(query, Account.class);
+    }
+
+    @Override
+    public Mono<Long> chargeMaintenanceFees(String feeMonth, String token, List<Account> accounts) {
+        if (accounts.isEmpty()) {
+            return Mono.just(0L);
+        }
+        final ReactiveBulkOperations bulk = template.bulkOps(BulkOperations.BulkMode.UNORDERED, Account.class);
+        accounts.forEach(a -> bulk.updateOne(
+                Query.query(Criteria.where("_id").is(a.getId())
+                        .and("feeMonth").ne(feeMonth)
+                        .and("movementSeq").is(a.getMovementSeq())
+                        .and("balance").gte(new Decimal128(a.getMaintenanceFee()))),
+                new Update()
+                        .inc("balance", new Decimal128(a.getMaintenanceFee().negate()))
+                        .inc("movementSeq", 1)
+                        .set("feeMonth", feeMonth)
+                        .set("feeCharge", token)
+                        .currentDate("updatedAt")));
+        return bulk.execute().map(r -> (long) r.getModifiedCount());
+    }
+}
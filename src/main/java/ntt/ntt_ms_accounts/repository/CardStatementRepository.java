@@ -0,0 +1,10 @@
+package ntt.ntt_ms_accounts.repository;
+
+import ntt.ntt_ms_accounts.models.CardStatement;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+public interface CardStatementRepository extends ReactiveMongoRepository<CardStatement, String>,
+        CardStatementRepositoryCustom {
+    Flux<CardStatement> findByCardIdOrderByClosingDateDesc(String cardId);
+}
@@ -0,0 +1,12 @@
+package ntt.ntt_ms_accounts.repository;
+
+import ntt.ntt_ms_accounts.models.CardStatement;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface CardStatementRepositoryCustom {
+
+    // Un solo bulk no ordenado de replace+upsert por _id; repetir un tramo no duplica
+    Mono<Integer> upsertAll(List<CardStatement> statements);
+}
@@ -0,0 +1,30 @@
+package ntt.ntt_ms_accounts.repository;
+
+import lombok.RequiredArgsConstructor;
+import ntt.ntt_ms_accounts.models.CardStatement;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+public class CardStatementRepositoryCustomImpl implements CardStatementRepositoryCustom {
+
+    private final ReactiveMongoTemplate template;
+
+    @Override
+    public Mono<Integer> upsertAll(List<CardStatement> statements) {
+        if (statements.isEmpty()) {
+            return Mono.just(0);
+        }
+        final ReactiveBulkOperations bulk = template.bulkOps(BulkOperations.BulkMode.UNORDERED, CardStatement.class);
+        statements.forEach(s -> bulk.replaceOne(Query.query(Criteria.where("_id").is(s.getId())), s,
+                FindAndReplaceOptions.options().upsert()));
+        return bulk.execute().thenReturn(statements.size());
+    }
+}
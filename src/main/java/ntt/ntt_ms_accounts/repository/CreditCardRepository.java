@@ -5,10 +5,12 @@ import ntt.ntt_ms_accounts.models.CreditCard;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import java.util.Collection;
 
 
-public interface CreditCardRepository extends ReactiveMongoRepository<CreditCard, String>{
+public interface CreditCardRepository extends ReactiveMongoRepository<CreditCard, String>,
+        CreditCardRepositoryCustom {
     Mono<CreditCard> findByCardNumber(String cardNumber);
     Flux<CreditCard> findByCustomerId(String customerId);
-
+    Flux<CreditCard> findByCustomerIdIn(Collection<String> customerIds);
 }
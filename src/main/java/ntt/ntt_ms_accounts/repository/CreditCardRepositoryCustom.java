@@ -0,0 +1,40 @@
+package ntt.ntt_ms_accounts.repository;
+
+import ntt.ntt_ms_accounts.models.CardHold;
+import ntt.ntt_ms_accounts.models.CreditCard;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+
+/**
+ * Cambios de available resueltos en el servidor con un solo findAndModify condicional.
+ * Vacío cuando la condición no se cumple (tarjeta inexistente, sin crédito o hold desconocido).
+ */
+public interface CreditCardRepositoryCustom {
+
+    // available -= amount si available >= amount; devuelve la tarjeta actualizada
+    Mono<CreditCard> debit(String cardId, BigDecimal amount);
+
+    // Reserva: available -= amount y $push del hold, solo en tarjetas ACTIVE con crédito suficiente
+    Mono<CreditCard> authorize(String cardId, CardHold hold);
+
+    /**
+     * Cierra un hold: captura {@code captured} (0 = liberar) y devuelve a available el resto.
+     * Requiere captured <= monto del hold. Devuelve la tarjeta PREVIA al cambio.
+     */
+    Mono<CreditCard> settleHold(String cardId, String holdId, BigDecimal captured);
+
+    // available += amount con tope creditLimit - holds; devuelve la tarjeta PREVIA al cambio
+    Mono<CreditCard> credit(String cardId, BigDecimal amount);
+
+    // Libera los holds con expiresAt <= now; devuelve la tarjeta PREVIA al cambio
+    Mono<CreditCard> releaseExpiredHolds(String cardId, Instant now);
+
+    Flux<String> findIdsWithExpiredHolds(Instant now, int limit);
+
+    // Tarjetas que cierran en alguno de esos días, por _id ascendente a partir de afterId (nulo = desde el inicio)
+    Flux<CreditCard> findClosingOn(Collection<Integer> closingDays, String afterId);
+}
@@ -0,0 +1,137 @@
+package ntt.ntt_ms_accounts.repository;
+
+import lombok.RequiredArgsConstructor;
+import ntt.ntt_ms_accounts.models.CardHold;
+import ntt.ntt_ms_accounts.models.CardStatus;
+import ntt.ntt_ms_accounts.models.CreditCard;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.SetOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class CreditCardRepositoryCustomImpl implements CreditCardRepositoryCustom {
+
+    private static final Decimal128 ZERO = new Decimal128(BigDecimal.ZERO);
+    // ledgerSeq + 1 dentro de un update con pipeline (tarjetas previas a la secuencia parten de 0)
+    private static final Document NEXT_SEQ =
+            new Document("$add", List.of(new Document("$ifNull", List.of("$ledgerSeq", 0L)), 1L));
+
+    private final ReactiveMongoTemplate template;
+
+    @Override
+    public Mono<CreditCard> debit(String cardId, BigDecimal amount) {
+        final Query query = Query.query(Criteria.where("_id").is(cardId)
+                .and("available").gte(new Decimal128(amount)));
+        final Update update = new Update()
+                .inc("available", new Decimal128(amount.negate()))
+                .inc("ledgerSeq", 1)
+                .currentDate("updatedAt");
+        return template.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), CreditCard.class);
+    }
+
+    @Override
+    public Mono<CreditCard> authorize(String cardId, CardHold hold) {
+        final Query query = Query.query(Criteria.where("_id").is(cardId)
+                .and("status").is(CardStatus.ACTIVE)
+                .and("available").gte(new Decimal128(hold.getAmount())));
+        final Update update = new Update()
+                .inc("available", new Decimal128(hold.getAmount().negate()))
+                .push("holds", hold)
+                .inc("ledgerSeq", 1)
+                .currentDate("updatedAt");
+        return template.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), CreditCard.class);
+    }
+
+    @Override
+    public Mono<CreditCard> settleHold(String cardId, String holdId, BigDecimal captured) {
+        final Query query = Query.query(Criteria.where("_id").is(cardId)
+                .and("holds").elemMatch(Criteria.where("id").is(holdId).and("amount").gte(new Decimal128(captured))));
+        final Document isHold = new Document("$eq", List.of("$$h.id", holdId));
+        final Document holdAmount = new Document("$arrayElemAt", List.of(new Document("$map", new Document("input",
+                filterHolds(isHold)).append("as", "h").append("in", "$$h.amount")), 0));
+
+        // una sola etapa $set: ambas expresiones ven los holds previos
+        final SetOperation set = SetOperation.builder()
+                .set("available").toValue(expr(new Document("$add", List.of("$available",
+                        new Document("$subtract", List.of(holdAmount, new Decimal128(captured))))))).and()
+                .set("holds").toValue(expr(filterHolds(new Document("$ne", List.of("$$h.id", holdId))))).and()
+                .set("ledgerSeq").toValue(expr(NEXT_SEQ)).and()
+                .set("updatedAt").toValue(expr(new Document("$toDate", "$$NOW")));
+        return template.findAndModify(query, AggregationUpdate.update().set(set),
+                FindAndModifyOptions.options().returnNew(false), CreditCard.class);
+    }
+
+    @Override
+    public Mono<CreditCard> credit(String cardId, BigDecimal amount) {
+        final Document held = new Document("$sum", new Document("$ifNull", List.of("$holds.amount", List.of())));
+        final SetOperation set = SetOperation.builder()
+                .set("available").toValue(expr(new Document("$min", List.of(
+                        new Document("$add", List.of("$available", new Decimal128(amount))),
+                        new Document("$subtract", List.of("$creditLimit", held)))))).and()
+                .set("ledgerSeq").toValue(expr(NEXT_SEQ)).and()
+                .set("updatedAt").toValue(expr(new Document("$toDate", "$$NOW")));
+        return template.findAndModify(Query.query(Criteria.where("_id").is(cardId)),
+                AggregationUpdate.update().set(set), FindAndModifyOptions.options().returnNew(false), CreditCard.class);
+    }
+
+    @Override
+    public Mono<CreditCard> releaseExpiredHolds(String cardId, Instant now) {
+        final Date at = Date.from(now);
+        final Query query = Query.query(Criteria.where("_id").is(cardId).and("holds.expiresAt").lte(at));
+        final Document expired = filterHolds(new Document("$lte", List.of("$$h.expiresAt", at)));
+        final Document released = new Document("$sum", new Document("$map", new Document("input", expired)
+                .append("as", "h").append("in", "$$h.amount")));
+        final SetOperation set = SetOperation.builder()
+                .set("available").toValue(expr(new Document("$add", List.of("$available",
+                        new Document("$ifNull", List.of(released, ZERO)))))).and()
+                .set("holds").toValue(expr(filterHolds(new Document("$gt", List.of("$$h.expiresAt", at))))).and()
+                .set("ledgerSeq").toValue(expr(NEXT_SEQ)).and()
+                .set("updatedAt").toValue(expr(new Document("$toDate", "$$NOW")));
+        return template.findAndModify(query, AggregationUpdate.update().set(set),
+                FindAndModifyOptions.options().returnNew(false), CreditCard.class);
+    }
+
+    @Override
+    public Flux<String> findIdsWithExpiredHolds(Instant now, int limit) {
+        final Query query = Query.query(Criteria.where("holds.expiresAt").lte(now))
+                .with(Sort.by(Sort.Direction.ASC, "holds.expiresAt"))
+                .limit(limit);
+        query.fields().include("_id");
+        return template.find(query, CreditCard.class).map(CreditCard::getId);
+    }
+
+    @Override
+    public Flux<CreditCard> findClosingOn(Collection<Integer> closingDays, String afterId) {
+        final Criteria criteria = Criteria.where("closingDay").in(closingDays);
+        if (afterId != null) {
+            criteria.and("_id").gt(afterId);
+        }
+        final Query query = Query.query(criteria).with(Sort.by(Sort.Direction.ASC, "_id"));
+        query.fields().include("customerId", "creditLimit", "available", "holds.amount", "closingDay", "dueDay");
+        return template.find(query, CreditCard.class);
+    }
+
+    private static Document filterHolds(Document cond) {
+        return new Document("$filter", new Document("input", "$holds").append("as", "h").append("cond", cond));
+    }
+
+    private static AggregationExpression expr(Document expression) {
+        return ctx -> expression;
+    }
+}
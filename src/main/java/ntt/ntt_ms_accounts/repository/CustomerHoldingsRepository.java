@@ -0,0 +1,8 @@
+package ntt.ntt_ms_accounts.repository;
+
+import ntt.ntt_ms_accounts.models.CustomerHoldings;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+public interface CustomerHoldingsRepository extends ReactiveMongoRepository<CustomerHoldings, String>,
+        CustomerHoldingsRepositoryCustom {
+}
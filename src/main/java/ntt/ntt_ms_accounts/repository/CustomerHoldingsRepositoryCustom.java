@@ -0,0 +1,20 @@
+package ntt.ntt_ms_accounts.repository;
+
+import ntt.ntt_ms_accounts.models.CustomerHoldings;
+import reactor.core.publisher.Mono;
+
+public interface CustomerHoldingsRepositoryCustom {
+
+    /**
+     * $inc sobre un contador de la proyección ("accountsByType.SAVINGS", "activeCards", ...).
+     * No hace upsert: si el cliente aún no tiene proyección, se reconstruye completa en la próxima lectura.
+     */
+    Mono<Void> increment(String customerId, String counter, int delta);
+
+    /**
+     * Reemplaza los contadores con los de una reconstrucción solo si la proyección sigue en la
+     * revisión leída antes de contar ({@code current} nulo = no existía). false si un $inc u otra
+     * reconstrucción la cambió en el medio.
+     */
+    Mono<Boolean> replaceIfUnchanged(CustomerHoldings rebuilt, CustomerHoldings current);
+}
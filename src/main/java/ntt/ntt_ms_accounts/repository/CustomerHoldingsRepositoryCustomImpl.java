@@ -0,0 +1,48 @@
+package ntt.ntt_ms_accounts.repository;
+
+import lombok.RequiredArgsConstructor;
+import ntt.ntt_ms_accounts.models.CustomerHoldings;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+@RequiredArgsConstructor
+public class CustomerHoldingsRepositoryCustomImpl implements CustomerHoldingsRepositoryCustom {
+
+    private final ReactiveMongoTemplate template;
+
+    @Override
+    public Mono<Void> increment(String customerId, String counter, int delta) {
+        return template.updateFirst(
+                        Query.query(Criteria.where("_id").is(customerId)),
+                        new Update().inc(counter, delta).inc("revision", 1).currentDate("updatedAt"),
+                        CustomerHoldings.class)
+                .then();
+    }
+
+    @Override
+    public Mono<Boolean> replaceIfUnchanged(CustomerHoldings rebuilt, CustomerHoldings current) {
+        if (current == null) {
+            rebuilt.setRevision(0L);
+            return template.insert(rebuilt)
+                    .thenReturn(true)
+                    .onErrorResume(DuplicateKeyException.class, e -> Mono.just(false));
+        }
+        // revision null (proyección anterior al guard) también matchea el campo ausente
+        final Query unchanged = Query.query(Criteria.where("_id").is(rebuilt.getCustomerId())
+                .and("revision").is(current.getRevision()));
+        final Update update = new Update()
+                .set("accountsByType", rebuilt.getAccountsByType())
+                .set("loansByType", rebuilt.getLoansByType())
+                .set("activeCards", rebuilt.getActiveCards())
+                .set("rebuiltAt", rebuilt.getRebuiltAt())
+                .set("updatedAt", rebuilt.getUpdatedAt())
+                .inc("revision", 1);
+        rebuilt.setRevision(current.getRevision() == null ? 1L : current.getRevision() + 1);
+        return template.updateFirst(unchanged, update, CustomerHoldings.class)
+                .map(r -> r.getModifiedCount() > 0);
+    }
+}
@@ -0,0 +1,7 @@
+package ntt.ntt_ms_accounts.repository;
+
+import ntt.ntt_ms_accounts.models.IdempotencyRecord;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+public interface IdempotencyRepository extends ReactiveMongoRepository<IdempotencyRecord, String> {
+}
@@ -0,0 +1,8 @@
+package ntt.ntt_ms_accounts.repository;
+
+import ntt.ntt_ms_accounts.models.JobCheckpoint;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+public interface JobCheckpointRepository extends ReactiveMongoRepository<JobCheckpoint, String>,
+        JobCheckpointRepositoryCustom {
+}
@@ -0,0 +1,21 @@
+package ntt.ntt_ms_accounts.repository;
+
+import ntt.ntt_ms_accounts.models.JobCheckpoint;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+public interface JobCheckpointRepositoryCustom {
+
+    /**
+     * Crea o toma la corrida para {@code owner} con un lease de {@code lease}: la toma si está
+     * RUNNING y sin lease vigente de otra instancia. Devuelve la corrida COMPLETED sin tomarla,
+     * o vacío si otra instancia la está procesando.
+     */
+    Mono<JobCheckpoint> start(String job, String runKey, String owner, Duration lease);
+
+    // Registra un tramo terminado y renueva el lease; error si owner ya no es el dueño
+    Mono<Void> advance(String id, String owner, String lastKey, long processed, Duration lease);
+
+    Mono<Void> complete(String id, String owner);
+}
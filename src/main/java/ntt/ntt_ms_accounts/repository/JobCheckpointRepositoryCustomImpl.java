@@ -0,0 +1,77 @@
+package ntt.ntt_ms_accounts.repository;
+
+import lombok.RequiredArgsConstructor;
+import ntt.ntt_ms_accounts.models.JobCheckpoint;
+import ntt.ntt_ms_accounts.models.JobCheckpointStatus;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+
+@RequiredArgsConstructor
+public class JobCheckpointRepositoryCustomImpl implements JobCheckpointRepositoryCustom {
+
+    private final ReactiveMongoTemplate template;
+
+    @Override
+    public Mono<JobCheckpoint> start(String job, String runKey, String owner, Duration lease) {
+        final Instant now = Instant.now();
+        final String id = JobCheckpoint.idOf(job, runKey);
+        final Query claimable = Query.query(Criteria.where("_id").is(id)
+                .and("status").is(JobCheckpointStatus.RUNNING)
+                .orOperator(
+                        Criteria.where("leaseUntil").exists(false),
+                        Criteria.where("leaseUntil").lt(now),
+                        Criteria.where("owner").is(owner)));
+        final Update update = new Update()
+                .setOnInsert("job", job)
+                .setOnInsert("runKey", runKey)
+                .setOnInsert("processed", 0L)
+                .setOnInsert("startedAt", now)
+                .set("owner", owner)
+                .set("leaseUntil", now.plus(lease))
+                .set("updatedAt", now);
+        // el upsert choca por _id cuando existe pero no es tomable: COMPLETED o con lease ajeno
+        return template.findAndModify(claimable, update, FindAndModifyOptions.options().upsert(true).returnNew(true),
+                        JobCheckpoint.class)
+                .onErrorResume(DuplicateKeyException.class, e -> template.findById(id, JobCheckpoint.class)
+                        .filter(cp -> cp.getStatus() == JobCheckpointStatus.COMPLETED));
+    }
+
+    @Override
+    public Mono<Void> advance(String id, String owner, String lastKey, long processed, Duration lease) {
+        final Instant now = Instant.now();
+        final Update update = new Update()
+                .set("lastKey", lastKey)
+                .inc("processed", processed)
+                .set("leaseUntil", now.plus(lease))
+                .set("updatedAt", now);
+        return template.updateFirst(owned(id, owner), update, JobCheckpoint.class)
+                .flatMap(r -> r.getMatchedCount() == 0
+                        ? Mono.error(new IllegalStateException("lease of " + id + " lost by " + owner))
+                        : Mono.<Void>empty());
+    }
+
+    @Override
+    public Mono<Void> complete(String id, String owner) {
+        final Instant now = Instant.now();
+        final Update update = new Update()
+                .set("status", JobCheckpointStatus.COMPLETED)
+                .unset("leaseUntil")
+                .set("completedAt", now)
+                .set("updatedAt", now);
+        return template.updateFirst(owned(id, owner), update, JobCheckpoint.class).then();
+    }
+
+    private static Query owned(String id, String owner) {
+        return Query.query(Criteria.where("_id").is(id)
+                .and("status").is(JobCheckpointStatus.RUNNING)
+                .and("owner").is(owner));
+    }
+}
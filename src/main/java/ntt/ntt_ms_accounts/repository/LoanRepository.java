@@ -5,10 +5,11 @@ import ntt.ntt_ms_accounts.models.LoanType;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import java.util.Collection;
 
 
-public interface LoanRepository  extends ReactiveMongoRepository<Loan, String>  {
+public interface LoanRepository extends ReactiveMongoRepository<Loan, String>, LoanRepositoryCustom {
     Flux<Loan> findByCustomerId(String customerId);
     Mono<Long> countByCustomerIdAndType(String customerId, LoanType type);
-
+    Flux<Loan> findByCustomerIdIn(Collection<String> customerIds);
 }
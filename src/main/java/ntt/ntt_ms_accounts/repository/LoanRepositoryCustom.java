@@ -0,0 +1,27 @@
+package ntt.ntt_ms_accounts.repository;
+
+import ntt.ntt_ms_accounts.models.Loan;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Actualizaciones de amortización condicionadas a la versión leída (ledgerSeq): pagos
+ * concurrentes y el proceso de vencimientos no se pisan.
+ */
+public interface LoanRepositoryCustom {
+
+    // Préstamo leído y su versión recalculada
+    record Change(Loan before, Loan after) {}
+
+    // false si el préstamo cambió desde la lectura
+    Mono<Boolean> updateIfUnchanged(Change change);
+
+    // Bulk no ordenado de updateOne condicionales; devuelve los documentos modificados
+    Mono<Long> updateAllIfUnchanged(List<Change> changes);
+
+    // ACTIVE o IN_ARREARS con nextDueDate < before y términos de amortización, por el índice status_next_due
+    Flux<Loan> findDueBefore(Instant before);
+}
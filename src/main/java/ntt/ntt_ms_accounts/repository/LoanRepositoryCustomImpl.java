@@ -0,0 +1,74 @@
+package ntt.ntt_ms_accounts.repository;
+
+import lombok.RequiredArgsConstructor;
+import ntt.ntt_ms_accounts.models.Loan;
+import ntt.ntt_ms_accounts.models.LoanStatus;
+import org.bson.types.Decimal128;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class LoanRepositoryCustomImpl implements LoanRepositoryCustom {
+
+    private final ReactiveMongoTemplate template;
+
+    @Override
+    public Mono<Boolean> updateIfUnchanged(Change change) {
+        return template.updateFirst(guard(change.before()), update(change.after()), Loan.class)
+                .map(r -> r.getModifiedCount() > 0);
+    }
+
+    @Override
+    public Mono<Long> updateAllIfUnchanged(List<Change> changes) {
+        if (changes.isEmpty()) {
+            return Mono.just(0L);
+        }
+        final ReactiveBulkOperations bulk = template.bulkOps(BulkOperations.BulkMode.UNORDERED, Loan.class);
+        changes.forEach(c -> bulk.updateOne(guard(c.before()), update(c.after())));
+        return bulk.execute().map(r -> (long) r.getModifiedCount());
+    }
+
+    @Override
+    public Flux<Loan> findDueBefore(Instant before) {
+        // sin cuota ni datos para calcularla (AmortizationEngine.withTerms) no hay mora que avanzar:
+        // se descartan en el servidor en vez de releerlos en cada corrida
+        return template.find(Query.query(Criteria.where("status").in(LoanStatus.ACTIVE, LoanStatus.IN_ARREARS)
+                .and("nextDueDate").lt(before)
+                .orOperator(
+                        Criteria.where("installmentAmount").ne(null),
+                        Criteria.where("termMonths").ne(null).and("disbursementDate").ne(null))), Loan.class);
+    }
+
+    // ledgerSeq es la versión del préstamo: update() la incrementa en cada cambio, así que dos
+    // escrituras desde la misma lectura no pueden aplicar ambas (aunque dejen igual remaining)
+    private static Query guard(Loan before) {
+        return Query.query(Criteria.where("_id").is(before.getId()).and("ledgerSeq").is(before.getLedgerSeq()));
+    }
+
+    private static Update update(Loan after) {
+        return new Update()
+                .set("status", after.getStatus())
+                .set("remaining", decimal(after.getRemaining()))
+                .set("installmentAmount", decimal(after.getInstallmentAmount()))
+                .set("interestDue", decimal(after.getInterestDue()))
+                .set("periodPaid", decimal(after.getPeriodPaid()))
+                .set("pastDue", decimal(after.getPastDue()))
+                .set("nextDueDate", after.getNextDueDate())
+                .inc("ledgerSeq", 1)
+                .set("updatedAt", Instant.now());
+    }
+
+    private static Decimal128 decimal(BigDecimal value) {
+        return value == null ? null : new Decimal128(value);
+    }
+}
@@ -0,0 +1,16 @@
+package ntt.ntt_ms_accounts.repository;
+
+import ntt.ntt_ms_accounts.models.ProductLedgerDay;
+import org.springframework.data.domain.Range;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+
+public interface ProductLedgerRepository extends ReactiveMongoRepository<ProductLedgerDay, String>,
+        ProductLedgerRepositoryCustom {
+
+    Flux<ProductLedgerDay> findByProductIdAndDayBetween(String productId, Range<String> days);
+
+    Flux<ProductLedgerDay> findByProductIdInAndDayBetween(Collection<String> productIds, Range<String> days);
+}
@@ -0,0 +1,17 @@
+package ntt.ntt_ms_accounts.repository;
+
+import ntt.ntt_ms_accounts.models.ProductLedgerDay;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+public interface ProductLedgerRepositoryCustom {
+
+    // $push de la operación en el documento del día (upsert); nunca reescribe entradas previas
+    Mono<Void> append(String productType, String productId, String customerId, String day,
+                      ProductLedgerDay.Entry entry);
+
+    // Por producto, el documento del último día en o antes de onOrBefore (yyyy-MM-dd); índice product_day
+    Flux<ProductLedgerDay> findLastDays(Collection<String> productIds, String onOrBefore);
+}
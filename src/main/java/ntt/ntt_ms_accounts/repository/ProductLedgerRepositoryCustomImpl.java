@@ -0,0 +1,45 @@
+package ntt.ntt_ms_accounts.repository;
+
+import lombok.RequiredArgsConstructor;
+import ntt.ntt_ms_accounts.models.ProductLedgerDay;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+@RequiredArgsConstructor
+public class ProductLedgerRepositoryCustomImpl implements ProductLedgerRepositoryCustom {
+
+    private final ReactiveMongoTemplate template;
+
+    @Override
+    public Mono<Void> append(String productType, String productId, String customerId, String day,
+                             ProductLedgerDay.Entry entry) {
+        final Query query = Query.query(Criteria.where("_id").is(ProductLedgerDay.idOf(productType, productId, day)));
+        final Update update = new Update()
+                .setOnInsert("productType", productType)
+                .setOnInsert("productId", productId)
+                .setOnInsert("customerId", customerId)
+                .setOnInsert("day", day)
+                .push("entries", entry);
+        return template.upsert(query, update, ProductLedgerDay.class).then();
+    }
+
+    @Override
+    public Flux<ProductLedgerDay> findLastDays(Collection<String> productIds, String onOrBefore) {
+        // sort descendente en ambos campos: recorre product_day hacia atrás sin ordenar en memoria
+        final Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("productId").in(productIds).and("day").lte(onOrBefore)),
+                Aggregation.sort(Sort.by(Sort.Order.desc("productId"), Sort.Order.desc("day"))),
+                Aggregation.group("productId").first(Aggregation.ROOT).as("last"),
+                Aggregation.replaceRoot("last"));
+        return template.aggregate(aggregation, template.getCollectionName(ProductLedgerDay.class),
+                ProductLedgerDay.class);
+    }
+}
@@ -0,0 +1,15 @@
+package ntt.ntt_ms_accounts.repository;
+
+import ntt.ntt_ms_accounts.models.ReportJob;
+import ntt.ntt_ms_accounts.models.ReportJobStatus;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+import java.util.Collection;
+
+public interface ReportJobRepository extends ReactiveMongoRepository<ReportJob, String>, ReportJobRepositoryCustom {
+
+    // Candidatos del barrido de jobs huérfanos
+    Flux<ReportJob> findByStatusInAndUpdatedAtBefore(Collection<ReportJobStatus> statuses, Instant before);
+}
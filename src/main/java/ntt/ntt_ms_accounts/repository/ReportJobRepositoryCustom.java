@@ -0,0 +1,17 @@
+package ntt.ntt_ms_accounts.repository;
+
+import ntt.ntt_ms_accounts.models.ReportJob;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+public interface ReportJobRepositoryCustom {
+
+    /**
+     * Vuelve a PENDING un job FAILED, uno PENDING/RUNNING sin actividad desde {@code staleBefore}
+     * (p. ej. la instancia que lo corría se cayó) o uno DONE que terminó antes de
+     * {@code rangeEnd}: movimientos posteriores a su cálculo pueden caer en el rango. Vacío si
+     * el job está vivo o su resultado sigue vigente.
+     */
+    Mono<ReportJob> reclaim(String id, Instant staleBefore, Instant rangeEnd, Instant expiresAt);
+}
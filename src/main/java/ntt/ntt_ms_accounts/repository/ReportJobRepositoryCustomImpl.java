@@ -0,0 +1,36 @@
+package ntt.ntt_ms_accounts.repository;
+
+import lombok.RequiredArgsConstructor;
+import ntt.ntt_ms_accounts.models.ReportJob;
+import ntt.ntt_ms_accounts.models.ReportJobStatus;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+@RequiredArgsConstructor
+public class ReportJobRepositoryCustomImpl implements ReportJobRepositoryCustom {
+
+    private final ReactiveMongoTemplate template;
+
+    @Override
+    public Mono<ReportJob> reclaim(String id, Instant staleBefore, Instant rangeEnd, Instant expiresAt) {
+        final Query query = Query.query(Criteria.where("_id").is(id).orOperator(
+                Criteria.where("status").is(ReportJobStatus.FAILED),
+                Criteria.where("status").in(ReportJobStatus.PENDING, ReportJobStatus.RUNNING)
+                        .and("updatedAt").lt(staleBefore),
+                Criteria.where("status").is(ReportJobStatus.DONE).and("finishedAt").lt(rangeEnd)));
+        final Update update = new Update()
+                .set("status", ReportJobStatus.PENDING)
+                .set("updatedAt", Instant.now())
+                .set("expiresAt", expiresAt)
+                .unset("error")
+                .unset("startedAt")
+                .unset("finishedAt");
+        return template.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), ReportJob.class);
+    }
+}
@@ -0,0 +1,106 @@
+package ntt.ntt_ms_accounts.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Carriles serie por cuenta: cada accountId se asigna por hash a uno de N carriles y las
+ * tareas de un carril se ejecutan de a una, en orden de llegada. Así las operaciones sobre
+ * una cuenta caliente no compiten por el mismo documento y cuentas distintas siguen en paralelo.
+ * Con {@code accounts.lanes.enabled=false} las tareas se ejecutan directamente.
+ */
+@Slf4j
+@Component
+public class AccountLanes {
+
+    private final boolean enabled;
+    private final Lane[] lanes;
+
+    public AccountLanes(MeterRegistry registry,
+                        @Value("${accounts.lanes.enabled:false}") boolean enabled,
+                        @Value("${accounts.lanes.count:64}") int count) {
+        this.enabled = enabled;
+        this.lanes = new Lane[enabled ? count : 0];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane(i, registry);
+        }
+        if (enabled) {
+            log.info("Account lanes enabled: {} lanes", count);
+        }
+    }
+
+    public <T> Mono<T> submit(String accountId, Supplier<Mono<T>> work) {
+        if (!enabled) {
+            return Mono.defer(work);
+        }
+        final Lane lane = lanes[Math.floorMod(accountId.hashCode(), lanes.length)];
+        return Mono.create(sink -> lane.enqueue(new Task<>(work, sink, System.nanoTime())));
+    }
+
+    @PreDestroy
+    void stop() {
+        for (Lane lane : lanes) {
+            lane.stop();
+        }
+    }
+
+    private record Task<T>(Supplier<Mono<T>> work, MonoSink<T> sink, long enqueuedAt) {
+        Mono<Void> run() {
+            return Mono.defer(work)
+                    .doOnSuccess(sink::success)
+                    .doOnError(sink::error)
+                    .onErrorResume(e -> Mono.empty())
+                    .then();
+        }
+    }
+
+    private static final class Lane {
+        private final Sinks.Many<Task<?>> queue = Sinks.many().unicast().onBackpressureBuffer();
+        private final AtomicInteger depth = new AtomicInteger();
+        private final Timer waitTime;
+        private final Disposable worker;
+
+        Lane(int index, MeterRegistry registry) {
+            final String lane = String.valueOf(index);
+            Gauge.builder("accounts.lanes.depth", depth, AtomicInteger::get)
+                    .description("Operations queued in the lane")
+                    .tag("lane", lane)
+                    .register(registry);
+            this.waitTime = Timer.builder("accounts.lanes.wait")
+                    .description("Time an operation waits in the lane before running")
+                    .tag("lane", lane)
+                    .register(registry);
+            this.worker = queue.asFlux()
+                    .concatMap(task -> {
+                        depth.decrementAndGet();
+                        waitTime.record(System.nanoTime() - task.enqueuedAt(), TimeUnit.NANOSECONDS);
+                        return task.run();
+                    })
+                    .subscribe();
+        }
+
+        void enqueue(Task<?> task) {
+            depth.incrementAndGet();
+            queue.emitNext(task, Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+        }
+
+        void stop() {
+            queue.emitComplete(Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+            worker.dispose();
+        }
+    }
+}
@@ -5,24 +5,30 @@ import ntt.ntt_ms_accounts.client.CustomerClient;
 import ntt.ntt_ms_accounts.models.Account;
 import ntt.ntt_ms_accounts.models.AccountMovement;
 import ntt.ntt_ms_accounts.models.AccountStatus;
+import ntt.ntt_ms_accounts.models.CommissionClassifier;
 import ntt.ntt_ms_accounts.models.MovementType;
 import ntt.ntt_ms_accounts.models.AccountType;
 import ntt.ntt_ms_accounts.models.CustomerSubType;
 import ntt.ntt_ms_accounts.models.CustomerType;
 import ntt.ntt_ms_accounts.repository.AccountMovementRepository;
 import ntt.ntt_ms_accounts.repository.AccountRepository;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import lombok.extern.slf4j.Slf4j;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.Clock;
+import java.time.YearMonth;
 import java.time.ZoneId;
-import java.time.temporal.TemporalAdjusters;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
 import java.util.Objects;
@@ -36,6 +42,14 @@ public class AccountService {
     private final AccountRepository accountRepo;
     private final AccountMovementRepository movementRepo;
     private final CustomerClient customerClient;
+    private final MovementWriter movementWriter;
+    private final AccountLanes lanes;
+    private final CustomerHoldingsService holdings;
+    private final DailyBalanceService dailyBalances;
+    private final ReportCache reportCache;
+    private final MovementArchiveService archive;
+
+    public static final int MAX_PAGE_SIZE = 500;
 
     // Create account
     public Mono<Account> create(Account acc) {
@@ -57,9 +71,14 @@ public class AccountService {
                             applyTypeDefaults(acc);
                             if (acc.getStatus() == null) acc.setStatus(AccountStatus.ACTIVE);
                             if (acc.getCreatedAt() == null) acc.setCreatedAt(Instant.now());
+                            if (acc.getBalance() == null) {
+                                acc.setBalance(BigDecimal.ZERO);
+                            }
                             return accountRepo.save(acc);
                         }))
                         .cast(Account.class)
+                        .flatMap(saved -> holdings.accountOpened(saved).thenReturn(saved))
+                        .doOnNext(saved -> reportCache.invalidateCustomer(saved.getCustomerId()))
                 );
     }
 
@@ -133,7 +152,10 @@ public class AccountService {
 
     public Mono<Void> delete(String id) {
         log.info("Delete account with Id {}", id);
-        return accountRepo.deleteById(id);
+        return accountRepo.findById(id)
+                .flatMap(acc -> accountRepo.deleteById(id)
+                        .then(holdings.accountClosed(acc))
+                        .doOnSuccess(v -> reportCache.invalidateCustomer(acc.getCustomerId())));
     }
 
     // MOVEMENTS
@@ -147,9 +169,71 @@ public class AccountService {
 
     // Now returns entities, not DTO
     public Flux<AccountMovement> movements(String accountId, Instant from, Instant to) {
-        return (from == null || to == null)
-                ? movementRepo.findByAccountIdOrderByDateDesc(accountId)
-                : movementRepo.findByAccountIdAndDateBetweenOrderByDateDesc(accountId, from, to);
+        final boolean ranged = from != null && to != null;
+        final Flux<AccountMovement> hot = ranged
+                ? movementRepo.findByAccountIdAndDateBetweenOrderByDateDesc(accountId, from, to)
+                : movementRepo.findByAccountIdOrderByDateDesc(accountId);
+        // rangos dentro de la retención no tocan el archivo
+        if (!archive.reachesArchive(ranged ? from : null)) {
+            return hot;
+        }
+        return MovementArchiveService.merge(hot, movementRepo.findArchived(accountId, from, to));
+    }
+
+    // Página keyset (date desc, _id desc) con cursor opaco; size+1 para saber si hay más
+    public Mono<MovementSlice> movementsPage(String accountId, Instant from, Instant to, String cursor, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return Mono.error(new IllegalArgumentException("size must be between 1 and " + MAX_PAGE_SIZE));
+        }
+        final Cursor after;
+        try {
+            after = cursor == null ? null : Cursor.decode(cursor);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return Mono.error(new IllegalArgumentException("invalid cursor"));
+        }
+        final Instant afterDate = after == null ? null : after.date();
+        final String afterId = after == null ? null : after.id();
+        return movementRepo.findPage(accountId, from, to, afterDate, afterId, size + 1)
+                .collectList()
+                .flatMap(hot -> {
+                    // todo lo archivado es anterior a hotBoundary: si la página caliente está llena y
+                    // termina dentro de la retención, el archivo no aporta nada
+                    final boolean hotOnly = !archive.reachesArchive(from)
+                            || (hot.size() > size && !hot.get(size).getDate().isBefore(archive.hotBoundary()));
+                    if (hotOnly) {
+                        return Mono.just(hot);
+                    }
+                    return MovementArchiveService.merge(Flux.fromIterable(hot),
+                                    movementRepo.findArchivedPage(accountId, from, to, afterDate, afterId, size + 1))
+                            .take(size + 1)
+                            .collectList();
+                })
+                .map(list -> list.size() > size
+                        ? new MovementSlice(list.subList(0, size), Cursor.of(list.get(size - 1)).encode())
+                        : new MovementSlice(list, null));
+    }
+
+    public record MovementSlice(List<AccountMovement> items, String nextCursor) {}
+
+    // Cursor opaco: base64url("<date ISO>|<id>") del último elemento de la página
+    private record Cursor(Instant date, String id) {
+        static Cursor of(AccountMovement last) {
+            return new Cursor(last.getDate(), last.getId());
+        }
+
+        String encode() {
+            final String raw = date + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            final String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            final String[] parts = raw.split("\\|", 2);
+            if (parts.length != 2 || parts[1].isBlank()) {
+                throw new IllegalArgumentException("invalid cursor");
+            }
+            return new Cursor(Instant.parse(parts[0]), parts[1]);
+        }
     }
 
     // RULES
@@ -218,10 +302,8 @@ public class AccountService {
     }
 
     private Mono<Void> ensureNoExistingOfType(String customerId, AccountType type) {
-        return accountRepo.findByCustomerId(customerId)
-                .filter(a -> a.getType() == type)
-                .hasElements()
-                .flatMap(exists -> exists
+        return holdings.get(customerId)
+                .flatMap(h -> h.accounts(type) > 0
                         ? Mono.error(new IllegalStateException(
                         "Customer already has a " + type + " account"))
                         : Mono.empty());
@@ -235,29 +317,116 @@ public class AccountService {
         final Instant now = Instant.now(clock);
         final LocalDate today = LocalDateTime.ofInstant(now, ZoneId.systemDefault()).toLocalDate();
 
+        // Un solo findAndModify: saldo, día de plazo fijo y límite mensual de SAVINGS
+        // se validan en el servidor junto con el incremento del contador del mes.
+        // Se ejecuta en el carril de la cuenta para no competir por el documento.
+        return lanes.submit(accountId, () -> apply(accountId, signedAmount, today)
+                        .switchIfEmpty(Mono.defer(() -> reject(accountId, mt, signedAmount, today, now, false))))
+                .flatMap(saved -> {
+                    final AccountMovement mv = AccountMovement.builder()
+                            .accountId(accountId)
+                            .date(now)
+                            .type(mt)
+                            .amount(signedAmount.abs())
+                            .reference(ref)
+                            .commissionType(CommissionClassifier.classify(mt, ref))
+                            .build();
+                    return movementWriter.write(mv)
+                            .flatMap(written -> dailyBalances.record(saved, signedAmount, now).thenReturn(written))
+                            .doOnNext(written -> invalidateReports(saved, written));
+                });
+    }
+
+    private void invalidateReports(Account account, AccountMovement mv) {
+        reportCache.invalidateCustomer(account.getCustomerId());
+        if (mv.getCommissionType() != null) {
+            reportCache.invalidateCommissionsAt(mv.getDate());
+        }
+    }
+
+    private Mono<Account> apply(String accountId, BigDecimal signedAmount, LocalDate today) {
+        final String monthKey = monthKey(today);
+        return accountRepo.applyMovement(accountId, signedAmount, monthKey,
+                fixedTermDayGuard(today),
+                monthlyLimitGuard(monthKey));
+    }
+
+    // El update atómico no aplicó: leer la cuenta solo para dar el error correcto
+    private Mono<Account> reject(String accountId,
+                                 MovementType mt,
+                                 BigDecimal signedAmount,
+                                 LocalDate today,
+                                 Instant now,
+                                 boolean seeded) {
         return accountRepo.findById(accountId)
                 .switchIfEmpty(Mono.error(new IllegalArgumentException("account not found")))
-                .flatMap(acc ->
-                        validateOperationRules(acc, mt, signedAmount, today, now)
-                                .then(Mono.defer(() -> {
-                                    final BigDecimal newBalance = acc.getBalance().add(signedAmount);
-                                    if (newBalance.compareTo(BigDecimal.ZERO) < 0) {
-                                        return Mono.error(new IllegalStateException("Insufficient funds"));
-                                    }
-                                    acc.setBalance(newBalance);
-                                    return accountRepo.save(acc);
-                                }))
-                                .flatMap(saved -> {
-                                    final AccountMovement mv = AccountMovement.builder()
-                                            .accountId(accountId)
-                                            .date(now)
-                                            .type(mt)
-                                            .amount(signedAmount.abs())
-                                            .reference(ref)
-                                            .build();
-                                    return movementRepo.save(mv);
-                                })
-                );
+                .flatMap(acc -> !seeded && lacksMonthlyCount(acc, monthKey(today))
+                        // SAVINGS sin contador del mes (cuentas previas al contador): se siembra contando
+                        // los movimientos del mes y se reintenta una vez
+                        ? seedMonthlyMovementCount(accountId, YearMonth.from(today))
+                                .then(apply(accountId, signedAmount, today))
+                                .switchIfEmpty(Mono.defer(() -> reject(accountId, mt, signedAmount, today, now, true)))
+                        : validateOperationRules(acc, mt, signedAmount, today, now)
+                                .then(Mono.error(new IllegalStateException("Insufficient funds"))));
+    }
+
+    private static boolean lacksMonthlyCount(Account acc, String monthKey) {
+        return acc.getType() == AccountType.SAVINGS
+                && acc.getMonthlyMovementLimit() != null
+                && (acc.getMonthlyMovementCounts() == null || !acc.getMonthlyMovementCounts().containsKey(monthKey));
+    }
+
+    private Mono<Account> seedMonthlyMovementCount(String accountId, YearMonth month) {
+        return countMonth(accountId, month)
+                .flatMap(cnt -> accountRepo.seedMonthlyMovementCount(accountId, monthKey(month), cnt.intValue()));
+    }
+
+    // Reconstruye el contador de un mes contando account_movements (cuentas previas al contador)
+    public Mono<Account> rebuildMonthlyMovementCount(String accountId, YearMonth month) {
+        return countMonth(accountId, month)
+                .flatMap(cnt -> accountRepo.setMonthlyMovementCount(accountId, monthKey(month), cnt.intValue()))
+                .switchIfEmpty(Mono.error(new IllegalArgumentException("account not found")));
+    }
+
+    private Mono<Long> countMonth(String accountId, YearMonth month) {
+        final ZoneId zone = ZoneId.systemDefault();
+        final Instant from = month.atDay(1).atStartOfDay(zone).toInstant();
+        final Instant to = month.plusMonths(1).atDay(1).atStartOfDay(zone).toInstant().minusMillis(1);
+        return archive.countBetween(accountId, from, to);
+    }
+
+    private static String monthKey(LocalDate day) {
+        return monthKey(YearMonth.from(day));
+    }
+
+    private static String monthKey(YearMonth month) {
+        return "%d-%02d".formatted(month.getYear(), month.getMonthValue());
+    }
+
+    // FIXED_TERM: equivale a today.day == min(fixedDayAllowed, lengthOfMonth)
+    static Criteria fixedTermDayGuard(LocalDate today) {
+        final List<Integer> allowedDays = new ArrayList<>();
+        allowedDays.add(today.getDayOfMonth());
+        if (today.getDayOfMonth() == today.lengthOfMonth()) {
+            for (int d = today.lengthOfMonth() + 1; d <= 31; d++) {
+                allowedDays.add(d);
+            }
+        }
+        return new Criteria().orOperator(
+                Criteria.where("type").ne(AccountType.FIXED_TERM),
+                Criteria.where("fixedDayAllowed").in(allowedDays));
+    }
+
+    // SAVINGS: contador del mes < monthlyMovementLimit, leído del propio documento. Sin contador
+    // del mes no aplica: reject() lo siembra contando los movimientos ya registrados
+    static Criteria monthlyLimitGuard(String monthKey) {
+        final String counter = "monthlyMovementCounts." + monthKey;
+        return new Criteria().orOperator(
+                Criteria.where("type").ne(AccountType.SAVINGS),
+                Criteria.where("monthlyMovementLimit").is(null),
+                new Criteria().andOperator(
+                        Criteria.where(counter).exists(true),
+                        Criteria.expr(() -> new Document("$lt", List.of("$" + counter, "$monthlyMovementLimit")))));
     }
 
     private Mono<Void> validateOperationRules(Account acc,
@@ -274,22 +443,15 @@ public class AccountService {
             }
         }
 
-        // SAVINGS -> monthly movement limit
+        // SAVINGS -> monthly movement limit (contador mantenido en la cuenta)
         if (acc.getType() == AccountType.SAVINGS && acc.getMonthlyMovementLimit() != null) {
-            final LocalDate first = today.with(TemporalAdjusters.firstDayOfMonth());
-            final LocalDate last = today.with(TemporalAdjusters.lastDayOfMonth());
-            final Instant from = first.atStartOfDay(ZoneId.systemDefault()).toInstant();
-            final Instant to = last.plusDays(1)
-                    .atStartOfDay(ZoneId.systemDefault()).toInstant()
-                    .minusMillis(1);
-
-            return movementRepo
-                    .findByAccountIdAndDateBetweenOrderByDateDesc(acc.getId(), from, to)
-                    .count()
-                    .flatMap(cnt -> cnt >= acc.getMonthlyMovementLimit()
-                            ? Mono.error(new IllegalStateException(
-                            "Monthly movement limit exceeded for SAVINGS"))
-                            : Mono.empty());
+            final int cnt = Optional.ofNullable(acc.getMonthlyMovementCounts())
+                    .map(m -> m.getOrDefault(monthKey(today), 0))
+                    .orElse(0);
+            if (cnt >= acc.getMonthlyMovementLimit()) {
+                return Mono.error(new IllegalStateException(
+                        "Monthly movement limit exceeded for SAVINGS"));
+            }
         }
 
         // CURRENT -> no monthly limit (negative balance guarded in operate)
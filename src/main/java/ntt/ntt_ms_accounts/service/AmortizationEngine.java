@@ -0,0 +1,191 @@
+package ntt.ntt_ms_accounts.service;
+
+import ntt.ntt_ms_accounts.dto.LoanInstallment;
+import ntt.ntt_ms_accounts.models.Loan;
+import ntt.ntt_ms_accounts.models.LoanStatus;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Amortización francesa (cuota fija) de préstamos. El interés de cada periodo se devenga al
+ * iniciar el periodo sobre el saldo de capital; los pagos cubren primero el interés devengado
+ * y luego capital. Las cuotas vencen cada mes el día de la fecha de desembolso (ajustado al
+ * largo del mes).
+ */
+public final class AmortizationEngine {
+
+    private static final int SCALE = 2;
+    private static final BigDecimal MONTHS_PER_YEAR = BigDecimal.valueOf(12);
+
+    private AmortizationEngine() {
+    }
+
+    public static BigDecimal monthlyRate(BigDecimal annualRate) {
+        return annualRate == null ? BigDecimal.ZERO : annualRate.divide(MONTHS_PER_YEAR, MathContext.DECIMAL64);
+    }
+
+    // P·r / (1 - (1 + r)^-n); sin tasa, P / n
+    public static BigDecimal installment(BigDecimal principal, BigDecimal annualRate, int months) {
+        if (months < 1) {
+            throw new IllegalArgumentException("termMonths must be positive");
+        }
+        final BigDecimal r = monthlyRate(annualRate);
+        if (r.signum() == 0) {
+            return principal.divide(BigDecimal.valueOf(months), SCALE, RoundingMode.HALF_UP);
+        }
+        final BigDecimal factor = BigDecimal.ONE.add(r).pow(months, MathContext.DECIMAL64);
+        return principal.multiply(r).multiply(factor)
+                .divide(factor.subtract(BigDecimal.ONE), SCALE, RoundingMode.HALF_UP);
+    }
+
+    public static BigDecimal interest(BigDecimal balance, BigDecimal annualRate) {
+        return balance.multiply(monthlyRate(annualRate)).setScale(SCALE, RoundingMode.HALF_UP);
+    }
+
+    // Cronograma contractual; la última cuota absorbe el redondeo
+    public static List<LoanInstallment> schedule(BigDecimal principal, BigDecimal annualRate, int months,
+                                                 LocalDate firstDue) {
+        final BigDecimal payment = installment(principal, annualRate, months);
+        final List<LoanInstallment> rows = new ArrayList<>(months);
+        BigDecimal balance = principal;
+        LocalDate due = firstDue;
+        for (int k = 1; k <= months; k++) {
+            final BigDecimal interest = interest(balance, annualRate);
+            final BigDecimal capital = k == months ? balance : payment.subtract(interest).min(balance);
+            balance = balance.subtract(capital);
+            rows.add(new LoanInstallment(k, due, interest.add(capital), interest, capital, balance));
+            due = nextDue(due, firstDue.getDayOfMonth());
+        }
+        return rows;
+    }
+
+    public static LocalDate firstDue(Loan loan, ZoneId zone) {
+        final LocalDate disbursed = LocalDate.ofInstant(loan.getDisbursementDate(), zone);
+        return nextDue(disbursed, disbursed.getDayOfMonth());
+    }
+
+    // Préstamo nuevo: cuota fija, primer vencimiento e interés del primer periodo
+    public static Loan initialize(Loan loan, ZoneId zone) {
+        return loan.toBuilder()
+                .installmentAmount(installment(loan.getRemaining(), loan.getInterestRateAnnual(),
+                        loan.getTermMonths()))
+                .interestDue(interest(loan.getRemaining(), loan.getInterestRateAnnual()))
+                .periodPaid(BigDecimal.ZERO)
+                .pastDue(BigDecimal.ZERO)
+                .nextDueDate(firstDue(loan, zone).atStartOfDay(zone).toInstant())
+                .build();
+    }
+
+    // Préstamos anteriores a la amortización: se inicializan con el saldo y plazo vigentes
+    public static Loan withTerms(Loan loan, ZoneId zone) {
+        if (loan.getInstallmentAmount() != null || loan.getTermMonths() == null
+                || loan.getDisbursementDate() == null || loan.getRemaining() == null) {
+            return loan;
+        }
+        final Loan init = initialize(loan, zone);
+        return loan.getNextDueDate() == null ? init : init.toBuilder().nextDueDate(loan.getNextDueDate()).build();
+    }
+
+    // Parte del pago que se imputa: hasta interés devengado + capital
+    public static BigDecimal applicable(Loan loan, BigDecimal amount) {
+        return amount.min(nz(loan.getInterestDue()).add(loan.getRemaining()));
+    }
+
+    /**
+     * Aplica un pago (lo que exceda interés + capital no se aplica). Cubre primero lo vencido y
+     * luego la cuota en curso; completar la cuota avanza el vencimiento y devenga el interés del
+     * periodo siguiente, y el excedente de esa cuota queda como amortización anticipada de capital.
+     */
+    public static Loan applyPayment(Loan loan, BigDecimal amount, ZoneId zone) {
+        final BigDecimal toInterest = amount.min(nz(loan.getInterestDue()));
+        final BigDecimal toPrincipal = amount.subtract(toInterest).min(loan.getRemaining());
+        final BigDecimal applied = toInterest.add(toPrincipal);
+        final BigDecimal remaining = loan.getRemaining().subtract(toPrincipal);
+        BigDecimal interestDue = nz(loan.getInterestDue()).subtract(toInterest);
+        final BigDecimal toPastDue = applied.min(nz(loan.getPastDue()));
+        final BigDecimal pastDue = nz(loan.getPastDue()).subtract(toPastDue);
+        BigDecimal periodPaid = nz(loan.getPeriodPaid()).add(applied).subtract(toPastDue);
+        Instant nextDueDate = loan.getNextDueDate();
+
+        final BigDecimal installment = loan.getInstallmentAmount();
+        if (remaining.signum() > 0 && installment != null && nextDueDate != null
+                && periodPaid.compareTo(installment) >= 0) {
+            periodPaid = BigDecimal.ZERO;
+            nextDueDate = advance(nextDueDate, loan, zone);
+            interestDue = interestDue.add(interest(remaining, loan.getInterestRateAnnual()));
+        }
+
+        LoanStatus status = loan.getStatus();
+        if (remaining.signum() == 0) {
+            status = LoanStatus.CLOSED;
+            nextDueDate = null;
+            periodPaid = BigDecimal.ZERO;
+        } else if (status == LoanStatus.IN_ARREARS && pastDue.signum() == 0) {
+            status = LoanStatus.ACTIVE;
+        }
+        return loan.toBuilder()
+                .remaining(remaining)
+                .interestDue(interestDue)
+                .pastDue(remaining.signum() == 0 ? BigDecimal.ZERO : pastDue)
+                .periodPaid(periodPaid)
+                .nextDueDate(nextDueDate)
+                .status(status)
+                .build();
+    }
+
+    /**
+     * Vencimientos impagos anteriores a {@code today}: lo no pagado de cada cuota pasa a pastDue,
+     * se devenga el interés del periodo siguiente, el vencimiento avanza y el préstamo queda
+     * IN_ARREARS. Devuelve el mismo préstamo si no tenía cuotas vencidas.
+     */
+    public static Loan rollOverdue(Loan loan, LocalDate today, ZoneId zone) {
+        if (loan.getNextDueDate() == null || loan.getInstallmentAmount() == null
+                || loan.getRemaining().signum() <= 0
+                || !LocalDate.ofInstant(loan.getNextDueDate(), zone).isBefore(today)) {
+            return loan;
+        }
+        BigDecimal pastDue = nz(loan.getPastDue());
+        BigDecimal periodPaid = nz(loan.getPeriodPaid());
+        BigDecimal interestDue = nz(loan.getInterestDue());
+        Instant nextDueDate = loan.getNextDueDate();
+        while (LocalDate.ofInstant(nextDueDate, zone).isBefore(today)) {
+            pastDue = pastDue.add(loan.getInstallmentAmount().subtract(periodPaid).max(BigDecimal.ZERO));
+            periodPaid = BigDecimal.ZERO;
+            interestDue = interestDue.add(interest(loan.getRemaining(), loan.getInterestRateAnnual()));
+            nextDueDate = advance(nextDueDate, loan, zone);
+        }
+        return loan.toBuilder()
+                // no puede exigirse más de lo que se adeuda
+                .pastDue(pastDue.min(loan.getRemaining().add(interestDue)))
+                .periodPaid(periodPaid)
+                .interestDue(interestDue)
+                .nextDueDate(nextDueDate)
+                .status(LoanStatus.IN_ARREARS)
+                .build();
+    }
+
+    private static Instant advance(Instant due, Loan loan, ZoneId zone) {
+        final int anchorDay = loan.getDisbursementDate() == null
+                ? LocalDate.ofInstant(due, zone).getDayOfMonth()
+                : LocalDate.ofInstant(loan.getDisbursementDate(), zone).getDayOfMonth();
+        return nextDue(LocalDate.ofInstant(due, zone), anchorDay).atStartOfDay(zone).toInstant();
+    }
+
+    // Mes siguiente, el día ancla o el último del mes si no existe (31 → 28/30 → 31)
+    private static LocalDate nextDue(LocalDate due, int anchorDay) {
+        final YearMonth month = YearMonth.from(due).plusMonths(1);
+        return month.atDay(Math.min(anchorDay, month.lengthOfMonth()));
+    }
+
+    private static BigDecimal nz(BigDecimal value) {
+        return value == null ? BigDecimal.ZERO : value;
+    }
+}
@@ -0,0 +1,67 @@
+package ntt.ntt_ms_accounts.service;
+
+import lombok.extern.slf4j.Slf4j;
+import ntt.ntt_ms_accounts.dto.BatchMovementRequest;
+import ntt.ntt_ms_accounts.models.AccountMovement;
+import ntt.ntt_ms_accounts.models.MovementType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+
+/**
+ * Aplica un stream de depósitos/retiros. Las operaciones de una misma cuenta se ejecutan
+ * en orden (misma partición, concatMap); cuentas distintas avanzan en paralelo.
+ */
+@Slf4j
+@Service
+public class BatchMovementService {
+
+    private final AccountService accountService;
+    private final int parallelism;
+
+    public BatchMovementService(AccountService accountService,
+                                @Value("${accounts.movements.bulk.parallelism:0}") int parallelism) {
+        this.accountService = accountService;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors() * 4;
+    }
+
+    public record BatchOutcome(long index, String accountId, AccountMovement movement, String error) {}
+
+    public Flux<BatchOutcome> apply(Flux<BatchMovementRequest> operations, Clock clock) {
+        return operations
+                .index()
+                .groupBy(t -> Math.floorMod(String.valueOf(t.getT2().accountId()).hashCode(), parallelism))
+                .flatMap(partition -> partition.concatMap(t -> applyOne(t.getT1(), t.getT2(), clock)), parallelism);
+    }
+
+    private Mono<BatchOutcome> applyOne(long index, BatchMovementRequest op, Clock clock) {
+        return Mono.defer(() -> execute(op, clock))
+                .map(mv -> new BatchOutcome(index, op.accountId(), mv, null))
+                .onErrorResume(e -> {
+                    log.debug("Batch operation {} on account {} rejected: {}", index, op.accountId(), e.getMessage());
+                    return Mono.just(new BatchOutcome(index, op.accountId(), null, e.getMessage()));
+                });
+    }
+
+    // Mismas reglas que los endpoints deposit/withdraw (operate + validateOperationRules)
+    private Mono<AccountMovement> execute(BatchMovementRequest op, Clock clock) {
+        if (op.accountId() == null || op.accountId().isBlank()) {
+            return Mono.error(new IllegalArgumentException("accountId is required"));
+        }
+        if (op.amount() == null || op.amount().compareTo(BigDecimal.ZERO) <= 0) {
+            return Mono.error(new IllegalArgumentException("amount must be positive"));
+        }
+        final String type = op.type() == null ? "" : op.type().trim().toUpperCase();
+        if (MovementType.DEPOSIT.name().equals(type)) {
+            return accountService.deposit(op.accountId(), op.amount(), op.reference(), clock);
+        }
+        if (MovementType.WITHDRAWAL.name().equals(type)) {
+            return accountService.withdraw(op.accountId(), op.amount(), op.reference(), clock);
+        }
+        return Mono.error(new IllegalArgumentException("type must be DEPOSIT or WITHDRAWAL"));
+    }
+}
@@ -0,0 +1,84 @@
+package ntt.ntt_ms_accounts.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import ntt.ntt_ms_accounts.repository.CreditCardRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Libera periódicamente las autorizaciones vencidas: busca tarjetas por el índice
+ * holds_expires_at y devuelve a available, con un update atómico por tarjeta, el monto de
+ * los holds con expiresAt pasado.
+ */
+@Slf4j
+@Component
+public class CardHoldSweeper {
+
+    private final CreditCardRepository cardRepo;
+    private final CreditCardService cardService;
+    private final boolean enabled;
+    private final Duration interval;
+    private final int batchSize;
+    private final int concurrency;
+    private Disposable schedule;
+
+    public CardHoldSweeper(CreditCardRepository cardRepo,
+                           CreditCardService cardService,
+                           @Value("${cards.holds.sweep.enabled:true}") boolean enabled,
+                           @Value("${cards.holds.sweep.interval:1m}") Duration interval,
+                           @Value("${cards.holds.sweep.batch-size:500}") int batchSize,
+                           @Value("${cards.holds.sweep.concurrency:8}") int concurrency) {
+        this.cardRepo = cardRepo;
+        this.cardService = cardService;
+        this.enabled = enabled;
+        this.interval = interval;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        schedule = Flux.interval(interval)
+                .onBackpressureDrop()
+                .concatMap(tick -> sweep(Instant.now())
+                        .onErrorResume(e -> {
+                            log.error("Card hold sweep failed: {}", e.getMessage(), e);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (schedule != null) {
+            schedule.dispose();
+        }
+    }
+
+    // Una pasada: hasta batchSize tarjetas; el resto queda para la siguiente
+    public Mono<Long> sweep(Instant now) {
+        return cardRepo.findIdsWithExpiredHolds(now, batchSize)
+                .flatMap(id -> cardService.releaseExpiredHolds(id, now)
+                        .onErrorResume(e -> {
+                            log.warn("Could not release expired holds of card {}: {}", id, e.toString());
+                            return Mono.empty();
+                        }), concurrency)
+                .count()
+                .doOnNext(n -> {
+                    if (n > 0) {
+                        log.info("Released expired holds on {} cards", n);
+                    }
+                });
+    }
+}
@@ -0,0 +1,285 @@
+package ntt.ntt_ms_accounts.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import ntt.ntt_ms_accounts.models.CardHold;
+import ntt.ntt_ms_accounts.models.CardStatement;
+import ntt.ntt_ms_accounts.models.CreditCard;
+import ntt.ntt_ms_accounts.models.JobCheckpoint;
+import ntt.ntt_ms_accounts.models.JobCheckpointStatus;
+import ntt.ntt_ms_accounts.models.ProductLedgerDay;
+import ntt.ntt_ms_accounts.repository.CardStatementRepository;
+import ntt.ntt_ms_accounts.repository.CreditCardRepository;
+import ntt.ntt_ms_accounts.repository.JobCheckpointRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Cierre de ciclo de tarjetas: recorre por el índice closing_day_id solo las tarjetas que
+ * cierran en la fecha, calcula saldo facturado y pago mínimo por tramos (lecturas $in del
+ * libro y un bulk de estados de cuenta por tramo, con paralelismo acotado) y avanza el
+ * checkpoint de la corrida en orden de _id para retomar tras una caída. El saldo facturado
+ * sale de la entrada de cierre del libro a la fecha de corte, no del estado de la tarjeta
+ * al momento de correr el proceso.
+ */
+@Slf4j
+@Service
+public class CardStatementService {
+
+    static final String JOB = "card-statements";
+    // sin dueDay en la tarjeta: vencimiento a estos días del cierre
+    private static final int DEFAULT_GRACE_DAYS = 20;
+    // lease de la corrida; cada tramo lo renueva y vence si la instancia cae
+    private static final Duration LEASE = Duration.ofMinutes(5);
+
+    private final CreditCardRepository cardRepo;
+    private final CardStatementRepository statementRepo;
+    private final JobCheckpointRepository checkpoints;
+    private final ProductLedgerService ledger;
+    private final Clock clock;
+    private final boolean enabled;
+    private final LocalTime startAt;
+    private final Duration interval;
+    private final int pageSize;
+    private final int concurrency;
+    private final BigDecimal minPaymentRate;
+    private final BigDecimal minPaymentFloor;
+    // dueño de las corridas que toma esta instancia
+    private final String owner = UUID.randomUUID().toString();
+    private Disposable schedule;
+
+    public CardStatementService(CreditCardRepository cardRepo,
+                                CardStatementRepository statementRepo,
+                                JobCheckpointRepository checkpoints,
+                                ProductLedgerService ledger,
+                                @Value("${cards.statements.enabled:true}") boolean enabled,
+                                @Value("${cards.statements.start-at:23:00}") LocalTime startAt,
+                                @Value("${cards.statements.interval:15m}") Duration interval,
+                                @Value("${cards.statements.page-size:1000}") int pageSize,
+                                @Value("${cards.statements.concurrency:8}") int concurrency,
+                                @Value("${cards.statements.min-payment-rate:0.05}") BigDecimal minPaymentRate,
+                                @Value("${cards.statements.min-payment-floor:25}") BigDecimal minPaymentFloor) {
+        this(cardRepo, statementRepo, checkpoints, ledger, Clock.systemDefaultZone(), enabled, startAt, interval,
+                pageSize, concurrency, minPaymentRate, minPaymentFloor);
+    }
+
+    CardStatementService(CreditCardRepository cardRepo, CardStatementRepository statementRepo,
+                         JobCheckpointRepository checkpoints, ProductLedgerService ledger, Clock clock,
+                         boolean enabled, LocalTime startAt, Duration interval, int pageSize, int concurrency,
+                         BigDecimal minPaymentRate, BigDecimal minPaymentFloor) {
+        this.cardRepo = cardRepo;
+        this.statementRepo = statementRepo;
+        this.checkpoints = checkpoints;
+        this.ledger = ledger;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.startAt = startAt;
+        this.interval = interval;
+        this.pageSize = pageSize;
+        this.concurrency = concurrency;
+        this.minPaymentRate = minPaymentRate;
+        this.minPaymentFloor = minPaymentFloor;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        schedule = Flux.interval(interval)
+                .onBackpressureDrop()
+                .concatMap(tick -> Flux.fromIterable(dueRuns())
+                        .concatMap(this::runFor)
+                        .onErrorResume(e -> {
+                            log.error("Card statement run failed: {}", e.getMessage(), e);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (schedule != null) {
+            schedule.dispose();
+        }
+    }
+
+    // Ayer (por si la instancia estuvo caída en la ventana) y hoy desde startAt
+    List<LocalDate> dueRuns() {
+        final LocalDate today = LocalDate.now(clock);
+        return LocalTime.now(clock).isBefore(startAt)
+                ? List.of(today.minusDays(1))
+                : List.of(today.minusDays(1), today);
+    }
+
+    /**
+     * Genera los estados de cuenta de las tarjetas que cierran en {@code closingDate}. Una corrida
+     * COMPLETED se devuelve sin repetir; una interrumpida retoma después del último tramo registrado.
+     * Vacío si otra instancia tiene el lease de la corrida.
+     */
+    public Mono<JobCheckpoint> runFor(LocalDate closingDate) {
+        final String runKey = DailyBalanceService.dayKey(closingDate);
+        return checkpoints.start(JOB, runKey, owner, LEASE)
+                .flatMap(cp -> cp.getStatus() == JobCheckpointStatus.COMPLETED
+                        ? Mono.just(cp)
+                        : process(cp, closingDate));
+    }
+
+    public Flux<CardStatement> statements(String cardId) {
+        return statementRepo.findByCardIdOrderByClosingDateDesc(cardId);
+    }
+
+    private Mono<JobCheckpoint> process(JobCheckpoint cp, LocalDate closingDate) {
+        if (cp.getLastKey() != null) {
+            log.info("Resuming card statements for {} after {} ({} done)",
+                    cp.getRunKey(), cp.getLastKey(), cp.getProcessed());
+        }
+        final Instant started = Instant.now();
+        return cardRepo.findClosingOn(closingDaysFor(closingDate), cp.getLastKey())
+                .buffer(pageSize)
+                // orden preservado: el checkpoint nunca salta un tramo sin escribir
+                .flatMapSequential(page -> statementsFor(page, closingDate)
+                        .flatMap(statementRepo::upsertAll)
+                        .thenReturn(page), concurrency)
+                .concatMap(page -> checkpoints
+                        .advance(cp.getId(), owner, page.get(page.size() - 1).getId(), page.size(), LEASE)
+                        .thenReturn(page.size()))
+                .reduce(0L, (n, size) -> n + size)
+                .flatMap(n -> checkpoints.complete(cp.getId(), owner)
+                        .then(checkpoints.findById(cp.getId()))
+                        .doOnNext(done -> log.info("Card statements for {}: {} cards in this run, {} total, {} ms",
+                                cp.getRunKey(), n, done.getProcessed(),
+                                Duration.between(started, Instant.now()).toMillis())));
+    }
+
+    private Mono<List<CardStatement>> statementsFor(List<CreditCard> page, LocalDate closingDate) {
+        final LocalDate from = page.stream()
+                .map(c -> periodStart(closingDate, c.getClosingDay()))
+                .min(Comparator.naturalOrder())
+                .orElse(closingDate);
+        final List<String> ids = page.stream().map(CreditCard::getId).toList();
+        final Instant now = Instant.now();
+        return Mono.zip(
+                        ledger.daysForProducts(ids, from, closingDate).collectMultimap(ProductLedgerDay::getProductId),
+                        ledger.lastDaysForProducts(ids, closingDate).collectMap(ProductLedgerDay::getProductId))
+                .map(t -> page.stream()
+                        .map(c -> build(c, closingDate, days(t.getT1(), c.getId()), t.getT2().get(c.getId()),
+                                minPaymentRate, minPaymentFloor, now))
+                        .toList());
+    }
+
+    private static List<ProductLedgerDay> days(Map<String, Collection<ProductLedgerDay>> byCard, String cardId) {
+        final Collection<ProductLedgerDay> days = byCard.get(cardId);
+        return days == null ? List.of() : List.copyOf(days);
+    }
+
+    /**
+     * {@code closingDay} es el último día del libro en o antes del cierre; su entrada de cierre da
+     * available y held a la fecha de corte. Sin libro (tarjetas previas a él) se usa el estado actual.
+     */
+    static CardStatement build(CreditCard card, LocalDate closingDate, List<ProductLedgerDay> days,
+                               ProductLedgerDay closingDay, BigDecimal minPaymentRate, BigDecimal minPaymentFloor,
+                               Instant now) {
+        final String periodStart = DailyBalanceService.dayKey(periodStart(closingDate, card.getClosingDay()));
+        BigDecimal purchases = BigDecimal.ZERO;
+        BigDecimal payments = BigDecimal.ZERO;
+        for (ProductLedgerDay day : days) {
+            if (day.getDay().compareTo(periodStart) < 0) {
+                continue;
+            }
+            for (ProductLedgerDay.Entry e : day.getEntries()) {
+                switch (e.getType()) {
+                    case "CHARGE", "CAPTURE" -> purchases = purchases.add(e.getAmount());
+                    case "PAYMENT" -> payments = payments.add(e.getAmount());
+                    default -> { }
+                }
+            }
+        }
+        final ProductLedgerDay.Entry closing = closingDay == null
+                ? null
+                : ProductLedgerService.closingEntry(closingDay).orElse(null);
+        final BigDecimal available = closing == null ? card.getAvailable() : closing.getBalanceAfter();
+        // entradas previas a heldAfter: se toma lo retenido hoy
+        final BigDecimal held = closing != null && closing.getHeldAfter() != null
+                ? closing.getHeldAfter()
+                : currentHeld(card);
+        final BigDecimal balance = card.getCreditLimit().subtract(available).subtract(held)
+                .max(BigDecimal.ZERO);
+        final String closingKey = DailyBalanceService.dayKey(closingDate);
+        return CardStatement.builder()
+                .id(CardStatement.idOf(card.getId(), closingKey))
+                .cardId(card.getId())
+                .customerId(card.getCustomerId())
+                .periodStart(periodStart)
+                .closingDate(closingKey)
+                .dueDate(DailyBalanceService.dayKey(dueDate(closingDate, card.getDueDay())))
+                .creditLimit(card.getCreditLimit())
+                .available(available)
+                .held(held)
+                .purchases(purchases)
+                .payments(payments)
+                .statementBalance(balance)
+                .minimumPayment(minimumPayment(balance, minPaymentRate, minPaymentFloor))
+                .generatedAt(now)
+                .build();
+    }
+
+    private static BigDecimal currentHeld(CreditCard card) {
+        return card.getHolds() == null ? BigDecimal.ZERO : card.getHolds().stream()
+                .map(CardHold::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    // Porcentaje del saldo con un piso, sin superar el saldo
+    static BigDecimal minimumPayment(BigDecimal balance, BigDecimal rate, BigDecimal floor) {
+        if (balance.signum() <= 0) {
+            return BigDecimal.ZERO;
+        }
+        return balance.multiply(rate).max(floor).min(balance).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    // El último día del mes también cierran las tarjetas con closingDay mayor (29-31)
+    static List<Integer> closingDaysFor(LocalDate date) {
+        if (date.getDayOfMonth() < date.lengthOfMonth()) {
+            return List.of(date.getDayOfMonth());
+        }
+        return IntStream.rangeClosed(date.getDayOfMonth(), 31).boxed().toList();
+    }
+
+    static LocalDate periodStart(LocalDate closingDate, Integer closingDay) {
+        final int day = closingDay == null ? closingDate.getDayOfMonth() : closingDay;
+        return dayIn(YearMonth.from(closingDate).minusMonths(1), day).plusDays(1);
+    }
+
+    // Primer dueDay posterior al cierre (ajustado al largo del mes)
+    static LocalDate dueDate(LocalDate closingDate, Integer dueDay) {
+        if (dueDay == null) {
+            return closingDate.plusDays(DEFAULT_GRACE_DAYS);
+        }
+        final LocalDate sameMonth = dayIn(YearMonth.from(closingDate), dueDay);
+        return sameMonth.isAfter(closingDate) ? sameMonth : dayIn(YearMonth.from(closingDate).plusMonths(1), dueDay);
+    }
+
+    private static LocalDate dayIn(YearMonth month, int day) {
+        return month.atDay(Math.min(day, month.lengthOfMonth()));
+    }
+}
@@ -1,58 +1,204 @@
 package ntt.ntt_ms_accounts.service;
 
 import jakarta.validation.constraints.NotNull;
+import ntt.ntt_ms_accounts.models.CardHold;
 import ntt.ntt_ms_accounts.models.CreditCard;
 import ntt.ntt_ms_accounts.models.CardStatus;
+import ntt.ntt_ms_accounts.models.ProductLedgerDay;
 import ntt.ntt_ms_accounts.repository.CreditCardRepository;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
 
 @Service
-@RequiredArgsConstructor
 public class CreditCardService {
 
     private final CreditCardRepository cardRepo;
+    private final CustomerHoldingsService holdings;
+    private final ReportCache reportCache;
+    private final ProductLedgerService ledger;
+    // vigencia de una autorización antes de que el barrido la libere
+    private final Duration holdTtl;
+
+    public CreditCardService(CreditCardRepository cardRepo,
+                             CustomerHoldingsService holdings,
+                             ReportCache reportCache,
+                             ProductLedgerService ledger,
+                             @Value("${cards.holds.ttl:7d}") Duration holdTtl) {
+        this.cardRepo = cardRepo;
+        this.holdings = holdings;
+        this.reportCache = reportCache;
+        this.ledger = ledger;
+        this.holdTtl = holdTtl;
+    }
 
     public Mono<CreditCard> create(CreditCard c) {
         if (c.getStatus() == null) c.setStatus(CardStatus.ACTIVE);
         if (c.getAvailable() == null) c.setAvailable(c.getCreditLimit());
+        c.setLedgerSeq(0L);
         c.setCreatedAt(Instant.now());
         return cardRepo.findByCardNumber(c.getCardNumber())
                 .flatMap(x -> Mono.<CreditCard>error(new IllegalStateException("cardNumber already exists")))
-                .switchIfEmpty(cardRepo.save(c))
-                .cast(CreditCard.class);
+                .switchIfEmpty(Mono.defer(() -> cardRepo.save(c)
+                        .flatMap(saved -> holdings.cardIssued(saved)
+                                .then(recordLedger(saved, "OPEN", saved.getAvailable(), saved.getAvailable(), null))
+                                .thenReturn(saved))))
+                .cast(CreditCard.class)
+                .doOnNext(this::invalidateReports);
     }
 
     public Mono<CreditCard> get(String id) { return cardRepo.findById(id); }
 
     public Flux<CreditCard> listByCustomer(String customerId) { return cardRepo.findByCustomerId(customerId); }
 
+    // Cargo directo: decremento condicional atómico (available >= amount) en un solo round trip
     public Mono<CreditCard> charge(String id, @NotNull BigDecimal amount, String ref) {
-        return cardRepo.findById(id)
-                .switchIfEmpty(Mono.error(new IllegalArgumentException("card not found")))
-                .flatMap(card -> {
-                    if (card.getAvailable().compareTo(amount) < 0) {
-                        return Mono.error(new IllegalStateException("Insufficient available credit"));
-                    }
-                    card.setAvailable(card.getAvailable().subtract(amount));
-                    return cardRepo.save(card);
-                });
+        return cardRepo.debit(id, amount)
+                .switchIfEmpty(Mono.defer(() -> reject(id, "Insufficient available credit")))
+                .flatMap(card -> recordLedger(card, "CHARGE", amount, amount.negate(), ref).thenReturn(card))
+                .doOnNext(this::invalidateReports);
     }
 
     public Mono<CreditCard> payment(String id, @NotNull BigDecimal amount) {
-        return cardRepo.findById(id)
+        return cardRepo.credit(id, amount)
                 .switchIfEmpty(Mono.error(new IllegalArgumentException("card not found")))
-                .flatMap(card -> {
-                    BigDecimal newAvailable = card.getAvailable().add(amount);
-                    if (newAvailable.compareTo(card.getCreditLimit()) > 0) {
-                        newAvailable = card.getCreditLimit();
+                .flatMap(before -> {
+                    // mismo tope que el update: creditLimit menos lo retenido en holds
+                    final BigDecimal cap = before.getCreditLimit().subtract(held(before));
+                    final BigDecimal after = before.getAvailable().add(amount).min(cap);
+                    final CreditCard card = before.toBuilder().available(after).ledgerSeq(nextSeq(before)).build();
+                    return recordLedger(card, "PAYMENT", amount, after.subtract(before.getAvailable()), null)
+                            .thenReturn(card);
+                })
+                .doOnNext(this::invalidateReports);
+    }
+
+    // AUTORIZACIÓN: reserva crédito con vencimiento; la respuesta espera un solo findAndModify
+    // condicional. El asiento del ledger va en segundo plano: las entradas se ordenan por ledgerSeq
+    // y record registra sus fallos en el log
+    public Mono<CardHold> authorize(String id, @NotNull BigDecimal amount, String ref) {
+        final Instant now = Instant.now();
+        final CardHold hold = CardHold.builder()
+                .id(UUID.randomUUID().toString())
+                .amount(amount)
+                .reference(ref)
+                .createdAt(now)
+                .expiresAt(now.plus(holdTtl))
+                .build();
+        return cardRepo.authorize(id, hold)
+                .switchIfEmpty(Mono.defer(() -> cardRepo.findById(id)
+                        .flatMap(c -> c.getStatus() != CardStatus.ACTIVE
+                                ? Mono.<CreditCard>error(new IllegalStateException("card is not active"))
+                                : Mono.<CreditCard>error(new IllegalStateException("Insufficient available credit")))
+                        .switchIfEmpty(Mono.error(new IllegalArgumentException("card not found")))))
+                .doOnNext(card -> recordLedger(card, "AUTHORIZE", amount, amount.negate(), ref).subscribe())
+                .doOnNext(this::invalidateReports)
+                .thenReturn(hold);
+    }
+
+    // Captura total o parcial (amount nulo = total); lo no capturado vuelve a available
+    public Mono<CreditCard> capture(String id, String holdId, BigDecimal amount) {
+        return settle(id, holdId, amount, "CAPTURE");
+    }
+
+    public Mono<CreditCard> release(String id, String holdId) {
+        return settle(id, holdId, BigDecimal.ZERO, "RELEASE");
+    }
+
+    // Libera los holds vencidos de una tarjeta; vacío si no tenía ninguno
+    public Mono<CreditCard> releaseExpiredHolds(String id, Instant now) {
+        return cardRepo.releaseExpiredHolds(id, now)
+                .flatMap(before -> {
+                    BigDecimal released = BigDecimal.ZERO;
+                    final List<CardHold> remaining = new ArrayList<>();
+                    for (CardHold h : holdsOf(before)) {
+                        if (h.getExpiresAt().isAfter(now)) {
+                            remaining.add(h);
+                        } else {
+                            released = released.add(h.getAmount());
+                        }
                     }
-                    card.setAvailable(newAvailable);
-                    return cardRepo.save(card);
-                });
+                    final CreditCard card = before.toBuilder()
+                            .available(before.getAvailable().add(released))
+                            .holds(remaining)
+                            .ledgerSeq(nextSeq(before))
+                            .build();
+                    return recordLedger(card, "RELEASE", released, released, "expired").thenReturn(card);
+                })
+                .doOnNext(this::invalidateReports);
+    }
+
+    private Mono<CreditCard> settle(String id, String holdId, BigDecimal amount, String type) {
+        return Mono.defer(() -> {
+            if (amount != null && amount.signum() < 0) {
+                return Mono.error(new IllegalArgumentException("amount must not be negative"));
+            }
+            return cardRepo.findById(id)
+                    .switchIfEmpty(Mono.error(new IllegalArgumentException("card not found")))
+                    .flatMap(current -> {
+                        final CardHold hold = holdsOf(current).stream()
+                                .filter(h -> h.getId().equals(holdId))
+                                .findFirst()
+                                .orElse(null);
+                        if (hold == null) {
+                            return Mono.error(new IllegalArgumentException("hold not found"));
+                        }
+                        final BigDecimal toCapture = amount == null ? hold.getAmount() : amount;
+                        if (toCapture.compareTo(hold.getAmount()) > 0) {
+                            return Mono.error(new IllegalStateException("capture exceeds authorized amount"));
+                        }
+                        // la condición del update revalida el hold: una captura concurrente deja vacío
+                        return cardRepo.settleHold(id, holdId, toCapture)
+                                .switchIfEmpty(Mono.error(new IllegalArgumentException("hold not found")))
+                                .flatMap(before -> {
+                                    final BigDecimal returned = hold.getAmount().subtract(toCapture);
+                                    final CreditCard card = before.toBuilder()
+                                            .available(before.getAvailable().add(returned))
+                                            .holds(holdsOf(before).stream()
+                                                    .filter(h -> !h.getId().equals(holdId))
+                                                    .toList())
+                                            .ledgerSeq(nextSeq(before))
+                                            .build();
+                                    return recordLedger(card, type, toCapture, returned, hold.getReference())
+                                            .thenReturn(card);
+                                });
+                    });
+        }).doOnNext(this::invalidateReports);
+    }
+
+    // El update condicional no aplicó: leer solo para dar el error correcto
+    private Mono<CreditCard> reject(String id, String insufficient) {
+        return cardRepo.findById(id)
+                .flatMap(c -> Mono.<CreditCard>error(new IllegalStateException(insufficient)))
+                .switchIfEmpty(Mono.error(new IllegalArgumentException("card not found")));
+    }
+
+    private static List<CardHold> holdsOf(CreditCard card) {
+        return card.getHolds() == null ? List.of() : card.getHolds();
+    }
+
+    // los updates con pipeline devuelven el documento previo; la secuencia nueva es la leída + 1
+    private static long nextSeq(CreditCard before) {
+        return (before.getLedgerSeq() == null ? 0L : before.getLedgerSeq()) + 1;
+    }
+
+    private static BigDecimal held(CreditCard card) {
+        return holdsOf(card).stream().map(CardHold::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private Mono<Void> recordLedger(CreditCard card, String type, BigDecimal amount, BigDecimal delta, String ref) {
+        return ledger.record(ProductLedgerDay.CARD, card.getId(), card.getCustomerId(), type,
+                amount, delta, card.getAvailable(), held(card), card.getLedgerSeq(), ref, Instant.now());
+    }
+
+    private void invalidateReports(CreditCard card) {
+        reportCache.invalidateCustomer(card.getCustomerId());
     }
 }
@@ -0,0 +1,161 @@
+package ntt.ntt_ms_accounts.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ntt.ntt_ms_accounts.models.Account;
+import ntt.ntt_ms_accounts.models.AccountStatus;
+import ntt.ntt_ms_accounts.models.CardStatus;
+import ntt.ntt_ms_accounts.models.CreditCard;
+import ntt.ntt_ms_accounts.models.CustomerHoldings;
+import ntt.ntt_ms_accounts.models.Loan;
+import ntt.ntt_ms_accounts.models.LoanStatus;
+import ntt.ntt_ms_accounts.repository.AccountRepository;
+import ntt.ntt_ms_accounts.repository.CreditCardRepository;
+import ntt.ntt_ms_accounts.repository.CustomerHoldingsRepository;
+import ntt.ntt_ms_accounts.repository.LoanRepository;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Mantiene la proyección {@link CustomerHoldings}: se incrementa al crear/cerrar productos
+ * y se reconstruye desde las colecciones origen cuando falta o a pedido.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CustomerHoldingsService {
+
+    private static final int REBUILD_CONCURRENCY = 8;
+    private static final int REBUILD_RETRIES = 3;
+
+    private final CustomerHoldingsRepository holdingsRepo;
+    private final AccountRepository accountRepo;
+    private final LoanRepository loanRepo;
+    private final CreditCardRepository cardRepo;
+    private final ReactiveMongoTemplate template;
+
+    // Lectura por clave; si el cliente aún no tiene proyección se construye en el momento
+    public Mono<CustomerHoldings> get(String customerId) {
+        return holdingsRepo.findById(customerId)
+                .switchIfEmpty(Mono.defer(() -> rebuild(customerId)));
+    }
+
+    public Mono<Void> accountOpened(Account acc) {
+        return adjust(acc.getCustomerId(), "accountsByType." + acc.getType().name(), 1);
+    }
+
+    public Mono<Void> accountClosed(Account acc) {
+        if (acc.getStatus() == AccountStatus.CLOSED) {
+            return Mono.empty(); // ya no contaba
+        }
+        return adjust(acc.getCustomerId(), "accountsByType." + acc.getType().name(), -1);
+    }
+
+    public Mono<Void> loanCreated(Loan loan) {
+        if (!isOpen(loan)) {
+            return Mono.empty();
+        }
+        return adjust(loan.getCustomerId(), "loansByType." + loan.getType().name(), 1);
+    }
+
+    public Mono<Void> loanClosed(Loan loan) {
+        return adjust(loan.getCustomerId(), "loansByType." + loan.getType().name(), -1);
+    }
+
+    public Mono<Void> cardIssued(CreditCard card) {
+        if (card.getStatus() != CardStatus.ACTIVE) {
+            return Mono.empty();
+        }
+        return adjust(card.getCustomerId(), "activeCards", 1);
+    }
+
+    /**
+     * Recuenta desde las colecciones origen. La revisión se lee antes de contar y el reemplazo
+     * es condicional a ella: si un $inc entró en el medio se vuelve a contar, en lugar de pisar
+     * el incremento con un conteo que quizá no lo vio.
+     */
+    public Mono<CustomerHoldings> rebuild(String customerId) {
+        return Mono.defer(() -> holdingsRepo.findById(customerId))
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(current -> recount(customerId)
+                        .flatMap(rebuilt -> holdingsRepo.replaceIfUnchanged(rebuilt, current.orElse(null))
+                                .flatMap(replaced -> replaced
+                                        ? Mono.just(rebuilt)
+                                        : Mono.<CustomerHoldings>error(new OptimisticLockingFailureException(
+                                                "holdings of " + customerId + " changed during rebuild")))))
+                .retryWhen(Retry.max(REBUILD_RETRIES)
+                        .filter(OptimisticLockingFailureException.class::isInstance)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    private Mono<CustomerHoldings> recount(String customerId) {
+        final Mono<Map<String, Integer>> accounts = accountRepo.findByCustomerId(customerId)
+                .filter(a -> a.getStatus() != AccountStatus.CLOSED)
+                .reduceWith(HashMap::new, (m, a) -> count(m, a.getType().name()));
+        final Mono<Map<String, Integer>> loans = loanRepo.findByCustomerId(customerId)
+                .filter(CustomerHoldingsService::isOpen)
+                .reduceWith(HashMap::new, (m, l) -> count(m, l.getType().name()));
+        final Mono<Long> cards = cardRepo.findByCustomerId(customerId)
+                .filter(c -> c.getStatus() == CardStatus.ACTIVE)
+                .count();
+
+        return Mono.zip(accounts, loans, cards)
+                .map(t -> {
+                    final Instant now = Instant.now();
+                    return CustomerHoldings.builder()
+                            .customerId(customerId)
+                            .accountsByType(t.getT1())
+                            .loansByType(t.getT2())
+                            .activeCards(t.getT3().intValue())
+                            .rebuiltAt(now)
+                            .updatedAt(now)
+                            .build();
+                });
+    }
+
+    // Clientes con al menos una cuenta, préstamo o tarjeta
+    public Flux<String> knownCustomerIds() {
+        return Flux.merge(
+                        template.findDistinct(new Query(), "customerId", Account.class, String.class),
+                        template.findDistinct(new Query(), "customerId", Loan.class, String.class),
+                        template.findDistinct(new Query(), "customerId", CreditCard.class, String.class))
+                .distinct();
+    }
+
+    // Reconstruye la proyección de todos los clientes con algún producto; devuelve cuántos se procesaron
+    public Mono<Long> rebuildAll() {
+        return knownCustomerIds()
+                .flatMap(this::rebuild, REBUILD_CONCURRENCY)
+                .count()
+                .doOnNext(n -> log.info("Customer holdings rebuilt for {} customers", n));
+    }
+
+    // Si el $inc falla se descarta la proyección: la próxima lectura la reconstruye desde el origen
+    private Mono<Void> adjust(String customerId, String counter, int delta) {
+        return holdingsRepo.increment(customerId, counter, delta)
+                .onErrorResume(e -> {
+                    log.warn("Could not update holdings of customer {}: {}", customerId, e.toString());
+                    return holdingsRepo.deleteById(customerId).onErrorResume(x -> Mono.empty());
+                });
+    }
+
+    private static boolean isOpen(Loan loan) {
+        return loan.getStatus() != LoanStatus.CLOSED && loan.getStatus() != LoanStatus.CANCELED;
+    }
+
+    private static Map<String, Integer> count(Map<String, Integer> m, String key) {
+        m.merge(key, 1, Integer::sum);
+        return m;
+    }
+}
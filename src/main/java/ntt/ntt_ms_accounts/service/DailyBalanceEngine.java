@@ -0,0 +1,170 @@
+package ntt.ntt_ms_accounts.service;
+
+import ntt.ntt_ms_accounts.models.AccountDailyBalance;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Saldo promedio diario a partir de los snapshots del mes, en unidades mínimas (long) sobre
+ * arreglos primitivos indexados por día (offset de epoch day desde el primer día).
+ * Reproduce exactamente el resultado en BigDecimal/DECIMAL64, incluida la escala: la suma
+ * diaria es exacta y solo se crea un BigDecimal al final para la división.
+ * Si un monto no entra en long a la escala común, usa el cálculo en BigDecimal.
+ */
+public final class DailyBalanceEngine {
+
+    private static final int MAX_SCALE = 18;
+    private static final long[] POW10 = new long[MAX_SCALE + 1];
+
+    static {
+        POW10[0] = 1L;
+        for (int i = 1; i <= MAX_SCALE; i++) {
+            POW10[i] = POW10[i - 1] * 10L;
+        }
+    }
+
+    private DailyBalanceEngine() {
+    }
+
+    /**
+     * @param endBalance saldo actual de la cuenta
+     * @param snaps      snapshots entre {@code from} y {@code to}; los días sin snapshot arrastran el cierre anterior
+     */
+    public static BigDecimal dailyAverage(BigDecimal endBalance, LocalDate from, LocalDate to,
+                                          List<AccountDailyBalance> snaps) {
+        final int days = (int) (to.toEpochDay() - from.toEpochDay() + 1);
+        if (days <= 0) {
+            return BigDecimal.ZERO;
+        }
+        try {
+            return fixedPoint(nz(endBalance), from.toEpochDay(), days, snaps);
+        } catch (ArithmeticException overflow) {
+            return decimal(nz(endBalance), from, to, snaps);
+        }
+    }
+
+    private static BigDecimal fixedPoint(BigDecimal end, long firstEpochDay, int days,
+                                         List<AccountDailyBalance> snaps) {
+        // escala común para operar en long
+        int unitScale = Math.max(0, end.scale());
+        for (AccountDailyBalance s : snaps) {
+            unitScale = Math.max(unitScale, scaleOf(s.getDeposits()));
+            unitScale = Math.max(unitScale, scaleOf(s.getWithdrawals()));
+            unitScale = Math.max(unitScale, scaleOf(s.getClosingBalance()));
+        }
+        if (unitScale > MAX_SCALE) {
+            throw new ArithmeticException("scale too large");
+        }
+
+        final long[] net = new long[days];
+        final long[] closing = new long[days];
+        // escala que tendría el BigDecimal de cada día; -1 = sin snapshot
+        final int[] netScale = new int[days];
+        final int[] closingScale = new int[days];
+        Arrays.fill(netScale, -1);
+
+        long monthNet = 0L;
+        int startScale = Math.max(0, end.scale());
+        for (AccountDailyBalance s : snaps) {
+            final long sNet = Math.subtractExact(units(s.getDeposits(), unitScale),
+                    units(s.getWithdrawals(), unitScale));
+            final int sNetScale = Math.max(scaleOrZero(s.getDeposits()), scaleOrZero(s.getWithdrawals()));
+            monthNet = Math.addExact(monthNet, sNet);
+            startScale = Math.max(startScale, sNetScale);
+
+            final long offset = epochDay(s.getDay()) - firstEpochDay;
+            if (offset < 0 || offset >= days) {
+                continue;
+            }
+            final int i = (int) offset;
+            net[i] = sNet;
+            netScale[i] = sNetScale;
+            if (s.getClosingBalance() != null) {
+                closing[i] = units(s.getClosingBalance(), unitScale);
+                closingScale[i] = s.getClosingBalance().scale();
+            } else {
+                closingScale[i] = Integer.MIN_VALUE;
+            }
+        }
+
+        long running = Math.subtractExact(units(end, unitScale), monthNet);
+        int runningScale = startScale;
+        long sum = 0L;
+        int sumScale = 0;
+        for (int i = 0; i < days; i++) {
+            if (netScale[i] >= 0) {
+                if (closingScale[i] != Integer.MIN_VALUE) {
+                    running = closing[i];
+                    runningScale = closingScale[i];
+                } else {
+                    running = Math.addExact(running, net[i]);
+                    runningScale = Math.max(runningScale, netScale[i]);
+                }
+            }
+            sum = Math.addExact(sum, running);
+            sumScale = Math.max(sumScale, runningScale);
+        }
+
+        final BigDecimal total = BigDecimal.valueOf(sum, unitScale).setScale(sumScale, RoundingMode.UNNECESSARY);
+        return total.divide(BigDecimal.valueOf(days), MathContext.DECIMAL64);
+    }
+
+    // Mismo cálculo en BigDecimal (montos fuera de rango para long)
+    static BigDecimal decimal(BigDecimal end, LocalDate from, LocalDate to, List<AccountDailyBalance> snaps) {
+        final BigDecimal monthNet = snaps.stream()
+                .map(AccountDailyBalance::net)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        final Map<String, AccountDailyBalance> byDay = snaps.stream()
+                .collect(Collectors.toMap(AccountDailyBalance::getDay, s -> s, (a, b) -> b));
+
+        BigDecimal running = end.subtract(monthNet);
+        BigDecimal sum = BigDecimal.ZERO;
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+            final AccountDailyBalance snap = byDay.get(DailyBalanceService.dayKey(d));
+            if (snap != null) {
+                running = snap.getClosingBalance() != null ? snap.getClosingBalance() : running.add(snap.net());
+            }
+            sum = sum.add(running);
+        }
+        final int days = (int) (to.toEpochDay() - from.toEpochDay() + 1);
+        return sum.divide(BigDecimal.valueOf(days), MathContext.DECIMAL64);
+    }
+
+    private static long units(BigDecimal v, int unitScale) {
+        if (v == null) {
+            return 0L;
+        }
+        final int shift = unitScale - v.scale();
+        if (shift > MAX_SCALE) {
+            throw new ArithmeticException("scale too large");
+        }
+        return Math.multiplyExact(v.unscaledValue().longValueExact(), POW10[shift]);
+    }
+
+    // "yyyy-MM-dd" → epoch day sin pasar por el parser de fechas
+    static long epochDay(String day) {
+        final int y = Integer.parseInt(day, 0, 4, 10);
+        final int m = Integer.parseInt(day, 5, 7, 10);
+        final int d = Integer.parseInt(day, 8, 10, 10);
+        return LocalDate.of(y, m, d).toEpochDay();
+    }
+
+    private static int scaleOf(BigDecimal v) {
+        return v == null ? 0 : Math.max(0, v.scale());
+    }
+
+    private static int scaleOrZero(BigDecimal v) {
+        return v == null ? 0 : v.scale();
+    }
+
+    private static BigDecimal nz(BigDecimal v) {
+        return v == null ? BigDecimal.ZERO : v;
+    }
+}
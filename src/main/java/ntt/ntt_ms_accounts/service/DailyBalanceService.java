@@ -0,0 +1,148 @@
+package ntt.ntt_ms_accounts.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ntt.ntt_ms_accounts.models.Account;
+import ntt.ntt_ms_accounts.models.AccountDailyBalance;
+import ntt.ntt_ms_accounts.models.AccountMovement;
+import ntt.ntt_ms_accounts.models.MovementType;
+import ntt.ntt_ms_accounts.repository.AccountDailyBalanceRepository;
+import ntt.ntt_ms_accounts.repository.AccountRepository;
+import org.springframework.data.domain.Range;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Snapshots diarios por cuenta (account_daily_balances): se actualizan en cada movimiento
+ * y se pueden reconstruir para meses anteriores a partir de account_movements (y del
+ * archivo cuando el mes es anterior a la retención).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DailyBalanceService {
+
+    private static final int BACKFILL_CONCURRENCY = 4;
+
+    private final AccountDailyBalanceRepository snapshotRepo;
+    private final AccountRepository accountRepo;
+    private final ReportCache reportCache;
+    private final MovementArchiveService archive;
+
+    // Incremental: se llama con la cuenta devuelta por el update atómico del movimiento
+    public Mono<Void> record(Account after, BigDecimal signedAmount, Instant at) {
+        final String day = dayKey(LocalDateTime.ofInstant(at, ZoneId.systemDefault()).toLocalDate());
+        final long seq = after.getMovementSeq() == null ? 0L : after.getMovementSeq();
+        return snapshotRepo.recordMovement(after.getId(), day, signedAmount, after.getBalance(), seq)
+                .onErrorResume(e -> {
+                    // el movimiento ya se aplicó; el día se corrige con el backfill
+                    log.warn("Could not record daily balance of account {} for {}: {}", after.getId(), day, e.toString());
+                    return Mono.empty();
+                });
+    }
+
+    public Flux<AccountDailyBalance> snapshots(String accountId, LocalDate from, LocalDate to) {
+        return snapshotRepo.findByAccountIdAndDayBetweenOrderByDayAsc(accountId,
+                Range.closed(dayKey(from), dayKey(to)));
+    }
+
+    // Snapshots de varias cuentas en una sola consulta $in (reportes por cartera)
+    public Flux<AccountDailyBalance> snapshotsForAccounts(Collection<String> accountIds, LocalDate from, LocalDate to) {
+        return snapshotRepo.findByAccountIdInAndDayBetween(accountIds, Range.closed(dayKey(from), dayKey(to)));
+    }
+
+    /**
+     * Reconstruye los días con movimientos de {@code month}: parte del saldo actual y
+     * descuenta hacia atrás los movimientos desde el inicio del mes hasta hoy.
+     * Devuelve la cantidad de snapshots escritos.
+     */
+    public Mono<Long> backfill(String accountId, YearMonth month, Clock clock) {
+        final ZoneId zone = clock.getZone();
+        final LocalDate today = LocalDate.now(clock);
+        if (month.isAfter(YearMonth.from(today))) {
+            return Mono.error(new IllegalArgumentException("month must not be in the future"));
+        }
+        final LocalDate first = month.atDay(1);
+        final LocalDate last = month.equals(YearMonth.from(today)) ? today : month.atEndOfMonth();
+        final Instant from = first.atStartOfDay(zone).toInstant().minusMillis(1);
+
+        return accountRepo.findById(accountId)
+                .switchIfEmpty(Mono.error(new IllegalArgumentException("account not found")))
+                .flatMap(acc -> archive.between(accountId, from, Instant.now(clock))
+                        .collectList()
+                        .flatMapMany(movs -> Flux.fromIterable(rebuildDays(acc, movs, first, last, today, zone)))
+                        .concatMap(s -> snapshotRepo.replace(s).thenReturn(s))
+                        .count()
+                        .doOnNext(n -> reportCache.invalidateCustomer(acc.getCustomerId())));
+    }
+
+    public Mono<Long> backfillAll(YearMonth month, Clock clock) {
+        return accountRepo.findAll()
+                .flatMap(acc -> backfill(acc.getId(), month, clock), BACKFILL_CONCURRENCY)
+                .reduce(0L, Long::sum)
+                .doOnNext(n -> log.info("Daily balances backfilled for {}: {} snapshots", month, n));
+    }
+
+    static List<AccountDailyBalance> rebuildDays(Account acc, List<AccountMovement> movs,
+                                                 LocalDate first, LocalDate last, LocalDate today, ZoneId zone) {
+        final Map<LocalDate, AccountDailyBalance> byDay = new HashMap<>();
+        for (AccountMovement m : movs) {
+            final LocalDate d = LocalDateTime.ofInstant(m.getDate(), zone).toLocalDate();
+            final AccountDailyBalance s = byDay.computeIfAbsent(d, k -> AccountDailyBalance.builder()
+                    .id(AccountDailyBalance.idOf(acc.getId(), dayKey(k)))
+                    .accountId(acc.getId())
+                    .day(dayKey(k))
+                    .deposits(BigDecimal.ZERO)
+                    .withdrawals(BigDecimal.ZERO)
+                    .build());
+            final BigDecimal amount = nvl(m.getAmount());
+            if (m.getType() == MovementType.DEPOSIT) {
+                s.setDeposits(s.getDeposits().add(amount));
+            } else {
+                s.setWithdrawals(s.getWithdrawals().add(amount));
+            }
+            s.setMovements(s.getMovements() + 1);
+        }
+
+        // hacia atrás desde el saldo actual: cierre(d) = saldo - movimientos posteriores a d
+        final List<AccountDailyBalance> out = new ArrayList<>();
+        final Instant now = Instant.now();
+        BigDecimal running = nvl(acc.getBalance());
+        for (LocalDate d = today; !d.isBefore(first); d = d.minusDays(1)) {
+            final AccountDailyBalance s = byDay.get(d);
+            if (s == null) {
+                continue;
+            }
+            if (!d.isAfter(last)) {
+                s.setClosingBalance(running);
+                s.setClosingSeq(acc.getMovementSeq() == null ? 0L : acc.getMovementSeq());
+                s.setUpdatedAt(now);
+                out.add(s);
+            }
+            running = running.subtract(s.net());
+        }
+        return out;
+    }
+
+    static String dayKey(LocalDate day) {
+        return day.toString();
+    }
+
+    private static BigDecimal nvl(BigDecimal v) {
+        return v == null ? BigDecimal.ZERO : v;
+    }
+}
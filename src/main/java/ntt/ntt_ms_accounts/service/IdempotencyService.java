@@ -0,0 +1,206 @@
+package ntt.ntt_ms_accounts.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import ntt.ntt_ms_accounts.models.IdempotencyRecord;
+import ntt.ntt_ms_accounts.models.IdempotencyStatus;
+import ntt.ntt_ms_accounts.repository.IdempotencyRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Idempotencia de las operaciones de dinero (header {@code Idempotency-Key}). El resultado de cada
+ * operación, incluido un rechazo de negocio, se guarda en idempotency_keys (TTL) y en una caché
+ * local; un reintento lo devuelve con una lectura por clave. Un duplicado concurrente espera el
+ * resultado en curso: en la misma instancia comparte el Mono, entre instancias consulta el registro
+ * IN_PROGRESS hasta que termine. Un registro IN_PROGRESS nunca se vuelve a ejecutar; si la instancia
+ * cae a mitad, la clave queda bloqueada hasta que expire su TTL corto.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final int MAX_KEY_LENGTH = 128;
+
+    // Resultado guardado: respuesta o rechazo de negocio
+    record Outcome(String fingerprint, Object response, String errorType, String error) {}
+
+    private final IdempotencyRepository repo;
+    private final Duration ttl;
+    private final Duration inProgressTtl;
+    private final Duration waitTimeout;
+    private final Duration pollInterval;
+    private final Cache<String, Outcome> completed;
+    private final ConcurrentMap<String, Mono<Outcome>> inFlight = new ConcurrentHashMap<>();
+    private final Counter replayed;
+
+    public IdempotencyService(IdempotencyRepository repo,
+                              MeterRegistry registry,
+                              @Value("${idempotency.ttl:24h}") Duration ttl,
+                              @Value("${idempotency.in-progress-ttl:10m}") Duration inProgressTtl,
+                              @Value("${idempotency.wait-timeout:10s}") Duration waitTimeout,
+                              @Value("${idempotency.poll-interval:100ms}") Duration pollInterval,
+                              @Value("${idempotency.cache.max-size:10000}") long cacheMaxSize,
+                              @Value("${idempotency.cache.ttl:10m}") Duration cacheTtl) {
+        this.repo = repo;
+        this.ttl = ttl;
+        this.inProgressTtl = inProgressTtl;
+        this.waitTimeout = waitTimeout;
+        this.pollInterval = pollInterval;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, completed, "idempotency");
+        this.replayed = Counter.builder("idempotency.replayed")
+                .description("Requests answered with the stored outcome of an earlier request")
+                .register(registry);
+    }
+
+    /**
+     * Ejecuta {@code action} una sola vez por ({@code operation}, {@code key}). Sin clave ejecuta
+     * directamente. Reusar la clave con otra petición ({@code fingerprint} distinto) es un error.
+     */
+    public <T> Mono<T> execute(String key, String operation, String fingerprint, Class<T> type,
+                               Supplier<Mono<T>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            return Mono.error(new IllegalArgumentException(HEADER + " must be at most " + MAX_KEY_LENGTH + " characters"));
+        }
+        final String id = operation + ":" + key;
+        return Mono.defer(() -> {
+            final Outcome cached = completed.getIfPresent(id);
+            if (cached != null) {
+                replayed.increment();
+                return replay(cached, fingerprint, type);
+            }
+            final boolean[] owner = {false};
+            final Mono<Outcome> shared = inFlight.computeIfAbsent(id, k -> {
+                owner[0] = true;
+                return resolve(k, operation, fingerprint, action)
+                        .doFinally(s -> inFlight.remove(k))
+                        .cache();
+            });
+            if (!owner[0]) {
+                replayed.increment();
+            }
+            return shared.flatMap(o -> replay(o, fingerprint, type));
+        });
+    }
+
+    // Huella legible de la petición: partes separadas por '|', montos sin ceros de escala
+    public static String fingerprint(Object... parts) {
+        return Arrays.stream(parts)
+                .map(p -> p instanceof BigDecimal d ? d.stripTrailingZeros().toPlainString() : String.valueOf(p))
+                .collect(Collectors.joining("|"));
+    }
+
+    private Mono<Outcome> resolve(String id, String operation, String fingerprint, Supplier<? extends Mono<?>> action) {
+        return repo.findById(id)
+                .flatMap(existing -> existing.getStatus() == IdempotencyStatus.COMPLETED
+                        ? Mono.just(outcomeOf(existing)).doOnNext(o -> replayed.increment())
+                        : awaitCompletion(id))
+                .switchIfEmpty(Mono.defer(() -> claim(id, operation, fingerprint)
+                        .flatMap(claimed -> claimed ? run(id, fingerprint, action) : awaitCompletion(id))))
+                .doOnNext(o -> completed.put(id, o));
+    }
+
+    // true si este pedido creó el registro IN_PROGRESS; false si otro se adelantó
+    private Mono<Boolean> claim(String id, String operation, String fingerprint) {
+        final Instant now = Instant.now();
+        final IdempotencyRecord pending = IdempotencyRecord.builder()
+                .id(id)
+                .operation(operation)
+                .fingerprint(fingerprint)
+                .status(IdempotencyStatus.IN_PROGRESS)
+                .createdAt(now)
+                .updatedAt(now)
+                .expiresAt(now.plus(inProgressTtl))
+                .build();
+        return repo.insert(pending)
+                .thenReturn(true)
+                .onErrorResume(DuplicateKeyException.class, e -> Mono.just(false));
+    }
+
+    private Mono<Outcome> run(String id, String fingerprint, Supplier<? extends Mono<?>> action) {
+        return Mono.defer(action::get)
+                .<Outcome>map(response -> new Outcome(fingerprint, response, null, null))
+                .switchIfEmpty(Mono.defer(() -> Mono.just(new Outcome(fingerprint, null, null, null))))
+                .onErrorResume(e -> {
+                    if (e instanceof IllegalArgumentException || e instanceof IllegalStateException) {
+                        return Mono.just(new Outcome(fingerprint, null, e.getClass().getSimpleName(), e.getMessage()));
+                    }
+                    // fallo técnico: se libera la clave para que el reintento vuelva a ejecutar
+                    return repo.deleteById(id).onErrorResume(d -> Mono.empty()).then(Mono.error(e));
+                })
+                .flatMap(outcome -> store(id, outcome).thenReturn(outcome));
+    }
+
+    private Mono<Void> store(String id, Outcome outcome) {
+        final Instant now = Instant.now();
+        return repo.findById(id)
+                .flatMap(rec -> repo.save(rec.toBuilder()
+                        .status(IdempotencyStatus.COMPLETED)
+                        .response(outcome.response())
+                        .errorType(outcome.errorType())
+                        .error(outcome.error())
+                        .updatedAt(now)
+                        .expiresAt(now.plus(ttl))
+                        .build()))
+                .then()
+                .onErrorResume(e -> {
+                    // la operación ya se aplicó: la clave queda IN_PROGRESS hasta su TTL, nunca se reejecuta
+                    log.error("Could not store idempotent outcome {}: {}", id, e.toString());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Outcome> awaitCompletion(String id) {
+        return Mono.defer(() -> repo.findById(id)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty()))
+                .filter(r -> r.map(rec -> rec.getStatus() == IdempotencyStatus.COMPLETED).orElse(true))
+                .repeatWhenEmpty(attempts -> attempts.delayElements(pollInterval))
+                .timeout(waitTimeout, Mono.error(new IllegalStateException(
+                        "A request with this " + HEADER + " is still in progress")))
+                .flatMap(r -> r.map(rec -> Mono.just(outcomeOf(rec)))
+                        .orElseGet(() -> Mono.error(new IllegalStateException(
+                                "The request with this " + HEADER + " failed; retry it"))));
+    }
+
+    private static Outcome outcomeOf(IdempotencyRecord rec) {
+        return new Outcome(rec.getFingerprint(), rec.getResponse(), rec.getErrorType(), rec.getError());
+    }
+
+    private static <T> Mono<T> replay(Outcome outcome, String fingerprint, Class<T> type) {
+        if (!outcome.fingerprint().equals(fingerprint)) {
+            return Mono.error(new IllegalArgumentException(HEADER + " was already used for a different request"));
+        }
+        if (outcome.errorType() != null) {
+            return Mono.error("IllegalArgumentException".equals(outcome.errorType())
+                    ? new IllegalArgumentException(outcome.error())
+                    : new IllegalStateException(outcome.error()));
+        }
+        return outcome.response() == null ? Mono.empty() : Mono.just(type.cast(outcome.response()));
+    }
+}
@@ -0,0 +1,102 @@
+package ntt.ntt_ms_accounts.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import ntt.ntt_ms_accounts.repository.LoanRepository;
+import ntt.ntt_ms_accounts.repository.LoanRepositoryCustom;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Proceso nocturno de vencimientos: lee por el índice status_next_due solo los préstamos
+ * vigentes con cuota vencida, los pasa a IN_ARREARS y avanza nextDueDate hasta hoy
+ * (AmortizationEngine.rollOverdue), con bulks no ordenados de updates condicionales.
+ * Cada préstamo procesado sale del rango de la consulta, así que una corrida cortada se
+ * retoma sola en la siguiente.
+ */
+@Slf4j
+@Service
+public class LoanDueDateProcessor {
+
+    private final LoanRepository loanRepo;
+    private final Clock clock;
+    private final boolean enabled;
+    private final Duration interval;
+    private final int batchSize;
+    private final int concurrency;
+    private Disposable schedule;
+
+    public LoanDueDateProcessor(LoanRepository loanRepo,
+                                @Value("${loans.due-dates.enabled:true}") boolean enabled,
+                                @Value("${loans.due-dates.interval:1h}") Duration interval,
+                                @Value("${loans.due-dates.batch-size:1000}") int batchSize,
+                                @Value("${loans.due-dates.concurrency:8}") int concurrency) {
+        this(loanRepo, Clock.systemDefaultZone(), enabled, interval, batchSize, concurrency);
+    }
+
+    LoanDueDateProcessor(LoanRepository loanRepo, Clock clock, boolean enabled, Duration interval, int batchSize,
+                         int concurrency) {
+        this.loanRepo = loanRepo;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.interval = interval;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        schedule = Flux.interval(interval)
+                .onBackpressureDrop()
+                .concatMap(tick -> processDue(LocalDate.now(clock))
+                        .onErrorResume(e -> {
+                            log.error("Loan due-date run failed: {}", e.getMessage(), e);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (schedule != null) {
+            schedule.dispose();
+        }
+    }
+
+    /**
+     * Procesa los préstamos con vencimiento anterior a {@code today}; devuelve cuántos se
+     * actualizaron. Los que cambió un pago concurrente quedan como están (guard sin match).
+     */
+    public Mono<Long> processDue(LocalDate today) {
+        final ZoneId zone = clock.getZone();
+        final Instant cutoff = today.atStartOfDay(zone).toInstant();
+        final long started = System.nanoTime();
+        return loanRepo.findDueBefore(cutoff)
+                .map(before -> new LoanRepositoryCustom.Change(before,
+                        AmortizationEngine.rollOverdue(AmortizationEngine.withTerms(before, zone), today, zone)))
+                // la consulta ya excluye los préstamos sin términos; quedan fuera los que no tienen
+                // nada que avanzar (p. ej. remaining en cero)
+                .filter(c -> c.after() != c.before())
+                .buffer(batchSize)
+                .flatMap(loanRepo::updateAllIfUnchanged, concurrency)
+                .reduce(0L, Long::sum)
+                .doOnNext(n -> {
+                    final long millis = Math.max(1L, (System.nanoTime() - started) / 1_000_000L);
+                    log.info("Loan due-date run for {}: {} loans updated in {} ms ({} loans/s)",
+                            today, n, millis, n * 1000L / millis);
+                });
+    }
+}
@@ -1,23 +1,35 @@
 package ntt.ntt_ms_accounts.service;
 
 import ntt.ntt_ms_accounts.client.CustomerClient;
+import ntt.ntt_ms_accounts.dto.LoanInstallment;
 import ntt.ntt_ms_accounts.models.Loan;
 import ntt.ntt_ms_accounts.models.LoanStatus;
 import ntt.ntt_ms_accounts.models.LoanType;
 import ntt.ntt_ms_accounts.models.CustomerType;
+import ntt.ntt_ms_accounts.models.ProductLedgerDay;
 import ntt.ntt_ms_accounts.repository.LoanRepository;
+import ntt.ntt_ms_accounts.repository.LoanRepositoryCustom;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.time.ZoneId;
 
 @Service
 @RequiredArgsConstructor
 public class LoanService {
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final int PAYMENT_RETRIES = 3;
+
     private final LoanRepository loanRepo;
     private final CustomerClient customerClient;
+    private final CustomerHoldingsService holdings;
+    private final ReportCache reportCache;
+    private final ProductLedgerService ledger;
 
     public Mono<Loan> create(Loan loan) {
         // Defaults
@@ -35,14 +47,14 @@ public class LoanService {
                     }
                     switch (loan.getType()) {
                         case PERSONAL:
-                            return loanRepo.countByCustomerIdAndType(loan.getCustomerId(), LoanType.PERSONAL)
-                                    .flatMap(cnt -> (cnt > 0)
+                            return holdings.get(loan.getCustomerId())
+                                    .flatMap(h -> (h.loans(LoanType.PERSONAL) > 0)
                                             ? Mono.<Loan>error(new IllegalStateException(
                                             "Customer already has a PERSONAL loan"))
-                                            : loanRepo.save(loan));
+                                            : save(loan));
 
                         case BUSINESS:
-                            return loanRepo.save(loan);
+                            return save(loan);
 
                         default:
                             return Mono.error(new IllegalStateException(
@@ -55,14 +67,64 @@ public class LoanService {
 
     public Flux<Loan> listByCustomer(String customerId) { return loanRepo.findByCustomerId(customerId); }
 
-    public Mono<Loan> payment(String id, BigDecimal amount) {
+    // Cronograma contractual de cuotas desde el desembolso
+    public Flux<LoanInstallment> schedule(String id) {
         return loanRepo.findById(id)
                 .switchIfEmpty(Mono.error(new IllegalArgumentException("loan not found")))
-                .flatMap(ln -> {
-                    BigDecimal newRemaining = ln.getRemaining().subtract(amount);
-                    ln.setRemaining(newRemaining.max(BigDecimal.ZERO));
-                    if (ln.getRemaining().compareTo(BigDecimal.ZERO) == 0) ln.setStatus(LoanStatus.CLOSED);
-                    return loanRepo.save(ln);
+                .flatMapMany(ln -> {
+                    if (ln.getTermMonths() == null || ln.getDisbursementDate() == null) {
+                        return Flux.error(new IllegalStateException("loan has no amortization terms"));
+                    }
+                    return Flux.fromIterable(AmortizationEngine.schedule(ln.getPrincipal(), ln.getInterestRateAnnual(),
+                            ln.getTermMonths(), AmortizationEngine.firstDue(ln, ZONE)));
                 });
     }
+
+    // Pago imputado a interés y luego capital; update condicional, se reintenta si otro cambio ganó
+    public Mono<Loan> payment(String id, BigDecimal amount) {
+        return Mono.defer(() -> loanRepo.findById(id)
+                        .switchIfEmpty(Mono.error(new IllegalArgumentException("loan not found")))
+                        .flatMap(before -> {
+                            if (before.getStatus() == LoanStatus.CLOSED) {
+                                return Mono.<Loan>error(new IllegalStateException("loan is already closed"));
+                            }
+                            final Loan current = AmortizationEngine.withTerms(before, ZONE);
+                            // el update incrementa ledgerSeq: after lleva el valor que queda guardado
+                            final Loan after = AmortizationEngine.applyPayment(current, amount, ZONE).toBuilder()
+                                    .ledgerSeq((before.getLedgerSeq() == null ? 0L : before.getLedgerSeq()) + 1)
+                                    .build();
+                            final BigDecimal applied = AmortizationEngine.applicable(current, amount);
+                            return loanRepo.updateIfUnchanged(new LoanRepositoryCustom.Change(before, after))
+                                    .flatMap(updated -> updated
+                                            ? Mono.just(after)
+                                            : Mono.<Loan>error(new OptimisticLockingFailureException(
+                                                    "loan " + id + " changed concurrently")))
+                                    .flatMap(l -> recordLedger(l, "PAYMENT", applied,
+                                            l.getRemaining().subtract(before.getRemaining()))
+                                            .thenReturn(l))
+                                    .flatMap(l -> l.getStatus() == LoanStatus.CLOSED
+                                            ? holdings.loanClosed(l).thenReturn(l)
+                                            : Mono.just(l));
+                        }))
+                .retryWhen(Retry.max(PAYMENT_RETRIES)
+                        .filter(OptimisticLockingFailureException.class::isInstance)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .doOnNext(l -> reportCache.invalidateCustomer(l.getCustomerId()));
+    }
+
+    private Mono<Loan> save(Loan loan) {
+        // cuota fija, primer vencimiento e interés del primer periodo
+        final Loan terms = loan.getTermMonths() == null ? loan : AmortizationEngine.initialize(loan, ZONE);
+        terms.setLedgerSeq(0L);
+        return loanRepo.save(terms)
+                .flatMap(l -> holdings.loanCreated(l)
+                        .then(recordLedger(l, "DISBURSEMENT", l.getRemaining(), l.getRemaining()))
+                        .thenReturn(l))
+                .doOnNext(l -> reportCache.invalidateCustomer(l.getCustomerId()));
+    }
+
+    private Mono<Void> recordLedger(Loan loan, String type, BigDecimal amount, BigDecimal delta) {
+        return ledger.record(ProductLedgerDay.LOAN, loan.getId(), loan.getCustomerId(), type,
+                amount, delta, loan.getRemaining(), null, loan.getLedgerSeq(), null, Instant.now());
+    }
 }
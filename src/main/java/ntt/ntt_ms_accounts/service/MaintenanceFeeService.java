@@ -0,0 +1,288 @@
+package ntt.ntt_ms_accounts.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import ntt.ntt_ms_accounts.models.Account;
+import ntt.ntt_ms_accounts.models.AccountMovement;
+import ntt.ntt_ms_accounts.models.CommissionClassifier;
+import ntt.ntt_ms_accounts.models.JobCheckpoint;
+import ntt.ntt_ms_accounts.models.JobCheckpointStatus;
+import ntt.ntt_ms_accounts.models.MovementType;
+import ntt.ntt_ms_accounts.repository.AccountMovementRepository;
+import ntt.ntt_ms_accounts.repository.AccountRepository;
+import ntt.ntt_ms_accounts.repository.JobCheckpointRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Cobro mensual de la comisión de mantenimiento. Recorre las cuentas con maintenanceFee > 0
+ * en tramos de _id; por tramo, un bulk de débitos condicionados (Account.feeMonth hace el cobro
+ * idempotente por cuenta y mes; Account.feeCharge identifica el bulk que cobró), un bulk de
+ * movimientos COMMISSION con _id
+ * "fee:&lt;accountId&gt;:&lt;yyyy-MM&gt;" y el checkpoint del tramo en job_checkpoints.
+ * Los tramos son secuenciales y se espacian según {@code accounts.fees.rate-per-second} para
+ * poder correr en horario hábil sin competir con depósitos y retiros.
+ */
+@Slf4j
+@Service
+public class MaintenanceFeeService {
+
+    static final String JOB = "maintenance-fees";
+    static final String REFERENCE = "MAINTENANCE_FEE";
+    // reintentos de un tramo para cuentas que cambió un movimiento concurrente
+    private static final int CHARGE_ATTEMPTS = 3;
+    private static final int SNAPSHOT_CONCURRENCY = 8;
+    // lease de la corrida; cada tramo lo renueva y vence si la instancia cae
+    private static final Duration LEASE = Duration.ofMinutes(5);
+
+    private final AccountRepository accountRepo;
+    private final AccountMovementRepository movementRepo;
+    private final JobCheckpointRepository checkpoints;
+    private final DailyBalanceService dailyBalances;
+    private final ReportCache reportCache;
+    private final Clock clock;
+    private final boolean enabled;
+    private final Duration interval;
+    private final int pageSize;
+    private final int ratePerSecond;
+    // dueño de las corridas que toma esta instancia
+    private final String owner = UUID.randomUUID().toString();
+    private Disposable schedule;
+
+    public MaintenanceFeeService(AccountRepository accountRepo,
+                                 AccountMovementRepository movementRepo,
+                                 JobCheckpointRepository checkpoints,
+                                 DailyBalanceService dailyBalances,
+                                 ReportCache reportCache,
+                                 @Value("${accounts.fees.enabled:true}") boolean enabled,
+                                 @Value("${accounts.fees.interval:30m}") Duration interval,
+                                 @Value("${accounts.fees.page-size:500}") int pageSize,
+                                 @Value("${accounts.fees.rate-per-second:2000}") int ratePerSecond) {
+        this(accountRepo, movementRepo, checkpoints, dailyBalances, reportCache, Clock.systemDefaultZone(), enabled,
+                interval, pageSize, ratePerSecond);
+    }
+
+    MaintenanceFeeService(AccountRepository accountRepo, AccountMovementRepository movementRepo,
+                          JobCheckpointRepository checkpoints, DailyBalanceService dailyBalances,
+                          ReportCache reportCache, Clock clock, boolean enabled, Duration interval, int pageSize,
+                          int ratePerSecond) {
+        this.accountRepo = accountRepo;
+        this.movementRepo = movementRepo;
+        this.checkpoints = checkpoints;
+        this.dailyBalances = dailyBalances;
+        this.reportCache = reportCache;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.interval = interval;
+        this.pageSize = pageSize;
+        this.ratePerSecond = ratePerSecond;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        schedule = Flux.interval(interval)
+                .onBackpressureDrop()
+                .concatMap(tick -> dueRuns()
+                        .concatMap(this::runFor)
+                        .onErrorResume(e -> {
+                            log.error("Maintenance fee run failed: {}", e.getMessage(), e);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (schedule != null) {
+            schedule.dispose();
+        }
+    }
+
+    // El último día del mes cobra ese mes; además corre el mes anterior mientras no esté
+    // COMPLETED (quedó a medias, o la instancia estuvo caída todo el último día)
+    Flux<YearMonth> dueRuns() {
+        final LocalDate today = LocalDate.now(clock);
+        final YearMonth previous = YearMonth.from(today).minusMonths(1);
+        final Mono<YearMonth> unfinished = checkpoints.findById(JobCheckpoint.idOf(JOB, monthKey(previous)))
+                .map(cp -> cp.getStatus() != JobCheckpointStatus.COMPLETED)
+                .defaultIfEmpty(true)
+                .filter(pending -> pending)
+                .map(pending -> previous);
+        final Mono<YearMonth> current = today.getDayOfMonth() == today.lengthOfMonth()
+                ? Mono.just(YearMonth.from(today))
+                : Mono.empty();
+        return Flux.concat(unfinished, current);
+    }
+
+    /**
+     * Cobra la comisión de {@code month}. Una corrida COMPLETED se devuelve sin repetir; una
+     * interrumpida retoma después del último tramo registrado. Vacío si otra instancia tiene el
+     * lease de la corrida.
+     */
+    public Mono<JobCheckpoint> runFor(YearMonth month) {
+        return checkpoints.start(JOB, monthKey(month), owner, LEASE)
+                .flatMap(cp -> cp.getStatus() == JobCheckpointStatus.COMPLETED
+                        ? Mono.just(cp)
+                        : process(cp, month));
+    }
+
+    private Mono<JobCheckpoint> process(JobCheckpoint cp, YearMonth month) {
+        if (cp.getLastKey() != null) {
+            log.info("Resuming maintenance fees for {} after {} ({} charged)",
+                    cp.getRunKey(), cp.getLastKey(), cp.getProcessed());
+        }
+        final Instant started = Instant.now();
+        return page(cp.getLastKey())
+                .expand(page -> page.size() < pageSize ? Mono.empty() : page(page.get(page.size() - 1).getId()))
+                .filter(page -> !page.isEmpty())
+                // cada tramo dura al menos pageSize / ratePerSecond
+                .concatMap(page -> Mono.zip(chargePage(page, month), Mono.delay(pagePeriod()), (n, tick) -> n)
+                        .flatMap(n -> checkpoints
+                                .advance(cp.getId(), owner, page.get(page.size() - 1).getId(), n, LEASE)
+                                .thenReturn(n)))
+                .reduce(0L, Long::sum)
+                .flatMap(n -> checkpoints.complete(cp.getId(), owner)
+                        .then(checkpoints.findById(cp.getId()))
+                        .doOnNext(done -> log.info("Maintenance fees for {}: {} accounts charged in this run, {} total, "
+                                        + "{} ms", cp.getRunKey(), n, done.getProcessed(),
+                                Duration.between(started, Instant.now()).toMillis())));
+    }
+
+    private Mono<List<Account>> page(String afterId) {
+        return accountRepo.findFeeBearing(afterId, pageSize).collectList();
+    }
+
+    private Duration pagePeriod() {
+        return ratePerSecond > 0 ? Duration.ofMillis(pageSize * 1000L / ratePerSecond) : Duration.ZERO;
+    }
+
+    // Devuelve las cuentas cobradas en esta pasada
+    Mono<Long> chargePage(List<Account> page, YearMonth month) {
+        final String key = monthKey(month);
+        final Instant now = Instant.now(clock);
+        final List<Account> pending = page.stream().filter(a -> !key.equals(a.getFeeMonth())).toList();
+        // cobradas en una corrida cortada, quizá antes de escribir el movimiento
+        final List<Account> charged = page.stream().filter(a -> key.equals(a.getFeeMonth())).toList();
+        return charge(pending, key, 1)
+                .flatMap(newlyCharged -> {
+                    final List<AccountMovement> movements = new ArrayList<>();
+                    charged.forEach(a -> movements.add(movement(a, key, now)));
+                    newlyCharged.forEach(a -> movements.add(movement(a, key, now)));
+                    return movementRepo.insertMissing(movements)
+                            .map(inserted -> snapshotStates(charged, newlyCharged, inserted, key))
+                            .flatMap(states -> Flux.fromIterable(states)
+                                    .flatMap(a -> dailyBalances.record(a, a.getMaintenanceFee().negate(), now),
+                                            SNAPSHOT_CONCURRENCY)
+                                    .then(Mono.fromRunnable(() -> invalidateReports(states, now))))
+                            .thenReturn((long) newlyCharged.size());
+                });
+    }
+
+    /**
+     * Cuentas cuyo snapshot e invalidación faltan: las cobradas ahora (estado tras el débito) y,
+     * de las cobradas en una corrida cortada, solo aquellas cuyo movimiento se insertó recién,
+     * con el saldo leído que ya incluye la comisión. Si la corrida cortada llegó a escribir el
+     * movimiento pero no el snapshot, el día se corrige con el backfill.
+     */
+    static List<Account> snapshotStates(List<Account> charged, List<Account> newlyCharged, Set<String> inserted,
+                                        String key) {
+        final List<Account> states = new ArrayList<>();
+        charged.stream()
+                .filter(a -> inserted.contains(movementId(a.getId(), key)))
+                .forEach(states::add);
+        newlyCharged.forEach(a -> states.add(afterFee(a)));
+        return states;
+    }
+
+    private Mono<List<Account>> charge(List<Account> pending, String key, int attempt) {
+        if (pending.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        final List<String> ids = pending.stream().map(Account::getId).toList();
+        // solo cuentan las que cobró este bulk, no las que cobró otra corrida del mismo mes
+        final String token = key + ":" + UUID.randomUUID();
+        return accountRepo.chargeMaintenanceFees(key, token, pending)
+                .then(accountRepo.findByIdInAndFeeCharge(ids, token).map(Account::getId).collect(Collectors.toSet()))
+                .flatMap(done -> {
+                    final List<Account> charged = pending.stream().filter(a -> done.contains(a.getId())).toList();
+                    final Set<String> missed = ids.stream().filter(id -> !done.contains(id)).collect(Collectors.toSet());
+                    if (missed.isEmpty()) {
+                        return Mono.just(charged);
+                    }
+                    if (attempt >= CHARGE_ATTEMPTS) {
+                        log.warn("Maintenance fee {} not charged on {} accounts after {} attempts",
+                                key, missed.size(), attempt);
+                        return Mono.just(charged);
+                    }
+                    // releer: sin saldo suficiente se omiten; con movimientos concurrentes, otro intento
+                    return accountRepo.findAllById(missed)
+                            .filter(a -> !key.equals(a.getFeeMonth())
+                                    && a.getBalance().compareTo(a.getMaintenanceFee()) >= 0)
+                            .collectList()
+                            .flatMap(fresh -> charge(fresh, key, attempt + 1))
+                            .map(more -> {
+                                final List<Account> all = new ArrayList<>(charged);
+                                all.addAll(more);
+                                return all;
+                            });
+                });
+    }
+
+    // Estado tras el débito: el guard de movementSeq asegura que es el saldo leído menos la comisión
+    private static Account afterFee(Account read) {
+        return Account.builder()
+                .id(read.getId())
+                .customerId(read.getCustomerId())
+                .maintenanceFee(read.getMaintenanceFee())
+                .balance(read.getBalance().subtract(read.getMaintenanceFee()))
+                .movementSeq((read.getMovementSeq() == null ? 0L : read.getMovementSeq()) + 1)
+                .build();
+    }
+
+    static AccountMovement movement(Account account, String monthKey, Instant at) {
+        return AccountMovement.builder()
+                .id(movementId(account.getId(), monthKey))
+                .accountId(account.getId())
+                .date(at)
+                .type(MovementType.COMMISSION)
+                .amount(account.getMaintenanceFee())
+                .reference(REFERENCE)
+                .commissionType(CommissionClassifier.classify(MovementType.COMMISSION, REFERENCE))
+                .createdAt(at)
+                .build();
+    }
+
+    static String movementId(String accountId, String monthKey) {
+        return "fee:" + accountId + ":" + monthKey;
+    }
+
+    private void invalidateReports(List<Account> charged, Instant at) {
+        if (charged.isEmpty()) {
+            return;
+        }
+        reportCache.invalidateCustomers(charged.stream().map(Account::getCustomerId).collect(Collectors.toSet()));
+        reportCache.invalidateCommissionsAt(at);
+    }
+
+    private static String monthKey(YearMonth month) {
+        return "%d-%02d".formatted(month.getYear(), month.getMonthValue());
+    }
+}
@@ -0,0 +1,140 @@
+package ntt.ntt_ms_accounts.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import ntt.ntt_ms_accounts.models.AccountMovement;
+import ntt.ntt_ms_accounts.repository.AccountMovementRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Comparator;
+
+/**
+ * Tiering de movimientos: los que superan {@code accounts.archive.retain-months} pasan a
+ * account_movements_archive en lotes (tamaño, pausa y máximo por corrida configurables).
+ * Las consultas cuyo rango empieza dentro de la retención solo leen la colección activa;
+ * el resto combina ambas por (date desc, _id desc).
+ */
+@Slf4j
+@Service
+public class MovementArchiveService {
+
+    private static final Comparator<AccountMovement> NEWEST_FIRST = Comparator
+            .comparing(AccountMovement::getDate, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(AccountMovement::getId, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    private final AccountMovementRepository movementRepo;
+    private final Clock clock;
+    private final boolean enabled;
+    private final int retainMonths;
+    private final int batchSize;
+    private final Duration batchPause;
+    private final int maxBatchesPerRun;
+    private final Duration interval;
+    private Disposable schedule;
+
+    public MovementArchiveService(AccountMovementRepository movementRepo,
+                                  @Value("${accounts.archive.enabled:false}") boolean enabled,
+                                  @Value("${accounts.archive.retain-months:13}") int retainMonths,
+                                  @Value("${accounts.archive.batch-size:500}") int batchSize,
+                                  @Value("${accounts.archive.batch-pause:200ms}") Duration batchPause,
+                                  @Value("${accounts.archive.max-batches-per-run:1000}") int maxBatchesPerRun,
+                                  @Value("${accounts.archive.interval:1h}") Duration interval) {
+        this(movementRepo, Clock.systemDefaultZone(), enabled, retainMonths, batchSize, batchPause,
+                maxBatchesPerRun, interval);
+    }
+
+    MovementArchiveService(AccountMovementRepository movementRepo, Clock clock, boolean enabled, int retainMonths,
+                           int batchSize, Duration batchPause, int maxBatchesPerRun, Duration interval) {
+        this.movementRepo = movementRepo;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.retainMonths = retainMonths;
+        this.batchSize = batchSize;
+        this.batchPause = batchPause;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.interval = interval;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        log.info("Movement archival enabled: retainMonths={}, batchSize={}, batchPause={}, interval={}",
+                retainMonths, batchSize, batchPause, interval);
+        schedule = Flux.interval(interval)
+                .onBackpressureDrop()
+                .concatMap(tick -> archiveOnce()
+                        .onErrorResume(e -> {
+                            log.error("Movement archival run failed: {}", e.getMessage(), e);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (schedule != null) {
+            schedule.dispose();
+        }
+    }
+
+    // Inicio de la capa caliente: todo movimiento archivado es anterior a este instante
+    public Instant hotBoundary() {
+        return ZonedDateTime.now(clock).minusMonths(retainMonths).toInstant();
+    }
+
+    // Sin rango (historial completo) o con inicio anterior a la retención → incluye el archivo
+    public boolean reachesArchive(Instant from) {
+        return from == null || from.isBefore(hotBoundary());
+    }
+
+    // Movimientos de una cuenta en [from, to] (date desc); el archivo solo si el rango lo alcanza
+    public Flux<AccountMovement> between(String accountId, Instant from, Instant to) {
+        final Flux<AccountMovement> hot = movementRepo.findByAccountIdAndDateBetweenOrderByDateDesc(accountId, from, to);
+        return reachesArchive(from) ? merge(hot, movementRepo.findArchived(accountId, from, to)) : hot;
+    }
+
+    // Conteo en [from, to]: dentro de la retención cuenta en el servidor; si no, cuenta el merge
+    public Mono<Long> countBetween(String accountId, Instant from, Instant to) {
+        return reachesArchive(from)
+                ? between(accountId, from, to).count()
+                : movementRepo.countByAccountIdAndDateBetween(accountId, from, to);
+    }
+
+    /**
+     * Una corrida: mueve lotes hasta vaciar lo anterior a la retención o llegar al máximo de
+     * lotes. Cada lote es independiente, así que una corrida cortada retoma en la siguiente.
+     */
+    public Mono<Long> archiveOnce() {
+        final Instant cutoff = hotBoundary();
+        return movementRepo.ensureArchiveIndexes()
+                .thenMany(Flux.range(0, maxBatchesPerRun)
+                        .concatMap(i -> movementRepo.archiveBatch(cutoff, batchSize).delayElement(batchPause))
+                        .takeUntil(moved -> moved < batchSize))
+                .reduce(0L, Long::sum)
+                .doOnNext(n -> log.info("Archived {} movements older than {}", n, cutoff));
+    }
+
+    /**
+     * Combina capa caliente y archivo ya ordenados (date desc, _id desc). La capa caliente se lee
+     * completa antes de abrir el cursor del archivo: archiveBatch copia y recién después borra,
+     * así que lo que ya no esté en la capa caliente está en el archivo cuando se lo consulta.
+     * Con ambos cursores abiertos a la vez un movimiento podía no aparecer en ninguno. El
+     * duplicado de un movimiento copiado y aún no borrado se descarta.
+     */
+    public static Flux<AccountMovement> merge(Flux<AccountMovement> hot, Flux<AccountMovement> archived) {
+        return hot.collectList()
+                .flatMapMany(h -> Flux.mergeComparing(NEWEST_FIRST, Flux.fromIterable(h), archived))
+                .distinctUntilChanged(AccountMovement::getId);
+    }
+}
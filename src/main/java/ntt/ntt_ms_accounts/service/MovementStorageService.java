@@ -0,0 +1,205 @@
+package ntt.ntt_ms_accounts.service;
+
+import lombok.extern.slf4j.Slf4j;
+import ntt.ntt_ms_accounts.config.MovementStorage;
+import ntt.ntt_ms_accounts.dto.MovementStorageStats;
+import ntt.ntt_ms_accounts.models.JobCheckpoint;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Almacenamiento alternativo de movimientos (ver {@link MovementStorage}): crea la colección
+ * time-series al arrancar, copia account_movements hacia ella (también como pasada de
+ * recuperación después del cambio de modo) y compara ambas colecciones
+ * (tamaño de índices y latencia de lecturas por cuenta y rango de fechas).
+ * Corre antes que MongoIndexReconciler para que los índices se creen sobre la colección correcta.
+ */
+@Slf4j
+@Service
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class MovementStorageService implements ApplicationRunner {
+
+    static final String MIGRATION_JOB = "movement-migration";
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final ReactiveMongoTemplate template;
+    private final MovementStorage storage;
+    private final int migrationBatchSize;
+
+    public MovementStorageService(ReactiveMongoTemplate template,
+                                  MovementStorage storage,
+                                  @Value("${accounts.movements.migration.batch-size:1000}") int migrationBatchSize) {
+        this.template = template;
+        this.storage = storage;
+        this.migrationBatchSize = migrationBatchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (storage.getMode() != MovementStorage.Mode.TIME_SERIES) {
+            return;
+        }
+        try {
+            ensureTimeSeriesCollection().block(TIMEOUT);
+        } catch (RuntimeException e) {
+            log.error("Time-series movement collection could not be created: {}", e.getMessage(), e);
+        }
+    }
+
+    public Mono<Void> ensureTimeSeriesCollection() {
+        final String name = MovementStorage.TIME_SERIES_COLLECTION;
+        return template.collectionExists(name)
+                .flatMap(exists -> exists
+                        ? Mono.<Void>empty()
+                        : template.createCollection(name, CollectionOptions.timeSeries(MovementStorage.TIME_FIELD,
+                                        o -> o.metaField(MovementStorage.META_FIELD)
+                                                .granularity(storage.getGranularity())))
+                                .doOnNext(c -> log.info("Created time-series collection {} (meta={}, granularity={})",
+                                        name, MovementStorage.META_FIELD, storage.getGranularity()))
+                                .then());
+    }
+
+    /**
+     * Copia account_movements a la colección time-series en lotes ordenados por (date, _id).
+     * Reanudable: el avance se guarda en job_checkpoints ({@value #MIGRATION_JOB}) con la fecha
+     * del último movimiento copiado de la colección de origen, y cada lote omite los _id que ya
+     * están en destino (consulta por rango de fechas del lote, que aprovecha los buckets).
+     * Orden del cambio de almacenamiento: migrar en DOCUMENTS, pasar a TIME_SERIES (rolling
+     * restart) y, con todas las instancias en TIME_SERIES, correr una pasada más que copia lo
+     * escrito en account_movements durante el despliegue. Devuelve la cantidad copiada.
+     */
+    public Mono<Long> migrateToTimeSeries() {
+        final String source = MovementStorage.DOCUMENTS_COLLECTION;
+        final String target = MovementStorage.TIME_SERIES_COLLECTION;
+        final String markerId = JobCheckpoint.idOf(MIGRATION_JOB, source);
+
+        return ensureTimeSeriesCollection()
+                .then(template.findById(markerId, JobCheckpoint.class))
+                .mapNotNull(JobCheckpoint::getLastKey)
+                .map(key -> Optional.of(Date.from(Instant.parse(key))))
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(resume -> {
+                    final Query pending = resume.map(d -> Query.query(Criteria.where("date").gte(d)))
+                            .orElseGet(Query::new);
+                    pending.with(Sort.by(Sort.Order.asc("date"), Sort.Order.asc("_id")));
+                    return template.find(pending, Document.class, source)
+                            .buffer(migrationBatchSize)
+                            .concatMap(batch -> notCopied(target, batch)
+                                    .flatMap(missing -> missing.isEmpty()
+                                            ? Mono.just(0L)
+                                            : template.insert(missing, target).count())
+                                    .flatMap(n -> saveProgress(markerId, source,
+                                            batch.get(batch.size() - 1).getDate("date"), n).thenReturn(n)))
+                            .reduce(0L, Long::sum);
+                })
+                .doOnNext(n -> log.info("Copied {} movements from {} to {}", n, source, target));
+    }
+
+    // Movimientos del lote que aún no están en destino; el lote viene ordenado por date
+    private Mono<List<Document>> notCopied(String target, List<Document> batch) {
+        final Query query = Query.query(Criteria.where("date")
+                .gte(batch.get(0).getDate("date"))
+                .lte(batch.get(batch.size() - 1).getDate("date"))
+                .and("_id").in(batch.stream().map(d -> d.get("_id")).toList()));
+        query.fields().include("_id");
+        return template.find(query, Document.class, target)
+                .map(d -> d.get("_id"))
+                .collect(HashSet::new, Set::add)
+                .map(copied -> batch.stream().filter(d -> !copied.contains(d.get("_id"))).toList());
+    }
+
+    private Mono<Void> saveProgress(String markerId, String source, Date lastDate, long copied) {
+        final Instant now = Instant.now();
+        final Update update = new Update()
+                .setOnInsert("job", MIGRATION_JOB)
+                .setOnInsert("runKey", source)
+                .setOnInsert("startedAt", now)
+                .set("lastKey", lastDate.toInstant().toString())
+                .inc("processed", copied)
+                .set("updatedAt", now);
+        return template.upsert(Query.query(Criteria.where("_id").is(markerId)), update, JobCheckpoint.class).then();
+    }
+
+    /**
+     * Compara las colecciones existentes: collStats y {@code runs} lecturas por rango
+     * (accountId + date, orden date desc, como el historial) por cada cuenta de muestra.
+     */
+    public Flux<MovementStorageStats> benchmark(List<String> accountIds, Instant from, Instant to, int runs) {
+        if (accountIds == null || accountIds.isEmpty()) {
+            return Flux.error(new IllegalArgumentException("at least one accountId is required"));
+        }
+        if (runs < 1) {
+            return Flux.error(new IllegalArgumentException("runs must be positive"));
+        }
+        return Flux.just(MovementStorage.DOCUMENTS_COLLECTION, MovementStorage.TIME_SERIES_COLLECTION)
+                .concatMap(name -> template.collectionExists(name)
+                        .filter(Boolean::booleanValue)
+                        .flatMap(exists -> Mono.zip(
+                                template.executeCommand(new Document("collStats", name)),
+                                rangeScans(name, accountIds, from, to, runs)))
+                        .map(t -> stats(name, t.getT1(), t.getT2())));
+    }
+
+    private Mono<List<Long>> rangeScans(String collection, List<String> accountIds, Instant from, Instant to,
+                                        int runs) {
+        return Flux.range(0, runs)
+                .concatMap(run -> Flux.fromIterable(accountIds))
+                .concatMap(accountId -> {
+                    final Query query = Query.query(Criteria.where("accountId").is(accountId)
+                                    .and("date").gte(from).lte(to))
+                            .with(Sort.by(Sort.Direction.DESC, "date"));
+                    return Mono.fromSupplier(System::nanoTime)
+                            .flatMap(start -> template.find(query, Document.class, collection).count()
+                                    .map(n -> (System.nanoTime() - start) / 1_000L));
+                })
+                .sort()
+                .collectList();
+    }
+
+    MovementStorageStats stats(String collection, Document collStats, List<Long> sortedMicros) {
+        return new MovementStorageStats(
+                collection,
+                collection.equals(storage.getCollection()),
+                number(collStats.get("count")),
+                number(collStats.get("storageSize")),
+                number(collStats.get("totalIndexSize")),
+                sortedMicros.size(),
+                percentile(sortedMicros, 50),
+                percentile(sortedMicros, 95),
+                sortedMicros.isEmpty() ? 0L : sortedMicros.get(sortedMicros.size() - 1));
+    }
+
+    static long percentile(List<Long> sorted, int p) {
+        if (sorted.isEmpty()) {
+            return 0L;
+        }
+        final int idx = (int) Math.ceil(p / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(idx, sorted.size() - 1)));
+    }
+
+    private static long number(Object value) {
+        return value instanceof Number n ? n.longValue() : 0L;
+    }
+
+}
@@ -0,0 +1,114 @@
+package ntt.ntt_ms_accounts.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import ntt.ntt_ms_accounts.models.AccountMovement;
+import ntt.ntt_ms_accounts.repository.AccountMovementRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Escritura de AccountMovement. Con {@code accounts.movements.batch.enabled=true} agrupa
+ * los movimientos de peticiones concurrentes en micro-lotes (por tamaño o ventana de flush)
+ * y los inserta con un solo insertMany; cada Mono termina cuando su lote fue confirmado.
+ */
+@Slf4j
+@Component
+public class MovementWriter {
+
+    private final AccountMovementRepository movementRepo;
+    private final boolean batchEnabled;
+    private final int maxBatchSize;
+    private final Duration flushWindow;
+    private final int maxInFlight;
+
+    private final Sinks.Many<PendingWrite> queue = Sinks.many().unicast().onBackpressureBuffer();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final DistributionSummary batchSize;
+    private final Timer flushLatency;
+    private Disposable pipeline;
+
+    public MovementWriter(AccountMovementRepository movementRepo,
+                          MeterRegistry registry,
+                          @Value("${accounts.movements.batch.enabled:false}") boolean batchEnabled,
+                          @Value("${accounts.movements.batch.max-size:200}") int maxBatchSize,
+                          @Value("${accounts.movements.batch.flush-window:5ms}") Duration flushWindow,
+                          @Value("${accounts.movements.batch.max-in-flight:4}") int maxInFlight) {
+        this.movementRepo = movementRepo;
+        this.batchEnabled = batchEnabled;
+        this.maxBatchSize = maxBatchSize;
+        this.flushWindow = flushWindow;
+        this.maxInFlight = maxInFlight;
+        this.batchSize = DistributionSummary.builder("accounts.movements.batch.size")
+                .description("Movements written per insertMany")
+                .register(registry);
+        this.flushLatency = Timer.builder("accounts.movements.batch.flush")
+                .description("Latency of each batch insert")
+                .register(registry);
+        Gauge.builder("accounts.movements.batch.pending", pending, AtomicInteger::get)
+                .description("Movements waiting for the next flush")
+                .register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!batchEnabled) {
+            return;
+        }
+        log.info("Movement batching enabled: maxSize={}, flushWindow={}, maxInFlight={}",
+                maxBatchSize, flushWindow, maxInFlight);
+        pipeline = queue.asFlux()
+                // fairBackpressure: no emite lotes si los maxInFlight flushes están ocupados
+                .bufferTimeout(maxBatchSize, flushWindow, true)
+                .flatMap(this::flush, maxInFlight)
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (pipeline != null) {
+            // vacía lo pendiente antes de cerrar
+            queue.emitComplete(Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+        }
+    }
+
+    public Mono<AccountMovement> write(AccountMovement mv) {
+        if (!batchEnabled) {
+            return movementRepo.save(mv);
+        }
+        return Mono.create(sink -> {
+            pending.incrementAndGet();
+            queue.emitNext(new PendingWrite(mv, sink), Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+        });
+    }
+
+    private Mono<Void> flush(List<PendingWrite> batch) {
+        pending.addAndGet(-batch.size());
+        batchSize.record(batch.size());
+        final Timer.Sample sample = Timer.start();
+        return movementRepo.insert(batch.stream().map(PendingWrite::movement).toList())
+                .then()
+                .doOnSuccess(v -> batch.forEach(pw -> pw.sink().success(pw.movement())))
+                .doOnError(e -> {
+                    log.error("Batch insert of {} movements failed", batch.size(), e);
+                    batch.forEach(pw -> pw.sink().error(e));
+                })
+                .doFinally(s -> sample.stop(flushLatency))
+                .onErrorResume(e -> Mono.empty());
+    }
+
+    private record PendingWrite(AccountMovement movement, MonoSink<AccountMovement> sink) {}
+}
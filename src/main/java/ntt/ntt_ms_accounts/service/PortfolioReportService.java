@@ -0,0 +1,177 @@
+package ntt.ntt_ms_accounts.service;
+
+import lombok.extern.slf4j.Slf4j;
+import ntt.ntt_ms_accounts.client.CustomerClient;
+import ntt.ntt_ms_accounts.dto.CustomerDailyAverageReport;
+import ntt.ntt_ms_accounts.dto.PortfolioReportRequest;
+import ntt.ntt_ms_accounts.dto.ProductDailyAverage;
+import ntt.ntt_ms_accounts.models.Account;
+import ntt.ntt_ms_accounts.models.AccountDailyBalance;
+import ntt.ntt_ms_accounts.models.CreditCard;
+import ntt.ntt_ms_accounts.models.Loan;
+import ntt.ntt_ms_accounts.models.ProductLedgerDay;
+import ntt.ntt_ms_accounts.models.CustomerSubType;
+import ntt.ntt_ms_accounts.repository.AccountRepository;
+import ntt.ntt_ms_accounts.repository.CreditCardRepository;
+import ntt.ntt_ms_accounts.repository.LoanRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saldos promedio diarios del mes en curso para muchos clientes. Los clientes se procesan por
+ * bloques: cada bloque resuelve cuentas, snapshots, tarjetas, préstamos y su libro diario con una consulta $in
+ * por colección, y solo {@code concurrency} bloques consultan Mongo a la vez.
+ */
+@Slf4j
+@Service
+public class PortfolioReportService {
+
+    private final AccountRepository accountRepo;
+    private final CreditCardRepository creditCardRepo;
+    private final LoanRepository loanRepo;
+    private final DailyBalanceService dailyBalances;
+    private final ProductLedgerService ledger;
+    private final CustomerHoldingsService holdings;
+    private final CustomerClient customerClient;
+    private final int chunkSize;
+    private final int concurrency;
+    private final int segmentLookupConcurrency;
+
+    public PortfolioReportService(AccountRepository accountRepo,
+                                  CreditCardRepository creditCardRepo,
+                                  LoanRepository loanRepo,
+                                  DailyBalanceService dailyBalances,
+                                  ProductLedgerService ledger,
+                                  CustomerHoldingsService holdings,
+                                  CustomerClient customerClient,
+                                  @Value("${reports.portfolio.chunk-size:200}") int chunkSize,
+                                  @Value("${reports.portfolio.concurrency:4}") int concurrency,
+                                  @Value("${reports.portfolio.segment-lookup-concurrency:16}")
+                                  int segmentLookupConcurrency) {
+        this.accountRepo = accountRepo;
+        this.creditCardRepo = creditCardRepo;
+        this.loanRepo = loanRepo;
+        this.dailyBalances = dailyBalances;
+        this.ledger = ledger;
+        this.holdings = holdings;
+        this.customerClient = customerClient;
+        this.chunkSize = chunkSize;
+        this.concurrency = concurrency;
+        this.segmentLookupConcurrency = segmentLookupConcurrency;
+    }
+
+    public Flux<CustomerDailyAverageReport> dailyAverages(PortfolioReportRequest request, ZoneId zone) {
+        final Flux<String> customers;
+        if (request.customerIds() != null && !request.customerIds().isEmpty()) {
+            customers = Flux.fromIterable(request.customerIds()).distinct();
+        } else if (request.segment() != null) {
+            customers = segment(request.segment());
+        } else {
+            return Flux.error(new IllegalArgumentException("customerIds or segment is required"));
+        }
+        return dailyAverages(customers, zone);
+    }
+
+    public Flux<CustomerDailyAverageReport> dailyAverages(Flux<String> customerIds, ZoneId zone) {
+        final LocalDate today = LocalDate.now(zone);
+        final LocalDate first = today.withDayOfMonth(1);
+        return customerIds
+                .buffer(chunkSize)
+                .flatMap(chunk -> chunk(chunk, first, today), concurrency);
+    }
+
+    // Clientes con productos cuyo subtipo (servicio de customers, cacheado) es el segmento pedido
+    private Flux<String> segment(CustomerSubType segment) {
+        return holdings.knownCustomerIds()
+                .flatMap(id -> customerClient.getCustomer(id)
+                        .filter(c -> c.subType() == segment)
+                        .map(c -> id)
+                        .onErrorResume(e -> {
+                            log.warn("Skipping customer {} in segment {}: {}", id, segment, e.toString());
+                            return Mono.empty();
+                        }), segmentLookupConcurrency);
+    }
+
+    private Flux<CustomerDailyAverageReport> chunk(List<String> customerIds, LocalDate first, LocalDate today) {
+        final Mono<Map<String, List<ProductDailyAverage>>> accountPart = accountRepo.findByCustomerIdIn(customerIds)
+                .collectList()
+                .flatMap(accounts -> accountAverages(accounts, first, today));
+
+        final Mono<Map<String, List<ProductDailyAverage>>> creditPart = Mono.zip(
+                        creditCardRepo.findByCustomerIdIn(customerIds).collectList(),
+                        loanRepo.findByCustomerIdIn(customerIds).collectList())
+                .flatMap(t -> creditAverages(t, first, today));
+
+        return Mono.zip(accountPart, creditPart)
+                .flatMapIterable(t -> customerIds.stream()
+                        .map(id -> {
+                            final List<ProductDailyAverage> all = new ArrayList<>();
+                            all.addAll(t.getT1().getOrDefault(id, List.of()));
+                            all.addAll(t.getT2().getOrDefault(id, List.of()));
+                            return ReportService.customerReport(id, first, today, all);
+                        })
+                        .toList());
+    }
+
+    private Mono<Map<String, List<ProductDailyAverage>>> accountAverages(List<Account> accounts,
+                                                                       LocalDate first, LocalDate today) {
+        if (accounts.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        final List<String> accountIds = accounts.stream().map(Account::getId).toList();
+        return dailyBalances.snapshotsForAccounts(accountIds, first, today)
+                .collect(HashMap<String, List<AccountDailyBalance>>::new,
+                        (m, s) -> m.computeIfAbsent(s.getAccountId(), k -> new ArrayList<>()).add(s))
+                .map(snapsByAccount -> {
+                    final Map<String, List<ProductDailyAverage>> byCustomer = new HashMap<>();
+                    for (Account acc : accounts) {
+                        final List<AccountDailyBalance> snaps = snapsByAccount.getOrDefault(acc.getId(), List.of());
+                        add(byCustomer, acc.getCustomerId(),
+                                ReportService.computeAccountDailyAverage(acc, snaps, first, today));
+                    }
+                    return byCustomer;
+                });
+    }
+
+    // Tarjetas y préstamos del bloque comparten una sola consulta $in al libro diario
+    private Mono<Map<String, List<ProductDailyAverage>>> creditAverages(Tuple2<List<CreditCard>, List<Loan>> products,
+                                                                      LocalDate first, LocalDate today) {
+        final List<CreditCard> cards = products.getT1();
+        final List<Loan> loans = products.getT2();
+        if (cards.isEmpty() && loans.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        final List<String> productIds = new ArrayList<>();
+        cards.forEach(cc -> productIds.add(cc.getId()));
+        loans.forEach(ln -> productIds.add(ln.getId()));
+        return ledger.daysForProducts(productIds, first, today)
+                .collect(HashMap<String, List<ProductLedgerDay>>::new,
+                        (m, d) -> m.computeIfAbsent(d.getProductId(), k -> new ArrayList<>()).add(d))
+                .map(daysByProduct -> {
+                    final Map<String, List<ProductDailyAverage>> byCustomer = new HashMap<>();
+                    for (CreditCard cc : cards) {
+                        add(byCustomer, cc.getCustomerId(), ReportService.cardDailyAverage(cc,
+                                daysByProduct.getOrDefault(cc.getId(), List.of()), first, today));
+                    }
+                    for (Loan ln : loans) {
+                        add(byCustomer, ln.getCustomerId(), ReportService.loanDailyAverage(ln,
+                                daysByProduct.getOrDefault(ln.getId(), List.of()), first, today));
+                    }
+                    return byCustomer;
+                });
+    }
+
+    private static void add(Map<String, List<ProductDailyAverage>> m, String customerId, ProductDailyAverage p) {
+        m.computeIfAbsent(customerId, k -> new ArrayList<>()).add(p);
+    }
+}
@@ -0,0 +1,112 @@
+package ntt.ntt_ms_accounts.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ntt.ntt_ms_accounts.models.AccountDailyBalance;
+import ntt.ntt_ms_accounts.models.ProductLedgerDay;
+import ntt.ntt_ms_accounts.repository.ProductLedgerRepository;
+import org.springframework.data.domain.Range;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Libro diario de tarjetas y préstamos (product_ledger). Cada cambio de available/remaining
+ * agrega una entrada al documento del día; los promedios diarios se calculan con una lectura
+ * por producto, arrastrando el cierre del último día con operaciones como en las cuentas.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductLedgerService {
+
+    private static final Comparator<ProductLedgerDay.Entry> CLOSING_ORDER =
+            Comparator.comparing(ProductLedgerDay.Entry::getSeq, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(ProductLedgerDay.Entry::getAt);
+
+    private final ProductLedgerRepository ledgerRepo;
+
+    // Se llama con el producto ya guardado; delta es el efecto firmado sobre el saldo seguido,
+    // heldAfter lo retenido en holds (solo tarjetas) y seq el ledgerSeq que devolvió el update atómico
+    public Mono<Void> record(String productType, String productId, String customerId, String type,
+                             BigDecimal amount, BigDecimal delta, BigDecimal balanceAfter, BigDecimal heldAfter,
+                             Long seq, String reference, Instant at) {
+        final String day = DailyBalanceService.dayKey(LocalDateTime.ofInstant(at, ZoneId.systemDefault()).toLocalDate());
+        final ProductLedgerDay.Entry entry = ProductLedgerDay.Entry.builder()
+                .at(at).type(type).amount(amount).delta(delta).balanceAfter(balanceAfter).heldAfter(heldAfter).seq(seq).reference(reference)
+                .build();
+        return ledgerRepo.append(productType, productId, customerId, day, entry)
+                .onErrorResume(e -> {
+                    // el saldo ya cambió; el promedio del día queda con el valor anterior
+                    log.warn("Could not record {} ledger entry of {} {} for {}: {}",
+                            type, productType, productId, day, e.toString());
+                    return Mono.empty();
+                });
+    }
+
+    public Flux<ProductLedgerDay> days(String productId, LocalDate from, LocalDate to) {
+        return ledgerRepo.findByProductIdAndDayBetween(productId,
+                Range.closed(DailyBalanceService.dayKey(from), DailyBalanceService.dayKey(to)));
+    }
+
+    // Días de varios productos en una sola consulta $in (reportes por cartera)
+    public Flux<ProductLedgerDay> daysForProducts(Collection<String> productIds, LocalDate from, LocalDate to) {
+        return ledgerRepo.findByProductIdInAndDayBetween(productIds,
+                Range.closed(DailyBalanceService.dayKey(from), DailyBalanceService.dayKey(to)));
+    }
+
+    // Último día con entradas en o antes de {@code onOrBefore} por producto (cierre a una fecha)
+    public Flux<ProductLedgerDay> lastDaysForProducts(Collection<String> productIds, LocalDate onOrBefore) {
+        return ledgerRepo.findLastDays(productIds, DailyBalanceService.dayKey(onOrBefore));
+    }
+
+    // Entrada de cierre del día: la de mayor ledgerSeq; at solo desempata entradas previas a la
+    // secuencia (con cargos concurrentes, at no sigue el orden del update)
+    public static Optional<ProductLedgerDay.Entry> closingEntry(ProductLedgerDay day) {
+        return day.getEntries().stream().max(CLOSING_ORDER);
+    }
+
+    /**
+     * Promedio diario entre {@code from} y {@code to}: parte del saldo actual, descuenta los deltas
+     * del periodo y arrastra el cierre de cada día con entradas.
+     */
+    public static BigDecimal dailyAverage(BigDecimal current, LocalDate from, LocalDate to,
+                                          List<ProductLedgerDay> days) {
+        return DailyBalanceEngine.dailyAverage(current, from, to, days.stream()
+                .map(ProductLedgerService::asDailyBalance)
+                .toList());
+    }
+
+    static AccountDailyBalance asDailyBalance(ProductLedgerDay day) {
+        BigDecimal in = BigDecimal.ZERO;
+        BigDecimal out = BigDecimal.ZERO;
+        for (ProductLedgerDay.Entry e : day.getEntries()) {
+            if (e.getDelta().signum() >= 0) {
+                in = in.add(e.getDelta());
+            } else {
+                out = out.add(e.getDelta().negate());
+            }
+        }
+        final BigDecimal closing = closingEntry(day)
+                .map(ProductLedgerDay.Entry::getBalanceAfter)
+                .orElse(null);
+        return AccountDailyBalance.builder()
+                .accountId(day.getProductId())
+                .day(day.getDay())
+                .deposits(in)
+                .withdrawals(out)
+                .closingBalance(closing)
+                .movements(day.getEntries().size())
+                .build();
+    }
+}
@@ -0,0 +1,114 @@
+package ntt.ntt_ms_accounts.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Caché de resultados de reportes con TTL, invalidada por las escrituras que los afectan:
+ * movimientos, tarjetas y préstamos invalidan los reportes del cliente; los movimientos
+ * clasificados como comisión invalidan los reportes de comisiones cuyo rango los contiene.
+ */
+@Slf4j
+@Component
+public class ReportCache {
+
+    public static final String DAILY_AVERAGES = "daily-averages";
+    public static final String COMMISSIONS = "commissions";
+
+    // variant distingue parámetros que no son cliente ni rango (día y zona del reporte mensual)
+    public record ReportKey(String type, String customerId, Instant from, Instant to, String variant) {
+
+        public static ReportKey dailyAverages(String customerId, LocalDate today, ZoneId zone) {
+            return new ReportKey(DAILY_AVERAGES, customerId, null, null, today + "@" + zone.getId());
+        }
+
+        public static ReportKey commissions(Instant from, Instant to) {
+            return new ReportKey(COMMISSIONS, null, from, to, null);
+        }
+    }
+
+    private final boolean enabled;
+    private final AsyncCache<ReportKey, Object> cache;
+    private final MeterRegistry registry;
+
+    public ReportCache(MeterRegistry registry,
+                       @Value("${reports.cache.enabled:true}") boolean enabled,
+                       @Value("${reports.cache.max-size:1000}") long maxSize,
+                       @Value("${reports.cache.ttl:5m}") Duration ttl) {
+        this.registry = registry;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(registry, cache, "reports");
+    }
+
+    /**
+     * Devuelve el reporte en caché o lo calcula una vez; pedidos concurrentes con la misma clave
+     * comparten el cálculo. Una invalidación mientras se calcula descarta el resultado en curso.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> get(ReportKey key, Supplier<Mono<T>> compute) {
+        if (!enabled) {
+            return compute.get();
+        }
+        return Mono.fromFuture(() -> cache.get(key, (k, executor) -> timed(k, compute).toFuture()), true)
+                .map(v -> (T) v);
+    }
+
+    public void invalidateCustomer(String customerId) {
+        if (customerId != null) {
+            invalidateIf(k -> customerId.equals(k.customerId()));
+        }
+    }
+
+    // Un solo recorrido de la caché para varios clientes (procesos batch)
+    public void invalidateCustomers(Collection<String> customerIds) {
+        if (!customerIds.isEmpty()) {
+            invalidateIf(k -> customerIds.contains(k.customerId()));
+        }
+    }
+
+    // rangos (from, to) exclusivos, como la consulta del reporte
+    public void invalidateCommissionsAt(Instant at) {
+        invalidateIf(k -> COMMISSIONS.equals(k.type()) && k.from().isBefore(at) && k.to().isAfter(at));
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    private void invalidateIf(Predicate<ReportKey> affected) {
+        // asMap incluye los cálculos en curso: se quitan sin esperar a que terminen
+        final int before = cache.asMap().size();
+        cache.asMap().keySet().removeIf(affected);
+        log.debug("Report cache invalidation removed {} entries", before - cache.asMap().size());
+    }
+
+    private <T> Mono<Object> timed(ReportKey key, Supplier<Mono<T>> compute) {
+        final Timer.Sample sample = Timer.start(registry);
+        return Mono.defer(compute)
+                .<Object>map(v -> v)
+                .doFinally(signal -> sample.stop(Timer.builder("reports.recompute")
+                        .description("Time to compute a report on a cache miss")
+                        .tag("type", key.type())
+                        .register(registry)));
+    }
+}
@@ -0,0 +1,261 @@
+package ntt.ntt_ms_accounts.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import ntt.ntt_ms_accounts.models.ReportJob;
+import ntt.ntt_ms_accounts.models.ReportJobStatus;
+import ntt.ntt_ms_accounts.repository.ReportJobRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reportes largos fuera del request: se registran en report_jobs, un pool acotado de workers
+ * los calcula y el resultado queda persistido hasta su TTL. Pedidos con los mismos parámetros
+ * comparten el mismo job (el id es un hash de tipo + parámetros). La cola vive en memoria: al
+ * arrancar y cada {@code reports.jobs.sweep-interval} se reclaman los PENDING/RUNNING sin
+ * actividad desde {@code stale-after} (quedaron en la cola de una instancia caída).
+ */
+@Slf4j
+@Service
+public class ReportJobService {
+
+    public static final String COMMISSIONS = "COMMISSIONS";
+    public static final String DAILY_AVERAGES = "DAILY_AVERAGES";
+
+    private final ReportJobRepository jobRepo;
+    private final ReportService reports;
+    private final MeterRegistry registry;
+    private final int maxConcurrent;
+    private final Duration ttl;
+    private final Duration timeout;
+    private final Duration staleAfter;
+    private final Duration sweepInterval;
+
+    private final Sinks.Many<ReportJob> queue = Sinks.many().unicast().onBackpressureBuffer();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    // ids en la cola local: un barrido no encola dos veces un job que solo está esperando worker
+    private final Set<String> inQueue = ConcurrentHashMap.newKeySet();
+    private Disposable workers;
+    private Disposable sweeper;
+
+    public ReportJobService(ReportJobRepository jobRepo,
+                            ReportService reports,
+                            MeterRegistry registry,
+                            @Value("${reports.jobs.max-concurrent:2}") int maxConcurrent,
+                            @Value("${reports.jobs.ttl:24h}") Duration ttl,
+                            @Value("${reports.jobs.timeout:30m}") Duration timeout,
+                            @Value("${reports.jobs.stale-after:45m}") Duration staleAfter,
+                            @Value("${reports.jobs.sweep-interval:5m}") Duration sweepInterval) {
+        this.jobRepo = jobRepo;
+        this.reports = reports;
+        this.registry = registry;
+        this.maxConcurrent = maxConcurrent;
+        this.ttl = ttl;
+        this.timeout = timeout;
+        this.staleAfter = staleAfter;
+        this.sweepInterval = sweepInterval;
+        Gauge.builder("reports.jobs.queued", queued, AtomicInteger::get)
+                .description("Report jobs waiting for a worker")
+                .register(registry);
+        Gauge.builder("reports.jobs.running", running, AtomicInteger::get)
+                .description("Report jobs being computed")
+                .register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        // maxConcurrent limita cuántos reportes pesados consultan Mongo a la vez
+        workers = queue.asFlux()
+                .flatMap(this::run, maxConcurrent)
+                .subscribe();
+        sweeper = Flux.interval(Duration.ZERO, sweepInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> sweep()
+                        .onErrorResume(e -> {
+                            log.error("Report job sweep failed: {}", e.getMessage(), e);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (sweeper != null) {
+            sweeper.dispose();
+        }
+        if (workers != null) {
+            workers.dispose();
+        }
+    }
+
+    public Mono<ReportJob> submitCommissions(Instant from, Instant to) {
+        if (!from.isBefore(to)) {
+            return Mono.error(new IllegalArgumentException("from must be before to"));
+        }
+        return submit(COMMISSIONS, Map.of("from", from.toString(), "to", to.toString()), to);
+    }
+
+    public Mono<ReportJob> submitDailyAverages(String customerId, ZoneId zone) {
+        // el reporte es del mes en curso hasta hoy: el día forma parte de la clave
+        final LocalDate today = LocalDate.now(zone);
+        return submit(DAILY_AVERAGES, Map.of("customerId", customerId,
+                "zone", zone.getId(), "day", today.toString()), today.plusDays(1).atStartOfDay(zone).toInstant());
+    }
+
+    public Mono<ReportJob> get(String id) {
+        return jobRepo.findById(id);
+    }
+
+    // rangeEnd: fin del periodo que cubre el reporte; un resultado calculado antes no es definitivo
+    Mono<ReportJob> submit(String type, Map<String, String> params, Instant rangeEnd) {
+        final Instant now = Instant.now();
+        final ReportJob job = ReportJob.builder()
+                .id(jobId(type, params))
+                .type(type)
+                .params(new TreeMap<>(params))
+                .status(ReportJobStatus.PENDING)
+                .createdAt(now)
+                .updatedAt(now)
+                .expiresAt(now.plus(ttl))
+                .build();
+        return jobRepo.insert(job)
+                .doOnNext(this::enqueue)
+                .onErrorResume(DuplicateKeyException.class, e -> existing(job.getId(), rangeEnd));
+    }
+
+    // Job ya registrado: se devuelve tal cual salvo que haya fallado, quedado huérfano o que su
+    // resultado se haya calculado con el periodo todavía abierto (p. ej. comisiones hasta hoy)
+    private Mono<ReportJob> existing(String id, Instant rangeEnd) {
+        final Instant now = Instant.now();
+        return jobRepo.reclaim(id, now.minus(staleAfter), rangeEnd, now.plus(ttl))
+                .doOnNext(job -> {
+                    log.info("Re-running report job {}", id);
+                    enqueue(job);
+                })
+                .switchIfEmpty(Mono.defer(() -> jobRepo.findById(id)));
+    }
+
+    /**
+     * Reencola los PENDING/RUNNING sin actividad desde {@code stale-after}. reclaim es atómico y
+     * renueva updatedAt, así que entre varias instancias solo una se queda con cada job; los DONE
+     * no se tocan (rangeEnd = EPOCH).
+     */
+    Mono<Long> sweep() {
+        final Instant now = Instant.now();
+        final Instant staleBefore = now.minus(staleAfter);
+        return jobRepo.findByStatusInAndUpdatedAtBefore(
+                        List.of(ReportJobStatus.PENDING, ReportJobStatus.RUNNING), staleBefore)
+                .filter(job -> !inQueue.contains(job.getId()))
+                .concatMap(job -> jobRepo.reclaim(job.getId(), staleBefore, Instant.EPOCH, now.plus(ttl)))
+                .doOnNext(this::enqueue)
+                .count()
+                .doOnNext(n -> {
+                    if (n > 0) {
+                        log.info("Re-queued {} orphaned report jobs", n);
+                    }
+                });
+    }
+
+    private void enqueue(ReportJob job) {
+        if (!inQueue.add(job.getId())) {
+            return;
+        }
+        queued.incrementAndGet();
+        // el worker trabaja sobre su propia copia; la que se devuelve al cliente no cambia
+        queue.emitNext(job.toBuilder().build(), Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+    }
+
+    private Mono<ReportJob> run(ReportJob job) {
+        inQueue.remove(job.getId());
+        queued.decrementAndGet();
+        running.incrementAndGet();
+        final Timer.Sample sample = Timer.start(registry);
+        job.setStatus(ReportJobStatus.RUNNING);
+        job.setStartedAt(Instant.now());
+        job.setUpdatedAt(job.getStartedAt());
+        return jobRepo.save(job)
+                .flatMap(j -> compute(j)
+                        .timeout(timeout)
+                        .switchIfEmpty(Mono.error(new IllegalStateException("report produced no result"))))
+                .map(result -> {
+                    job.setStatus(ReportJobStatus.DONE);
+                    job.setResult(result);
+                    return job;
+                })
+                .onErrorResume(e -> {
+                    log.warn("Report job {} failed: {}", job.getId(), e.toString());
+                    job.setStatus(ReportJobStatus.FAILED);
+                    job.setError(e.getMessage());
+                    return Mono.just(job);
+                })
+                .flatMap(j -> {
+                    final Instant end = Instant.now();
+                    j.setFinishedAt(end);
+                    j.setUpdatedAt(end);
+                    j.setExpiresAt(end.plus(ttl));
+                    return jobRepo.save(j);
+                })
+                .doFinally(s -> {
+                    running.decrementAndGet();
+                    sample.stop(Timer.builder("reports.jobs.duration")
+                            .description("Time to compute a report job")
+                            .tag("type", job.getType())
+                            .tag("status", String.valueOf(job.getStatus()))
+                            .register(registry));
+                })
+                // un fallo al persistir no detiene a los workers; el job queda huérfano y se reclama
+                .onErrorResume(e -> {
+                    log.error("Could not persist report job {}", job.getId(), e);
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Object> compute(ReportJob job) {
+        final Map<String, String> p = job.getParams();
+        return switch (job.getType()) {
+            case COMMISSIONS -> reports.commissionsByProduct(Instant.parse(p.get("from")), Instant.parse(p.get("to")))
+                    .cast(Object.class);
+            case DAILY_AVERAGES -> reports.dailyAveragesForCustomerCurrentMonth(p.get("customerId"),
+                            ZoneId.of(p.get("zone")))
+                    .cast(Object.class);
+            default -> Mono.error(new IllegalStateException("Unsupported report type: " + job.getType()));
+        };
+    }
+
+    static String jobId(String type, Map<String, String> params) {
+        final StringBuilder canonical = new StringBuilder(type);
+        new TreeMap<>(params).forEach((k, v) -> canonical.append('|').append(k).append('=').append(v));
+        try {
+            final byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,169 +1,147 @@
 package ntt.ntt_ms_accounts.service;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import ntt.ntt_ms_accounts.dto.CustomerDailyAverageReport;
 import ntt.ntt_ms_accounts.dto.ProductDailyAverage;
 import ntt.ntt_ms_accounts.dto.CommissionItem;
 import ntt.ntt_ms_accounts.dto.CommissionReport;
 import ntt.ntt_ms_accounts.models.Account;
-import ntt.ntt_ms_accounts.models.AccountMovement;
-import ntt.ntt_ms_accounts.models.MovementType;
+import ntt.ntt_ms_accounts.models.AccountDailyBalance;
+import ntt.ntt_ms_accounts.models.CreditCard;
+import ntt.ntt_ms_accounts.models.Loan;
+import ntt.ntt_ms_accounts.models.ProductLedgerDay;
 import ntt.ntt_ms_accounts.repository.AccountMovementRepository;
 import ntt.ntt_ms_accounts.repository.AccountRepository;
 import ntt.ntt_ms_accounts.repository.CreditCardRepository;
 import ntt.ntt_ms_accounts.repository.LoanRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 import java.math.BigDecimal;
-import java.math.MathContext;
 import java.time.*;
 import java.util.*;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class ReportService {
     private final AccountRepository accountRepo;
     private final AccountMovementRepository movementRepo;
     private final CreditCardRepository creditCardRepo;
     private final LoanRepository loanRepo;
+    private final DailyBalanceService dailyBalances;
+    private final ReportCache reportCache;
+    private final ProductLedgerService ledger;
+    private final MovementArchiveService archive;
+    // consultas de snapshots / libro diario en paralelo por cliente
+    private final int accountConcurrency;
+
+    public ReportService(AccountRepository accountRepo,
+                         AccountMovementRepository movementRepo,
+                         CreditCardRepository creditCardRepo,
+                         LoanRepository loanRepo,
+                         DailyBalanceService dailyBalances,
+                         ReportCache reportCache,
+                         ProductLedgerService ledger,
+                         MovementArchiveService archive,
+                         @Value("${reports.daily-averages.account-concurrency:8}") int accountConcurrency) {
+        this.accountRepo = accountRepo;
+        this.movementRepo = movementRepo;
+        this.creditCardRepo = creditCardRepo;
+        this.loanRepo = loanRepo;
+        this.dailyBalances = dailyBalances;
+        this.reportCache = reportCache;
+        this.ledger = ledger;
+        this.archive = archive;
+        this.accountConcurrency = accountConcurrency;
+    }
 
     // REPORTE 1: Saldos promedio diarios (mes en curso) por cliente
     public Mono<CustomerDailyAverageReport> dailyAveragesForCustomerCurrentMonth(String customerId, ZoneId zone) {
         final LocalDate today = LocalDate.now(zone);
         final LocalDate first = today.withDayOfMonth(1);
-        final Instant fromInstant = first.atStartOfDay(zone).toInstant();
-        final Instant toInstant = today.plusDays(1).atStartOfDay(zone).toInstant().minusMillis(1);
-        final int days = (int) (today.toEpochDay() - first.toEpochDay() + 1);
-        final String monthLabel = "%d-%02d".formatted(today.getYear(), today.getMonthValue());
 
-        // A) Accounts → reconstruir saldo diario con movimientos del mes
+        // A) Accounts → snapshots diarios del mes (a lo sumo un documento por día con movimientos)
         Mono<List<ProductDailyAverage>> accountPart = accountRepo.findByCustomerId(customerId)
-                .flatMap(acc -> movementRepo
-                        .findByAccountIdAndDateBetweenOrderByDateDesc(acc.getId(), fromInstant, toInstant)
+                .flatMap(acc -> dailyBalances.snapshots(acc.getId(), first, today)
                         .collectList()
-                        .map(movs -> computeAccountDailyAverage(acc, movs, first, today, zone)))
+                        .map(snaps -> computeAccountDailyAverage(acc, snaps, first, today)), accountConcurrency)
                 .collectList();
 
-        // B) Credit Cards → aproximación con available actual
+        // B) Credit Cards → libro diario del mes (available)
         Mono<List<ProductDailyAverage>> cardPart = creditCardRepo.findByCustomerId(customerId)
-                .map(cc -> new ProductDailyAverage(
-                        "CREDIT_CARD", cc.getId(), cc.getCardNumber(), nvl(cc.getAvailable())))
+                .flatMap(cc -> ledger.days(cc.getId(), first, today)
+                        .collectList()
+                        .map(days -> cardDailyAverage(cc, days, first, today)), accountConcurrency)
                 .collectList();
 
-        // C) Loans → aproximación con remaining actual
+        // C) Loans → libro diario del mes (remaining)
         Mono<List<ProductDailyAverage>> loanPart = loanRepo.findByCustomerId(customerId)
-                .map(ln -> new ProductDailyAverage("LOAN", ln.getId(), null, nvl(ln.getRemaining())))
+                .flatMap(ln -> ledger.days(ln.getId(), first, today)
+                        .collectList()
+                        .map(days -> loanDailyAverage(ln, days, first, today)), accountConcurrency)
                 .collectList();
 
         return Mono.zip(accountPart, cardPart, loanPart)
-                .map(t -> {
-                    List<ProductDailyAverage> all = Stream.of(t.getT1(), t.getT2(), t.getT3())
-                            .flatMap(List::stream).toList();
-                    BigDecimal total = all.stream()
-                            .map(ProductDailyAverage::dailyAverage)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-                    return new CustomerDailyAverageReport(
-                            customerId, monthLabel, first, today, days, all, total
-                    );
-                });
+                .map(t -> customerReport(customerId, first, today,
+                        Stream.of(t.getT1(), t.getT2(), t.getT3()).flatMap(List::stream).toList()));
     }
 
-    private ProductDailyAverage computeAccountDailyAverage(Account acc,
-                                                           List<AccountMovement> monthMovs,
-                                                           LocalDate fromDate,
-                                                           LocalDate toDate,
-                                                           ZoneId zone) {
-        // sumatoria firmada del mes (DEPOSIT=+, WITHDRAWAL=-)
-        final BigDecimal sumSignedMonth = monthMovs.stream()
-                .map(m -> m.getType() == MovementType.DEPOSIT ? nvl(m.getAmount()) : nvl(m.getAmount()).negate())
+    static CustomerDailyAverageReport customerReport(String customerId, LocalDate first, LocalDate today,
+                                                     List<ProductDailyAverage> all) {
+        final int days = (int) (today.toEpochDay() - first.toEpochDay() + 1);
+        final String monthLabel = "%d-%02d".formatted(today.getYear(), today.getMonthValue());
+        final BigDecimal total = all.stream()
+                .map(ProductDailyAverage::dailyAverage)
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return new CustomerDailyAverageReport(
+                customerId, monthLabel, first, today, days, all, total
+        );
+    }
 
-        final BigDecimal endBalance = nvl(acc.getBalance());
-        final BigDecimal startBalance = endBalance.subtract(sumSignedMonth);
-
-        // cambios por día (yyyy-MM-dd) -> sumatoria firmada del día
-        final Map<LocalDate, BigDecimal> deltaByDay = monthMovs.stream()
-                .collect(Collectors.groupingBy(
-                        m -> LocalDateTime.ofInstant(m.getDate(), zone).toLocalDate(),
-                        Collectors.reducing(
-                                BigDecimal.ZERO,
-                                m -> m.getType() == MovementType.DEPOSIT ? nvl(m.getAmount()) : nvl(m.getAmount()).negate(),
-                                BigDecimal::add
-                        )
-                ));
-
-        BigDecimal running = startBalance;
-        BigDecimal sumEod = BigDecimal.ZERO;
-        for (LocalDate d = fromDate; !d.isAfter(toDate); d = d.plusDays(1)) {
-            running = running.add(deltaByDay.getOrDefault(d, BigDecimal.ZERO));
-            sumEod = sumEod.add(running);
-        }
-
-        final int days = (int) (toDate.toEpochDay() - fromDate.toEpochDay() + 1);
-        final BigDecimal avg = days == 0
-                ? BigDecimal.ZERO
-                : sumEod.divide(BigDecimal.valueOf(days), MathContext.DECIMAL64);
+    static ProductDailyAverage cardDailyAverage(CreditCard cc, List<ProductLedgerDay> monthDays,
+                                                LocalDate fromDate, LocalDate toDate) {
+        final BigDecimal avg = ProductLedgerService.dailyAverage(nvl(cc.getAvailable()), fromDate, toDate, monthDays);
+        return new ProductDailyAverage("CREDIT_CARD", cc.getId(), cc.getCardNumber(), avg);
+    }
+
+    static ProductDailyAverage loanDailyAverage(Loan ln, List<ProductLedgerDay> monthDays,
+                                                LocalDate fromDate, LocalDate toDate) {
+        final BigDecimal avg = ProductLedgerService.dailyAverage(nvl(ln.getRemaining()), fromDate, toDate, monthDays);
+        return new ProductDailyAverage("LOAN", ln.getId(), null, avg);
+    }
+
+    static ProductDailyAverage computeAccountDailyAverage(Account acc,
+                                                          List<AccountDailyBalance> monthSnaps,
+                                                          LocalDate fromDate,
+                                                          LocalDate toDate) {
+        // unidades mínimas sobre arreglos por día; mismo resultado que sumar BigDecimal por día
+        final BigDecimal avg = DailyBalanceEngine.dailyAverage(acc.getBalance(), fromDate, toDate, monthSnaps);
 
         return new ProductDailyAverage("ACCOUNT", acc.getId(), acc.getAccountNumber(), avg);
     }
 
     // REPORTE 2: Comisiones cobradas por producto en un periodo
     public Mono<CommissionReport> commissionsByProduct(Instant from, Instant to) {
-        // 1) Movimientos de cuenta en el rango
-        Mono<List<AccountMovement>> accountMovs = movementRepo.findByDateBetween(from, to)
-                .collectList();
-
-        // 2) Join en memoria para obtener accountNumber
-        Mono<Map<String, Account>> accountsById = accountRepo.findAll()
-                .collectMap(Account::getId, a -> a);
-
-        return Mono.zip(accountMovs, accountsById)
-                .map(t -> {
-                    List<AccountMovement> movs = t.getT1();
-                    Map<String, Account> accounts = t.getT2();
-
-                    List<AccountMovement> feeMovs = movs.stream()
-                            .filter(m -> m.getType() == MovementType.COMMISSION
-                                    || Optional.ofNullable(m.getReference()).orElse("")
-                                    .toUpperCase().matches(".*(FEE|COMMISSION|COMISION).*"))
-                            .toList();
-
-                    // Grouping: (accountId, commissionType) -> total
-                    Map<List<String>, BigDecimal> totals = feeMovs.stream()
-                            .collect(Collectors.groupingBy(
-                                    m -> List.of(m.getAccountId(),
-                                            Optional.ofNullable(m.getReference()).orElse("FEE")),
-                                    Collectors.reducing(BigDecimal.ZERO, m -> nvl(m.getAmount()), BigDecimal::add)
-                            ));
-
-                    // Map a DTOs
-                    List<CommissionItem> items = totals.entrySet().stream()
-                            .map(e -> {
-                                String accountId = e.getKey().get(0);
-                                String commissionType = e.getKey().get(1);
-                                Account acc = accounts.get(accountId);
-                                return new CommissionItem(
-                                        "ACCOUNT",
-                                        accountId,
-                                        acc != null ? acc.getAccountNumber() : null,
-                                        commissionType,
-                                        e.getValue()
-                                );
-                            })
-                            .toList();
-
+        // filtro, agrupación y join con accountNumber se resuelven en Mongo; el archivo solo
+        // entra cuando el periodo empieza antes de la retención
+        return movementRepo.commissionTotals(from, to, archive.reachesArchive(from))
+                .collectList()
+                .map(items -> {
                     BigDecimal grand = items.stream()
                             .map(CommissionItem::totalAmount)
                             .reduce(BigDecimal.ZERO, BigDecimal::add);
-
                     return new CommissionReport(from, to, items, grand);
                 });
     }
 
+    // Migración única: clasifica los movimientos escritos antes de commissionType
+    public Mono<Long> classifyExistingCommissions() {
+        return movementRepo.classifyCommissions()
+                .doOnNext(n -> log.info("Classified {} legacy commission movements", n))
+                .doOnNext(n -> reportCache.invalidateAll());
+    }
+
     private static BigDecimal nvl(BigDecimal v) {
         return v == null ? BigDecimal.ZERO : v;
     }
@@ -0,0 +1,164 @@
+package ntt.ntt_ms_accounts.client;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import ntt.ntt_ms_accounts.config.HttpClientsConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerClientTest {
+
+    private static final String CUSTOMER_JSON =
+            "{\"id\":\"%s\",\"type\":\"PERSONAL\",\"subType\":\"PERSONAL_STANDARD\"}";
+
+    private final HttpClientsConfig config = new HttpClientsConfig();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    // comportamiento del stub por número de llamada (1..n)
+    private volatile BiFunction<Integer, HttpServerResponse, Publisher<Void>> behaviour;
+    private DisposableServer stub;
+    private ConnectionProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        behaviour = (n, res) -> ok(res, Duration.ofMillis(50));
+        stub = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.get("/api/customers/{id}",
+                        (req, res) -> behaviour.apply(calls.incrementAndGet(), res)))
+                .bindNow();
+        provider = config.customersConnectionProvider(10, Duration.ofSeconds(1),
+                Duration.ofSeconds(30), Duration.ofMinutes(5), Duration.ofSeconds(30));
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.disposeNow();
+        provider.disposeLater().block();
+    }
+
+    private static Publisher<Void> ok(HttpServerResponse res, Duration delay) {
+        return res.header("Content-Type", "application/json")
+                .sendString(Mono.just(CUSTOMER_JSON.formatted("c1")).delayElement(delay));
+    }
+
+    private CustomerClient client(int maxRetries, Duration hedgeDelay, int minimumCalls) {
+        final WebClient webClient = config.customersWebClient("http://localhost:" + stub.port(), provider,
+                Duration.ofMillis(500), Duration.ofMillis(300));
+        final CircuitBreaker breaker = config.customersCircuitBreaker(registry, 50, 4, minimumCalls,
+                Duration.ofMinutes(1));
+        return new CustomerClient(webClient, registry, breaker, 100, Duration.ofMinutes(5),
+                maxRetries, Duration.ofMillis(10), hedgeDelay);
+    }
+
+    @Test
+    void concurrentLookupsShareOneHttpCall() {
+        final CustomerClient client = client(0, Duration.ZERO, 100);
+
+        StepVerifier.create(Flux.range(0, 50).flatMap(i -> client.getCustomer("c1")))
+                .expectNextCount(50)
+                .verifyComplete();
+
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(registry.get("cache.gets").tag("cache", "customers").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(49);
+    }
+
+    @Test
+    void evictForcesAFreshLookup() {
+        final CustomerClient client = client(0, Duration.ZERO, 100);
+
+        StepVerifier.create(client.getCustomer("c1").then(client.getCustomer("c1")))
+                .assertNext(c -> assertThat(c.id()).isEqualTo("c1"))
+                .verifyComplete();
+        assertThat(calls.get()).isEqualTo(1);
+
+        client.evict("c1");
+
+        StepVerifier.create(client.getCustomer("c1"))
+                .expectNextCount(1)
+                .verifyComplete();
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void transientServerErrorsAreRetried() {
+        behaviour = (n, res) -> n < 3
+                ? res.status(HttpResponseStatus.SERVICE_UNAVAILABLE).send()
+                : ok(res, Duration.ZERO);
+
+        StepVerifier.create(client(2, Duration.ZERO, 100).getCustomer("c1"))
+                .expectNextCount(1)
+                .verifyComplete();
+        assertThat(calls.get()).isEqualTo(3);
+    }
+
+    @Test
+    void notFoundIsNotRetried() {
+        behaviour = (n, res) -> res.status(HttpResponseStatus.NOT_FOUND).send();
+
+        StepVerifier.create(client(2, Duration.ZERO, 100).getCustomer("c1"))
+                .expectError(WebClientResponseException.NotFound.class)
+                .verify(Duration.ofSeconds(5));
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void slowResponsesAreCutByTheResponseTimeout() {
+        behaviour = (n, res) -> ok(res, Duration.ofSeconds(5));
+
+        StepVerifier.create(client(1, Duration.ZERO, 100).getCustomer("c1"))
+                .expectError(WebClientRequestException.class)
+                .verify(Duration.ofSeconds(3));
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void hedgedRequestWinsOverASlowPrimary() {
+        // sin hedge y sin reintentos la primera llamada vence el response-timeout
+        behaviour = (n, res) -> ok(res, n == 1 ? Duration.ofSeconds(5) : Duration.ZERO);
+
+        StepVerifier.create(client(0, Duration.ofMillis(20), 100).getCustomer("c1"))
+                .expectNextCount(1)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void circuitOpensAfterRepeatedFailures() {
+        behaviour = (n, res) -> res.status(HttpResponseStatus.INTERNAL_SERVER_ERROR).send();
+        final CustomerClient client = client(0, Duration.ZERO, 4);
+
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(client.getCustomer("c" + i))
+                    .expectError(WebClientResponseException.InternalServerError.class)
+                    .verify(Duration.ofSeconds(5));
+        }
+        StepVerifier.create(client.getCustomer("c9"))
+                .expectError(CallNotPermittedException.class)
+                .verify(Duration.ofSeconds(5));
+        assertThat(calls.get()).isEqualTo(4);
+    }
+}
@@ -0,0 +1,27 @@
+package ntt.ntt_ms_accounts.models;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommissionClassifierTest {
+
+    @Test
+    void commissionTypeWithoutReferenceDefaultsToFee() {
+        assertThat(CommissionClassifier.classify(MovementType.COMMISSION, null)).isEqualTo("FEE");
+    }
+
+    @Test
+    void referenceMentioningAFeeIsACommissionInAnyCase() {
+        assertThat(CommissionClassifier.classify(MovementType.WITHDRAWAL, "Comision ITF"))
+                .isEqualTo("Comision ITF");
+        assertThat(CommissionClassifier.classify(MovementType.WITHDRAWAL, "monthly fee"))
+                .isEqualTo("monthly fee");
+    }
+
+    @Test
+    void regularMovementIsNotClassified() {
+        assertThat(CommissionClassifier.classify(MovementType.DEPOSIT, "salary")).isNull();
+        assertThat(CommissionClassifier.classify(MovementType.WITHDRAWAL, null)).isNull();
+    }
+}
@@ -0,0 +1,133 @@
+package ntt.ntt_ms_accounts.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ntt.ntt_ms_accounts.client.CustomerClient;
+import ntt.ntt_ms_accounts.config.MovementStorage;
+import ntt.ntt_ms_accounts.models.Account;
+import ntt.ntt_ms_accounts.models.AccountMovement;
+import ntt.ntt_ms_accounts.models.AccountStatus;
+import ntt.ntt_ms_accounts.models.AccountType;
+import ntt.ntt_ms_accounts.repository.AccountMovementRepository;
+import ntt.ntt_ms_accounts.repository.AccountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Stress de concurrencia contra un Mongo real: depósitos y retiros en paralelo sobre la misma
+ * cuenta pasando por AccountService y los repositorios reales. Verifica que el saldo final y la
+ * cantidad de movimientos coincidan con las operaciones aceptadas. Necesita un servidor, por eso
+ * no forma parte de la suite (surefire solo toma *Test); se corre a mano con
+ * {@code mvn test -Dtest=AccountConcurrencyStress -Dstress.mongo.uri=mongodb://localhost:27017/stress}.
+ */
+@DataMongoTest(properties = {
+        "spring.data.mongodb.uri=${stress.mongo.uri:mongodb://localhost:27017/stress}",
+        "spring.cloud.config.enabled=false"
+})
+@Import(MovementStorage.class)
+@EnabledIfSystemProperty(named = "stress.mongo.uri", matches = ".+")
+class AccountConcurrencyStress {
+
+    private static final int CONCURRENCY = 64;
+
+    @Autowired
+    private AccountRepository accountRepo;
+    @Autowired
+    private AccountMovementRepository movementRepo;
+    @Autowired
+    private ReactiveMongoTemplate template;
+
+    private AccountService service;
+
+    @BeforeEach
+    void setUp() {
+        final DailyBalanceService dailyBalances = mock(DailyBalanceService.class);
+        when(dailyBalances.record(any(Account.class), any(BigDecimal.class), any(Instant.class)))
+                .thenReturn(Mono.empty());
+        final MovementArchiveService archive = new MovementArchiveService(movementRepo, Clock.systemDefaultZone(),
+                false, 13, 100, Duration.ZERO, 10, Duration.ofHours(1));
+        service = new AccountService(accountRepo, movementRepo, mock(CustomerClient.class),
+                new MovementWriter(movementRepo, new SimpleMeterRegistry(), false, 200, Duration.ofMillis(5), 4),
+                new AccountLanes(new SimpleMeterRegistry(), false, 0), mock(CustomerHoldingsService.class),
+                dailyBalances, new ReportCache(new SimpleMeterRegistry(), false, 100, Duration.ofMinutes(5)),
+                archive);
+    }
+
+    @Test
+    void parallelDepositsAndWithdrawalsKeepBalanceAndMovementsConsistent() {
+        final String id = open("1000.00");
+        final int deposits = 2_000;
+        final int withdrawals = 1_000;
+        final Clock clock = Clock.systemDefaultZone();
+
+        final Long written = Flux.merge(
+                        Flux.range(0, deposits).flatMap(i ->
+                                service.deposit(id, new BigDecimal("1.00"), "dep-" + i, clock), CONCURRENCY),
+                        Flux.range(0, withdrawals).flatMap(i ->
+                                service.withdraw(id, new BigDecimal("0.50"), "wd-" + i, clock), CONCURRENCY))
+                .count()
+                .block(Duration.ofMinutes(5));
+
+        assertThat(written).isEqualTo(deposits + withdrawals);
+        assertThat(accountRepo.findById(id).block().getBalance()).isEqualByComparingTo("2500.00");
+        assertThat(movementsOf(id)).isEqualTo(deposits + withdrawals);
+    }
+
+    @Test
+    void withdrawalsRacingToZeroNeverOverdraw() {
+        final String id = open("100.00");
+        final AtomicInteger rejected = new AtomicInteger();
+        final Clock clock = Clock.systemDefaultZone();
+
+        final Long written = Flux.range(0, 300)
+                .flatMap(i -> service.withdraw(id, BigDecimal.ONE, "wd-" + i, clock)
+                        .onErrorResume(IllegalStateException.class, e -> {
+                            rejected.incrementAndGet();
+                            return Mono.empty();
+                        }), CONCURRENCY)
+                .count()
+                .block(Duration.ofMinutes(5));
+
+        assertThat(written).isEqualTo(100);
+        assertThat(rejected).hasValue(200);
+        assertThat(accountRepo.findById(id).block().getBalance()).isEqualByComparingTo("0");
+        assertThat(movementsOf(id)).isEqualTo(100);
+    }
+
+    private String open(String balance) {
+        final String id = "stress-" + UUID.randomUUID();
+        accountRepo.save(Account.builder()
+                .id(id)
+                .accountNumber(id)
+                .customerId("stress")
+                .type(AccountType.CURRENT)
+                .status(AccountStatus.ACTIVE)
+                .balance(new BigDecimal(balance))
+                .build()).block();
+        return id;
+    }
+
+    private long movementsOf(String accountId) {
+        return template.count(Query.query(Criteria.where("accountId").is(accountId)), AccountMovement.class).block();
+    }
+}
@@ -0,0 +1,72 @@
+package ntt.ntt_ms_accounts.service;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccountLanesTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AccountLanes lanes = new AccountLanes(registry, true, 8);
+
+    @AfterEach
+    void tearDown() {
+        lanes.stop();
+    }
+
+    @Test
+    void sameAccountRunsSeriallyInSubmissionOrder() {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final List<Integer> order = new CopyOnWriteArrayList<>();
+
+        Flux.range(0, 200)
+                .concatMap(i -> Mono.just(i).subscribeOn(Schedulers.parallel()))
+                .flatMap(i -> lanes.submit("hot", () -> Mono.fromRunnable(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    order.add(i);
+                }).delayElement(Duration.ofMillis(1)).then(Mono.fromRunnable(running::decrementAndGet)).thenReturn(i)))
+                .blockLast(Duration.ofSeconds(10));
+
+        assertThat(maxRunning.get()).isEqualTo(1);
+        assertThat(order).hasSize(200).isSorted();
+    }
+
+    @Test
+    void differentAccountsRunInParallel() {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+
+        Flux.range(0, 64)
+                .flatMap(i -> lanes.submit("acc-" + i, () -> Mono.delay(Duration.ofMillis(20))
+                        .doOnSubscribe(s -> maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max))
+                        .doOnTerminate(running::decrementAndGet)))
+                .blockLast(Duration.ofSeconds(10));
+
+        assertThat(maxRunning.get()).isGreaterThan(1);
+        final long waited = registry.get("accounts.lanes.wait").timers().stream()
+                .mapToLong(Timer::count)
+                .sum();
+        assertThat(waited).isEqualTo(64);
+    }
+
+    @Test
+    void failureOfOneTaskDoesNotBlockTheLane() {
+        final Mono<String> failing = lanes.submit("a", () -> Mono.error(new IllegalStateException("boom")));
+        final Mono<String> next = lanes.submit("a", () -> Mono.just("ok"));
+
+        assertThat(failing.onErrorReturn("failed").block(Duration.ofSeconds(5))).isEqualTo("failed");
+        assertThat(next.block(Duration.ofSeconds(5))).isEqualTo("ok");
+    }
+}
@@ -0,0 +1,221 @@
+package ntt.ntt_ms_accounts.service;
+
+import com.mongodb.client.result.UpdateResult;
+import ntt.ntt_ms_accounts.models.Account;
+import ntt.ntt_ms_accounts.models.AccountType;
+import ntt.ntt_ms_accounts.repository.AccountRepositoryCustomImpl;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.MongoExpression;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Filtro del findAndModify de AccountRepositoryCustomImpl.applyMovement con los guards de
+ * AccountService, evaluado contra documentos de ejemplo con la semántica de Mongo para los
+ * operadores que usa ($and, $or, $gte, $ne, $in, $exists, null, $expr con $lt/$ifNull).
+ */
+@ExtendWith(MockitoExtension.class)
+class AccountMovementGuardTest {
+
+    private static final String MONTH = "2026-10";
+    private static final LocalDate DAY = LocalDate.of(2026, 10, 15);
+
+    @Mock
+    private ReactiveMongoTemplate template;
+
+    private Document filter(BigDecimal delta, LocalDate today) {
+        when(template.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Account.class))).thenReturn(Mono.empty());
+        new AccountRepositoryCustomImpl(template).applyMovement("acc-1", delta, MONTH,
+                AccountService.fixedTermDayGuard(today), AccountService.monthlyLimitGuard(MONTH)).block();
+        final ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(template, atLeastOnce()).findAndModify(query.capture(), any(Update.class),
+                any(FindAndModifyOptions.class), eq(Account.class));
+        return query.getValue().getQueryObject();
+    }
+
+    @Test
+    void firstMovementOfMonthDropsOlderCounters() {
+        final Account updated = Account.builder().id("acc-1").type(AccountType.SAVINGS)
+                .monthlyMovementCounts(new HashMap<>(Map.of("2026-08", 20, "2026-09", 12, MONTH, 1))).build();
+        when(template.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Account.class))).thenReturn(Mono.just(updated));
+        when(template.updateFirst(any(Query.class), any(Update.class), eq(Account.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+
+        final Account acc = new AccountRepositoryCustomImpl(template)
+                .applyMovement("acc-1", BigDecimal.ONE, MONTH).block();
+
+        assertThat(acc.getMonthlyMovementCounts()).containsOnlyKeys(MONTH);
+        final ArgumentCaptor<Update> unset = ArgumentCaptor.forClass(Update.class);
+        verify(template).updateFirst(any(Query.class), unset.capture(), eq(Account.class));
+        assertThat(unset.getValue().getUpdateObject().get("$unset", Document.class))
+                .containsOnlyKeys("monthlyMovementCounts.2026-08", "monthlyMovementCounts.2026-09");
+    }
+
+    private static Map<String, Object> account(AccountType type, String balance) {
+        final Map<String, Object> doc = new HashMap<>();
+        doc.put("_id", "acc-1");
+        doc.put("type", type);
+        doc.put("balance", new Decimal128(new BigDecimal(balance)));
+        return doc;
+    }
+
+    @Test
+    void rejectsOverdraft() {
+        final Document withdrawal = filter(new BigDecimal("-50"), DAY);
+
+        assertThat(matches(withdrawal, account(AccountType.CURRENT, "30"))).isFalse();
+        assertThat(matches(withdrawal, account(AccountType.CURRENT, "50"))).isTrue();
+    }
+
+    @Test
+    void rejectsFixedTermOutsideItsDay() {
+        final Map<String, Object> fixed = account(AccountType.FIXED_TERM, "100");
+        fixed.put("fixedDayAllowed", 15);
+
+        assertThat(matches(filter(BigDecimal.ONE, DAY), fixed)).isTrue();
+        assertThat(matches(filter(BigDecimal.ONE, DAY.minusDays(1)), fixed)).isFalse();
+    }
+
+    @Test
+    void fixedDayBeyondMonthEndMatchesLastDay() {
+        final Map<String, Object> fixed = account(AccountType.FIXED_TERM, "100");
+        fixed.put("fixedDayAllowed", 31);
+
+        assertThat(matches(filter(BigDecimal.ONE, LocalDate.of(2026, 9, 30)), fixed)).isTrue();
+    }
+
+    @Test
+    void rejectsSavingsOverMonthlyLimit() {
+        final Document deposit = filter(BigDecimal.ONE, DAY);
+        final Map<String, Object> savings = account(AccountType.SAVINGS, "100");
+        savings.put("monthlyMovementLimit", 2);
+
+        // sin contador del mes no aplica: AccountService lo siembra contando movimientos
+        assertThat(matches(deposit, savings)).isFalse();
+        savings.put("monthlyMovementCounts", new Document(MONTH, 1));
+        assertThat(matches(deposit, savings)).isTrue();
+        savings.put("monthlyMovementCounts", new Document(MONTH, 2));
+        assertThat(matches(deposit, savings)).isFalse();
+
+        final Map<String, Object> current = account(AccountType.CURRENT, "100");
+        current.put("monthlyMovementCounts", new Document(MONTH, 50));
+        assertThat(matches(deposit, current)).isTrue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean matches(Map<String, Object> filter, Map<String, Object> doc) {
+        for (Map.Entry<String, Object> e : filter.entrySet()) {
+            final boolean ok = switch (e.getKey()) {
+                case "$and" -> ((List<Map<String, Object>>) e.getValue()).stream().allMatch(f -> matches(f, doc));
+                case "$or" -> ((List<Map<String, Object>>) e.getValue()).stream().anyMatch(f -> matches(f, doc));
+                case "$expr" -> Boolean.TRUE.equals(expr(e.getValue(), doc));
+                default -> field(path(doc, e.getKey()), e.getValue());
+            };
+            if (!ok) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean field(Object value, Object condition) {
+        if (!(condition instanceof Map<?, ?> ops)
+                || ops.keySet().stream().noneMatch(k -> k.toString().startsWith("$"))) {
+            return same(value, condition);
+        }
+        for (Map.Entry<String, Object> op : ((Map<String, Object>) ops).entrySet()) {
+            final boolean ok = switch (op.getKey()) {
+                case "$gte" -> value != null && compare(value, op.getValue()) >= 0;
+                case "$ne" -> !same(value, op.getValue());
+                case "$exists" -> (value != null) == Boolean.TRUE.equals(op.getValue());
+                case "$in" -> ((List<Object>) op.getValue()).stream().anyMatch(v -> same(value, v));
+                default -> throw new IllegalArgumentException("unsupported operator " + op.getKey());
+            };
+            if (!ok) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object expr(Object expression, Map<String, Object> doc) {
+        if (expression instanceof MongoExpression e) {
+            return expr(e.toDocument(), doc);
+        }
+        if (expression instanceof String s && s.startsWith("$")) {
+            return path(doc, s.substring(1));
+        }
+        if (!(expression instanceof Map<?, ?> m)) {
+            return expression;
+        }
+        final Map.Entry<String, Object> op = ((Map<String, Object>) m).entrySet().iterator().next();
+        final List<Object> args = (List<Object>) op.getValue();
+        return switch (op.getKey()) {
+            case "$lt" -> compare(expr(args.get(0), doc), expr(args.get(1), doc)) < 0;
+            case "$ifNull" -> {
+                final Object v = expr(args.get(0), doc);
+                yield v != null ? v : expr(args.get(1), doc);
+            }
+            default -> throw new IllegalArgumentException("unsupported expression " + op.getKey());
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object path(Map<String, Object> doc, String path) {
+        Object current = doc;
+        for (String part : path.split("\\.")) {
+            if (!(current instanceof Map<?, ?>)) {
+                return null;
+            }
+            current = ((Map<String, Object>) current).get(part);
+        }
+        return current;
+    }
+
+    private static boolean same(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        if (number(a) != null && number(b) != null) {
+            return number(a).compareTo(number(b)) == 0;
+        }
+        return a.toString().equals(b.toString());
+    }
+
+    private static int compare(Object a, Object b) {
+        return number(a).compareTo(number(b));
+    }
+
+    private static BigDecimal number(Object v) {
+        if (v instanceof Decimal128 d) {
+            return d.bigDecimalValue();
+        }
+        return v instanceof Number n ? new BigDecimal(n.toString()) : null;
+    }
+}
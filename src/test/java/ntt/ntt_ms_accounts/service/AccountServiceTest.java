@@ -0,0 +1,258 @@
+package ntt.ntt_ms_accounts.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ntt.ntt_ms_accounts.client.CustomerClient;
+import ntt.ntt_ms_accounts.models.Account;
+import ntt.ntt_ms_accounts.models.AccountMovement;
+import ntt.ntt_ms_accounts.models.AccountType;
+import ntt.ntt_ms_accounts.repository.AccountMovementRepository;
+import ntt.ntt_ms_accounts.repository.AccountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.query.Criteria;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AccountServiceTest {
+
+    private static final String ACCOUNT_ID = "acc-1";
+    // retención de 13 meses → capa caliente desde 2025-09-15
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-10-15T12:00:00Z"), ZoneOffset.UTC);
+
+    @Mock
+    private AccountRepository accountRepo;
+    @Mock
+    private AccountMovementRepository movementRepo;
+    @Mock
+    private CustomerClient customerClient;
+    @Mock
+    private CustomerHoldingsService holdings;
+    @Mock
+    private DailyBalanceService dailyBalances;
+
+    private AccountService service;
+
+    @BeforeEach
+    void setUp() {
+        final MovementWriter writer = new MovementWriter(movementRepo, new SimpleMeterRegistry(),
+                false, 200, Duration.ofMillis(5), 4);
+        final AccountLanes lanes = new AccountLanes(new SimpleMeterRegistry(), false, 0);
+        final MovementArchiveService archive = new MovementArchiveService(movementRepo, CLOCK, false, 13,
+                100, Duration.ZERO, 10, Duration.ofHours(1));
+        service = new AccountService(accountRepo, movementRepo, customerClient, writer, lanes, holdings,
+                dailyBalances, new ReportCache(new SimpleMeterRegistry(), true, 100, Duration.ofMinutes(5)), archive);
+        lenient().when(dailyBalances.record(any(Account.class), any(BigDecimal.class), any(Instant.class)))
+                .thenReturn(Mono.empty());
+        lenient().when(movementRepo.findArchivedPage(anyString(), any(), any(), any(), any(), anyInt()))
+                .thenReturn(Flux.empty());
+    }
+
+    @Test
+    void concurrentMovementsGoThroughAtomicUpdateWithoutReadModifyWrite() {
+        // El repositorio simulado aplica cada delta; el guard real se prueba en AccountMovementGuardTest
+        final AtomicReference<BigDecimal> balance = new AtomicReference<>(new BigDecimal("100.00"));
+        when(accountRepo.applyMovement(eq(ACCOUNT_ID), any(BigDecimal.class), anyString(), any(Criteria[].class)))
+                .thenAnswer(inv -> {
+                    final BigDecimal delta = inv.getArgument(1);
+                    return Mono.fromCallable(() -> {
+                        final BigDecimal updated = balance.accumulateAndGet(delta,
+                                (cur, d) -> cur.add(d).signum() < 0 ? cur : cur.add(d));
+                        return Account.builder().id(ACCOUNT_ID).type(AccountType.CURRENT)
+                                .balance(updated).build();
+                    }).subscribeOn(Schedulers.parallel());
+                });
+        when(movementRepo.save(any(AccountMovement.class)))
+                .thenAnswer(inv -> Mono.just(inv.<AccountMovement>getArgument(0)));
+
+        final int deposits = 2_000;
+        final int withdrawals = 1_000;
+        final Clock clock = Clock.systemDefaultZone();
+
+        final Flux<AccountMovement> load = Flux.merge(
+                Flux.range(0, deposits).flatMap(i ->
+                        service.deposit(ACCOUNT_ID, new BigDecimal("1.00"), "dep-" + i, clock), 64),
+                Flux.range(0, withdrawals).flatMap(i ->
+                        service.withdraw(ACCOUNT_ID, new BigDecimal("0.50"), "wd-" + i, clock), 64));
+
+        StepVerifier.create(load)
+                .expectNextCount(deposits + withdrawals)
+                .verifyComplete();
+
+        assertThat(balance.get()).isEqualByComparingTo("1600.00");
+        verify(accountRepo, never()).save(any(Account.class));
+        verify(accountRepo, never()).findById(anyString());
+    }
+
+    @Test
+    void withdrawalRejectedWhenGuardFails() {
+        when(accountRepo.applyMovement(eq(ACCOUNT_ID), any(BigDecimal.class), anyString(), any(Criteria[].class)))
+                .thenReturn(Mono.empty());
+        when(accountRepo.findById(ACCOUNT_ID)).thenReturn(Mono.just(Account.builder()
+                .id(ACCOUNT_ID).type(AccountType.CURRENT).balance(new BigDecimal("10.00")).build()));
+
+        StepVerifier.create(service.withdraw(ACCOUNT_ID, new BigDecimal("50.00"), "wd",
+                        Clock.systemDefaultZone()))
+                .expectErrorMessage("Insufficient funds")
+                .verify(Duration.ofSeconds(5));
+
+        verify(movementRepo, never()).save(any(AccountMovement.class));
+    }
+
+    @Test
+    void savingsLimitReportedFromMonthlyCounter() {
+        final String month = YearMonth.now().toString();
+        when(accountRepo.applyMovement(eq(ACCOUNT_ID), any(BigDecimal.class), eq(month), any(Criteria[].class)))
+                .thenReturn(Mono.empty());
+        when(accountRepo.findById(ACCOUNT_ID)).thenReturn(Mono.just(Account.builder()
+                .id(ACCOUNT_ID).type(AccountType.SAVINGS).balance(new BigDecimal("10.00"))
+                .monthlyMovementLimit(2)
+                .monthlyMovementCounts(new HashMap<>(Map.of(month, 2)))
+                .build()));
+
+        StepVerifier.create(service.deposit(ACCOUNT_ID, BigDecimal.ONE, "dep", Clock.systemDefaultZone()))
+                .expectErrorMessage("Monthly movement limit exceeded for SAVINGS")
+                .verify(Duration.ofSeconds(5));
+
+        verify(movementRepo, never()).countByAccountIdAndDateBetween(anyString(), any(), any());
+    }
+
+    @Test
+    void savingsWithoutCounterForMonthIsSeededFromMovementsAndRetried() {
+        final String month = YearMonth.now().toString();
+        final Account legacy = Account.builder().id(ACCOUNT_ID).type(AccountType.SAVINGS)
+                .balance(new BigDecimal("10.00")).monthlyMovementLimit(5).build();
+        when(accountRepo.applyMovement(eq(ACCOUNT_ID), any(BigDecimal.class), eq(month), any(Criteria[].class)))
+                .thenReturn(Mono.empty())
+                .thenReturn(Mono.just(Account.builder().id(ACCOUNT_ID).type(AccountType.SAVINGS)
+                        .balance(new BigDecimal("11.00")).build()));
+        when(accountRepo.findById(ACCOUNT_ID)).thenReturn(Mono.just(legacy));
+        // movimientos del mes anteriores al contador
+        when(movementRepo.countByAccountIdAndDateBetween(eq(ACCOUNT_ID), any(), any())).thenReturn(Mono.just(3L));
+        when(accountRepo.seedMonthlyMovementCount(ACCOUNT_ID, month, 3)).thenReturn(Mono.just(legacy));
+        when(movementRepo.save(any(AccountMovement.class)))
+                .thenAnswer(inv -> Mono.just(inv.<AccountMovement>getArgument(0)));
+
+        StepVerifier.create(service.deposit(ACCOUNT_ID, BigDecimal.ONE, "dep", Clock.systemDefaultZone()))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(accountRepo, times(2))
+                .applyMovement(eq(ACCOUNT_ID), any(BigDecimal.class), eq(month), any(Criteria[].class));
+    }
+
+    @Test
+    void unknownAccountIsReported() {
+        when(accountRepo.applyMovement(eq("missing"), any(BigDecimal.class), anyString(), any(Criteria[].class)))
+                .thenReturn(Mono.empty());
+        when(accountRepo.findById("missing")).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.deposit("missing", BigDecimal.TEN, "dep", Clock.systemDefaultZone()))
+                .expectErrorMessage("account not found")
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void movementPageReturnsCursorThatResumesAfterLastItem() {
+        final Instant t0 = Instant.parse("2025-09-01T10:00:00Z");
+        final List<AccountMovement> three = List.of(
+                AccountMovement.builder().id("m3").date(t0.plusSeconds(2)).build(),
+                AccountMovement.builder().id("m2").date(t0.plusSeconds(1)).build(),
+                AccountMovement.builder().id("m1").date(t0).build());
+        when(movementRepo.findPage(ACCOUNT_ID, null, null, null, null, 3))
+                .thenReturn(Flux.fromIterable(three));
+
+        final AccountService.MovementSlice first = service.movementsPage(ACCOUNT_ID, null, null, null, 2).block();
+        assertThat(first.items()).extracting(AccountMovement::getId).containsExactly("m3", "m2");
+        assertThat(first.nextCursor()).isNotBlank();
+
+        when(movementRepo.findPage(ACCOUNT_ID, null, null, t0.plusSeconds(1), "m2", 3))
+                .thenReturn(Flux.just(three.get(2)));
+        final AccountService.MovementSlice second =
+                service.movementsPage(ACCOUNT_ID, null, null, first.nextCursor(), 2).block();
+        assertThat(second.items()).extracting(AccountMovement::getId).containsExactly("m1");
+        assertThat(second.nextCursor()).isNull();
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        StepVerifier.create(service.movementsPage(ACCOUNT_ID, null, null, "not-a-cursor", 10))
+                .expectErrorMessage("invalid cursor")
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void rangeInsideRetentionReadsOnlyHotMovements() {
+        final Instant from = Instant.parse("2026-10-01T00:00:00Z");
+        final Instant to = Instant.parse("2026-10-15T00:00:00Z");
+        when(movementRepo.findByAccountIdAndDateBetweenOrderByDateDesc(ACCOUNT_ID, from, to))
+                .thenReturn(Flux.just(AccountMovement.builder().id("m1").date(from).build()));
+
+        StepVerifier.create(service.movements(ACCOUNT_ID, from, to))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(movementRepo, never()).findArchived(anyString(), any(), any());
+    }
+
+    @Test
+    void rangeBeforeRetentionMergesArchiveNewestFirst() {
+        final Instant from = Instant.parse("2025-01-01T00:00:00Z");
+        final Instant to = Instant.parse("2026-10-15T00:00:00Z");
+        // m2 todavía está en la capa caliente y ya copiado al archivo (lote en curso)
+        when(movementRepo.findByAccountIdAndDateBetweenOrderByDateDesc(ACCOUNT_ID, from, to)).thenReturn(Flux.just(
+                AccountMovement.builder().id("m4").date(Instant.parse("2026-10-01T00:00:00Z")).build(),
+                AccountMovement.builder().id("m2").date(Instant.parse("2025-03-01T00:00:00Z")).build()));
+        when(movementRepo.findArchived(ACCOUNT_ID, from, to)).thenReturn(Flux.just(
+                AccountMovement.builder().id("m3").date(Instant.parse("2025-06-01T00:00:00Z")).build(),
+                AccountMovement.builder().id("m2").date(Instant.parse("2025-03-01T00:00:00Z")).build(),
+                AccountMovement.builder().id("m1").date(Instant.parse("2025-02-01T00:00:00Z")).build()));
+
+        StepVerifier.create(service.movements(ACCOUNT_ID, from, to).map(AccountMovement::getId).collectList())
+                .expectNext(List.of("m4", "m3", "m2", "m1"))
+                .verifyComplete();
+    }
+
+    @Test
+    void fullHotPageInsideRetentionSkipsArchive() {
+        final Instant t0 = Instant.parse("2026-10-01T10:00:00Z");
+        when(movementRepo.findPage(ACCOUNT_ID, null, null, null, null, 3)).thenReturn(Flux.just(
+                AccountMovement.builder().id("m3").date(t0.plusSeconds(2)).build(),
+                AccountMovement.builder().id("m2").date(t0.plusSeconds(1)).build(),
+                AccountMovement.builder().id("m1").date(t0).build()));
+
+        StepVerifier.create(service.movementsPage(ACCOUNT_ID, null, null, null, 2))
+                .assertNext(slice -> assertThat(slice.items()).extracting(AccountMovement::getId)
+                        .containsExactly("m3", "m2"))
+                .verifyComplete();
+
+        verify(movementRepo, never()).findArchivedPage(anyString(), any(), any(), any(), any(), anyInt());
+    }
+}
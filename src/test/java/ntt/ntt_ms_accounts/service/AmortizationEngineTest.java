@@ -0,0 +1,102 @@
+package ntt.ntt_ms_accounts.service;
+
+import ntt.ntt_ms_accounts.dto.LoanInstallment;
+import ntt.ntt_ms_accounts.models.Loan;
+import ntt.ntt_ms_accounts.models.LoanStatus;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AmortizationEngineTest {
+
+    private static final ZoneId UTC = ZoneOffset.UTC;
+
+    private static Loan newLoan() {
+        return AmortizationEngine.initialize(Loan.builder()
+                .id("l1")
+                .status(LoanStatus.ACTIVE)
+                .principal(new BigDecimal("10000"))
+                .remaining(new BigDecimal("10000"))
+                .interestRateAnnual(new BigDecimal("0.12"))
+                .termMonths(12)
+                .disbursementDate(Instant.parse("2026-01-31T10:00:00Z"))
+                .build(), UTC);
+    }
+
+    @Test
+    void scheduleHasFixedInstallmentAndAmortizesPrincipal() {
+        final List<LoanInstallment> rows = AmortizationEngine.schedule(new BigDecimal("10000"),
+                new BigDecimal("0.12"), 12, LocalDate.of(2026, 2, 28));
+
+        assertThat(rows).hasSize(12);
+        assertThat(rows.get(0).payment()).isEqualByComparingTo("888.49");
+        assertThat(rows.get(0).interest()).isEqualByComparingTo("100.00");
+        assertThat(rows.get(11).balanceAfter()).isEqualByComparingTo("0");
+        assertThat(rows.stream().map(LoanInstallment::principal).reduce(BigDecimal.ZERO, BigDecimal::add))
+                .isEqualByComparingTo("10000");
+        // ancla día 28 del primer vencimiento
+        assertThat(rows.get(1).dueDate()).isEqualTo(LocalDate.of(2026, 3, 28));
+    }
+
+    @Test
+    void paymentCoversInterestFirstAndAdvancesDueDate() {
+        final Loan loan = newLoan();
+        assertThat(loan.getNextDueDate()).isEqualTo(Instant.parse("2026-02-28T00:00:00Z"));
+
+        final Loan paid = AmortizationEngine.applyPayment(loan, new BigDecimal("888.49"), UTC);
+
+        assertThat(paid.getRemaining()).isEqualByComparingTo("9211.51");
+        // interés del segundo periodo devengado sobre el nuevo saldo
+        assertThat(paid.getInterestDue()).isEqualByComparingTo("92.12");
+        assertThat(paid.getPeriodPaid()).isEqualByComparingTo("0");
+        // vuelve al día de desembolso (31) donde el mes lo permite
+        assertThat(paid.getNextDueDate()).isEqualTo(Instant.parse("2026-03-31T00:00:00Z"));
+    }
+
+    @Test
+    void partialPaymentKeepsDueDate() {
+        final Loan paid = AmortizationEngine.applyPayment(newLoan(), new BigDecimal("300"), UTC);
+
+        assertThat(paid.getInterestDue()).isEqualByComparingTo("0");
+        assertThat(paid.getRemaining()).isEqualByComparingTo("9800");
+        assertThat(paid.getPeriodPaid()).isEqualByComparingTo("300");
+        assertThat(paid.getNextDueDate()).isEqualTo(Instant.parse("2026-02-28T00:00:00Z"));
+    }
+
+    @Test
+    void overdueInstallmentsMoveToArrearsAndPaymentCuresThem() {
+        final Loan loan = AmortizationEngine.applyPayment(newLoan(), new BigDecimal("300"), UTC);
+
+        final Loan rolled = AmortizationEngine.rollOverdue(loan, LocalDate.of(2026, 4, 15), UTC);
+
+        assertThat(rolled.getStatus()).isEqualTo(LoanStatus.IN_ARREARS);
+        // febrero (888.49 - 300) y marzo completos
+        assertThat(rolled.getPastDue()).isEqualByComparingTo("1476.98");
+        assertThat(rolled.getNextDueDate()).isEqualTo(Instant.parse("2026-04-30T00:00:00Z"));
+        assertThat(rolled.getInterestDue()).isEqualByComparingTo("196.00");
+
+        final Loan cured = AmortizationEngine.applyPayment(rolled, new BigDecimal("1476.98"), UTC);
+        assertThat(cured.getStatus()).isEqualTo(LoanStatus.ACTIVE);
+        assertThat(cured.getPastDue()).isEqualByComparingTo("0");
+
+        assertThat(AmortizationEngine.rollOverdue(cured, LocalDate.of(2026, 4, 15), UTC)).isSameAs(cured);
+    }
+
+    @Test
+    void fullPayoffClosesLoan() {
+        final Loan loan = newLoan();
+        final Loan paid = AmortizationEngine.applyPayment(loan, new BigDecimal("20000"), UTC);
+
+        assertThat(AmortizationEngine.applicable(loan, new BigDecimal("20000"))).isEqualByComparingTo("10100");
+        assertThat(paid.getStatus()).isEqualTo(LoanStatus.CLOSED);
+        assertThat(paid.getRemaining()).isEqualByComparingTo("0");
+        assertThat(paid.getNextDueDate()).isNull();
+    }
+}
@@ -0,0 +1,75 @@
+package ntt.ntt_ms_accounts.service;
+
+import ntt.ntt_ms_accounts.dto.BatchMovementRequest;
+import ntt.ntt_ms_accounts.models.AccountMovement;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+class BatchMovementServiceTest {
+
+    @Mock
+    private AccountService accountService;
+
+    @Test
+    void operationsOfOneAccountKeepInputOrder() {
+        final Map<String, List<String>> applied = new ConcurrentHashMap<>();
+        lenient().when(accountService.deposit(anyString(), any(BigDecimal.class), anyString(), any(Clock.class)))
+                .thenAnswer(inv -> {
+                    final String account = inv.getArgument(0);
+                    final String ref = inv.getArgument(2);
+                    return Mono.delay(Duration.ofMillis(ThreadLocalRandom.current().nextInt(3)))
+                            .then(Mono.fromCallable(() -> {
+                                applied.computeIfAbsent(account, k -> new CopyOnWriteArrayList<>()).add(ref);
+                                return AccountMovement.builder().accountId(account).reference(ref).build();
+                            }));
+                });
+
+        final BatchMovementService service = new BatchMovementService(accountService, 8);
+        final Flux<BatchMovementRequest> ops = Flux.range(0, 600)
+                .map(i -> new BatchMovementRequest("acc-" + (i % 6), "DEPOSIT", BigDecimal.ONE, String.valueOf(i)));
+
+        final List<BatchMovementService.BatchOutcome> outcomes =
+                service.apply(ops, Clock.systemDefaultZone()).collectList().block(Duration.ofSeconds(10));
+
+        assertThat(outcomes).hasSize(600).allSatisfy(o -> assertThat(o.error()).isNull());
+        applied.forEach((account, refs) -> assertThat(refs)
+                .extracting(Integer::parseInt)
+                .isSorted());
+    }
+
+    @Test
+    void invalidItemsAreRejectedWithoutStoppingTheStream() {
+        lenient().when(accountService.withdraw(anyString(), any(BigDecimal.class), any(), any(Clock.class)))
+                .thenReturn(Mono.error(new IllegalStateException("Insufficient funds")));
+
+        final BatchMovementService service = new BatchMovementService(accountService, 2);
+        final List<BatchMovementService.BatchOutcome> outcomes = service.apply(Flux.just(
+                        new BatchMovementRequest("a", "TRANSFER", BigDecimal.ONE, null),
+                        new BatchMovementRequest("a", "DEPOSIT", BigDecimal.ZERO, null),
+                        new BatchMovementRequest("b", "withdrawal", BigDecimal.TEN, null)),
+                Clock.systemDefaultZone()).collectList().block(Duration.ofSeconds(5));
+
+        assertThat(outcomes).extracting(BatchMovementService.BatchOutcome::error)
+                .containsExactlyInAnyOrder("type must be DEPOSIT or WITHDRAWAL",
+                        "amount must be positive", "Insufficient funds");
+    }
+}
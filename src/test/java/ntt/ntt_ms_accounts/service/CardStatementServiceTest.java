@@ -0,0 +1,175 @@
+package ntt.ntt_ms_accounts.service;
+
+import ntt.ntt_ms_accounts.models.CardHold;
+import ntt.ntt_ms_accounts.models.CardStatement;
+import ntt.ntt_ms_accounts.models.CreditCard;
+import ntt.ntt_ms_accounts.models.JobCheckpoint;
+import ntt.ntt_ms_accounts.models.JobCheckpointStatus;
+import ntt.ntt_ms_accounts.models.ProductLedgerDay;
+import ntt.ntt_ms_accounts.repository.CardStatementRepository;
+import ntt.ntt_ms_accounts.repository.CreditCardRepository;
+import ntt.ntt_ms_accounts.repository.JobCheckpointRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CardStatementServiceTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-10-15T23:30:00Z"), ZoneOffset.UTC);
+    private static final LocalDate CLOSING = LocalDate.of(2026, 10, 15);
+    private static final String RUN_ID = JobCheckpoint.idOf(CardStatementService.JOB, "2026-10-15");
+
+    @Mock
+    private CreditCardRepository cardRepo;
+    @Mock
+    private CardStatementRepository statementRepo;
+    @Mock
+    private JobCheckpointRepository checkpoints;
+    @Mock
+    private ProductLedgerService ledger;
+
+    private CardStatementService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new CardStatementService(cardRepo, statementRepo, checkpoints, ledger, CLOCK, false,
+                LocalTime.of(23, 0), Duration.ofMinutes(15), 2, 2, new BigDecimal("0.05"), new BigDecimal("25"));
+    }
+
+    private static CreditCard card(String id, String available) {
+        return CreditCard.builder().id(id).customerId("c1").creditLimit(new BigDecimal("1000"))
+                .available(new BigDecimal(available)).closingDay(15).dueDay(5).build();
+    }
+
+    private static JobCheckpoint checkpoint(JobCheckpointStatus status, String lastKey, long processed) {
+        return JobCheckpoint.builder().id(RUN_ID).job(CardStatementService.JOB).runKey("2026-10-15")
+                .status(status).lastKey(lastKey).processed(processed).build();
+    }
+
+    @Test
+    void resumesAfterCheckpointAndAdvancesPerPage() {
+        when(checkpoints.start(eq(CardStatementService.JOB), eq("2026-10-15"), anyString(), any()))
+                .thenReturn(Mono.just(checkpoint(JobCheckpointStatus.RUNNING, "cc2", 2)));
+        when(cardRepo.findClosingOn(List.of(15), "cc2"))
+                .thenReturn(Flux.just(card("cc3", "900"), card("cc4", "1000"), card("cc5", "400")));
+        when(ledger.daysForProducts(any(), any(), eq(CLOSING))).thenReturn(Flux.empty());
+        when(ledger.lastDaysForProducts(any(), eq(CLOSING))).thenReturn(Flux.empty());
+        when(statementRepo.upsertAll(any())).thenAnswer(inv -> Mono.just(inv.<List<?>>getArgument(0).size()));
+        when(checkpoints.advance(eq(RUN_ID), anyString(), anyString(), anyLong(), any())).thenReturn(Mono.empty());
+        when(checkpoints.complete(eq(RUN_ID), anyString())).thenReturn(Mono.empty());
+        when(checkpoints.findById(RUN_ID)).thenReturn(Mono.just(checkpoint(JobCheckpointStatus.COMPLETED, "cc5", 5)));
+
+        StepVerifier.create(service.runFor(CLOSING))
+                .assertNext(cp -> assertThat(cp.getProcessed()).isEqualTo(5))
+                .verifyComplete();
+
+        verify(checkpoints).advance(eq(RUN_ID), anyString(), eq("cc4"), eq(2L), any());
+        verify(checkpoints).advance(eq(RUN_ID), anyString(), eq("cc5"), eq(1L), any());
+        verify(statementRepo, times(2)).upsertAll(any());
+    }
+
+    @Test
+    void completedRunIsNotRepeated() {
+        when(checkpoints.start(eq(CardStatementService.JOB), eq("2026-10-15"), anyString(), any()))
+                .thenReturn(Mono.just(checkpoint(JobCheckpointStatus.COMPLETED, "cc9", 9)));
+
+        StepVerifier.create(service.runFor(CLOSING))
+                .assertNext(cp -> assertThat(cp.getStatus()).isEqualTo(JobCheckpointStatus.COMPLETED))
+                .verifyComplete();
+        verify(cardRepo, never()).findClosingOn(any(), any());
+    }
+
+    @Test
+    void runLeasedByAnotherInstanceIsSkipped() {
+        when(checkpoints.start(eq(CardStatementService.JOB), eq("2026-10-15"), anyString(), any()))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(service.runFor(CLOSING)).verifyComplete();
+        verify(cardRepo, never()).findClosingOn(any(), any());
+    }
+
+    @Test
+    void statementUsesCycleLedgerEntriesAndExcludesHolds() {
+        // estado actual: un pago de 350 posterior al cierre ya se aplicó
+        final CreditCard card = card("cc1", "950");
+        card.setHolds(List.of(CardHold.builder().id("h").amount(new BigDecimal("100")).build()));
+        final ProductLedgerDay closingDay = day("2026-10-10",
+                entry("AUTHORIZE", "100", "600", "100", 4L), entry("CAPTURE", "150", "700", "0", 3L));
+        final List<ProductLedgerDay> days = List.of(
+                day("2026-09-15", entry("CHARGE", "999")),      // ciclo anterior
+                day("2026-09-20", entry("CHARGE", "200"), entry("PAYMENT", "50")),
+                closingDay);
+
+        final CardStatement s = CardStatementService.build(card, CLOSING, days, closingDay, new BigDecimal("0.05"),
+                new BigDecimal("25"), Instant.now());
+
+        assertThat(s.getId()).isEqualTo("cc1:2026-10-15");
+        assertThat(s.getPeriodStart()).isEqualTo("2026-09-16");
+        assertThat(s.getDueDate()).isEqualTo("2026-11-05");
+        assertThat(s.getPurchases()).isEqualByComparingTo("350");
+        assertThat(s.getPayments()).isEqualByComparingTo("50");
+        // al corte: available 600 y 100 retenidos según la entrada de mayor secuencia
+        assertThat(s.getAvailable()).isEqualByComparingTo("600");
+        assertThat(s.getHeld()).isEqualByComparingTo("100");
+        assertThat(s.getStatementBalance()).isEqualByComparingTo("300");
+        assertThat(s.getMinimumPayment()).isEqualByComparingTo("25");
+
+        // sin libro a la fecha de corte: estado actual de la tarjeta
+        assertThat(CardStatementService.build(card, CLOSING, List.of(), null, new BigDecimal("0.05"),
+                new BigDecimal("25"), Instant.now()).getStatementBalance()).isEqualByComparingTo("0");
+    }
+
+    @Test
+    void monthEndAndMinimumPaymentRules() {
+        assertThat(CardStatementService.closingDaysFor(LocalDate.of(2026, 2, 28))).containsExactly(28, 29, 30, 31);
+        assertThat(CardStatementService.closingDaysFor(LocalDate.of(2026, 3, 28))).containsExactly(28);
+        assertThat(CardStatementService.periodStart(LocalDate.of(2026, 3, 31), 31)).isEqualTo("2026-03-01");
+        assertThat(CardStatementService.minimumPayment(new BigDecimal("2000"), new BigDecimal("0.05"),
+                new BigDecimal("25"))).isEqualByComparingTo("100.00");
+        assertThat(CardStatementService.minimumPayment(new BigDecimal("10"), new BigDecimal("0.05"),
+                new BigDecimal("25"))).isEqualByComparingTo("10");
+        assertThat(CardStatementService.minimumPayment(BigDecimal.ZERO, new BigDecimal("0.05"),
+                new BigDecimal("25"))).isEqualByComparingTo("0");
+    }
+
+    private static ProductLedgerDay day(String day, ProductLedgerDay.Entry... entries) {
+        return ProductLedgerDay.builder().productType(ProductLedgerDay.CARD).productId("cc1").day(day)
+                .entries(List.of(entries)).build();
+    }
+
+    private static ProductLedgerDay.Entry entry(String type, String amount) {
+        return ProductLedgerDay.Entry.builder().type(type).amount(new BigDecimal(amount)).build();
+    }
+
+    private static ProductLedgerDay.Entry entry(String type, String amount, String available, String held, long seq) {
+        return ProductLedgerDay.Entry.builder().type(type).amount(new BigDecimal(amount))
+                .balanceAfter(new BigDecimal(available)).heldAfter(new BigDecimal(held)).seq(seq)
+                .at(Instant.parse("2026-10-10T12:00:00Z")).build();
+    }
+}
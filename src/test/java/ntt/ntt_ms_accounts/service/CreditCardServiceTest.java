@@ -0,0 +1,218 @@
+package ntt.ntt_ms_accounts.service;
+
+import ntt.ntt_ms_accounts.models.CardHold;
+import ntt.ntt_ms_accounts.models.CardStatus;
+import ntt.ntt_ms_accounts.models.CreditCard;
+import ntt.ntt_ms_accounts.repository.CreditCardRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CreditCardServiceTest {
+
+    @Mock
+    private CreditCardRepository cardRepo;
+    @Mock
+    private CustomerHoldingsService holdings;
+    @Mock
+    private ReportCache reportCache;
+    @Mock
+    private ProductLedgerService ledger;
+
+    private CreditCardService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new CreditCardService(cardRepo, holdings, reportCache, ledger, Duration.ofDays(7));
+        lenient().when(ledger.record(anyString(), anyString(), any(), anyString(), any(), any(), any(), any(), any(),
+                        any(), any()))
+                .thenReturn(Mono.empty());
+    }
+
+    private static CreditCard card(String available, CardHold... holds) {
+        return CreditCard.builder()
+                .id("cc1")
+                .customerId("c1")
+                .status(CardStatus.ACTIVE)
+                .creditLimit(new BigDecimal("1000"))
+                .available(new BigDecimal(available))
+                .holds(new ArrayList<>(List.of(holds)))
+                .build();
+    }
+
+    private static CardHold hold(String id, String amount) {
+        return CardHold.builder().id(id).amount(new BigDecimal(amount)).reference("shop")
+                .createdAt(Instant.now()).expiresAt(Instant.now().plusSeconds(60)).build();
+    }
+
+    @Test
+    void chargeRejectedWhenConditionalDebitDoesNotApply() {
+        when(cardRepo.debit("cc1", new BigDecimal("500"))).thenReturn(Mono.empty());
+        when(cardRepo.findById("cc1")).thenReturn(Mono.just(card("100")));
+
+        StepVerifier.create(service.charge("cc1", new BigDecimal("500"), "shop"))
+                .expectErrorMatches(e -> e instanceof IllegalStateException
+                        && e.getMessage().contains("Insufficient"))
+                .verify();
+        verify(reportCache, never()).invalidateCustomer(anyString());
+    }
+
+    @Test
+    void chargeOnUnknownCardIsNotFound() {
+        when(cardRepo.debit("nope", BigDecimal.TEN)).thenReturn(Mono.empty());
+        when(cardRepo.findById("nope")).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.charge("nope", BigDecimal.TEN, null))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+    }
+
+    @Test
+    void concurrentChargesNeverOverdraw() {
+        // simula el $inc condicional del servidor: compara y decrementa de forma atómica
+        final AtomicReference<BigDecimal> available = new AtomicReference<>(new BigDecimal("100"));
+        when(cardRepo.debit(eq("cc1"), any())).thenAnswer(inv -> Mono.defer(() -> {
+            final BigDecimal amount = inv.getArgument(1);
+            while (true) {
+                final BigDecimal current = available.get();
+                if (current.compareTo(amount) < 0) {
+                    return Mono.<CreditCard>empty();
+                }
+                final BigDecimal after = current.subtract(amount);
+                if (available.compareAndSet(current, after)) {
+                    return Mono.just(card(after.toPlainString()));
+                }
+            }
+        }));
+        when(cardRepo.findById("cc1")).thenAnswer(inv -> Mono.just(card(available.get().toPlainString())));
+
+        final Integer accepted = Flux.range(0, 20)
+                .parallel(8)
+                .runOn(Schedulers.parallel())
+                .flatMap(i -> service.charge("cc1", new BigDecimal("30"), "r" + i)
+                        .map(c -> 1)
+                        .onErrorResume(IllegalStateException.class, e -> Mono.just(0)))
+                .sequential()
+                .reduce(0, Integer::sum)
+                .block();
+
+        assertThat(accepted).isEqualTo(3);
+        assertThat(available.get()).isEqualByComparingTo("10");
+    }
+
+    @Test
+    void authorizePushesHoldWithExpiry() {
+        when(cardRepo.authorize(eq("cc1"), any())).thenReturn(Mono.just(card("900", hold("h", "100"))));
+
+        StepVerifier.create(service.authorize("cc1", new BigDecimal("100"), "hotel"))
+                .assertNext(h -> {
+                    assertThat(h.getId()).isNotBlank();
+                    assertThat(h.getAmount()).isEqualByComparingTo("100");
+                    assertThat(h.getExpiresAt()).isAfter(h.getCreatedAt().plus(Duration.ofDays(6)));
+                })
+                .verifyComplete();
+        verify(reportCache).invalidateCustomer("c1");
+    }
+
+    @Test
+    void authorizeDoesNotWaitForTheLedgerAppend() {
+        when(cardRepo.authorize(eq("cc1"), any())).thenReturn(Mono.just(card("900", hold("h", "100"))));
+        when(ledger.record(anyString(), anyString(), any(), eq("AUTHORIZE"), any(), any(), any(), any(), any(),
+                any(), any())).thenReturn(Mono.never());
+
+        StepVerifier.create(service.authorize("cc1", new BigDecimal("100"), "hotel"))
+                .expectNextCount(1)
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+        verify(ledger).record(anyString(), eq("cc1"), eq("c1"), eq("AUTHORIZE"), any(), any(), any(), any(), any(),
+                eq("hotel"), any());
+    }
+
+    @Test
+    void authorizeOnInactiveCardIsRejected() {
+        when(cardRepo.authorize(eq("cc1"), any())).thenReturn(Mono.empty());
+        final CreditCard blocked = card("1000");
+        blocked.setStatus(CardStatus.BLOCKED);
+        when(cardRepo.findById("cc1")).thenReturn(Mono.just(blocked));
+
+        StepVerifier.create(service.authorize("cc1", BigDecimal.TEN, null))
+                .expectErrorMessage("card is not active")
+                .verify();
+    }
+
+    @Test
+    void partialCaptureReturnsRemainderToAvailable() {
+        final CreditCard before = card("900", hold("h1", "100"));
+        when(cardRepo.findById("cc1")).thenReturn(Mono.just(before));
+        when(cardRepo.settleHold("cc1", "h1", new BigDecimal("60"))).thenReturn(Mono.just(before));
+
+        StepVerifier.create(service.capture("cc1", "h1", new BigDecimal("60")))
+                .assertNext(c -> {
+                    assertThat(c.getAvailable()).isEqualByComparingTo("940");
+                    assertThat(c.getHolds()).isEmpty();
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void captureAboveAuthorizedAmountIsRejected() {
+        when(cardRepo.findById("cc1")).thenReturn(Mono.just(card("900", hold("h1", "100"))));
+
+        StepVerifier.create(service.capture("cc1", "h1", new BigDecimal("150")))
+                .expectError(IllegalStateException.class)
+                .verify();
+        verify(cardRepo, never()).settleHold(anyString(), anyString(), any());
+    }
+
+    @Test
+    void paymentIsCappedByLimitMinusHolds() {
+        when(cardRepo.credit("cc1", new BigDecimal("500"))).thenReturn(Mono.just(card("700", hold("h1", "100"))));
+
+        StepVerifier.create(service.payment("cc1", new BigDecimal("500")))
+                .assertNext(c -> assertThat(c.getAvailable()).isEqualByComparingTo("900"))
+                .verifyComplete();
+    }
+
+    @Test
+    void sweeperReleasesOnlyExpiredHolds() {
+        final Instant now = Instant.now();
+        final CardHold expired = CardHold.builder().id("old").amount(new BigDecimal("50"))
+                .createdAt(now.minusSeconds(3600)).expiresAt(now.minusSeconds(1)).build();
+        when(cardRepo.findIdsWithExpiredHolds(now, 500)).thenReturn(Flux.just("cc1"));
+        when(cardRepo.releaseExpiredHolds("cc1", now)).thenReturn(Mono.just(card("850", expired, hold("h2", "100"))));
+
+        final CardHoldSweeper sweeper = new CardHoldSweeper(cardRepo, service, false, Duration.ofMinutes(1), 500, 4);
+        StepVerifier.create(sweeper.sweep(now))
+                .expectNext(1L)
+                .verifyComplete();
+
+        final ArgumentCaptor<BigDecimal> balance = ArgumentCaptor.forClass(BigDecimal.class);
+        verify(ledger).record(anyString(), eq("cc1"), eq("c1"), eq("RELEASE"), any(), any(), balance.capture(),
+                any(), any(), eq("expired"), any());
+        assertThat(balance.getValue()).isEqualByComparingTo("900");
+    }
+}
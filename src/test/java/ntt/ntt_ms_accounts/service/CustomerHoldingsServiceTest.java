@@ -0,0 +1,129 @@
+package ntt.ntt_ms_accounts.service;
+
+import ntt.ntt_ms_accounts.models.Account;
+import ntt.ntt_ms_accounts.models.AccountStatus;
+import ntt.ntt_ms_accounts.models.AccountType;
+import ntt.ntt_ms_accounts.models.CardStatus;
+import ntt.ntt_ms_accounts.models.CreditCard;
+import ntt.ntt_ms_accounts.models.CustomerHoldings;
+import ntt.ntt_ms_accounts.models.Loan;
+import ntt.ntt_ms_accounts.models.LoanStatus;
+import ntt.ntt_ms_accounts.models.LoanType;
+import ntt.ntt_ms_accounts.repository.AccountRepository;
+import ntt.ntt_ms_accounts.repository.CreditCardRepository;
+import ntt.ntt_ms_accounts.repository.CustomerHoldingsRepository;
+import ntt.ntt_ms_accounts.repository.LoanRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerHoldingsServiceTest {
+
+    private static final String CUSTOMER_ID = "cus-1";
+
+    @Mock
+    private CustomerHoldingsRepository holdingsRepo;
+    @Mock
+    private AccountRepository accountRepo;
+    @Mock
+    private LoanRepository loanRepo;
+    @Mock
+    private CreditCardRepository cardRepo;
+    @Mock
+    private ReactiveMongoTemplate template;
+
+    private CustomerHoldingsService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new CustomerHoldingsService(holdingsRepo, accountRepo, loanRepo, cardRepo, template);
+    }
+
+    @Test
+    void missingProjectionIsRebuiltFromOpenProducts() {
+        when(holdingsRepo.findById(CUSTOMER_ID)).thenReturn(Mono.empty());
+        when(accountRepo.findByCustomerId(CUSTOMER_ID)).thenReturn(Flux.just(
+                account(AccountType.SAVINGS, AccountStatus.ACTIVE),
+                account(AccountType.FIXED_TERM, AccountStatus.ACTIVE),
+                account(AccountType.FIXED_TERM, AccountStatus.BLOCKED),
+                account(AccountType.CURRENT, AccountStatus.CLOSED)));
+        when(loanRepo.findByCustomerId(CUSTOMER_ID)).thenReturn(Flux.just(
+                loan(LoanStatus.ACTIVE), loan(LoanStatus.CLOSED)));
+        when(cardRepo.findByCustomerId(CUSTOMER_ID)).thenReturn(Flux.just(
+                card(CardStatus.ACTIVE), card(CardStatus.CANCELED)));
+        when(holdingsRepo.replaceIfUnchanged(any(CustomerHoldings.class), isNull())).thenReturn(Mono.just(true));
+
+        StepVerifier.create(service.get(CUSTOMER_ID))
+                .assertNext(h -> {
+                    assertThat(h.getCustomerId()).isEqualTo(CUSTOMER_ID);
+                    assertThat(h.accounts(AccountType.SAVINGS)).isEqualTo(1);
+                    assertThat(h.accounts(AccountType.FIXED_TERM)).isEqualTo(2);
+                    assertThat(h.accounts(AccountType.CURRENT)).isZero();
+                    assertThat(h.loans(LoanType.PERSONAL)).isEqualTo(1);
+                    assertThat(h.getActiveCards()).isEqualTo(1);
+                    assertThat(h.getRebuiltAt()).isNotNull();
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void rebuildRecountsWhenAnIncrementLandsMidway() {
+        final CustomerHoldings before = CustomerHoldings.builder().customerId(CUSTOMER_ID).revision(4L).build();
+        final CustomerHoldings bumped = CustomerHoldings.builder().customerId(CUSTOMER_ID).revision(5L).build();
+        when(holdingsRepo.findById(CUSTOMER_ID)).thenReturn(Mono.just(before), Mono.just(bumped));
+        when(accountRepo.findByCustomerId(CUSTOMER_ID)).thenReturn(
+                Flux.just(account(AccountType.SAVINGS, AccountStatus.ACTIVE)),
+                Flux.just(account(AccountType.SAVINGS, AccountStatus.ACTIVE),
+                        account(AccountType.CURRENT, AccountStatus.ACTIVE)));
+        when(loanRepo.findByCustomerId(CUSTOMER_ID)).thenReturn(Flux.empty());
+        when(cardRepo.findByCustomerId(CUSTOMER_ID)).thenReturn(Flux.empty());
+        // el primer reemplazo pierde contra el $inc de la cuenta corriente
+        when(holdingsRepo.replaceIfUnchanged(any(CustomerHoldings.class), eq(before))).thenReturn(Mono.just(false));
+        when(holdingsRepo.replaceIfUnchanged(any(CustomerHoldings.class), eq(bumped))).thenReturn(Mono.just(true));
+
+        StepVerifier.create(service.rebuild(CUSTOMER_ID))
+                .assertNext(h -> assertThat(h.accounts(AccountType.CURRENT)).isEqualTo(1))
+                .verifyComplete();
+        verify(holdingsRepo, never()).save(any(CustomerHoldings.class));
+    }
+
+    @Test
+    void failedIncrementDropsProjectionSoItIsRebuiltOnNextRead() {
+        when(holdingsRepo.increment(CUSTOMER_ID, "accountsByType.SAVINGS", 1))
+                .thenReturn(Mono.error(new IllegalStateException("boom")));
+        when(holdingsRepo.deleteById(CUSTOMER_ID)).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.accountOpened(account(AccountType.SAVINGS, AccountStatus.ACTIVE)))
+                .verifyComplete();
+
+        verify(holdingsRepo).deleteById(CUSTOMER_ID);
+        verify(holdingsRepo, never()).save(any(CustomerHoldings.class));
+    }
+
+    private static Account account(AccountType type, AccountStatus status) {
+        return Account.builder().customerId(CUSTOMER_ID).type(type).status(status).build();
+    }
+
+    private static Loan loan(LoanStatus status) {
+        return Loan.builder().customerId(CUSTOMER_ID).type(LoanType.PERSONAL).status(status).build();
+    }
+
+    private static CreditCard card(CardStatus status) {
+        return CreditCard.builder().customerId(CUSTOMER_ID).status(status).build();
+    }
+}
@@ -0,0 +1,60 @@
+package ntt.ntt_ms_accounts.service;
+
+import ntt.ntt_ms_accounts.models.AccountDailyBalance;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark de asignación del promedio diario: bytes por cálculo (31 días, 11 snapshots) con y
+ * sin DailyBalanceEngine. Depende del JIT y del GC, por eso no forma parte de la suite (surefire
+ * solo toma *Test); se corre a mano con {@code mvn test -Dtest=DailyBalanceEngineBenchmark}.
+ */
+class DailyBalanceEngineBenchmark {
+
+    private static final LocalDate FIRST = LocalDate.of(2025, 8, 1);
+    private static final LocalDate LAST = LocalDate.of(2025, 8, 31);
+    private static final int ROUNDS = 20_000;
+
+    @Test
+    void allocatesLessThanDecimalComputation() {
+        final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final Random random = new Random(7);
+        final BigDecimal end = new BigDecimal("15234.75");
+        final List<AccountDailyBalance> snaps = new ArrayList<>();
+        for (int d = 0; d < 31; d += 3) {
+            snaps.add(DailyBalanceEngineTest.snap(FIRST.plusDays(d),
+                    DailyBalanceEngineTest.amount(random).abs().toString(),
+                    DailyBalanceEngineTest.amount(random).abs().toString(), null));
+        }
+        // calentamiento para que el JIT estabilice ambas rutas
+        for (int i = 0; i < ROUNDS; i++) {
+            DailyBalanceEngine.decimal(end, FIRST, LAST, snaps);
+            DailyBalanceEngine.dailyAverage(end, FIRST, LAST, snaps);
+        }
+
+        final long id = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < ROUNDS; i++) {
+            DailyBalanceEngine.decimal(end, FIRST, LAST, snaps);
+        }
+        final long decimalBytes = (threads.getThreadAllocatedBytes(id) - before) / ROUNDS;
+
+        before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < ROUNDS; i++) {
+            DailyBalanceEngine.dailyAverage(end, FIRST, LAST, snaps);
+        }
+        final long engineBytes = (threads.getThreadAllocatedBytes(id) - before) / ROUNDS;
+
+        System.out.printf("daily average allocation: decimal=%d B/op, engine=%d B/op%n", decimalBytes, engineBytes);
+        assertThat(engineBytes).isLessThan(decimalBytes / 2);
+    }
+}
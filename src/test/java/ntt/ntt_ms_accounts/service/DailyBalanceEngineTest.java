@@ -0,0 +1,78 @@
+package ntt.ntt_ms_accounts.service;
+
+import ntt.ntt_ms_accounts.models.AccountDailyBalance;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DailyBalanceEngineTest {
+
+    private static final LocalDate FIRST = LocalDate.of(2025, 8, 1);
+    private static final LocalDate LAST = LocalDate.of(2025, 8, 31);
+
+    @Test
+    void matchesDecimalComputationIncludingScale() {
+        final Random random = new Random(42);
+        for (int i = 0; i < 5_000; i++) {
+            final BigDecimal end = amount(random);
+            final List<AccountDailyBalance> snaps = month(random);
+            final LocalDate to = FIRST.plusDays(random.nextInt(31));
+
+            final BigDecimal expected = DailyBalanceEngine.decimal(end, FIRST, to, snaps);
+            final BigDecimal actual = DailyBalanceEngine.dailyAverage(end, FIRST, to, snaps);
+
+            // equals compara valor y escala: la salida es idéntica a la de BigDecimal
+            assertThat(actual).as("case %d", i).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void fallsBackToDecimalWhenUnitsOverflowLong() {
+        final BigDecimal huge = new BigDecimal("92233720368547758.07");
+        final List<AccountDailyBalance> snaps = List.of(snap(FIRST, "1.5", "0", huge));
+
+        assertThat(DailyBalanceEngine.dailyAverage(huge, FIRST, LAST, snaps))
+                .isEqualTo(DailyBalanceEngine.decimal(huge, FIRST, LAST, snaps));
+    }
+
+    @Test
+    void emptyMonthAveragesCurrentBalance() {
+        assertThat(DailyBalanceEngine.dailyAverage(new BigDecimal("10.50"), FIRST, LAST, List.of()))
+                .isEqualByComparingTo("10.50");
+        assertThat(DailyBalanceEngine.dailyAverage(null, FIRST, LAST, List.of())).isEqualByComparingTo("0");
+    }
+
+    private static List<AccountDailyBalance> month(Random random) {
+        final List<AccountDailyBalance> snaps = new ArrayList<>();
+        for (int d = 0; d < 31; d++) {
+            if (random.nextInt(3) != 0) {
+                continue;
+            }
+            final BigDecimal closing = random.nextBoolean() ? amount(random) : null;
+            snaps.add(snap(FIRST.plusDays(d), amount(random).abs().toString(),
+                    random.nextBoolean() ? null : amount(random).abs().toString(), closing));
+        }
+        return snaps;
+    }
+
+    // montos con escalas variadas (0..4) para ejercitar la escala del resultado
+    static BigDecimal amount(Random random) {
+        return BigDecimal.valueOf(random.nextLong(-10_000_000L, 10_000_000L), random.nextInt(5));
+    }
+
+    static AccountDailyBalance snap(LocalDate day, String deposits, String withdrawals, BigDecimal closing) {
+        return AccountDailyBalance.builder()
+                .accountId("a1")
+                .day(day.toString())
+                .deposits(deposits == null ? null : new BigDecimal(deposits))
+                .withdrawals(withdrawals == null ? null : new BigDecimal(withdrawals))
+                .closingBalance(closing)
+                .build();
+    }
+}
@@ -0,0 +1,134 @@
+package ntt.ntt_ms_accounts.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ntt.ntt_ms_accounts.models.Account;
+import ntt.ntt_ms_accounts.models.AccountDailyBalance;
+import ntt.ntt_ms_accounts.models.AccountMovement;
+import ntt.ntt_ms_accounts.models.MovementType;
+import ntt.ntt_ms_accounts.repository.AccountDailyBalanceRepository;
+import ntt.ntt_ms_accounts.repository.AccountMovementRepository;
+import ntt.ntt_ms_accounts.repository.AccountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DailyBalanceServiceTest {
+
+    private static final String ACCOUNT_ID = "acc-1";
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-08-20T12:00:00Z"), ZoneOffset.UTC);
+
+    @Mock
+    private AccountDailyBalanceRepository snapshotRepo;
+    @Mock
+    private AccountRepository accountRepo;
+    @Mock
+    private AccountMovementRepository movementRepo;
+
+    private DailyBalanceService service;
+
+    @BeforeEach
+    void setUp() {
+        service = service(13);
+    }
+
+    private DailyBalanceService service(int retainMonths) {
+        return new DailyBalanceService(snapshotRepo, accountRepo,
+                new ReportCache(new SimpleMeterRegistry(), true, 100, Duration.ofMinutes(5)),
+                new MovementArchiveService(movementRepo, CLOCK, false, retainMonths, 100, Duration.ZERO, 10,
+                        Duration.ofHours(1)));
+    }
+
+    @Test
+    void backfillWalksBackFromCurrentBalance() {
+        // julio: +100 el 5, -30 el 20; agosto: +50 el 10 → saldo actual 120
+        final Account acc = Account.builder().id(ACCOUNT_ID).balance(new BigDecimal("120")).movementSeq(3L).build();
+        when(accountRepo.findById(ACCOUNT_ID)).thenReturn(Mono.just(acc));
+        when(movementRepo.findByAccountIdAndDateBetweenOrderByDateDesc(eq(ACCOUNT_ID), any(Instant.class),
+                any(Instant.class))).thenReturn(Flux.just(
+                        movement(MovementType.DEPOSIT, "50", "2025-08-10T10:00:00Z"),
+                        movement(MovementType.WITHDRAWAL, "30", "2025-07-20T10:00:00Z"),
+                        movement(MovementType.DEPOSIT, "100", "2025-07-05T10:00:00Z")));
+        final List<AccountDailyBalance> written = new ArrayList<>();
+        when(snapshotRepo.replace(any(AccountDailyBalance.class))).thenAnswer(inv -> {
+            written.add(inv.getArgument(0));
+            return Mono.empty();
+        });
+
+        StepVerifier.create(service.backfill(ACCOUNT_ID, YearMonth.of(2025, 7), CLOCK))
+                .expectNext(2L)
+                .verifyComplete();
+
+        assertThat(written).extracting(AccountDailyBalance::getId)
+                .containsExactly("acc-1:2025-07-20", "acc-1:2025-07-05");
+        assertThat(written.get(0).getClosingBalance()).isEqualByComparingTo("70");
+        assertThat(written.get(0).getWithdrawals()).isEqualByComparingTo("30");
+        assertThat(written.get(1).getClosingBalance()).isEqualByComparingTo("100");
+        assertThat(written.get(1).getDeposits()).isEqualByComparingTo("100");
+        assertThat(written.get(1).getClosingSeq()).isEqualTo(3L);
+    }
+
+    @Test
+    void backfillOfArchivedMonthMergesArchive() {
+        // retención de un mes: julio antes del 20 ya está en el archivo
+        service = service(1);
+        final Account acc = Account.builder().id(ACCOUNT_ID).balance(new BigDecimal("120")).movementSeq(3L).build();
+        when(accountRepo.findById(ACCOUNT_ID)).thenReturn(Mono.just(acc));
+        when(movementRepo.findByAccountIdAndDateBetweenOrderByDateDesc(eq(ACCOUNT_ID), any(Instant.class),
+                any(Instant.class))).thenReturn(Flux.just(
+                        movement(MovementType.DEPOSIT, "50", "2025-08-10T10:00:00Z")));
+        when(movementRepo.findArchived(eq(ACCOUNT_ID), any(Instant.class), any(Instant.class))).thenReturn(Flux.just(
+                movement(MovementType.WITHDRAWAL, "30", "2025-07-20T10:00:00Z"),
+                movement(MovementType.DEPOSIT, "100", "2025-07-05T10:00:00Z")));
+        final List<AccountDailyBalance> written = new ArrayList<>();
+        when(snapshotRepo.replace(any(AccountDailyBalance.class))).thenAnswer(inv -> {
+            written.add(inv.getArgument(0));
+            return Mono.empty();
+        });
+
+        StepVerifier.create(service.backfill(ACCOUNT_ID, YearMonth.of(2025, 7), CLOCK))
+                .expectNext(2L)
+                .verifyComplete();
+
+        assertThat(written).extracting(AccountDailyBalance::getClosingBalance)
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("70"), new BigDecimal("100"));
+    }
+
+    @Test
+    void backfillRejectsFutureMonth() {
+        StepVerifier.create(service.backfill(ACCOUNT_ID, YearMonth.of(2025, 9), CLOCK))
+                .expectErrorMessage("month must not be in the future")
+                .verify();
+    }
+
+    @Test
+    void dayKeyIsIsoDate() {
+        assertThat(DailyBalanceService.dayKey(LocalDate.of(2025, 8, 1))).isEqualTo("2025-08-01");
+    }
+
+    private static AccountMovement movement(MovementType type, String amount, String at) {
+        return AccountMovement.builder().id(at).accountId(ACCOUNT_ID).type(type)
+                .amount(new BigDecimal(amount)).date(Instant.parse(at)).build();
+    }
+}
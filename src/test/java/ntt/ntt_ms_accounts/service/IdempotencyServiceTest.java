@@ -0,0 +1,155 @@
+package ntt.ntt_ms_accounts.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ntt.ntt_ms_accounts.dto.MovementResponse;
+import ntt.ntt_ms_accounts.models.IdempotencyRecord;
+import ntt.ntt_ms_accounts.models.IdempotencyStatus;
+import ntt.ntt_ms_accounts.repository.IdempotencyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    private static final String ID = "account-deposit:k1";
+    private static final String FINGERPRINT = IdempotencyService.fingerprint("acc-1", new BigDecimal("10.00"), "ref");
+    private static final MovementResponse RESPONSE =
+            new MovementResponse("m1", "acc-1", Instant.parse("2026-10-01T10:00:00Z"), "DEPOSIT", "10.00", "ref");
+
+    @Mock
+    private IdempotencyRepository repo;
+
+    private IdempotencyService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new IdempotencyService(repo, new SimpleMeterRegistry(), Duration.ofHours(24),
+                Duration.ofMinutes(10), Duration.ofSeconds(2), Duration.ofMillis(10), 100, Duration.ofMinutes(10));
+        lenient().when(repo.save(any(IdempotencyRecord.class))).thenAnswer(inv -> Mono.just(inv.getArgument(0)));
+    }
+
+    @Test
+    void withoutKeyTheOperationRunsDirectly() {
+        StepVerifier.create(service.execute(null, "account-deposit", FINGERPRINT, MovementResponse.class,
+                        () -> Mono.just(RESPONSE)))
+                .expectNext(RESPONSE)
+                .verifyComplete();
+
+        verify(repo, never()).findById(any(String.class));
+    }
+
+    @Test
+    void concurrentDuplicatesShareOneExecution() {
+        final AtomicInteger runs = new AtomicInteger();
+        when(repo.findById(ID)).thenReturn(Mono.empty(), Mono.just(pending()));
+        when(repo.insert(any(IdempotencyRecord.class))).thenAnswer(inv -> Mono.just(inv.getArgument(0)));
+        final Mono<MovementResponse> call = service.execute("k1", "account-deposit", FINGERPRINT,
+                MovementResponse.class, () -> Mono.fromCallable(() -> {
+                    runs.incrementAndGet();
+                    return RESPONSE;
+                }).delayElement(Duration.ofMillis(100)));
+
+        StepVerifier.create(Mono.zip(call, call))
+                .assertNext(t -> {
+                    assertThat(t.getT1()).isEqualTo(RESPONSE);
+                    assertThat(t.getT2()).isEqualTo(RESPONSE);
+                })
+                .verifyComplete();
+
+        assertThat(runs).hasValue(1);
+        verify(repo, times(1)).insert(any(IdempotencyRecord.class));
+        // un reintento posterior lo resuelve la caché local
+        StepVerifier.create(call).expectNext(RESPONSE).verifyComplete();
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void retryOnAnotherInstanceReturnsStoredResponse() {
+        when(repo.findById(ID)).thenReturn(Mono.just(pending().toBuilder()
+                .status(IdempotencyStatus.COMPLETED).response(RESPONSE).build()));
+
+        StepVerifier.create(service.execute("k1", "account-deposit", FINGERPRINT, MovementResponse.class,
+                        () -> Mono.error(new AssertionError("must not run again"))))
+                .expectNext(RESPONSE)
+                .verifyComplete();
+
+        verify(repo, never()).insert(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    void duplicateInProgressOnAnotherInstanceIsAwaited() {
+        when(repo.findById(ID)).thenReturn(Mono.just(pending()), Mono.just(pending()),
+                Mono.just(pending().toBuilder().status(IdempotencyStatus.COMPLETED).response(RESPONSE).build()));
+
+        StepVerifier.create(service.execute("k1", "account-deposit", FINGERPRINT, MovementResponse.class,
+                        () -> Mono.error(new AssertionError("must not run again"))))
+                .expectNext(RESPONSE)
+                .verifyComplete();
+    }
+
+    @Test
+    void businessRejectionIsStoredAndReplayed() {
+        when(repo.findById(ID)).thenReturn(Mono.empty(), Mono.just(pending()));
+        when(repo.insert(any(IdempotencyRecord.class))).thenAnswer(inv -> Mono.just(inv.getArgument(0)));
+        final AtomicInteger runs = new AtomicInteger();
+        final Mono<MovementResponse> call = service.execute("k1", "account-deposit", FINGERPRINT,
+                MovementResponse.class, () -> Mono.defer(() -> {
+                    runs.incrementAndGet();
+                    return Mono.error(new IllegalStateException("Insufficient funds"));
+                }));
+
+        StepVerifier.create(call).expectErrorMessage("Insufficient funds").verify();
+        StepVerifier.create(call).expectErrorMessage("Insufficient funds").verify();
+
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void technicalFailureReleasesTheKey() {
+        when(repo.findById(ID)).thenReturn(Mono.empty());
+        when(repo.insert(any(IdempotencyRecord.class))).thenAnswer(inv -> Mono.just(inv.getArgument(0)));
+        when(repo.deleteById(ID)).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.execute("k1", "account-deposit", FINGERPRINT, MovementResponse.class,
+                        () -> Mono.error(new RuntimeException("mongo timeout"))))
+                .expectErrorMessage("mongo timeout")
+                .verify();
+
+        verify(repo).deleteById(ID);
+    }
+
+    @Test
+    void keyReusedForADifferentRequestIsRejected() {
+        when(repo.findById(ID)).thenReturn(Mono.just(pending().toBuilder()
+                .status(IdempotencyStatus.COMPLETED).response(RESPONSE).build()));
+
+        StepVerifier.create(service.execute("k1", "account-deposit",
+                        IdempotencyService.fingerprint("acc-1", new BigDecimal("99"), "ref"),
+                        MovementResponse.class, () -> Mono.just(RESPONSE)))
+                .expectErrorMessage("Idempotency-Key was already used for a different request")
+                .verify();
+    }
+
+    private static IdempotencyRecord pending() {
+        return IdempotencyRecord.builder().id(ID).operation("account-deposit").fingerprint(FINGERPRINT)
+                .status(IdempotencyStatus.IN_PROGRESS).build();
+    }
+}
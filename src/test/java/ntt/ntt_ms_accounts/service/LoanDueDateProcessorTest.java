@@ -0,0 +1,78 @@
+package ntt.ntt_ms_accounts.service;
+
+import ntt.ntt_ms_accounts.models.Loan;
+import ntt.ntt_ms_accounts.models.LoanStatus;
+import ntt.ntt_ms_accounts.repository.LoanRepository;
+import ntt.ntt_ms_accounts.repository.LoanRepositoryCustom;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LoanDueDateProcessorTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-10-15T02:00:00Z"), ZoneOffset.UTC);
+
+    @Mock
+    private LoanRepository loanRepo;
+
+    private static Loan overdue(String id) {
+        return Loan.builder()
+                .id(id)
+                .status(LoanStatus.ACTIVE)
+                .principal(new BigDecimal("1200"))
+                .remaining(new BigDecimal("1200"))
+                .interestRateAnnual(BigDecimal.ZERO)
+                .termMonths(12)
+                .installmentAmount(new BigDecimal("100"))
+                .interestDue(BigDecimal.ZERO)
+                .periodPaid(BigDecimal.ZERO)
+                .pastDue(BigDecimal.ZERO)
+                .disbursementDate(Instant.parse("2026-08-10T00:00:00Z"))
+                .nextDueDate(Instant.parse("2026-09-10T00:00:00Z"))
+                .build();
+    }
+
+    @Test
+    void marksDueLoansInArrearsWithBulkUpdates() {
+        when(loanRepo.findDueBefore(Instant.parse("2026-10-15T00:00:00Z")))
+                .thenReturn(Flux.just(overdue("l1"), overdue("l2"), overdue("l3")));
+        when(loanRepo.updateAllIfUnchanged(any()))
+                .thenAnswer(inv -> Mono.just((long) inv.<List<?>>getArgument(0).size()));
+
+        final LoanDueDateProcessor processor = new LoanDueDateProcessor(loanRepo, CLOCK, false,
+                Duration.ofHours(1), 2, 2);
+
+        StepVerifier.create(processor.processDue(LocalDate.now(CLOCK)))
+                .expectNext(3L)
+                .verifyComplete();
+
+        @SuppressWarnings("unchecked")
+        final ArgumentCaptor<List<LoanRepositoryCustom.Change>> batches = ArgumentCaptor.forClass(List.class);
+        verify(loanRepo, times(2)).updateAllIfUnchanged(batches.capture());
+        final Loan after = batches.getAllValues().get(0).get(0).after();
+        assertThat(after.getStatus()).isEqualTo(LoanStatus.IN_ARREARS);
+        // septiembre y octubre (10/10) vencidos
+        assertThat(after.getPastDue()).isEqualByComparingTo("200");
+        assertThat(after.getNextDueDate()).isEqualTo(Instant.parse("2026-11-10T00:00:00Z"));
+    }
+}
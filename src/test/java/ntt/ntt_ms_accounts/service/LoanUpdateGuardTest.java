@@ -0,0 +1,110 @@
+package ntt.ntt_ms_accounts.service;
+
+import com.mongodb.client.result.UpdateResult;
+import ntt.ntt_ms_accounts.models.Loan;
+import ntt.ntt_ms_accounts.models.LoanStatus;
+import ntt.ntt_ms_accounts.repository.LoanRepositoryCustom;
+import ntt.ntt_ms_accounts.repository.LoanRepositoryCustomImpl;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * Guard de LoanRepositoryCustomImpl.updateIfUnchanged aplicado sobre un documento en memoria:
+ * dos pagos calculados desde la misma lectura no pueden aplicar ambos.
+ */
+@ExtendWith(MockitoExtension.class)
+class LoanUpdateGuardTest {
+
+    @Mock
+    private ReactiveMongoTemplate template;
+
+    private final Document stored = new Document("_id", "l1");
+    private LoanRepositoryCustomImpl repo;
+
+    @BeforeEach
+    void setUp() {
+        repo = new LoanRepositoryCustomImpl(template);
+        when(template.updateFirst(any(Query.class), any(Update.class), eq(Loan.class)))
+                .thenAnswer(inv -> Mono.just(apply(inv.getArgument(0), inv.getArgument(1))));
+    }
+
+    private static Loan read(Long ledgerSeq) {
+        return Loan.builder()
+                .id("l1")
+                .status(LoanStatus.ACTIVE)
+                .remaining(new BigDecimal("1000"))
+                .interestRateAnnual(new BigDecimal("0.12"))
+                .installmentAmount(new BigDecimal("100"))
+                .interestDue(new BigDecimal("50"))
+                .periodPaid(BigDecimal.ZERO)
+                .pastDue(BigDecimal.ZERO)
+                .nextDueDate(Instant.parse("2026-11-10T00:00:00Z"))
+                .ledgerSeq(ledgerSeq)
+                .build();
+    }
+
+    @Test
+    void secondInterestOnlyPaymentFromSameReadIsRejected() {
+        stored.put("ledgerSeq", 5L);
+        final Loan before = read(5L);
+        // ambos pagos solo cubren interés: remaining y nextDueDate quedan iguales
+        final Loan first = AmortizationEngine.applyPayment(before, new BigDecimal("20"), ZoneOffset.UTC);
+        final Loan second = AmortizationEngine.applyPayment(before, new BigDecimal("30"), ZoneOffset.UTC);
+        assertThat(first.getRemaining()).isEqualByComparingTo(second.getRemaining());
+        assertThat(first.getNextDueDate()).isEqualTo(second.getNextDueDate());
+
+        assertThat(repo.updateIfUnchanged(new LoanRepositoryCustom.Change(before, first)).block()).isTrue();
+        assertThat(repo.updateIfUnchanged(new LoanRepositoryCustom.Change(before, second)).block()).isFalse();
+        assertThat(stored.get("ledgerSeq")).isEqualTo(6L);
+    }
+
+    @Test
+    void legacyLoanWithoutSequenceIsGuardedToo() {
+        final Loan before = read(null);
+        final Loan paid = AmortizationEngine.applyPayment(before, new BigDecimal("20"), ZoneOffset.UTC);
+
+        assertThat(repo.updateIfUnchanged(new LoanRepositoryCustom.Change(before, paid)).block()).isTrue();
+        assertThat(repo.updateIfUnchanged(new LoanRepositoryCustom.Change(before, paid)).block()).isFalse();
+        assertThat(stored.get("ledgerSeq")).isEqualTo(1L);
+    }
+
+    // Igualdad por campo (null = ausente) y $set/$inc, suficiente para el guard y el update del repositorio
+    @SuppressWarnings("unchecked")
+    private UpdateResult apply(Query query, Update update) {
+        final boolean matches = query.getQueryObject().entrySet().stream()
+                .allMatch(e -> same(stored.get(e.getKey()), e.getValue()));
+        if (!matches) {
+            return UpdateResult.acknowledged(0, 0L, null);
+        }
+        final Document ops = update.getUpdateObject();
+        stored.putAll((Map<String, Object>) ops.getOrDefault("$set", new Document()));
+        ((Map<String, Object>) ops.getOrDefault("$inc", new Document())).forEach((k, v) -> stored.put(k,
+                (stored.get(k) == null ? 0L : ((Number) stored.get(k)).longValue()) + ((Number) v).longValue()));
+        return UpdateResult.acknowledged(1, 1L, null);
+    }
+
+    private static boolean same(Object a, Object b) {
+        if (a instanceof Number x && b instanceof Number y) {
+            return x.longValue() == y.longValue();
+        }
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,213 @@
+package ntt.ntt_ms_accounts.service;
+
+import ntt.ntt_ms_accounts.models.Account;
+import ntt.ntt_ms_accounts.models.AccountMovement;
+import ntt.ntt_ms_accounts.models.JobCheckpoint;
+import ntt.ntt_ms_accounts.models.JobCheckpointStatus;
+import ntt.ntt_ms_accounts.models.MovementType;
+import ntt.ntt_ms_accounts.repository.AccountMovementRepository;
+import ntt.ntt_ms_accounts.repository.AccountRepository;
+import ntt.ntt_ms_accounts.repository.JobCheckpointRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MaintenanceFeeServiceTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-10-31T12:00:00Z"), ZoneOffset.UTC);
+    private static final YearMonth MONTH = YearMonth.of(2026, 10);
+    private static final String RUN_ID = JobCheckpoint.idOf(MaintenanceFeeService.JOB, "2026-10");
+
+    @Mock
+    private AccountRepository accountRepo;
+    @Mock
+    private AccountMovementRepository movementRepo;
+    @Mock
+    private JobCheckpointRepository checkpoints;
+    @Mock
+    private DailyBalanceService dailyBalances;
+    @Mock
+    private ReportCache reportCache;
+
+    private MaintenanceFeeService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new MaintenanceFeeService(accountRepo, movementRepo, checkpoints, dailyBalances, reportCache,
+                CLOCK, false, Duration.ofMinutes(30), 3, 0);
+        lenient().when(movementRepo.insertMissing(anyList()))
+                .thenAnswer(inv -> Mono.just(inv.<List<AccountMovement>>getArgument(0).stream()
+                        .map(AccountMovement::getId).collect(Collectors.toSet())));
+        lenient().when(dailyBalances.record(any(), any(), any())).thenReturn(Mono.empty());
+    }
+
+    private static Account account(String id, String balance, long seq, String feeMonth) {
+        return Account.builder().id(id).customerId("c-" + id).balance(new BigDecimal(balance))
+                .maintenanceFee(new BigDecimal("5.00")).movementSeq(seq).feeMonth(feeMonth).build();
+    }
+
+    private static JobCheckpoint checkpoint(JobCheckpointStatus status, String lastKey) {
+        return JobCheckpoint.builder().id(RUN_ID).job(MaintenanceFeeService.JOB).runKey("2026-10")
+                .status(status).lastKey(lastKey).build();
+    }
+
+    @Test
+    void chargesPagesFromCheckpointAndEmitsDeterministicMovements() {
+        when(checkpoints.start(eq(MaintenanceFeeService.JOB), eq("2026-10"), anyString(), any()))
+                .thenReturn(Mono.just(checkpoint(JobCheckpointStatus.RUNNING, "a0")));
+        // a1 ya cobrada en una corrida cortada sin movimiento: se reemite, no se vuelve a debitar
+        when(accountRepo.findFeeBearing("a0", 3)).thenReturn(Flux.just(
+                account("a1", "100", 4, "2026-10"), account("a2", "100", 7, "2026-09"), account("a3", "50", 1, null)));
+        when(accountRepo.findFeeBearing("a3", 3)).thenReturn(Flux.just(account("a4", "20", 2, null)));
+        when(accountRepo.chargeMaintenanceFees(eq("2026-10"), anyString(), anyList()))
+                .thenAnswer(inv -> Mono.just((long) inv.<List<?>>getArgument(2).size()));
+        when(accountRepo.findByIdInAndFeeCharge(anyList(), anyString()))
+                .thenAnswer(inv -> Flux.fromIterable(inv.<List<String>>getArgument(0))
+                        .map(id -> account(id, "0", 0, "2026-10")));
+        when(checkpoints.advance(eq(RUN_ID), anyString(), any(), any(Long.class), any())).thenReturn(Mono.empty());
+        when(checkpoints.complete(eq(RUN_ID), anyString())).thenReturn(Mono.empty());
+        when(checkpoints.findById(RUN_ID)).thenReturn(Mono.just(checkpoint(JobCheckpointStatus.COMPLETED, "a4")));
+
+        StepVerifier.create(service.runFor(MONTH))
+                .assertNext(cp -> assertThat(cp.getStatus()).isEqualTo(JobCheckpointStatus.COMPLETED))
+                .verifyComplete();
+
+        verify(checkpoints).advance(eq(RUN_ID), anyString(), eq("a3"), eq(2L), any());
+        verify(checkpoints).advance(eq(RUN_ID), anyString(), eq("a4"), eq(1L), any());
+
+        @SuppressWarnings("unchecked")
+        final ArgumentCaptor<List<AccountMovement>> movements = ArgumentCaptor.forClass(List.class);
+        verify(movementRepo, times(2)).insertMissing(movements.capture());
+        final List<AccountMovement> first = movements.getAllValues().get(0);
+        assertThat(first).extracting(AccountMovement::getId)
+                .containsExactlyInAnyOrder("fee:a1:2026-10", "fee:a2:2026-10", "fee:a3:2026-10");
+        assertThat(first.get(0).getType()).isEqualTo(MovementType.COMMISSION);
+        assertThat(first.get(0).getCommissionType()).isEqualTo(MaintenanceFeeService.REFERENCE);
+
+        // snapshot de las cobradas ahora (saldo y secuencia posteriores al débito) y de a1, cuyo
+        // movimiento faltaba (saldo leído, ya con la comisión)
+        final ArgumentCaptor<Account> after = ArgumentCaptor.forClass(Account.class);
+        verify(dailyBalances, times(4)).record(after.capture(), eq(new BigDecimal("-5.00")), any());
+        assertThat(after.getAllValues()).extracting(Account::getId).containsExactlyInAnyOrder("a1", "a2", "a3", "a4");
+        final Account a1 = after.getAllValues().stream().filter(a -> a.getId().equals("a1")).findFirst().get();
+        assertThat(a1.getBalance()).isEqualByComparingTo("100");
+        final Account a2 = after.getAllValues().stream().filter(a -> a.getId().equals("a2")).findFirst().get();
+        assertThat(a2.getBalance()).isEqualByComparingTo("95");
+        assertThat(a2.getMovementSeq()).isEqualTo(8L);
+        verify(reportCache, times(2)).invalidateCustomers(any());
+    }
+
+    @Test
+    void resumedAccountWhoseMovementExistsIsNotRecordedAgain() {
+        when(movementRepo.insertMissing(anyList())).thenReturn(Mono.just(Set.of()));
+
+        StepVerifier.create(service.chargePage(List.of(account("a1", "95", 4, "2026-10")), MONTH))
+                .expectNext(0L)
+                .verifyComplete();
+
+        verify(dailyBalances, never()).record(any(), any(), any());
+        verify(reportCache, never()).invalidateCustomers(any());
+    }
+
+    @Test
+    void retriesAccountsChangedConcurrentlyAndSkipsInsufficientBalance() {
+        final Account raced = account("a1", "100", 3, null);
+        final Account poor = account("a2", "2", 1, null);
+        when(accountRepo.chargeMaintenanceFees(eq("2026-10"), anyString(), anyList())).thenReturn(Mono.just(0L));
+        when(accountRepo.findByIdInAndFeeCharge(anyList(), anyString()))
+                .thenReturn(Flux.empty())
+                .thenReturn(Flux.just(account("a1", "115", 5, "2026-10")));
+        // un depósito de 20 cambió a1 entre la lectura y el bulk
+        when(accountRepo.findAllById(Set.of("a1", "a2")))
+                .thenReturn(Flux.just(account("a1", "120", 4, null), poor));
+
+        StepVerifier.create(service.chargePage(List.of(raced, poor), MONTH))
+                .expectNext(1L)
+                .verifyComplete();
+
+        @SuppressWarnings("unchecked")
+        final ArgumentCaptor<List<Account>> attempts = ArgumentCaptor.forClass(List.class);
+        final ArgumentCaptor<String> tokens = ArgumentCaptor.forClass(String.class);
+        verify(accountRepo, times(2)).chargeMaintenanceFees(eq("2026-10"), tokens.capture(), attempts.capture());
+        assertThat(attempts.getAllValues().get(1)).extracting(Account::getMovementSeq).containsExactly(4L);
+        // cada bulk se cuenta por su propio token, no por feeMonth (que también marca otras corridas)
+        assertThat(tokens.getAllValues()).doesNotHaveDuplicates();
+        final ArgumentCaptor<String> counted = ArgumentCaptor.forClass(String.class);
+        verify(accountRepo, times(2)).findByIdInAndFeeCharge(anyList(), counted.capture());
+        assertThat(counted.getAllValues()).isEqualTo(tokens.getAllValues());
+        final ArgumentCaptor<Account> after = ArgumentCaptor.forClass(Account.class);
+        verify(dailyBalances).record(after.capture(), any(), any());
+        assertThat(after.getValue().getBalance()).isEqualByComparingTo("115");
+    }
+
+    @Test
+    void completedMonthIsNotChargedAgain() {
+        when(checkpoints.start(eq(MaintenanceFeeService.JOB), eq("2026-10"), anyString(), any()))
+                .thenReturn(Mono.just(checkpoint(JobCheckpointStatus.COMPLETED, "a9")));
+
+        StepVerifier.create(service.runFor(MONTH))
+                .expectNextCount(1)
+                .verifyComplete();
+        verify(accountRepo, never()).findFeeBearing(any(), any(Integer.class));
+    }
+
+    @Test
+    void monthEndRunsCurrentMonthAndResumesUnfinishedPrevious() {
+        when(checkpoints.findById(JobCheckpoint.idOf(MaintenanceFeeService.JOB, "2026-09")))
+                .thenReturn(Mono.just(checkpoint(JobCheckpointStatus.RUNNING, "a5")));
+
+        StepVerifier.create(service.dueRuns())
+                .expectNext(YearMonth.of(2026, 9), MONTH)
+                .verifyComplete();
+    }
+
+    @Test
+    void previousMonthWithoutCheckpointIsCaughtUpMidMonth() {
+        final MaintenanceFeeService midMonth = new MaintenanceFeeService(accountRepo, movementRepo, checkpoints,
+                dailyBalances, reportCache, Clock.fixed(Instant.parse("2026-11-02T12:00:00Z"), ZoneOffset.UTC),
+                false, Duration.ofMinutes(30), 3, 0);
+        when(checkpoints.findById(RUN_ID)).thenReturn(Mono.empty());
+
+        StepVerifier.create(midMonth.dueRuns())
+                .expectNext(MONTH)
+                .verifyComplete();
+    }
+
+    @Test
+    void completedPreviousMonthIsNotRunAgain() {
+        when(checkpoints.findById(JobCheckpoint.idOf(MaintenanceFeeService.JOB, "2026-09")))
+                .thenReturn(Mono.just(checkpoint(JobCheckpointStatus.COMPLETED, "z9")));
+
+        StepVerifier.create(service.dueRuns())
+                .expectNext(MONTH)
+                .verifyComplete();
+    }
+}
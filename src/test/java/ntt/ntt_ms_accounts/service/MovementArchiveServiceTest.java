@@ -0,0 +1,94 @@
+package ntt.ntt_ms_accounts.service;
+
+import ntt.ntt_ms_accounts.models.AccountMovement;
+import ntt.ntt_ms_accounts.repository.AccountMovementRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MovementArchiveServiceTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-10-15T12:00:00Z"), ZoneOffset.UTC);
+    private static final Instant CUTOFF = Instant.parse("2025-09-15T12:00:00Z");
+
+    @Mock
+    private AccountMovementRepository movementRepo;
+
+    private MovementArchiveService service(int maxBatches) {
+        return new MovementArchiveService(movementRepo, CLOCK, false, 13, 100, Duration.ZERO, maxBatches,
+                Duration.ofHours(1));
+    }
+
+    @Test
+    void hotBoundaryIsRetentionBeforeNow() {
+        final MovementArchiveService service = service(10);
+
+        assertThat(service.hotBoundary()).isEqualTo(CUTOFF);
+        assertThat(service.reachesArchive(null)).isTrue();
+        assertThat(service.reachesArchive(CUTOFF.minusSeconds(1))).isTrue();
+        assertThat(service.reachesArchive(CUTOFF)).isFalse();
+    }
+
+    @Test
+    void runMovesBatchesUntilAShortOne() {
+        when(movementRepo.ensureArchiveIndexes()).thenReturn(Mono.empty());
+        when(movementRepo.archiveBatch(eq(CUTOFF), eq(100)))
+                .thenReturn(Mono.just(100L), Mono.just(100L), Mono.just(40L));
+
+        StepVerifier.create(service(10).archiveOnce())
+                .expectNext(240L)
+                .verifyComplete();
+
+        verify(movementRepo, times(3)).archiveBatch(CUTOFF, 100);
+    }
+
+    @Test
+    void runStopsAtMaxBatches() {
+        when(movementRepo.ensureArchiveIndexes()).thenReturn(Mono.empty());
+        when(movementRepo.archiveBatch(eq(CUTOFF), eq(100))).thenReturn(Mono.just(100L));
+
+        StepVerifier.create(service(2).archiveOnce())
+                .expectNext(200L)
+                .verifyComplete();
+
+        verify(movementRepo, times(2)).archiveBatch(CUTOFF, 100);
+    }
+
+    @Test
+    void mergeReadsArchiveOnlyAfterHotTierAndDropsInFlightDuplicate() {
+        final AtomicBoolean hotDone = new AtomicBoolean();
+        final Flux<AccountMovement> hot = Flux.just(movement("m3", "2025-09-20T00:00:00Z"),
+                        movement("m2", "2025-09-10T00:00:00Z"))
+                .doOnComplete(() -> hotDone.set(true));
+        // m1 se copió y borró de la capa caliente durante la lectura; m2 está en ambas
+        final Flux<AccountMovement> archived = Flux.defer(() -> {
+            assertThat(hotDone).isTrue();
+            return Flux.just(movement("m2", "2025-09-10T00:00:00Z"), movement("m1", "2025-09-01T00:00:00Z"));
+        });
+
+        StepVerifier.create(MovementArchiveService.merge(hot, archived).map(AccountMovement::getId))
+                .expectNext("m3", "m2", "m1")
+                .verifyComplete();
+    }
+
+    private static AccountMovement movement(String id, String at) {
+        return AccountMovement.builder().id(id).date(Instant.parse(at)).build();
+    }
+}
@@ -0,0 +1,79 @@
+package ntt.ntt_ms_accounts.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import ntt.ntt_ms_accounts.models.AccountMovement;
+import ntt.ntt_ms_accounts.repository.AccountMovementRepositoryCustomImpl;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * insertMissing con un bulk desordenado que choca con inserciones concurrentes: devuelve los
+ * ids que sí quedaron insertados, no un conjunto vacío.
+ */
+@ExtendWith(MockitoExtension.class)
+class MovementInsertMissingTest {
+
+    @Mock
+    private ReactiveMongoTemplate template;
+    @Mock
+    private ReactiveBulkOperations bulk;
+
+    private final List<AccountMovement> batch = List.of(
+            AccountMovement.builder().id("fee-1").build(),
+            AccountMovement.builder().id("fee-2").build(),
+            AccountMovement.builder().id("fee-3").build());
+
+    private Mono<Set<String>> insertWith(Throwable bulkError) {
+        when(template.find(any(Query.class), eq(AccountMovement.class))).thenReturn(Flux.empty());
+        when(template.bulkOps(BulkOperations.BulkMode.UNORDERED, AccountMovement.class)).thenReturn(bulk);
+        when(bulk.insert(anyList())).thenReturn(bulk);
+        when(bulk.execute()).thenReturn(Mono.error(bulkError));
+        return new AccountMovementRepositoryCustomImpl(template).insertMissing(batch);
+    }
+
+    private static MongoBulkWriteException writeErrors(int code, int... indexes) {
+        final List<BulkWriteError> errors = Arrays.stream(indexes)
+                .mapToObj(i -> new BulkWriteError(code, "E" + code, new BsonDocument(), i))
+                .toList();
+        return new MongoBulkWriteException(BulkWriteResult.acknowledged(3 - indexes.length, 0, 0, 0, List.of(),
+                List.of()), errors, null, new ServerAddress(), Set.of());
+    }
+
+    @Test
+    void partialDuplicateReturnsTheIdsThatLanded() {
+        StepVerifier.create(insertWith(new DuplicateKeyException("dup", writeErrors(11000, 1))))
+                .expectNext(Set.of("fee-1", "fee-3"))
+                .verifyComplete();
+    }
+
+    @Test
+    void otherWriteErrorsArePropagated() {
+        StepVerifier.create(insertWith(new DataIntegrityViolationException("bad", writeErrors(121, 0))))
+                .expectError(DataIntegrityViolationException.class)
+                .verify();
+    }
+}
@@ -0,0 +1,130 @@
+package ntt.ntt_ms_accounts.service;
+
+import com.mongodb.client.result.UpdateResult;
+import ntt.ntt_ms_accounts.config.MovementStorage;
+import com.mongodb.client.result.UpdateResult;
+import ntt.ntt_ms_accounts.dto.MovementStorageStats;
+import ntt.ntt_ms_accounts.models.JobCheckpoint;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.timeseries.Granularity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MovementStorageServiceTest {
+
+    @Mock
+    private ReactiveMongoTemplate template;
+
+    private MovementStorageService service(MovementStorage.Mode mode) {
+        return new MovementStorageService(template, new MovementStorage(mode, Granularity.HOURS), 100);
+    }
+
+    @Test
+    void timeSeriesCollectionUsesAccountIdAsMetaField() {
+        when(template.collectionExists(MovementStorage.TIME_SERIES_COLLECTION)).thenReturn(Mono.just(false));
+        when(template.createCollection(eq(MovementStorage.TIME_SERIES_COLLECTION), any(CollectionOptions.class)))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(service(MovementStorage.Mode.TIME_SERIES).ensureTimeSeriesCollection())
+                .verifyComplete();
+
+        final ArgumentCaptor<CollectionOptions> options = ArgumentCaptor.forClass(CollectionOptions.class);
+        verify(template).createCollection(eq(MovementStorage.TIME_SERIES_COLLECTION), options.capture());
+        final CollectionOptions.TimeSeriesOptions ts = options.getValue().getTimeSeriesOptions().orElseThrow();
+        assertThat(ts.getTimeField()).isEqualTo("date");
+        assertThat(ts.getMetaField()).isEqualTo("accountId");
+        assertThat(ts.getGranularity()).isEqualTo(Granularity.HOURS);
+    }
+
+    @Test
+    void existingTimeSeriesCollectionIsLeftAlone() {
+        when(template.collectionExists(MovementStorage.TIME_SERIES_COLLECTION)).thenReturn(Mono.just(true));
+
+        StepVerifier.create(service(MovementStorage.Mode.TIME_SERIES).ensureTimeSeriesCollection())
+                .verifyComplete();
+
+        verify(template, never()).createCollection(any(String.class), any(CollectionOptions.class));
+    }
+
+    @Test
+    void catchUpAfterSwitchResumesFromSourceMarkerAndSkipsCopiedIds() {
+        final Date marker = Date.from(Instant.parse("2026-10-01T10:00:00Z"));
+        final Document copied = new Document("_id", "m1").append("date", marker);
+        final Document lateWrite = new Document("_id", "m2")
+                .append("date", Date.from(Instant.parse("2026-10-01T10:05:00Z")));
+        when(template.collectionExists(MovementStorage.TIME_SERIES_COLLECTION)).thenReturn(Mono.just(true));
+        when(template.findById(JobCheckpoint.idOf(MovementStorageService.MIGRATION_JOB,
+                MovementStorage.DOCUMENTS_COLLECTION), JobCheckpoint.class))
+                .thenReturn(Mono.just(JobCheckpoint.builder().lastKey(marker.toInstant().toString()).build()));
+        when(template.find(any(Query.class), eq(Document.class), eq(MovementStorage.DOCUMENTS_COLLECTION)))
+                .thenReturn(Flux.just(copied, lateWrite));
+        when(template.find(any(Query.class), eq(Document.class), eq(MovementStorage.TIME_SERIES_COLLECTION)))
+                .thenReturn(Flux.just(new Document("_id", "m1")));
+        when(template.insert(anyList(), eq(MovementStorage.TIME_SERIES_COLLECTION)))
+                .thenAnswer(inv -> Flux.fromIterable(inv.<List<Document>>getArgument(0)));
+        when(template.upsert(any(Query.class), any(Update.class), eq(JobCheckpoint.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+
+        StepVerifier.create(service(MovementStorage.Mode.TIME_SERIES).migrateToTimeSeries())
+                .expectNext(1L)
+                .verifyComplete();
+
+        final ArgumentCaptor<Query> source = ArgumentCaptor.forClass(Query.class);
+        verify(template).find(source.capture(), eq(Document.class), eq(MovementStorage.DOCUMENTS_COLLECTION));
+        assertThat(source.getValue().getQueryObject().get("date", Document.class).get("$gte")).isEqualTo(marker);
+        verify(template).insert(List.of(lateWrite), MovementStorage.TIME_SERIES_COLLECTION);
+        final ArgumentCaptor<Update> progress = ArgumentCaptor.forClass(Update.class);
+        verify(template).upsert(any(Query.class), progress.capture(), eq(JobCheckpoint.class));
+        assertThat(progress.getValue().getUpdateObject().get("$set", Document.class).get("lastKey"))
+                .isEqualTo("2026-10-01T10:05:00Z");
+    }
+
+    @Test
+    void statsReportIndexSizeAndLatencyPercentiles() {
+        final Document collStats = new Document("count", 1_000).append("storageSize", 40_960L)
+                .append("totalIndexSize", 8_192);
+        final List<Long> micros = List.of(100L, 120L, 130L, 150L, 180L, 200L, 220L, 250L, 400L, 900L);
+
+        final MovementStorageStats stats = service(MovementStorage.Mode.DOCUMENTS)
+                .stats(MovementStorage.DOCUMENTS_COLLECTION, collStats, micros);
+
+        assertThat(stats.active()).isTrue();
+        assertThat(stats.documents()).isEqualTo(1_000);
+        assertThat(stats.indexBytes()).isEqualTo(8_192);
+        assertThat(stats.scans()).isEqualTo(10);
+        assertThat(stats.p50Micros()).isEqualTo(180);
+        assertThat(stats.p95Micros()).isEqualTo(900);
+        assertThat(stats.maxMicros()).isEqualTo(900);
+    }
+
+    @Test
+    void benchmarkRequiresSampleAccounts() {
+        StepVerifier.create(service(MovementStorage.Mode.DOCUMENTS)
+                        .benchmark(List.of(), Instant.EPOCH, Instant.now(), 3))
+                .expectErrorMessage("at least one accountId is required")
+                .verify();
+    }
+}
@@ -0,0 +1,81 @@
+package ntt.ntt_ms_accounts.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ntt.ntt_ms_accounts.models.AccountMovement;
+import ntt.ntt_ms_accounts.repository.AccountMovementRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MovementWriterTest {
+
+    @Mock
+    private AccountMovementRepository movementRepo;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private MovementWriter writer;
+
+    @AfterEach
+    void tearDown() {
+        writer.stop();
+    }
+
+    @Test
+    void concurrentWritesAreGroupedAndEachCallerGetsItsOwnDocument() {
+        final AtomicInteger inserts = new AtomicInteger();
+        final AtomicInteger ids = new AtomicInteger();
+        when(movementRepo.insert(anyList())).thenAnswer(inv -> {
+            inserts.incrementAndGet();
+            final List<AccountMovement> batch = inv.getArgument(0);
+            batch.forEach(mv -> mv.setId("id-" + ids.incrementAndGet()));
+            return Flux.fromIterable(batch).delaySubscription(Duration.ofMillis(2));
+        });
+        writer = new MovementWriter(movementRepo, registry, true, 50, Duration.ofMillis(10), 4);
+        writer.start();
+
+        final int writes = 1_000;
+        StepVerifier.create(Flux.range(0, writes)
+                        .flatMap(i -> {
+                            final String ref = "ref-" + i;
+                            return writer.write(AccountMovement.builder().accountId("a").reference(ref).build())
+                                    .doOnNext(mv -> assertThat(mv.getReference()).isEqualTo(ref))
+                                    .doOnNext(mv -> assertThat(mv.getId()).isNotNull());
+                        }, 256))
+                .expectNextCount(writes)
+                .verifyComplete();
+
+        assertThat(inserts.get()).isLessThan(writes);
+        assertThat(registry.get("accounts.movements.batch.size").summary().totalAmount()).isEqualTo(writes);
+        assertThat(registry.get("accounts.movements.batch.flush").timer().count()).isEqualTo(inserts.get());
+    }
+
+    @Test
+    void failedBatchFailsEveryCallerInIt() {
+        when(movementRepo.insert(anyList())).thenReturn(Flux.error(new IllegalStateException("write failed")));
+        writer = new MovementWriter(movementRepo, registry, true, 10, Duration.ofMillis(10), 1);
+        writer.start();
+
+        StepVerifier.create(Mono.zipDelayError(
+                        writer.write(AccountMovement.builder().accountId("a").build()),
+                        writer.write(AccountMovement.builder().accountId("b").build())))
+                .expectErrorSatisfies(e -> assertThat(Exceptions.unwrapMultiple(e))
+                        .hasSize(2)
+                        .allSatisfy(cause -> assertThat(cause).hasMessage("write failed")))
+                .verify(Duration.ofSeconds(5));
+    }
+}
@@ -0,0 +1,132 @@
+package ntt.ntt_ms_accounts.service;
+
+import ntt.ntt_ms_accounts.client.CustomerClient;
+import ntt.ntt_ms_accounts.client.CustomerClient.CustomerDTO;
+import ntt.ntt_ms_accounts.dto.CustomerDailyAverageReport;
+import ntt.ntt_ms_accounts.dto.PortfolioReportRequest;
+import ntt.ntt_ms_accounts.models.Account;
+import ntt.ntt_ms_accounts.models.AccountDailyBalance;
+import ntt.ntt_ms_accounts.models.CreditCard;
+import ntt.ntt_ms_accounts.models.CustomerSubType;
+import ntt.ntt_ms_accounts.models.CustomerType;
+import ntt.ntt_ms_accounts.repository.AccountRepository;
+import ntt.ntt_ms_accounts.repository.CreditCardRepository;
+import ntt.ntt_ms_accounts.repository.LoanRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PortfolioReportServiceTest {
+
+    @Mock
+    private AccountRepository accountRepo;
+    @Mock
+    private CreditCardRepository creditCardRepo;
+    @Mock
+    private LoanRepository loanRepo;
+    @Mock
+    private DailyBalanceService dailyBalances;
+    @Mock
+    private ProductLedgerService ledger;
+    @Mock
+    private CustomerHoldingsService holdings;
+    @Mock
+    private CustomerClient customerClient;
+
+    private PortfolioReportService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new PortfolioReportService(accountRepo, creditCardRepo, loanRepo, dailyBalances, ledger, holdings,
+                customerClient, 2, 2, 4);
+    }
+
+    @Test
+    void customersAreResolvedWithOneInQueryPerChunk() {
+        final LocalDate first = LocalDate.now(ZoneOffset.UTC).withDayOfMonth(1);
+        when(accountRepo.findByCustomerIdIn(anyCollection())).thenAnswer(inv -> {
+            final Collection<String> ids = inv.getArgument(0);
+            return Flux.fromIterable(ids).map(id -> Account.builder()
+                    .id("acc-" + id).customerId(id).balance(new BigDecimal("100")).build());
+        });
+        when(dailyBalances.snapshotsForAccounts(anyCollection(), any(), any())).thenAnswer(inv -> {
+            final Collection<String> ids = inv.getArgument(0);
+            return Flux.fromIterable(ids).map(id -> AccountDailyBalance.builder()
+                    .accountId(id).day(first.toString())
+                    .deposits(BigDecimal.ZERO).withdrawals(BigDecimal.ZERO)
+                    .closingBalance(new BigDecimal("100")).build());
+        });
+        when(creditCardRepo.findByCustomerIdIn(anyCollection())).thenAnswer(inv -> {
+            final Collection<String> ids = inv.getArgument(0);
+            return ids.contains("c1")
+                    ? Flux.just(CreditCard.builder().id("card").customerId("c1").available(new BigDecimal("50")).build())
+                    : Flux.empty();
+        });
+        when(loanRepo.findByCustomerIdIn(anyCollection())).thenReturn(Flux.empty());
+        when(ledger.daysForProducts(anyCollection(), any(), any())).thenReturn(Flux.empty());
+
+        final PortfolioReportRequest request = new PortfolioReportRequest(List.of("c1", "c2", "c3"), null);
+        final Map<String, CustomerDailyAverageReport> reports = service.dailyAverages(request, ZoneOffset.UTC)
+                .collectMap(CustomerDailyAverageReport::customerId)
+                .block();
+
+        assertThat(reports).containsOnlyKeys("c1", "c2", "c3");
+        assertThat(reports.get("c1").products()).hasSize(2);
+        assertThat(reports.get("c1").totalDailyAverage()).isEqualByComparingTo("150");
+        assertThat(reports.get("c3").totalDailyAverage()).isEqualByComparingTo("100");
+        // 3 clientes en bloques de 2 → 2 consultas $in por colección
+        verify(accountRepo, times(2)).findByCustomerIdIn(anyCollection());
+        verify(dailyBalances, times(2)).snapshotsForAccounts(anyCollection(), any(), any());
+        verify(creditCardRepo, times(2)).findByCustomerIdIn(anyCollection());
+        // solo el bloque con tarjeta consulta el libro diario
+        verify(ledger, times(1)).daysForProducts(anyCollection(), any(), any());
+    }
+
+    @Test
+    void segmentSelectsCustomersBySubType() {
+        when(holdings.knownCustomerIds()).thenReturn(Flux.just("vip", "std"));
+        when(customerClient.getCustomer("vip")).thenReturn(Mono.just(customer("vip", CustomerSubType.PERSONAL_VIP)));
+        when(customerClient.getCustomer("std"))
+                .thenReturn(Mono.just(customer("std", CustomerSubType.PERSONAL_STANDARD)));
+        when(accountRepo.findByCustomerIdIn(anyCollection())).thenReturn(Flux.empty());
+        when(creditCardRepo.findByCustomerIdIn(anyCollection())).thenReturn(Flux.empty());
+        when(loanRepo.findByCustomerIdIn(anyCollection())).thenReturn(Flux.empty());
+
+        StepVerifier.create(service.dailyAverages(new PortfolioReportRequest(null, CustomerSubType.PERSONAL_VIP),
+                        ZoneOffset.UTC).map(CustomerDailyAverageReport::customerId).collect(Collectors.toList()))
+                .expectNext(List.of("vip"))
+                .verifyComplete();
+    }
+
+    @Test
+    void requestWithoutCustomersOrSegmentIsRejected() {
+        StepVerifier.create(service.dailyAverages(new PortfolioReportRequest(List.of(), null), ZoneOffset.UTC))
+                .expectErrorMessage("customerIds or segment is required")
+                .verify();
+    }
+
+    private static CustomerDTO customer(String id, CustomerSubType subType) {
+        return new CustomerDTO(id, CustomerType.PERSONAL, subType, null, null, null);
+    }
+}
@@ -0,0 +1,95 @@
+package ntt.ntt_ms_accounts.service;
+
+import ntt.ntt_ms_accounts.models.ProductLedgerDay;
+import ntt.ntt_ms_accounts.repository.ProductLedgerRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProductLedgerServiceTest {
+
+    @Mock
+    private ProductLedgerRepository ledgerRepo;
+
+    @InjectMocks
+    private ProductLedgerService service;
+
+    @Test
+    void recordAppendsEntryToProductDay() {
+        when(ledgerRepo.append(anyString(), anyString(), anyString(), anyString(), any()))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(service.record(ProductLedgerDay.CARD, "cc1", "c1", "CHARGE", new BigDecimal("40"),
+                        new BigDecimal("-40"), new BigDecimal("960"), new BigDecimal("0"), 7L, "shop", Instant.now()))
+                .verifyComplete();
+
+        final ArgumentCaptor<ProductLedgerDay.Entry> entry = ArgumentCaptor.forClass(ProductLedgerDay.Entry.class);
+        verify(ledgerRepo).append(eq(ProductLedgerDay.CARD), eq("cc1"), eq("c1"), anyString(), entry.capture());
+        assertThat(entry.getValue().getDelta()).isEqualByComparingTo("-40");
+        assertThat(entry.getValue().getBalanceAfter()).isEqualByComparingTo("960");
+        assertThat(entry.getValue().getSeq()).isEqualTo(7L);
+    }
+
+    @Test
+    void recordFailureDoesNotFailTheOperation() {
+        when(ledgerRepo.append(anyString(), anyString(), anyString(), anyString(), any()))
+                .thenReturn(Mono.error(new IllegalStateException("mongo down")));
+
+        StepVerifier.create(service.record(ProductLedgerDay.LOAN, "l1", "c1", "PAYMENT", BigDecimal.TEN,
+                        BigDecimal.TEN.negate(), new BigDecimal("90"), null, 3L, null, Instant.now()))
+                .verifyComplete();
+    }
+
+    @Test
+    void dailyAverageCarriesLastEntryOfEachDayForward() {
+        final LocalDate from = LocalDate.of(2025, 3, 1);
+        final LocalDate to = LocalDate.of(2025, 3, 4);
+        // préstamo de 1000 desembolsado el 2; pagos de 100 y 200 el 3 → 0, 1000, 700, 700
+        final List<ProductLedgerDay> days = List.of(
+                day("2025-03-02", entry("1000", "1000", "2025-03-02T09:00:00Z")),
+                day("2025-03-03",
+                        entry("-200", "700", "2025-03-03T15:00:00Z"),
+                        entry("-100", "900", "2025-03-03T10:00:00Z")));
+
+        assertThat(ProductLedgerService.dailyAverage(new BigDecimal("700"), from, to, days))
+                .isEqualByComparingTo("600");
+    }
+
+    @Test
+    void closingIsTheEntryWithHighestSequenceNotTheLatestTimestamp() {
+        // dos cargos concurrentes: el update con seq 2 tomó su Instant.now() antes que el de seq 1
+        final ProductLedgerDay day = day("2025-03-03",
+                entry("-100", "900", "2025-03-03T10:00:00.002Z").toBuilder().seq(1L).build(),
+                entry("-50", "850", "2025-03-03T10:00:00.001Z").toBuilder().seq(2L).build());
+
+        assertThat(ProductLedgerService.asDailyBalance(day).getClosingBalance()).isEqualByComparingTo("850");
+    }
+
+    private static ProductLedgerDay day(String day, ProductLedgerDay.Entry... entries) {
+        return ProductLedgerDay.builder().productType(ProductLedgerDay.LOAN).productId("l1").day(day)
+                .entries(List.of(entries)).build();
+    }
+
+    private static ProductLedgerDay.Entry entry(String delta, String after, String at) {
+        return ProductLedgerDay.Entry.builder().delta(new BigDecimal(delta)).balanceAfter(new BigDecimal(after))
+                .at(Instant.parse(at)).build();
+    }
+}
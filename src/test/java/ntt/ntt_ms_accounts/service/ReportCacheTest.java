@@ -0,0 +1,96 @@
+package ntt.ntt_ms_accounts.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ntt.ntt_ms_accounts.service.ReportCache.ReportKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReportCacheTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 8, 20);
+    private static final Instant JULY = Instant.parse("2025-07-01T00:00:00Z");
+    private static final Instant AUGUST = Instant.parse("2025-08-01T00:00:00Z");
+    private static final Instant SEPTEMBER = Instant.parse("2025-09-01T00:00:00Z");
+
+    private SimpleMeterRegistry registry;
+    private ReportCache cache;
+    private AtomicInteger computations;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        cache = new ReportCache(registry, true, 100, Duration.ofMinutes(5));
+        computations = new AtomicInteger();
+    }
+
+    @Test
+    void repeatedRequestIsServedFromCache() {
+        final ReportKey key = ReportKey.dailyAverages("c1", TODAY, ZoneOffset.UTC);
+
+        StepVerifier.create(cache.get(key, this::compute)).expectNext(1).verifyComplete();
+        StepVerifier.create(cache.get(key, this::compute)).expectNext(1).verifyComplete();
+
+        assertThat(computations).hasValue(1);
+        assertThat(registry.get("reports.recompute").tag("type", ReportCache.DAILY_AVERAGES).timer().count())
+                .isEqualTo(1);
+        assertThat(registry.get("cache.gets").tag("cache", "reports").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidationOnlyDropsAffectedEntries() {
+        final ReportKey c1 = ReportKey.dailyAverages("c1", TODAY, ZoneOffset.UTC);
+        final ReportKey c2 = ReportKey.dailyAverages("c2", TODAY, ZoneOffset.UTC);
+        final ReportKey july = ReportKey.commissions(JULY, AUGUST);
+        final ReportKey august = ReportKey.commissions(AUGUST, SEPTEMBER);
+        for (ReportKey k : new ReportKey[] {c1, c2, july, august}) {
+            cache.get(k, this::compute).block();
+        }
+
+        cache.invalidateCustomer("c1");
+        cache.invalidateCommissionsAt(Instant.parse("2025-08-15T10:00:00Z"));
+
+        cache.get(c1, this::compute).block();
+        cache.get(c2, this::compute).block();
+        cache.get(july, this::compute).block();
+        cache.get(august, this::compute).block();
+        // 4 cálculos iniciales + c1 y agosto recalculados
+        assertThat(computations).hasValue(6);
+    }
+
+    @Test
+    void invalidationDuringComputationIsNotCached() {
+        final ReportKey key = ReportKey.dailyAverages("c1", TODAY, ZoneOffset.UTC);
+        final Sinks.One<Integer> slow = Sinks.one();
+
+        final Mono<Integer> first = cache.get(key, () -> {
+            computations.incrementAndGet();
+            return slow.asMono();
+        });
+        StepVerifier.create(first)
+                .then(() -> {
+                    // una escritura llega mientras el reporte se calcula con datos previos
+                    cache.invalidateCustomer("c1");
+                    slow.tryEmitValue(-1);
+                })
+                .expectNext(-1)
+                .verifyComplete();
+
+        StepVerifier.create(cache.get(key, this::compute)).expectNext(2).verifyComplete();
+    }
+
+    private Mono<Integer> compute() {
+        return Mono.fromCallable(computations::incrementAndGet);
+    }
+}
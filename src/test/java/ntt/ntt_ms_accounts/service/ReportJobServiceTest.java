@@ -0,0 +1,188 @@
+package ntt.ntt_ms_accounts.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ntt.ntt_ms_accounts.dto.CommissionReport;
+import ntt.ntt_ms_accounts.dto.CustomerDailyAverageReport;
+import ntt.ntt_ms_accounts.models.ReportJob;
+import ntt.ntt_ms_accounts.models.ReportJobStatus;
+import ntt.ntt_ms_accounts.repository.ReportJobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReportJobServiceTest {
+
+    private static final Instant FROM = Instant.parse("2025-01-01T00:00:00Z");
+    private static final Instant TO = Instant.parse("2025-06-30T00:00:00Z");
+
+    @Mock
+    private ReportJobRepository jobRepo;
+    @Mock
+    private ReportService reports;
+
+    private final Map<String, ReportJob> saved = new ConcurrentHashMap<>();
+    private ReportJobService service;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(jobRepo.findByStatusInAndUpdatedAtBefore(any(), any(Instant.class))).thenReturn(Flux.empty());
+        lenient().when(jobRepo.insert(any(ReportJob.class))).thenAnswer(inv -> Mono.just(inv.getArgument(0)));
+        lenient().when(jobRepo.save(any(ReportJob.class))).thenAnswer(inv -> {
+            final ReportJob job = inv.getArgument(0);
+            saved.put(job.getId() + ":" + job.getStatus(), job);
+            return Mono.just(job);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    void jobIsComputedInBackgroundAndStoredWithTtl() {
+        start(2);
+        final CommissionReport report = new CommissionReport(FROM, TO, List.of(), BigDecimal.ZERO);
+        when(reports.commissionsByProduct(FROM, TO)).thenReturn(Mono.just(report));
+
+        final ReportJob job = service.submitCommissions(FROM, TO).block();
+
+        assertThat(job.getStatus()).isEqualTo(ReportJobStatus.PENDING);
+        awaitUntil(() -> saved.containsKey(job.getId() + ":DONE"));
+        final ReportJob done = saved.get(job.getId() + ":DONE");
+        assertThat(done.getResult()).isEqualTo(report);
+        assertThat(done.getExpiresAt()).isAfter(Instant.now().plus(Duration.ofHours(23)));
+    }
+
+    @Test
+    void identicalParametersReuseTheExistingJob() {
+        start(2);
+        final String id = ReportJobService.jobId(ReportJobService.COMMISSIONS,
+                Map.of("to", TO.toString(), "from", FROM.toString()));
+        final ReportJob running = ReportJob.builder().id(id).status(ReportJobStatus.RUNNING).build();
+        when(jobRepo.insert(any(ReportJob.class))).thenReturn(Mono.error(new DuplicateKeyException("dup")));
+        when(jobRepo.reclaim(eq(id), any(Instant.class), eq(TO), any(Instant.class))).thenReturn(Mono.empty());
+        when(jobRepo.findById(id)).thenReturn(Mono.just(running));
+
+        StepVerifier.create(service.submitCommissions(FROM, TO))
+                .expectNext(running)
+                .verifyComplete();
+
+        verify(reports, never()).commissionsByProduct(any(), any());
+    }
+
+    @Test
+    void doneJobForOpenRangeIsRecomputed() {
+        start(2);
+        final Instant to = Instant.now().plus(Duration.ofDays(1));
+        final String id = ReportJobService.jobId(ReportJobService.COMMISSIONS,
+                Map.of("to", to.toString(), "from", FROM.toString()));
+        // el repositorio reclama el DONE porque terminó antes del fin del rango
+        final ReportJob reclaimed = ReportJob.builder().id(id).type(ReportJobService.COMMISSIONS)
+                .params(Map.of("from", FROM.toString(), "to", to.toString()))
+                .status(ReportJobStatus.PENDING).build();
+        final CommissionReport fresh = new CommissionReport(FROM, to, List.of(), BigDecimal.ONE);
+        when(jobRepo.insert(any(ReportJob.class))).thenReturn(Mono.error(new DuplicateKeyException("dup")));
+        when(jobRepo.reclaim(eq(id), any(Instant.class), eq(to), any(Instant.class))).thenReturn(Mono.just(reclaimed));
+        when(reports.commissionsByProduct(FROM, to)).thenReturn(Mono.just(fresh));
+
+        service.submitCommissions(FROM, to).block();
+
+        awaitUntil(() -> saved.containsKey(id + ":DONE"));
+        assertThat(saved.get(id + ":DONE").getResult()).isEqualTo(fresh);
+    }
+
+    @Test
+    void orphanedRunningJobIsReclaimedOnStartup() {
+        final ReportJob orphan = ReportJob.builder().id("orphan").type(ReportJobService.COMMISSIONS)
+                .params(Map.of("from", FROM.toString(), "to", TO.toString()))
+                .status(ReportJobStatus.RUNNING).updatedAt(Instant.now().minus(Duration.ofHours(2))).build();
+        final CommissionReport report = new CommissionReport(FROM, TO, List.of(), BigDecimal.ZERO);
+        when(jobRepo.findByStatusInAndUpdatedAtBefore(any(), any(Instant.class))).thenReturn(Flux.just(orphan));
+        when(jobRepo.reclaim(eq("orphan"), any(Instant.class), eq(Instant.EPOCH), any(Instant.class)))
+                .thenReturn(Mono.just(orphan.toBuilder().status(ReportJobStatus.PENDING).build()));
+        when(reports.commissionsByProduct(FROM, TO)).thenReturn(Mono.just(report));
+
+        start(2);
+
+        awaitUntil(() -> saved.containsKey("orphan:DONE"));
+        assertThat(saved.get("orphan:DONE").getResult()).isEqualTo(report);
+    }
+
+    @Test
+    void concurrentJobsAreCapped() {
+        start(1);
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+        when(reports.dailyAveragesForCustomerCurrentMonth(anyString(), any())).thenAnswer(inv -> Mono.defer(() -> {
+            peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+            return Mono.delay(Duration.ofMillis(50)).thenReturn(new CustomerDailyAverageReport(
+                    "c", "2025-08", null, null, 0, List.of(), BigDecimal.ZERO));
+        }).doOnTerminate(active::decrementAndGet));
+
+        for (String c : List.of("c1", "c2", "c3")) {
+            service.submitDailyAverages(c, ZoneOffset.UTC).block();
+        }
+
+        awaitUntil(() -> saved.keySet().stream()
+                .filter(k -> k.endsWith(":DONE") || k.endsWith(":FAILED")).count() == 3);
+        assertThat(peak).hasValue(1);
+    }
+
+    @Test
+    void failingReportIsMarkedFailed() {
+        start(2);
+        when(reports.commissionsByProduct(FROM, TO)).thenReturn(Mono.error(new IllegalStateException("boom")));
+
+        final ReportJob job = service.submitCommissions(FROM, TO).block();
+
+        awaitUntil(() -> saved.containsKey(job.getId() + ":FAILED"));
+        assertThat(saved.get(job.getId() + ":FAILED").getError()).isEqualTo("boom");
+    }
+
+    private void start(int maxConcurrent) {
+        service = new ReportJobService(jobRepo, reports, new SimpleMeterRegistry(), maxConcurrent,
+                Duration.ofHours(24), Duration.ofMinutes(1), Duration.ofMinutes(45), Duration.ofHours(1));
+        service.start();
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) {
+        final long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
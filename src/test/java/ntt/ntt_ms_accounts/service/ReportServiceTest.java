@@ -0,0 +1,149 @@
+package ntt.ntt_ms_accounts.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ntt.ntt_ms_accounts.dto.CommissionItem;
+import ntt.ntt_ms_accounts.models.Account;
+import ntt.ntt_ms_accounts.models.AccountDailyBalance;
+import ntt.ntt_ms_accounts.models.CreditCard;
+import ntt.ntt_ms_accounts.models.ProductLedgerDay;
+import ntt.ntt_ms_accounts.repository.AccountMovementRepository;
+import ntt.ntt_ms_accounts.repository.AccountRepository;
+import ntt.ntt_ms_accounts.repository.CreditCardRepository;
+import ntt.ntt_ms_accounts.repository.LoanRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReportServiceTest {
+
+    private static final ZoneId ZONE = ZoneOffset.UTC;
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-10-01T00:00:00Z"), ZONE);
+
+    @Mock
+    private AccountRepository accountRepo;
+    @Mock
+    private AccountMovementRepository movementRepo;
+    @Mock
+    private CreditCardRepository creditCardRepo;
+    @Mock
+    private LoanRepository loanRepo;
+    @Mock
+    private DailyBalanceService dailyBalances;
+    @Mock
+    private ProductLedgerService ledger;
+
+    private ReportService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ReportService(accountRepo, movementRepo, creditCardRepo, loanRepo, dailyBalances,
+                new ReportCache(new SimpleMeterRegistry(), true, 100, Duration.ofMinutes(5)), ledger,
+                new MovementArchiveService(movementRepo, CLOCK, false, 13, 100, Duration.ZERO, 10,
+                        Duration.ofHours(1)), 8);
+    }
+
+    @Test
+    void commissionReportUsesServerSideTotals() {
+        final Instant from = Instant.parse("2025-07-01T00:00:00Z");
+        final Instant to = Instant.parse("2025-09-30T23:59:59Z");
+        when(movementRepo.commissionTotals(from, to, false)).thenReturn(Flux.just(
+                new CommissionItem("ACCOUNT", "a1", "001", "FEE", new BigDecimal("5.00")),
+                new CommissionItem("ACCOUNT", "a2", "002", "COMISION ITF", new BigDecimal("1.25"))));
+
+        StepVerifier.create(service.commissionsByProduct(from, to))
+                .assertNext(r -> {
+                    assertThat(r.items()).hasSize(2);
+                    assertThat(r.grandTotal()).isEqualByComparingTo("6.25");
+                })
+                .verifyComplete();
+
+        verify(accountRepo, never()).findAll();
+        verify(movementRepo, never()).findByDateBetween(any(), any());
+    }
+
+    @Test
+    void commissionReportBeforeRetentionIncludesArchive() {
+        final Instant from = Instant.parse("2024-01-01T00:00:00Z");
+        final Instant to = Instant.parse("2024-03-31T23:59:59Z");
+        when(movementRepo.commissionTotals(from, to, true)).thenReturn(Flux.just(
+                new CommissionItem("ACCOUNT", "a1", "001", "FEE", new BigDecimal("5.00"))));
+
+        StepVerifier.create(service.commissionsByProduct(from, to))
+                .assertNext(r -> assertThat(r.grandTotal()).isEqualByComparingTo("5.00"))
+                .verifyComplete();
+    }
+
+    @Test
+    void dailyAverageCarriesSnapshotClosingsForward() {
+        final LocalDate today = LocalDate.now(ZONE);
+        final LocalDate first = today.withDayOfMonth(1);
+        final int days = today.getDayOfMonth();
+        // saldo inicial 100; el día 1 deposita 50 → cierre 150 el resto del mes
+        final Account acc = Account.builder().id("a1").accountNumber("001").customerId("c1")
+                .balance(new BigDecimal("150")).build();
+        when(accountRepo.findByCustomerId("c1")).thenReturn(Flux.just(acc));
+        when(dailyBalances.snapshots(eq("a1"), eq(first), eq(today))).thenReturn(Flux.just(
+                AccountDailyBalance.builder().accountId("a1").day(first.toString())
+                        .deposits(new BigDecimal("50")).withdrawals(BigDecimal.ZERO)
+                        .closingBalance(new BigDecimal("150")).build()));
+        when(creditCardRepo.findByCustomerId("c1")).thenReturn(Flux.empty());
+        when(loanRepo.findByCustomerId("c1")).thenReturn(Flux.empty());
+
+        StepVerifier.create(service.dailyAveragesForCustomerCurrentMonth("c1", ZONE))
+                .assertNext(r -> {
+                    assertThat(r.daysComputed()).isEqualTo(days);
+                    assertThat(r.products()).singleElement()
+                            .satisfies(p -> assertThat(p.dailyAverage()).isEqualByComparingTo("150"));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void cardDailyAverageComesFromLedger() {
+        final LocalDate today = LocalDate.now(ZONE);
+        final LocalDate first = today.withDayOfMonth(1);
+        // tarjeta emitida el día 1 con 1000 disponibles; cargo de 400 el mismo día → 600 todo el mes
+        final CreditCard card = CreditCard.builder().id("cc1").cardNumber("4111").customerId("c1")
+                .available(new BigDecimal("600")).build();
+        when(accountRepo.findByCustomerId("c1")).thenReturn(Flux.empty());
+        when(creditCardRepo.findByCustomerId("c1")).thenReturn(Flux.just(card));
+        when(loanRepo.findByCustomerId("c1")).thenReturn(Flux.empty());
+        when(ledger.days(eq("cc1"), eq(first), eq(today))).thenReturn(Flux.just(ProductLedgerDay.builder()
+                .productType(ProductLedgerDay.CARD).productId("cc1").day(first.toString())
+                .entries(List.of(
+                        entry("OPEN", "1000", "1000", "2025-01-01T10:00:00Z"),
+                        entry("CHARGE", "-400", "600", "2025-01-01T11:00:00Z")))
+                .build()));
+
+        StepVerifier.create(service.dailyAveragesForCustomerCurrentMonth("c1", ZONE))
+                .assertNext(r -> assertThat(r.products()).singleElement()
+                        .satisfies(p -> assertThat(p.dailyAverage()).isEqualByComparingTo("600")))
+                .verifyComplete();
+    }
+
+    private static ProductLedgerDay.Entry entry(String type, String delta, String after, String at) {
+        return ProductLedgerDay.Entry.builder().type(type).amount(new BigDecimal(delta).abs())
+                .delta(new BigDecimal(delta)).balanceAfter(new BigDecimal(after)).at(Instant.parse(at)).build();
+    }
+}